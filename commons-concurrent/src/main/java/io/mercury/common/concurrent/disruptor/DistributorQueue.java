@@ -1,22 +1,34 @@
 package io.mercury.common.concurrent.disruptor;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
 
 import org.slf4j.Logger;
 
+import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.EventTranslatorOneArg;
 import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.WorkHandler;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 
 import io.mercury.common.collections.queue.api.SCQueue;
-import io.mercury.common.collections.queue.base.LoadContainer;
+import io.mercury.common.collections.queue.base.BackpressureCounters;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.collections.queue.base.QueueMetrics;
 import io.mercury.common.functional.Processor;
 import io.mercury.common.log.CommonLoggerFactory;
 import io.mercury.common.thread.ThreadTool;
 
 /**
- * 
+ * 将事件分发到多个消费线程的队列.<br>
+ * <br>
+ * 未提供router时为work-sharing模式, 由Disruptor WorkerPool将每个事件交给任一空闲worker,
+ * 此时processor必须是线程安全的.<br>
+ * 提供router时为key-affinity模式, router计算结果相同的事件总是由同一个worker按发布顺序处理.
+ *
  * @author yellow013
  *
  * @param <T>
@@ -25,12 +37,22 @@ public class DistributorQueue<T> extends SCQueue<T> {
 
 	private Logger log = CommonLoggerFactory.getLogger(getClass());
 
-	private Disruptor<LoadContainer<T>> disruptor;
+	private Disruptor<ShardContainer<T>> disruptor;
+
+	private RingBuffer<ShardContainer<T>> ringBuffer;
 
-	private LoadContainerEventProducer producer;
+	private EventTranslatorOneArg<ShardContainer<T>, T> translator;
 
 	private AtomicBoolean isStop = new AtomicBoolean(false);
 
+	private final int workerCount;
+
+	private final AtomicInteger threadIndex = new AtomicInteger(0);
+
+	private final BackpressurePolicy backpressurePolicy;
+
+	private final BackpressureCounters backpressureCounters = new BackpressureCounters();
+
 	public DistributorQueue(String queueName, BufferSize bufferSize, Processor<T> processor) {
 		this(queueName, bufferSize, false, processor);
 	}
@@ -41,30 +63,140 @@ public class DistributorQueue<T> extends SCQueue<T> {
 
 	public DistributorQueue(String queueName, BufferSize bufferSize, boolean autoRun, Processor<T> processor,
 			WaitStrategyOption option) {
+		this(queueName, bufferSize, autoRun, processor, option, 1, null);
+	}
+
+	/**
+	 * work-sharing模式
+	 *
+	 * @param queueName
+	 * @param bufferSize
+	 * @param autoRun
+	 * @param processor   线程安全的processor
+	 * @param option
+	 * @param workerCount
+	 */
+	public DistributorQueue(String queueName, BufferSize bufferSize, boolean autoRun, Processor<T> processor,
+			WaitStrategyOption option, int workerCount) {
+		this(queueName, bufferSize, autoRun, processor, option, workerCount, null);
+	}
+
+	/**
+	 * key-affinity模式
+	 *
+	 * @param queueName
+	 * @param bufferSize
+	 * @param autoRun
+	 * @param processor
+	 * @param option
+	 * @param workerCount
+	 * @param router      计算事件的分区key, 为null时使用work-sharing模式
+	 */
+	public DistributorQueue(String queueName, BufferSize bufferSize, boolean autoRun, Processor<T> processor,
+			WaitStrategyOption option, int workerCount, ToIntFunction<T> router) {
+		this(queueName, bufferSize, autoRun, processor, option, workerCount, router, BackpressurePolicy.block());
+	}
+
+	/**
+	 * 
+	 * @param queueName
+	 * @param bufferSize
+	 * @param autoRun
+	 * @param processor
+	 * @param option
+	 * @param workerCount
+	 * @param router             为null时使用work-sharing模式
+	 * @param backpressurePolicy 不支持DropOldest和CallerRuns
+	 */
+	public DistributorQueue(String queueName, BufferSize bufferSize, boolean autoRun, Processor<T> processor,
+			WaitStrategyOption option, int workerCount, ToIntFunction<T> router,
+			BackpressurePolicy backpressurePolicy) {
 		super(processor);
+		this.backpressurePolicy = RingBufferPublisher.checkPolicy(backpressurePolicy, DistributorQueue.class);
+		if (workerCount <= 0)
+			throw new IllegalArgumentException("workerCount must greater than 0");
 		if (queueName != null)
 			super.queueName = queueName;
-		// if (queueSize == 0 || queueSize % 2 != 0)
-		// throw new IllegalArgumentException("queueSize set error...");
+		this.workerCount = workerCount;
 		this.disruptor = new Disruptor<>(
-				// 实现EventFactory<LoadContainer<>>的Lambda
-				LoadContainer::new,
+				// 实现EventFactory<ShardContainer<>>的Lambda
+				ShardContainer::new,
 				// 队列容量
 				bufferSize.value(),
-				// 实现ThreadFactory的Lambda
+				// 实现ThreadFactory的Lambda, 每个worker使用独立线程
 				(Runnable runnable) -> ThreadTool.newMaxPriorityThread(runnable,
-						"DisruptorQueue-" + super.queueName + "-WorkingThread"),
-				// DaemonThreadFactory.INSTANCE,
+						"DisruptorQueue-" + super.queueName + "-WorkingThread-" + threadIndex.getAndIncrement()),
 				// 生产者策略, 使用单生产者
 				ProducerType.SINGLE,
 				// Waiting策略
 				WaitStrategyFactory.getStrategy(option));
-		this.disruptor.handleEventsWith((event, sequence, endOfBatch) -> callProcessor(event.unloading()));
-		this.producer = new LoadContainerEventProducer(disruptor.getRingBuffer());
+		if (router == null) {
+			this.translator = (event, sequence, t) -> {
+				event.loading(t, 0, sequence);
+				markEnqueue(sequence);
+			};
+			@SuppressWarnings("unchecked")
+			WorkHandler<ShardContainer<T>>[] handlers = new WorkHandler[workerCount];
+			for (int i = 0; i < workerCount; i++)
+				handlers[i] = event -> {
+					markDequeue(event.sequence);
+					callProcessor(event.unloading());
+				};
+			this.disruptor.handleEventsWithWorkerPool(handlers);
+		} else {
+			// 分区在发布时计算一次, 各worker只需比较分区号
+			this.translator = (event, sequence, t) -> {
+				event.loading(t, (router.applyAsInt(t) & Integer.MAX_VALUE) % workerCount, sequence);
+				markEnqueue(sequence);
+			};
+			@SuppressWarnings("unchecked")
+			EventHandler<ShardContainer<T>>[] handlers = new EventHandler[workerCount];
+			for (int i = 0; i < workerCount; i++) {
+				final int shard = i;
+				handlers[i] = (event, sequence, endOfBatch) -> {
+					if (event.shard == shard) {
+						markDequeue(sequence);
+						callProcessor(event.unloading());
+					}
+				};
+			}
+			this.disruptor.handleEventsWith(handlers);
+		}
+		this.ringBuffer = disruptor.getRingBuffer();
 		if (autoRun)
 			start();
 	}
 
+	private static final class ShardContainer<T> {
+
+		private T t;
+		private int shard;
+		private long sequence;
+
+		private void loading(T t, int shard, long sequence) {
+			this.t = t;
+			this.shard = shard;
+			this.sequence = sequence;
+		}
+
+		private T unloading() {
+			return t;
+		}
+
+	}
+
+	private void markEnqueue(long sequence) {
+		QueueMetrics metrics = this.metrics;
+		if (metrics != null)
+			metrics.markEnqueue(sequence);
+	}
+
+	private void markDequeue(long sequence) {
+		QueueMetrics metrics = this.metrics;
+		if (metrics != null)
+			metrics.markDequeue(sequence);
+	}
+
 	private void callProcessor(T t) {
 		try {
 			processor.process(t);
@@ -74,34 +206,48 @@ public class DistributorQueue<T> extends SCQueue<T> {
 		}
 	}
 
-	private class LoadContainerEventProducer {
-
-		private final RingBuffer<LoadContainer<T>> ringBuffer;
-
-		private EventTranslatorOneArg<LoadContainer<T>, T> eventTranslator = (event, sequence, t) -> event.loading(t);
-
-		private LoadContainerEventProducer(RingBuffer<LoadContainer<T>> ringBuffer) {
-			this.ringBuffer = ringBuffer;
-		}
-
-		private void onEvent(T t) {
-			ringBuffer.publishEvent(eventTranslator, t);
-		}
+	@Override
+	public boolean enqueue(T t) {
+		return offer(t).isAccepted();
 	}
 
 	@Override
-	public boolean enqueue(T t) {
+	public EnqueueStatus offer(T t) {
 		try {
 			if (isStop.get())
-				return false;
-			producer.onEvent(t);
-			return true;
+				return EnqueueStatus.Closed;
+			return RingBufferPublisher.offer(ringBuffer, translator, t, backpressurePolicy, backpressureCounters,
+					metrics);
 		} catch (Exception e) {
-			log.error("producer.onData(t) throw exception -> [{}]", e.getMessage(), e);
-			return false;
+			log.error("ringBuffer.tryPublishEvent(translator, t) throw exception -> [{}]", e.getMessage(), e);
+			return EnqueueStatus.Closed;
 		}
 	}
 
+	@Override
+	public BackpressurePolicy backpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	@Override
+	public BackpressureCounters backpressureCounters() {
+		return backpressureCounters;
+	}
+
+	@Override
+	public int size() {
+		return RingBufferPublisher.size(ringBuffer);
+	}
+
+	@Override
+	public int capacity() {
+		return ringBuffer.getBufferSize();
+	}
+
+	public int workerCount() {
+		return workerCount;
+	}
+
 	@Override
 	protected void startProcessThread() {
 		disruptor.start();
@@ -110,7 +256,8 @@ public class DistributorQueue<T> extends SCQueue<T> {
 	@Override
 	public void stop() {
 		isStop.set(true);
-		while (disruptor.getBufferSize() != 0)
+		// 等待所有worker处理完已发布的事件
+		while (size() > 0)
 			ThreadTool.sleep(1);
 		disruptor.shutdown();
 		log.info("Call stop() success, disruptor is shutdown.");
@@ -118,8 +265,9 @@ public class DistributorQueue<T> extends SCQueue<T> {
 
 	public static void main(String[] args) {
 
-		DistributorQueue<Integer> queue = new DistributorQueue<>("Test-Queue", BufferSize.POW2_6, true,
-				(integer) -> System.out.println(integer));
+		DistributorQueue<Integer> queue = new DistributorQueue<>("Test-Queue", BufferSize.POW2_10, true,
+				(integer) -> System.out.println(ThreadTool.currentThreadName() + " -> " + integer),
+				WaitStrategyOption.Yielding, 4, integer -> integer % 16);
 
 		ThreadTool.startNewThread(() -> {
 			int i = 0;
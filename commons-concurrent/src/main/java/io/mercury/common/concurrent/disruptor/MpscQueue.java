@@ -0,0 +1,198 @@
+package io.mercury.common.concurrent.disruptor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+
+import io.mercury.common.collections.queue.api.SCQueue;
+import io.mercury.common.collections.queue.base.BackpressureCounters;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.collections.queue.base.LoadContainer;
+import io.mercury.common.collections.queue.base.QueueMetrics;
+import io.mercury.common.functional.Processor;
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.thread.ThreadTool;
+
+/**
+ * 多生产者单消费者队列, 使用Disruptor的ProducerType.MULTI实现无锁的生产者竞争.
+ *
+ * @author yellow013
+ *
+ * @param <T>
+ */
+@ThreadSafe
+public class MpscQueue<T> extends SCQueue<T> {
+
+	private Logger log = CommonLoggerFactory.getLogger(getClass());
+
+	private Disruptor<LoadContainer<T>> disruptor;
+
+	private RingBuffer<LoadContainer<T>> ringBuffer;
+
+	private EventTranslatorOneArg<LoadContainer<T>, T> translator = (event, sequence, t) -> {
+		event.loading(t);
+		QueueMetrics metrics = this.metrics;
+		if (metrics != null)
+			metrics.markEnqueue(sequence);
+	};
+
+	private AtomicBoolean isStop = new AtomicBoolean(false);
+
+	private final BackpressurePolicy backpressurePolicy;
+
+	private final BackpressureCounters backpressureCounters = new BackpressureCounters();
+
+	public MpscQueue(String queueName, BufferSize bufferSize, boolean autoRun, Processor<T> processor) {
+		this(queueName, bufferSize, autoRun, processor, WaitStrategyOption.BusySpin);
+	}
+
+	public MpscQueue(String queueName, BufferSize bufferSize, boolean autoRun, Processor<T> processor,
+			WaitStrategyOption option) {
+		this(queueName, bufferSize, autoRun, processor, option, BackpressurePolicy.block());
+	}
+
+	/**
+	 * 
+	 * @param queueName
+	 * @param bufferSize
+	 * @param autoRun
+	 * @param processor
+	 * @param option
+	 * @param backpressurePolicy 不支持DropOldest和CallerRuns
+	 */
+	public MpscQueue(String queueName, BufferSize bufferSize, boolean autoRun, Processor<T> processor,
+			WaitStrategyOption option, BackpressurePolicy backpressurePolicy) {
+		super(processor);
+		this.backpressurePolicy = RingBufferPublisher.checkPolicy(backpressurePolicy, MpscQueue.class);
+		if (queueName != null)
+			super.queueName = queueName;
+		this.disruptor = new Disruptor<>(
+				// 实现EventFactory<LoadContainer<>>的Lambda
+				LoadContainer::new,
+				// 队列容量
+				bufferSize.value(),
+				// 实现ThreadFactory的Lambda
+				(Runnable runnable) -> ThreadTool.newMaxPriorityThread(runnable,
+						"DisruptorQueue-" + super.queueName + "-WorkingThread"),
+				// 生产者策略, 使用多生产者
+				ProducerType.MULTI,
+				// Waiting策略
+				WaitStrategyFactory.getStrategy(option));
+		this.disruptor.handleEventsWith((event, sequence, endOfBatch) -> {
+			QueueMetrics metrics = this.metrics;
+			if (metrics != null)
+				metrics.markDequeue(sequence);
+			callProcessor(event.unloading());
+		});
+		this.ringBuffer = disruptor.getRingBuffer();
+		if (autoRun)
+			start();
+	}
+
+	private void callProcessor(T t) {
+		try {
+			processor.process(t);
+		} catch (Exception e) {
+			log.error("processor.process(t) throw exception -> [{}]", e.getMessage(), e);
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 队列已满时按BackpressurePolicy处理, 默认等待可用位置
+	 */
+	@Override
+	public boolean enqueue(T t) {
+		return offer(t).isAccepted();
+	}
+
+	@Override
+	public EnqueueStatus offer(T t) {
+		try {
+			if (isStop.get())
+				return EnqueueStatus.Closed;
+			return RingBufferPublisher.offer(ringBuffer, translator, t, backpressurePolicy, backpressureCounters,
+					metrics);
+		} catch (Exception e) {
+			log.error("ringBuffer.tryPublishEvent(translator, t) throw exception -> [{}]", e.getMessage(), e);
+			return EnqueueStatus.Closed;
+		}
+	}
+
+	/**
+	 * 非阻塞写入, 队列已满或已停止时立即返回false
+	 *
+	 * @param t
+	 * @return
+	 */
+	public boolean tryEnqueue(T t) {
+		if (isStop.get())
+			return false;
+		return RingBufferPublisher.tryPublishEvent(ringBuffer, translator, t, metrics);
+	}
+
+	@Override
+	public BackpressurePolicy backpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	@Override
+	public BackpressureCounters backpressureCounters() {
+		return backpressureCounters;
+	}
+
+	@Override
+	public int size() {
+		return RingBufferPublisher.size(ringBuffer);
+	}
+
+	@Override
+	public int capacity() {
+		return ringBuffer.getBufferSize();
+	}
+
+	@Override
+	protected void startProcessThread() {
+		disruptor.start();
+	}
+
+	@Override
+	public void stop() {
+		isStop.set(true);
+		// 等待消费者处理完全部已发布的事件
+		while (size() > 0)
+			ThreadTool.sleep(1);
+		disruptor.shutdown();
+		log.info("Call stop() success, disruptor is shutdown.");
+	}
+
+	public static void main(String[] args) {
+
+		MpscQueue<Integer> queue = new MpscQueue<>("Test-Queue", BufferSize.POW2_10, true,
+				(integer) -> System.out.println(integer), WaitStrategyOption.Yielding);
+
+		for (int p = 0; p < 4; p++) {
+			int base = p * 1000000;
+			ThreadTool.startNewThread(() -> {
+				int i = base;
+				for (;;)
+					if (!queue.tryEnqueue(++i))
+						i--;
+			});
+		}
+
+		ThreadTool.sleep(10000);
+
+		queue.stop();
+
+	}
+
+}
@@ -0,0 +1,97 @@
+package io.mercury.common.concurrent.disruptor;
+
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.RingBuffer;
+
+import io.mercury.common.collections.queue.base.BackpressureCounters;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.collections.queue.base.QueueMetrics;
+
+final class RingBufferPublisher {
+
+	private RingBufferPublisher() {
+	}
+
+	static <E, A> boolean tryPublishEvent(RingBuffer<E> ringBuffer, EventTranslatorOneArg<E, A> translator, A arg,
+			QueueMetrics metrics) {
+		if (ringBuffer.tryPublishEvent(translator, arg))
+			return true;
+		if (metrics != null)
+			metrics.markFull();
+		return false;
+	}
+
+	/**
+	 * Disruptor队列支持Block, BlockWithDeadline, DropNewest和FailFast.<br>
+	 * RingBuffer不能由生产者移除已发布的事件, 因此不支持DropOldest; CallerRuns会与消费线程并发调用processor, 也不支持.
+	 * 
+	 * @param policy     为null时使用Block
+	 * @param queueClass
+	 * @return
+	 */
+	static BackpressurePolicy checkPolicy(BackpressurePolicy policy, Class<?> queueClass) {
+		if (policy == null)
+			return BackpressurePolicy.block();
+		switch (policy.strategy()) {
+		case DropOldest:
+		case CallerRuns:
+			throw new IllegalArgumentException(
+					queueClass.getSimpleName() + " not support BackpressurePolicy [" + policy + "]");
+		default:
+			return policy;
+		}
+	}
+
+	/**
+	 * 按policy发布事件, 队列已满时的处理结果记录到counters
+	 * 
+	 * @param ringBuffer
+	 * @param translator
+	 * @param arg
+	 * @param policy     必须经过{@link #checkPolicy(BackpressurePolicy, Class)}检查
+	 * @param counters
+	 * @param metrics
+	 * @return
+	 */
+	static <E, A> EnqueueStatus offer(RingBuffer<E> ringBuffer, EventTranslatorOneArg<E, A> translator, A arg,
+			BackpressurePolicy policy, BackpressureCounters counters, QueueMetrics metrics) {
+		if (ringBuffer.tryPublishEvent(translator, arg))
+			return EnqueueStatus.Success;
+		if (metrics != null)
+			metrics.markFull();
+		switch (policy.strategy()) {
+		case Block:
+			counters.markBlocked();
+			do {
+				if (metrics != null)
+					metrics.markWait();
+				LockSupport.parkNanos(1L);
+			} while (!ringBuffer.tryPublishEvent(translator, arg));
+			return EnqueueStatus.Success;
+		case BlockWithDeadline:
+			counters.markBlocked();
+			long deadline = System.nanoTime() + policy.deadlineNanos();
+			do {
+				if (System.nanoTime() - deadline >= 0)
+					return counters.record(EnqueueStatus.Timeout);
+				if (metrics != null)
+					metrics.markWait();
+				LockSupport.parkNanos(1L);
+			} while (!ringBuffer.tryPublishEvent(translator, arg));
+			return EnqueueStatus.Success;
+		case FailFast:
+			return counters.record(EnqueueStatus.Full);
+		case DropNewest:
+		default:
+			return counters.record(EnqueueStatus.DroppedNewest);
+		}
+	}
+
+	static int size(RingBuffer<?> ringBuffer) {
+		return (int) (ringBuffer.getBufferSize() - ringBuffer.remainingCapacity());
+	}
+
+}
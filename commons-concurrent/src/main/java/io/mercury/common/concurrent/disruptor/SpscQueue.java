@@ -10,7 +10,13 @@ import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 
 import io.mercury.common.collections.queue.api.SCQueue;
+import io.mercury.common.collections.queue.base.BackpressureCounters;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.BatchContainer;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
 import io.mercury.common.collections.queue.base.LoadContainer;
+import io.mercury.common.collections.queue.base.QueueMetrics;
+import io.mercury.common.functional.BatchProcessor;
 import io.mercury.common.functional.Processor;
 import io.mercury.common.log.CommonLoggerFactory;
 import io.mercury.common.thread.ThreadTool;
@@ -31,6 +37,14 @@ public class SpscQueue<T> extends SCQueue<T> {
 
 	private AtomicBoolean isStop = new AtomicBoolean(false);
 
+	private BatchProcessor<T> batchProcessor;
+
+	private BatchContainer<T> batch;
+
+	private final BackpressurePolicy backpressurePolicy;
+
+	private final BackpressureCounters backpressureCounters = new BackpressureCounters();
+
 	public SpscQueue(String queueName, BufferSize bufferSize) {
 		this(queueName, bufferSize, false, null);
 	}
@@ -41,7 +55,28 @@ public class SpscQueue<T> extends SCQueue<T> {
 
 	public SpscQueue(String queueName, BufferSize bufferSize, boolean autoRun, Processor<T> processor,
 			WaitStrategyOption option) {
+		this(queueName, bufferSize, autoRun, processor, option, BackpressurePolicy.block());
+	}
+
+	/**
+	 * 
+	 * @param queueName
+	 * @param bufferSize
+	 * @param autoRun
+	 * @param processor
+	 * @param option
+	 * @param backpressurePolicy 不支持DropOldest和CallerRuns
+	 */
+	public SpscQueue(String queueName, BufferSize bufferSize, boolean autoRun, Processor<T> processor,
+			WaitStrategyOption option, BackpressurePolicy backpressurePolicy) {
+		this(queueName, bufferSize, autoRun, option, backpressurePolicy, processor, null, 0);
+	}
+
+	private SpscQueue(String queueName, BufferSize bufferSize, boolean autoRun, WaitStrategyOption option,
+			BackpressurePolicy backpressurePolicy, Processor<T> processor, BatchProcessor<T> batchProcessor,
+			int batchSize) {
 		super(processor);
+		this.backpressurePolicy = RingBufferPublisher.checkPolicy(backpressurePolicy, SpscQueue.class);
 		if (queueName != null)
 			super.queueName = queueName;
 		// if (queueSize == 0 || queueSize % 2 != 0)
@@ -59,12 +94,33 @@ public class SpscQueue<T> extends SCQueue<T> {
 				ProducerType.SINGLE,
 				// Waiting策略
 				WaitStrategyFactory.getStrategy(option));
-		this.disruptor.handleEventsWith((event, sequence, endOfBatch) -> callProcessor(event.unloading()));
+		if (batchProcessor == null) {
+			this.disruptor.handleEventsWith((event, sequence, endOfBatch) -> {
+				markDequeue(sequence);
+				callProcessor(event.unloading());
+			});
+		} else {
+			this.batchProcessor = batchProcessor;
+			// 批次容量不超过RingBuffer容量
+			this.batch = new BatchContainer<>(Math.min(batchSize, bufferSize.value()));
+			this.disruptor.handleEventsWith((event, sequence, endOfBatch) -> {
+				markDequeue(sequence);
+				batch.loading(event.unloading(), sequence);
+				if (endOfBatch || batch.isFull())
+					callBatchProcessor(endOfBatch);
+			});
+		}
 		this.producer = new LoadContainerEventProducer(disruptor.getRingBuffer());
 		if (autoRun)
 			start();
 	}
 
+	private void markDequeue(long sequence) {
+		QueueMetrics metrics = this.metrics;
+		if (metrics != null)
+			metrics.markDequeue(sequence);
+	}
+
 	private void callProcessor(T t) {
 		try {
 			processor.process(t);
@@ -74,34 +130,96 @@ public class SpscQueue<T> extends SCQueue<T> {
 		}
 	}
 
+	private void callBatchProcessor(boolean endOfBatch) {
+		try {
+			batchProcessor.process(batch, endOfBatch);
+		} catch (Exception e) {
+			log.error("batchProcessor.process(batch, endOfBatch) throw exception -> [{}]", e.getMessage(), e);
+			throw new RuntimeException(e);
+		} finally {
+			batch.clear();
+		}
+	}
+
+	/**
+	 * 创建批量消费模式的队列, 消费线程在Disruptor的endOfBatch时将整批事件交给batchProcessor.
+	 * 
+	 * @param queueName
+	 * @param bufferSize
+	 * @param autoRun
+	 * @param option
+	 * @param batchSize      单次回调的最大事件数量
+	 * @param batchProcessor
+	 * @return
+	 */
+	public static <T> SpscQueue<T> newBatchQueue(String queueName, BufferSize bufferSize, boolean autoRun,
+			WaitStrategyOption option, int batchSize, BatchProcessor<T> batchProcessor) {
+		if (batchProcessor == null)
+			throw new IllegalArgumentException("batchProcessor is null...");
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("batchSize must greater than 0");
+		return new SpscQueue<>(queueName, bufferSize, autoRun, option, BackpressurePolicy.block(),
+				batchProcessor.toProcessor(), batchProcessor, batchSize);
+	}
+
 	private class LoadContainerEventProducer {
 
 		private final RingBuffer<LoadContainer<T>> ringBuffer;
 
-		private EventTranslatorOneArg<LoadContainer<T>, T> eventTranslator = (event, sequence, t) -> event.loading(t);
+		private EventTranslatorOneArg<LoadContainer<T>, T> eventTranslator = (event, sequence, t) -> {
+			event.loading(t);
+			QueueMetrics metrics = SpscQueue.this.metrics;
+			if (metrics != null)
+				metrics.markEnqueue(sequence);
+		};
 
 		private LoadContainerEventProducer(RingBuffer<LoadContainer<T>> ringBuffer) {
 			this.ringBuffer = ringBuffer;
 		}
 
-		private void onEvent(T t) {
-			ringBuffer.publishEvent(eventTranslator, t);
+		private EnqueueStatus onEvent(T t) {
+			return RingBufferPublisher.offer(ringBuffer, eventTranslator, t, backpressurePolicy, backpressureCounters,
+					metrics);
 		}
 	}
 
 	@Override
 	public boolean enqueue(T t) {
+		return offer(t).isAccepted();
+	}
+
+	@Override
+	public EnqueueStatus offer(T t) {
 		try {
 			if (isStop.get())
-				return false;
-			producer.onEvent(t);
-			return true;
+				return EnqueueStatus.Closed;
+			return producer.onEvent(t);
 		} catch (Exception e) {
 			log.error("producer.onData(t) throw exception -> [{}]", e.getMessage(), e);
-			return false;
+			return EnqueueStatus.Closed;
 		}
 	}
 
+	@Override
+	public BackpressurePolicy backpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	@Override
+	public BackpressureCounters backpressureCounters() {
+		return backpressureCounters;
+	}
+
+	@Override
+	public int size() {
+		return RingBufferPublisher.size(disruptor.getRingBuffer());
+	}
+
+	@Override
+	public int capacity() {
+		return disruptor.getRingBuffer().getBufferSize();
+	}
+
 	@Override
 	protected void startProcessThread() {
 		disruptor.start();
@@ -110,7 +228,7 @@ public class SpscQueue<T> extends SCQueue<T> {
 	@Override
 	public void stop() {
 		isStop.set(true);
-		while (disruptor.getBufferSize() != 0)
+		while (size() > 0)
 			ThreadTool.sleep(1);
 		disruptor.shutdown();
 		log.info("Call stop() success, disruptor is shutdown.");
@@ -1,6 +1,7 @@
 package io.mercury.common.concurrent.disruptor;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 
 import org.slf4j.Logger;
@@ -10,24 +11,96 @@ import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 
+import io.mercury.common.annotation.thread.OnlySingleThreadCall;
 import io.mercury.common.collections.queue.api.SCQueue;
+import io.mercury.common.collections.queue.base.BackpressureCounters;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.collections.queue.base.QueueMetrics;
 import io.mercury.common.functional.Processor;
 import io.mercury.common.log.CommonLoggerFactory;
 import io.mercury.common.thread.ThreadTool;
 
+/**
+ * 使用Supplier预分配RingBuffer中全部事件对象的单生产者单消费者队列.<br>
+ * 生产者通过copier或claim()/publish(sequence)直接写入预分配的对象, 稳定运行时不产生分配.<br>
+ * 消费者的processor只能在回调期间使用传入的对象, 回调返回后该对象会被复用.
+ *
+ * @author yellow013
+ *
+ * @param <T>
+ */
 public class SpscQueueWithSupplier<T> extends SCQueue<T> {
 
 	private Logger log = CommonLoggerFactory.getLogger(SpscQueueWithSupplier.class);
 
 	private Disruptor<T> disruptor;
 
-	private LoadContainerEventProducer producer;
+	private RingBuffer<T> ringBuffer;
+
+	private EventTranslatorOneArg<T, T> translator;
+
+	/**
+	 * 未提供copier时enqueue(t)按sequence保存t的引用, 消费者处理t本身而不是预分配的对象
+	 */
+	private Object[] references;
+
+	private int referenceMask;
 
 	private AtomicBoolean isStop = new AtomicBoolean(false);
 
+	private final BackpressurePolicy backpressurePolicy;
+
+	private final BackpressureCounters backpressureCounters = new BackpressureCounters();
+
+	/**
+	 * 未提供copier, enqueue(t)将t本身交给processor, 每个元素都需要调用方分配.<br>
+	 * 使用{@link #SpscQueueWithSupplier(BufferSize, boolean, WaitStrategyOption, Supplier, BiConsumer, Processor)}
+	 * 提供copier, 或使用enqueue(arg, copier)/claim()写入预分配的对象以避免分配.
+	 *
+	 * @param bufferSize
+	 * @param autoRun
+	 * @param option
+	 * @param supplier
+	 * @param processor
+	 */
+	@Deprecated
 	public SpscQueueWithSupplier(BufferSize bufferSize, boolean autoRun, WaitStrategyOption option,
 			Supplier<T> supplier, Processor<T> processor) {
+		this(bufferSize, autoRun, option, supplier, null, processor);
+	}
+
+	/**
+	 *
+	 * @param bufferSize
+	 * @param autoRun
+	 * @param option
+	 * @param supplier
+	 * @param copier     (slot, source) -> 将source的内容复制到预分配的slot中, 为null时enqueue(t)直接传递t的引用
+	 * @param processor
+	 */
+	public SpscQueueWithSupplier(BufferSize bufferSize, boolean autoRun, WaitStrategyOption option,
+			Supplier<T> supplier, BiConsumer<T, T> copier, Processor<T> processor) {
+		this(bufferSize, autoRun, option, supplier, copier, processor, BackpressurePolicy.block());
+	}
+
+	/**
+	 *
+	 * @param bufferSize
+	 * @param autoRun
+	 * @param option
+	 * @param supplier
+	 * @param copier             (slot, source) -> 将source的内容复制到预分配的slot中,
+	 *                           为null时enqueue(t)直接传递t的引用
+	 * @param processor
+	 * @param backpressurePolicy 作用于enqueue(t)和offer(t), 不支持DropOldest和CallerRuns;
+	 *                           claim()在队列已满时始终等待
+	 */
+	public SpscQueueWithSupplier(BufferSize bufferSize, boolean autoRun, WaitStrategyOption option,
+			Supplier<T> supplier, BiConsumer<T, T> copier, Processor<T> processor,
+			BackpressurePolicy backpressurePolicy) {
 		super(processor);
+		this.backpressurePolicy = RingBufferPublisher.checkPolicy(backpressurePolicy, SpscQueueWithSupplier.class);
 		// if (queueSize == 0 || queueSize % 2 != 0)
 		// throw new IllegalArgumentException("queueSize set error...");
 		this.processor = processor;
@@ -44,12 +117,50 @@ public class SpscQueueWithSupplier<T> extends SCQueue<T> {
 				ProducerType.SINGLE,
 				// Waiting策略
 				WaitStrategyFactory.getStrategy(option));
-		this.disruptor.handleEventsWith((event, sequence, endOfBatch) -> tryCallProcessor(event));
-		this.producer = new LoadContainerEventProducer(disruptor.getRingBuffer());
+		this.disruptor.handleEventsWith((event, sequence, endOfBatch) -> {
+			QueueMetrics metrics = this.metrics;
+			if (metrics != null)
+				metrics.markDequeue(sequence);
+			tryCallProcessor(references == null ? event : takeReference(event, sequence));
+		});
+		this.ringBuffer = disruptor.getRingBuffer();
+		if (copier != null)
+			this.translator = (event, sequence, t) -> {
+				copier.accept(event, t);
+				markEnqueue(sequence);
+			};
+		else {
+			this.references = new Object[ringBuffer.getBufferSize()];
+			this.referenceMask = ringBuffer.getBufferSize() - 1;
+			this.translator = (event, sequence, t) -> {
+				references[(int) sequence & referenceMask] = t;
+				markEnqueue(sequence);
+			};
+		}
 		if (autoRun)
 			start();
 	}
 
+	private void markEnqueue(long sequence) {
+		QueueMetrics metrics = this.metrics;
+		if (metrics != null)
+			metrics.markEnqueue(sequence);
+	}
+
+	/**
+	 * 生产者在publish之前写入, 消费者处理后清除; 同一位置在消费者推进之前不会被再次写入
+	 */
+	@SuppressWarnings("unchecked")
+	private T takeReference(T event, long sequence) {
+		int index = (int) sequence & referenceMask;
+		Object reference = references[index];
+		if (reference == null)
+			// 由enqueue(arg, copier)或claim()/publish()写入预分配的对象
+			return event;
+		references[index] = null;
+		return (T) reference;
+	}
+
 	private void tryCallProcessor(T t) {
 		try {
 			processor.process(t);
@@ -59,35 +170,112 @@ public class SpscQueueWithSupplier<T> extends SCQueue<T> {
 		}
 	}
 
-	private class LoadContainerEventProducer {
-
-		private final RingBuffer<T> ringBuffer;
-
-		private EventTranslatorOneArg<T, T> translator = (T event, long sequence, T t) -> {
-			event = t;
-		};
-
-		private LoadContainerEventProducer(RingBuffer<T> ringBuffer) {
-			this.ringBuffer = ringBuffer;
-		}
+	/**
+	 * 使用构造时提供的copier将t复制到预分配的对象中, 未提供copier时直接传递t的引用
+	 */
+	@Override
+	@OnlySingleThreadCall
+	public boolean enqueue(T t) {
+		return offer(t).isAccepted();
+	}
 
-		public void onData(T t) {
-			ringBuffer.publishEvent(translator, t);
+	@Override
+	@OnlySingleThreadCall
+	public EnqueueStatus offer(T t) {
+		try {
+			if (isStop.get())
+				return EnqueueStatus.Closed;
+			return RingBufferPublisher.offer(ringBuffer, translator, t, backpressurePolicy, backpressureCounters,
+					metrics);
+		} catch (Exception e) {
+			log.error("ringBuffer.tryPublishEvent(translator, t) throw exception -> [{}]", e.getMessage(), e);
+			return EnqueueStatus.Closed;
 		}
 	}
 
-	@Override
-	public boolean enqueue(T t) {
+	/**
+	 * 使用copier将任意参数写入预分配的对象中, copier应为无捕获的常量以避免分配
+	 *
+	 * @param <A>
+	 * @param arg
+	 * @param copier
+	 * @return
+	 */
+	@OnlySingleThreadCall
+	public <A> boolean enqueue(A arg, BiConsumer<T, A> copier) {
 		try {
 			if (isStop.get())
 				return false;
-			producer.onData(t);
+			long sequence = claim();
+			try {
+				copier.accept(ringBuffer.get(sequence), arg);
+			} finally {
+				publish(sequence);
+			}
 			return true;
 		} catch (Exception e) {
+			log.error("enqueue(arg, copier) throw exception -> [{}]", e.getMessage(), e);
 			return false;
 		}
 	}
 
+	/**
+	 * 申请下一个可写的sequence, 队列已满时等待.<br>
+	 * 必须与{@link #publish(long)}成对调用, 中间通过{@link #get(long)}填充对象.
+	 *
+	 * @return sequence
+	 */
+	@OnlySingleThreadCall
+	public long claim() {
+		if (isStop.get())
+			throw new IllegalStateException("queue is stopped");
+		QueueMetrics metrics = this.metrics;
+		if (metrics != null && !ringBuffer.hasAvailableCapacity(1))
+			metrics.markFull();
+		return ringBuffer.next();
+	}
+
+	/**
+	 * 获取sequence对应的预分配对象
+	 *
+	 * @param sequence
+	 * @return
+	 */
+	public T get(long sequence) {
+		return ringBuffer.get(sequence);
+	}
+
+	/**
+	 * 发布已填充的sequence
+	 *
+	 * @param sequence
+	 */
+	@OnlySingleThreadCall
+	public void publish(long sequence) {
+		markEnqueue(sequence);
+		ringBuffer.publish(sequence);
+	}
+
+	@Override
+	public BackpressurePolicy backpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	@Override
+	public BackpressureCounters backpressureCounters() {
+		return backpressureCounters;
+	}
+
+	@Override
+	public int size() {
+		return RingBufferPublisher.size(ringBuffer);
+	}
+
+	@Override
+	public int capacity() {
+		return ringBuffer.getBufferSize();
+	}
+
 	@Override
 	protected void startProcessThread() {
 		disruptor.start();
@@ -96,7 +284,7 @@ public class SpscQueueWithSupplier<T> extends SCQueue<T> {
 	@Override
 	public void stop() {
 		isStop.set(true);
-		while (disruptor.getBufferSize() != 0)
+		while (size() > 0)
 			ThreadTool.sleep(10);
 		disruptor.shutdown();
 		log.info("Call stop() success, disruptor is shutdown.");
@@ -107,20 +295,23 @@ public class SpscQueueWithSupplier<T> extends SCQueue<T> {
 		return "";
 	}
 
+	private static final class LongEvent {
+		private long value;
+	}
+
 	public static void main(String[] args) {
 
-		SpscQueueWithSupplier<Integer> queue = new SpscQueueWithSupplier<>(BufferSize.POW2_10, true,
-				WaitStrategyOption.BusySpin, () -> Integer.valueOf(0), (integer) -> System.out.println(integer));
+		SpscQueueWithSupplier<LongEvent> queue = new SpscQueueWithSupplier<>(BufferSize.POW2_10, true,
+				WaitStrategyOption.BusySpin, LongEvent::new, (slot, source) -> slot.value = source.value,
+				event -> System.out.println(event.value));
 
-		ThreadTool.startNewThread(() -> {
-			int i = 0;
-			for (;;) {
-				queue.enqueue(++i);
-				ThreadTool.sleep(5000);
-			}
-		});
+		for (long i = 0; i < 10; i++) {
+			long sequence = queue.claim();
+			queue.get(sequence).value = i;
+			queue.publish(sequence);
+		}
 
-		ThreadTool.sleep(10000);
+		queue.stop();
 
 	}
 
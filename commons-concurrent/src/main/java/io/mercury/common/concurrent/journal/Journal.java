@@ -0,0 +1,429 @@
+package io.mercury.common.concurrent.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.annotation.thread.OnlySingleThreadCall;
+import io.mercury.common.functional.Processor;
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.serialization.specific.BinaryDeserializer;
+import io.mercury.common.serialization.specific.BinarySerializer;
+import io.mercury.common.thread.HashedTimingWheel;
+import io.mercury.common.thread.ScheduleTaskExecutor;
+
+/**
+ * 基于内存映射分段文件的预写日志.<br>
+ * <br>
+ * 每条记录为[int length + 1, int crc32, long sequence, payload], 长度字段最后写入, 为0表示段的结尾,
+ * 因此payload可以为空.
+ * 段写满后滚动到新文件, 文件名为第一条记录的sequence. 确认进度保存在单独映射的ack文件中,
+ * 全部记录都已确认的旧段在滚动时删除.<br>
+ * 写入映射内存后进程崩溃不会丢失数据; fsyncInterval大于0时由后台线程按间隔force(), 即group commit,
+ * 写入线程不会等待磁盘.<br>
+ * 打开时逐条校验crc, 第一条无效的记录及其之后的内容视为未完成的写入并被清除.
+ *
+ * @author yellow013
+ *
+ * @param <E>
+ */
+public final class Journal<E> implements Closeable {
+
+	private static final Logger log = CommonLoggerFactory.getLogger(Journal.class);
+
+	static final int RecordHeaderLength = 16;
+
+	private static final String SegmentSuffix = ".seg";
+
+	private static final String AckFileName = "journal.ack";
+
+	private final File directory;
+
+	private final int segmentSize;
+
+	private final BinarySerializer<E> serializer;
+
+	private final BinaryDeserializer<E> deserializer;
+
+	private final CRC32 writeCrc = new CRC32();
+
+	private final List<Segment> segments = new ArrayList<>();
+
+	private volatile Segment current;
+
+	private long nextSequence;
+
+	private final RandomAccessFile ackFile;
+
+	private final MappedByteBuffer ackBuffer;
+
+	private final AtomicLong ackedSequence;
+
+	private final HashedTimingWheel.Timeout flushTask;
+
+	private Journal(File directory, int segmentSize, long fsyncInterval, TimeUnit timeUnit,
+			BinarySerializer<E> serializer, BinaryDeserializer<E> deserializer) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create journal directory -> " + directory);
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.serializer = serializer;
+		this.deserializer = deserializer;
+		File ack = new File(directory, AckFileName);
+		boolean newAck = !ack.exists();
+		this.ackFile = new RandomAccessFile(ack, "rw");
+		this.ackBuffer = ackFile.getChannel().map(MapMode.READ_WRITE, 0, 8);
+		if (newAck)
+			ackBuffer.putLong(0, -1L);
+		this.ackedSequence = new AtomicLong(ackBuffer.getLong(0));
+		recover();
+		this.flushTask = fsyncInterval > 0
+				? ScheduleTaskExecutor.newCycleTask(fsyncInterval, fsyncInterval, timeUnit, this::flush)
+				: null;
+	}
+
+	/**
+	 *
+	 * @param <E>
+	 * @param directory     日志目录, 每个队列独占
+	 * @param segmentSize   单个段文件的字节数
+	 * @param fsyncInterval 后台force()的间隔, 为0时只依赖操作系统回写
+	 * @param timeUnit
+	 * @param serializer
+	 * @param deserializer
+	 * @return
+	 * @throws IOException
+	 */
+	public static <E> Journal<E> open(File directory, int segmentSize, long fsyncInterval, TimeUnit timeUnit,
+			BinarySerializer<E> serializer, BinaryDeserializer<E> deserializer) throws IOException {
+		if (segmentSize <= RecordHeaderLength)
+			throw new IllegalArgumentException("segmentSize too small -> " + segmentSize);
+		if (serializer == null || deserializer == null)
+			throw new IllegalArgumentException("serializer or deserializer is null...");
+		return new Journal<>(directory, segmentSize, fsyncInterval, timeUnit, serializer, deserializer);
+	}
+
+	private void recover() throws IOException {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SegmentSuffix));
+		if (files == null)
+			files = new File[0];
+		Arrays.sort(files, (f1, f2) -> f1.getName().compareTo(f2.getName()));
+		long expected = -1L;
+		boolean truncated = false;
+		for (File file : files) {
+			if (truncated) {
+				log.warn("Journal :: Delete segment after truncation point -> {}", file);
+				if (!file.delete())
+					log.error("Journal :: Delete segment failure -> {}", file);
+				continue;
+			}
+			Segment segment = new Segment(file, parseFirstSequence(file), segmentSize);
+			if (expected >= 0 && segment.firstSequence != expected) {
+				log.warn("Journal :: Segment sequence gap, expected -> {}, file -> {}", expected, file);
+				segment.close();
+				if (!file.delete())
+					log.error("Journal :: Delete segment failure -> {}", file);
+				truncated = true;
+				continue;
+			}
+			truncated = !segment.scan();
+			segments.add(segment);
+			expected = segment.firstSequence + segment.count;
+		}
+		if (segments.isEmpty()) {
+			long first = ackedSequence.get() + 1;
+			segments.add(new Segment(segmentFile(first), first, segmentSize));
+		}
+		this.current = segments.get(segments.size() - 1);
+		this.nextSequence = current.firstSequence + current.count;
+		// 截断后确认进度不能超过最后一条有效记录, 否则新写入的记录不会被重放
+		if (ackedSequence.get() >= nextSequence)
+			ack(nextSequence - 1);
+		log.info("Journal :: Recovered [{}] segments, next sequence -> {}, acked sequence -> {}", segments.size(),
+				nextSequence, ackedSequence.get());
+	}
+
+	private static long parseFirstSequence(File file) {
+		String name = file.getName();
+		return Long.parseLong(name.substring(0, name.length() - SegmentSuffix.length()));
+	}
+
+	private File segmentFile(long firstSequence) {
+		return new File(directory, String.format("%020d", firstSequence) + SegmentSuffix);
+	}
+
+	/**
+	 * 追加记录
+	 *
+	 * @param e
+	 * @return sequence
+	 * @throws JournalException
+	 */
+	@OnlySingleThreadCall
+	public long append(E e) {
+		ByteBuffer payload = serializer.serialization(e);
+		int length = payload.remaining();
+		if (RecordHeaderLength + length + 4 > segmentSize)
+			throw new JournalException("Record length " + length + " exceeds segmentSize " + segmentSize);
+		Segment segment = current;
+		// 保留4字节写入结尾标记
+		if (segment.writePosition + RecordHeaderLength + length + 4 > segmentSize)
+			segment = roll();
+		int position = payload.position();
+		writeCrc.reset();
+		writeCrc.update(payload);
+		payload.position(position);
+		long sequence = nextSequence++;
+		segment.write(sequence, (int) writeCrc.getValue(), payload);
+		payload.position(position);
+		return sequence;
+	}
+
+	/**
+	 * 撤销最后一次append写入的记录, 用于记录写入后未被接收的情况
+	 *
+	 * @param sequence 最后一次append返回的sequence
+	 * @throws JournalException 不是最后一条记录或已被撤销
+	 */
+	@OnlySingleThreadCall
+	public void discard(long sequence) {
+		if (sequence != nextSequence - 1 || !current.discardLast())
+			throw new JournalException("Only the last appended record can be discarded, sequence -> " + sequence);
+		nextSequence--;
+	}
+
+	private Segment roll() {
+		Segment previous = current;
+		if (flushTask != null)
+			previous.force();
+		try {
+			Segment segment = new Segment(segmentFile(nextSequence), nextSequence, segmentSize);
+			synchronized (segments) {
+				segments.add(segment);
+				this.current = segment;
+			}
+			deleteAckedSegments();
+			return segment;
+		} catch (IOException e) {
+			throw new JournalException(e);
+		}
+	}
+
+	private void deleteAckedSegments() {
+		long acked = ackedSequence.get();
+		synchronized (segments) {
+			while (segments.size() > 1) {
+				Segment oldest = segments.get(0);
+				if (oldest.firstSequence + oldest.count - 1 > acked)
+					break;
+				segments.remove(0);
+				oldest.close();
+				if (!oldest.file.delete())
+					log.error("Journal :: Delete acked segment failure -> {}", oldest.file);
+			}
+		}
+	}
+
+	/**
+	 * 确认sequence及之前的全部记录已处理
+	 *
+	 * @param sequence
+	 */
+	@OnlySingleThreadCall
+	public void ack(long sequence) {
+		ackBuffer.putLong(0, sequence);
+		ackedSequence.lazySet(sequence);
+	}
+
+	public long ackedSequence() {
+		return ackedSequence.get();
+	}
+
+	/**
+	 *
+	 * @return 下一条记录的sequence
+	 */
+	public long nextSequence() {
+		return nextSequence;
+	}
+
+	/**
+	 * 将未确认的记录按顺序交给processor, 每条处理后确认. 应在开始写入新记录前调用.
+	 *
+	 * @param processor
+	 * @return 重放的记录数
+	 */
+	@OnlySingleThreadCall
+	public long replay(Processor<E> processor) {
+		long acked = ackedSequence.get();
+		long count = 0;
+		List<Segment> snapshot;
+		synchronized (segments) {
+			snapshot = new ArrayList<>(segments);
+		}
+		for (Segment segment : snapshot) {
+			ByteBuffer view = segment.buffer.duplicate();
+			int position = 0;
+			for (long i = 0; i < segment.count; i++) {
+				int length = view.getInt(position) - 1;
+				long sequence = view.getLong(position + 8);
+				if (sequence > acked) {
+					view.limit(position + RecordHeaderLength + length).position(position + RecordHeaderLength);
+					try {
+						processor.process(deserializer.deserialization(view));
+					} catch (Exception e) {
+						log.error("Journal :: Replay sequence [{}] throw exception -> [{}]", sequence, e.getMessage(),
+								e);
+						throw new JournalException(e);
+					}
+					view.clear();
+					ack(sequence);
+					count++;
+				}
+				position += RecordHeaderLength + length;
+			}
+		}
+		if (count > 0)
+			log.info("Journal :: Replayed [{}] records", count);
+		return count;
+	}
+
+	/**
+	 * 将当前段和ack文件写入磁盘
+	 */
+	public void flush() {
+		current.force();
+		ackBuffer.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (flushTask != null)
+			flushTask.cancel();
+		flush();
+		synchronized (segments) {
+			for (Segment segment : segments)
+				segment.close();
+		}
+		ackFile.close();
+	}
+
+	private final class Segment {
+
+		private final File file;
+		private final long firstSequence;
+		private final RandomAccessFile randomAccessFile;
+		private final MappedByteBuffer buffer;
+		private final ByteBuffer writer;
+		private final CRC32 scanCrc = new CRC32();
+		private int writePosition;
+		// 最后一条记录的位置, 没有可撤销的记录时为-1
+		private int lastPosition = -1;
+		private long count;
+
+		private Segment(File file, long firstSequence, int segmentSize) throws IOException {
+			this.file = file;
+			this.firstSequence = firstSequence;
+			this.randomAccessFile = new RandomAccessFile(file, "rw");
+			if (randomAccessFile.length() < segmentSize)
+				randomAccessFile.setLength(segmentSize);
+			this.buffer = randomAccessFile.getChannel().map(MapMode.READ_WRITE, 0, segmentSize);
+			this.writer = buffer.duplicate();
+		}
+
+		/**
+		 * 校验已有记录, 清除第一条无效记录及之后的内容
+		 *
+		 * @return 是否全部有效
+		 */
+		private boolean scan() {
+			ByteBuffer view = buffer.duplicate();
+			int position = 0;
+			while (position + RecordHeaderLength <= segmentSize) {
+				int stored = view.getInt(position);
+				if (stored == 0)
+					return true;
+				int length = stored - 1;
+				int crc = view.getInt(position + 4);
+				long sequence = view.getLong(position + 8);
+				if (length < 0 || (long) position + RecordHeaderLength + length > segmentSize
+						|| sequence != firstSequence + count || crc != crcOf(view, position, length)) {
+					log.warn("Journal :: Invalid record in [{}] at position [{}], truncate", file, position);
+					for (int i = position; i < segmentSize; i++)
+						buffer.put(i, (byte) 0);
+					return false;
+				}
+				position += RecordHeaderLength + length;
+				this.writePosition = position;
+				this.count++;
+			}
+			return true;
+		}
+
+		private int crcOf(ByteBuffer view, int position, int length) {
+			view.limit(position + RecordHeaderLength + length).position(position + RecordHeaderLength);
+			scanCrc.reset();
+			scanCrc.update(view);
+			view.clear();
+			return (int) scanCrc.getValue();
+		}
+
+		private void write(long sequence, int crc, ByteBuffer payload) {
+			int position = writePosition;
+			int length = payload.remaining();
+			buffer.putInt(position + 4, crc);
+			buffer.putLong(position + 8, sequence);
+			writer.position(position + RecordHeaderLength);
+			writer.put(payload);
+			// 长度字段最后写入, 崩溃时未完成的记录长度字段为0或crc不匹配
+			buffer.putInt(position, length + 1);
+			this.lastPosition = position;
+			this.writePosition = position + RecordHeaderLength + length;
+			this.count++;
+		}
+
+		/**
+		 * 清除最后一条记录, 全部置0以免之后写入的较短记录后面残留旧数据
+		 *
+		 * @return 没有可撤销的记录时返回false
+		 */
+		private boolean discardLast() {
+			int position = lastPosition;
+			if (position < 0)
+				return false;
+			buffer.putInt(position, 0);
+			for (int i = position + 4; i < writePosition; i++)
+				buffer.put(i, (byte) 0);
+			this.writePosition = position;
+			this.lastPosition = -1;
+			this.count--;
+			return true;
+		}
+
+		private void force() {
+			buffer.force();
+		}
+
+		private void close() {
+			try {
+				randomAccessFile.close();
+			} catch (IOException e) {
+				log.error("Journal :: Close segment [{}] failure -> {}", file, e.getMessage());
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,18 @@
+package io.mercury.common.concurrent.journal;
+
+public final class JournalException extends RuntimeException {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -2390671283748026114L;
+
+	public JournalException(String msg) {
+		super(msg);
+	}
+
+	public JournalException(Throwable cause) {
+		super(cause);
+	}
+
+}
@@ -0,0 +1,258 @@
+package io.mercury.common.concurrent.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.annotation.thread.OnlySingleThreadCall;
+import io.mercury.common.collections.queue.api.SCQueue;
+import io.mercury.common.collections.queue.base.BackpressureCounters;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.collections.queue.base.QueueMetrics;
+import io.mercury.common.concurrent.queue.SpscQueueWithJCT;
+import io.mercury.common.functional.Processor;
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.serialization.specific.BinaryDeserializer;
+import io.mercury.common.serialization.specific.BinarySerializer;
+import io.mercury.common.thread.ThreadTool;
+
+/**
+ * 带预写日志的{@link SCQueue}, 元素先写入{@link Journal}再进入内存队列, 处理完成后确认.<br>
+ * 重启时未确认的元素在build()中按顺序交给processor处理, 之后才接收新元素, 语义为at-least-once.<br>
+ * <br>
+ * 内存队列中的元素携带append返回的sequence, 处理后确认该sequence, 确认表示此sequence及之前的记录均已处理,
+ * 因此内存队列必须是先进先出的队列, 如SpscQueue或SpscQueueWithJCT, 且不能使用CallerRuns策略.<br>
+ * 内存队列拒绝元素时撤销对应的记录; DropOldest丢弃的元素随之后元素的确认一起被确认, 重启后不会重放.
+ *
+ * @author yellow013
+ *
+ * @param <E>
+ */
+public final class JournaledQueue<E> extends SCQueue<E> {
+
+	private final Logger log = CommonLoggerFactory.getLogger(getClass());
+
+	private final Journal<E> journal;
+
+	private final SCQueue<Sequenced<E>> delegate;
+
+	private JournaledQueue(Journal<E> journal, Processor<E> processor,
+			Function<Processor<Sequenced<E>>, SCQueue<Sequenced<E>>> queueFactory) {
+		super(processor);
+		this.journal = journal;
+		journal.replay(processor);
+		this.delegate = queueFactory.apply(sequenced -> {
+			processor.process(sequenced.element);
+			journal.ack(sequenced.sequence);
+		});
+		if (delegate == null)
+			throw new IllegalArgumentException("queueFactory return null...");
+		BackpressurePolicy policy = delegate.backpressurePolicy();
+		if (policy != null && policy.strategy() == BackpressurePolicy.Strategy.CallerRuns) {
+			delegate.stop();
+			throw new IllegalArgumentException("JournaledQueue not support BackpressurePolicy [CallerRuns]");
+		}
+		this.queueName = "Journaled-" + delegate.name();
+	}
+
+	/**
+	 * 内存队列中的元素及其在日志中的sequence
+	 *
+	 * @param <E>
+	 */
+	public static final class Sequenced<E> {
+
+		private final long sequence;
+		private final E element;
+
+		private Sequenced(long sequence, E element) {
+			this.sequence = sequence;
+			this.element = element;
+		}
+
+		public long sequence() {
+			return sequence;
+		}
+
+		public E element() {
+			return element;
+		}
+
+	}
+
+	public static Builder newBuilder(File directory) {
+		if (directory == null)
+			throw new IllegalArgumentException("directory is null...");
+		return new Builder(directory);
+	}
+
+	public static final class Builder {
+
+		private final File directory;
+		private int segmentSize = 64 * 1024 * 1024;
+		private long fsyncInterval = 0L;
+		private TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+
+		private Builder(File directory) {
+			this.directory = directory;
+		}
+
+		/**
+		 *
+		 * @param segmentSize 单个段文件的字节数, 默认64MB
+		 * @return
+		 */
+		public Builder segmentSize(int segmentSize) {
+			this.segmentSize = segmentSize;
+			return this;
+		}
+
+		/**
+		 * 后台force()的间隔, 默认为0, 即只保证进程崩溃时不丢失数据, 操作系统崩溃或断电时可能丢失未回写的部分
+		 *
+		 * @param fsyncInterval
+		 * @param timeUnit
+		 * @return
+		 */
+		public Builder fsyncInterval(long fsyncInterval, TimeUnit timeUnit) {
+			this.fsyncInterval = fsyncInterval;
+			this.timeUnit = timeUnit;
+			return this;
+		}
+
+		/**
+		 * 打开日志并重放未确认的元素, 然后创建内存队列
+		 *
+		 * @param <E>
+		 * @param serializer
+		 * @param deserializer
+		 * @param processor
+		 * @param queueFactory 使用传入的Processor创建内存队列, 不能使用CallerRuns策略
+		 * @return
+		 * @throws IOException
+		 */
+		public <E> JournaledQueue<E> build(BinarySerializer<E> serializer, BinaryDeserializer<E> deserializer,
+				Processor<E> processor, Function<Processor<Sequenced<E>>, SCQueue<Sequenced<E>>> queueFactory)
+				throws IOException {
+			if (processor == null)
+				throw new IllegalArgumentException("processor is null...");
+			if (queueFactory == null)
+				throw new IllegalArgumentException("queueFactory is null...");
+			Journal<E> journal = Journal.open(directory, segmentSize, fsyncInterval, timeUnit, serializer,
+					deserializer);
+			try {
+				return new JournaledQueue<>(journal, processor, queueFactory);
+			} catch (RuntimeException e) {
+				journal.close();
+				throw e;
+			}
+		}
+
+	}
+
+	/**
+	 * 写入日志后进入内存队列
+	 */
+	@Override
+	@OnlySingleThreadCall
+	public boolean enqueue(E e) {
+		return offer(e).isAccepted();
+	}
+
+	/**
+	 * 写入日志后进入内存队列, 内存队列未接收时撤销日志中的记录
+	 */
+	@Override
+	@OnlySingleThreadCall
+	public EnqueueStatus offer(E e) {
+		if (e == null)
+			throw new IllegalArgumentException("e is null...");
+		long sequence = journal.append(e);
+		EnqueueStatus status;
+		try {
+			status = delegate.offer(new Sequenced<>(sequence, e));
+		} catch (RuntimeException ex) {
+			journal.discard(sequence);
+			throw ex;
+		}
+		if (!status.isAccepted())
+			journal.discard(sequence);
+		return status;
+	}
+
+	@Override
+	public BackpressurePolicy backpressurePolicy() {
+		return delegate.backpressurePolicy();
+	}
+
+	@Override
+	public BackpressureCounters backpressureCounters() {
+		return delegate.backpressureCounters();
+	}
+
+	@Override
+	protected void startProcessThread() {
+		delegate.start();
+	}
+
+	/**
+	 * 停止内存队列并关闭日志, 未处理的元素在下次启动时重放
+	 */
+	@Override
+	public void stop() {
+		super.stop();
+		delegate.stop();
+		try {
+			journal.close();
+		} catch (IOException e) {
+			log.error("JournaledQueue :: Close journal [{}] failure -> {}", queueName, e.getMessage(), e);
+		}
+	}
+
+	public Journal<E> journal() {
+		return journal;
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	@Override
+	public int capacity() {
+		return delegate.capacity();
+	}
+
+	@Override
+	public SCQueue<E> enableMetrics() {
+		delegate.enableMetrics();
+		return this;
+	}
+
+	@Override
+	public QueueMetrics metrics() {
+		return delegate.metrics();
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		File directory = new File(System.getProperty("java.io.tmpdir"), "journaled-queue-test");
+		JournaledQueue<Long> queue = JournaledQueue.newBuilder(directory).segmentSize(1 << 20)
+				.fsyncInterval(10, TimeUnit.MILLISECONDS)
+				.build(value -> (ByteBuffer) ByteBuffer.allocate(8).putLong(value).flip(),
+						(reuse, buffer) -> buffer.getLong(), value -> System.out.println("process -> " + value),
+						processor -> SpscQueueWithJCT.newBuilder().capacity(1024).build(processor));
+		long start = queue.journal().nextSequence();
+		for (long i = start; i < start + 10; i++)
+			queue.enqueue(i);
+		ThreadTool.sleep(500);
+		queue.stop();
+
+	}
+
+}
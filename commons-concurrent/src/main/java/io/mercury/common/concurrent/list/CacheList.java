@@ -2,21 +2,61 @@ package io.mercury.common.concurrent.list;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
+import org.slf4j.Logger;
+
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.thread.HashedTimingWheel;
+import io.mercury.common.thread.ScheduleTaskExecutor;
+
+/**
+ * 指定refreshExecutor时为异步刷新模式: 值不可用时get立即返回旧值, 同时在refreshExecutor中刷新.<br>
+ * 刷新失败或返回null时保留旧值, 由日志和refreshFailureHandler报告, 经过refreshRetryInterval后get才会再次触发刷新.
+ * 首次加载没有旧值, 始终在调用线程中执行.
+ *
+ * @author yellow013
+ *
+ * @param <T>
+ */
 @ThreadSafe
 public final class CacheList<T> {
 
+	private static final Logger log = CommonLoggerFactory.getLogger(CacheList.class);
+
+	private static final long DefaultRefreshRetryNanos = TimeUnit.SECONDS.toNanos(1);
+
 	private volatile Saved saved;
 
 	private Supplier<List<T>> refresher;
 
+	private final Executor refreshExecutor;
+
+	// 同时只有一个后台刷新
+	private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+	private volatile Consumer<Throwable> refreshFailureHandler;
+
+	private volatile long refreshRetryNanos = DefaultRefreshRetryNanos;
+
+	private volatile HashedTimingWheel.Timeout refreshTask;
+
 	private class Saved {
 
 		private volatile boolean available;
 		private volatile List<T> value;
+		// 上一次开始后台刷新的时间, 刷新成功后由新的Saved替换
+		private volatile long refreshTime;
+		private volatile boolean refreshFailed;
 
 		private Saved(boolean available, List<T> value) {
 			super();
@@ -27,9 +67,19 @@ public final class CacheList<T> {
 	}
 
 	public CacheList(Supplier<List<T>> refresher) {
+		this(refresher, null);
+	}
+
+	/**
+	 *
+	 * @param refresher
+	 * @param refreshExecutor 为null时在调用get的线程中同步刷新
+	 */
+	public CacheList(Supplier<List<T>> refresher, @CheckForNull Executor refreshExecutor) {
 		if (refresher == null)
 			throw new IllegalArgumentException("refresher is can't null...");
 		this.refresher = refresher;
+		this.refreshExecutor = refreshExecutor;
 	}
 
 	private CacheList<T> set(List<T> value) {
@@ -38,17 +88,126 @@ public final class CacheList<T> {
 	}
 
 	public Optional<List<T>> get() {
-		if (saved == null || !saved.available) {
+		Saved current = saved;
+		if (current == null || !current.available) {
+			if (current != null && refreshExecutor != null) {
+				if (!isRetryPending(current))
+					refreshAsync();
+				return Optional.of(current.value);
+			}
 			List<T> refreshed = refresher.get();
 			return refreshed == null ? Optional.empty() : set(refreshed).get();
 		} else
 			// return saved.isAvailable ? Optional.of(saved.value) : get(key);
-			return Optional.of(saved.value);
+			return Optional.of(current.value);
 	}
 
 	public CacheList<T> setUnavailable() {
-		saved.available = false;
+		Saved current = saved;
+		if (current != null)
+			current.available = false;
+		return this;
+	}
+
+	/**
+	 *
+	 * @param handler 接收后台刷新抛出的异常, refresher返回null时异常为IllegalStateException
+	 * @return
+	 */
+	public CacheList<T> refreshFailureHandler(@Nonnull Consumer<Throwable> handler) {
+		this.refreshFailureHandler = handler;
 		return this;
 	}
 
+	/**
+	 *
+	 * @param interval 后台刷新失败后, 经过interval才会由get再次触发刷新, 默认1秒, 不影响scheduleRefresh
+	 * @param unit
+	 * @return
+	 */
+	public CacheList<T> refreshRetryInterval(long interval, @Nonnull TimeUnit unit) {
+		if (interval < 0L)
+			throw new IllegalArgumentException("interval must not less than 0");
+		this.refreshRetryNanos = unit.toNanos(interval);
+		return this;
+	}
+
+	/**
+	 * 按固定间隔在后台刷新, 指定refreshExecutor时在refreshExecutor中执行, 否则在共享时间轮的任务线程中执行
+	 *
+	 * @param interval
+	 * @param unit
+	 * @return
+	 */
+	public synchronized CacheList<T> scheduleRefresh(long interval, @Nonnull TimeUnit unit) {
+		if (interval <= 0L)
+			throw new IllegalArgumentException("interval must be greater than 0");
+		stopRefresh();
+		this.refreshTask = ScheduleTaskExecutor.newCycleTask(interval, interval, unit, () -> {
+			if (refreshExecutor != null)
+				refreshAsync();
+			else if (refreshing.compareAndSet(false, true))
+				refresh();
+		});
+		return this;
+	}
+
+	public synchronized void stopRefresh() {
+		if (refreshTask != null) {
+			refreshTask.cancel();
+			this.refreshTask = null;
+		}
+	}
+
+	private boolean isRetryPending(Saved current) {
+		return current.refreshFailed && System.nanoTime() - current.refreshTime < refreshRetryNanos;
+	}
+
+	private void refreshAsync() {
+		if (refreshing.compareAndSet(false, true)) {
+			try {
+				refreshExecutor.execute(this::refresh);
+			} catch (RejectedExecutionException e) {
+				refreshing.set(false);
+				log.error("CacheList refresh task rejected -> {}", e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * 调用前必须已将refreshing设置为true
+	 */
+	private void refresh() {
+		Saved current = saved;
+		if (current != null)
+			current.refreshTime = System.nanoTime();
+		try {
+			List<T> refreshed = refresher.get();
+			if (refreshed != null)
+				set(refreshed);
+			else {
+				log.warn("CacheList refresher return null, keep the stale value");
+				refreshFailure(current, new IllegalStateException("refresher return null"));
+			}
+		} catch (Throwable t) {
+			log.error("CacheList refresh failure -> {}", t.getMessage(), t);
+			refreshFailure(current, t);
+		} finally {
+			refreshing.set(false);
+		}
+	}
+
+	private void refreshFailure(@CheckForNull Saved current, Throwable t) {
+		if (current != null)
+			current.refreshFailed = true;
+		Consumer<Throwable> handler = refreshFailureHandler;
+		if (handler != null) {
+			try {
+				handler.accept(t);
+			} catch (Throwable e) {
+				log.error("CacheList refreshFailureHandler throw exception -> {}", e.getMessage(), e);
+			}
+		}
+	}
+
 }
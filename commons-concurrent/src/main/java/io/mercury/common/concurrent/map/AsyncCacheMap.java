@@ -1,105 +1,354 @@
 package io.mercury.common.concurrent.map;
 
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
-import org.eclipse.collections.api.map.MutableMap;
-import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
+import org.slf4j.Logger;
 
 import io.mercury.common.collections.Capacity;
 import io.mercury.common.collections.MutableMaps;
-import io.mercury.common.collections.queue.api.SCQueue;
-import io.mercury.common.concurrent.queue.MpscArrayBlockingQueue;
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.thread.ThreadTool;
+import io.mercury.common.util.BitOperator;
 import io.mercury.common.util.StringUtil;
 
 /**
- * 
+ * 单写线程的Map, 所有写入和查询作为命令提交到预分配槽位的无锁MPSC环形队列, 由写线程按批次依次执行.<br>
+ * 每个命令有唯一的sequence, 即在队列中的位置+1, 查询结果直接交给命令槽位中的{@link CompletableFuture}或Consumer,
+ * 回调和future的同步后续操作都在写线程中执行, 不应阻塞.<br>
+ * 启用snapshotRead时写线程同时维护一个只由自己修改的{@link ConcurrentHashMap},
+ * 每批命令执行后发布{@link #appliedSequence()}, {@link #getNow(Object)}可以不经过队列直接读取.<br>
+ * close()在写入位置上设置关闭标记, 之后不能再占用槽位, 写线程执行完关闭前占用的全部命令后退出.
+ *
  * @author yellow013
  *
  * @param <K>
  * @param <V>
  */
 @ThreadSafe
-public final class AsyncCacheMap<K, V> {
+public final class AsyncCacheMap<K, V> implements Closeable {
+
+	private static final Logger log = CommonLoggerFactory.getLogger(AsyncCacheMap.class);
+
+	private static final int Put = 1;
+	private static final int Remove = 2;
+	private static final int Get = 3;
+
+	private static final int EnqueueIndex = 15;
+
+	// 写入位置的关闭标记
+	private static final long ClosedBit = 1L << 62;
+
+	// 与前后的数据相隔128字节, 避免伪共享
+	private final AtomicLongArray positions = new AtomicLongArray(32);
+
+	private final Command[] commands;
+
+	private final AtomicLongArray sequences;
+
+	private final int capacity;
 
-	private MutableMap<K, V> mutableMap = MutableMaps.newUnifiedMap(Capacity.L08_SIZE_256);
+	private final int mask;
 
-	private MutableLongObjectMap<Consumer<V>> consumerMap = MutableMaps.newLongObjectHashMap(Capacity.L07_SIZE_128);
+	private final int batchSize;
 
-	private String cacheName;
+	// 只由写线程修改
+	private final Map<K, V> savedMap;
 
-	private SCQueue<ExecEvent> execQueue;
+	private final boolean snapshotRead;
 
-	private SCQueue<QueryResult> queryQueue;
+	private final String cacheName;
 
-	// private ExecutorService executor = Executors.newSingleThreadExecutor();
+	private final Thread writer;
 
-	private final class ExecEvent {
+	private volatile long appliedSequence;
 
-		private long nanoTime;
+	private volatile boolean sleeping;
+
+	private volatile boolean running = true;
+
+	// 关闭时的写入位置, 写线程执行到此位置后退出
+	private volatile long closedPosition = Long.MAX_VALUE;
+
+	private final class Command {
+
+		private int type;
 		private K key;
 		private V value;
+		private CompletableFuture<V> future;
+		private Consumer<V> consumer;
 
-		public ExecEvent(K key, V value) {
-			this.key = key;
-			this.value = value;
+		private void clear() {
+			this.key = null;
+			this.value = null;
+			this.future = null;
+			this.consumer = null;
 		}
 
-		public ExecEvent(K key, long nanoTime) {
-			this.key = key;
-			this.nanoTime = nanoTime;
+	}
+
+	public AsyncCacheMap(String cacheName) {
+		this(cacheName, 1024, false);
+	}
+
+	/**
+	 *
+	 * @param cacheName
+	 * @param capacity     命令队列容量, 调整为2的幂
+	 * @param snapshotRead 是否启用{@link #getNow(Object)}
+	 */
+	@SuppressWarnings("unchecked")
+	public AsyncCacheMap(String cacheName, int capacity, boolean snapshotRead) {
+		if (capacity <= 0 || capacity > 1 << 30)
+			throw new IllegalArgumentException("capacity is illegal -> " + capacity);
+		this.capacity = BitOperator.minPow2(Math.max(capacity, 2));
+		this.mask = this.capacity - 1;
+		this.batchSize = Math.min(this.capacity, 256);
+		this.commands = new AsyncCacheMap.Command[this.capacity];
+		this.sequences = new AtomicLongArray(this.capacity);
+		for (int i = 0; i < this.capacity; i++) {
+			commands[i] = new Command();
+			sequences.set(i, i);
 		}
+		this.snapshotRead = snapshotRead;
+		this.savedMap = snapshotRead ? new ConcurrentHashMap<>(Capacity.L08_SIZE_256.size())
+				: MutableMaps.newUnifiedMap(Capacity.L08_SIZE_256);
+		this.cacheName = StringUtil.isNullOrEmpty(cacheName) ? "AsyncCacheMap-" + hashCode() : cacheName;
+		this.writer = ThreadTool.newThread(this::processing, this.cacheName + "-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
 
+	/**
+	 *
+	 * @param key
+	 * @param value
+	 * @return 命令的sequence
+	 */
+	public long asyncPut(@Nonnull K key, @Nonnull V value) {
+		if (key == null)
+			throw new IllegalArgumentException("key is null...");
+		if (value == null)
+			throw new IllegalArgumentException("value is null...");
+		return publish(Put, key, value, null, null);
 	}
 
-	private final class QueryResult {
+	/**
+	 *
+	 * @param key
+	 * @return 命令的sequence
+	 */
+	public long asyncRemove(@Nonnull K key) {
+		if (key == null)
+			throw new IllegalArgumentException("key is null...");
+		return publish(Remove, key, null, null, null);
+	}
 
-		private V value;
-		private long nanoTime;
+	/**
+	 * 结果包含此前提交的所有命令的修改, 不存在时结果为null
+	 *
+	 * @param key
+	 * @return
+	 */
+	public CompletableFuture<V> get(@Nonnull K key) {
+		if (key == null)
+			throw new IllegalArgumentException("key is null...");
+		CompletableFuture<V> future = new CompletableFuture<>();
+		publish(Get, key, null, future, null);
+		return future;
+	}
+
+	/**
+	 * consumer在写线程中执行, 不存在时接收null
+	 *
+	 * @param key
+	 * @param consumer
+	 */
+	public void asyncGet(@Nonnull K key, @Nonnull Consumer<V> consumer) {
+		if (key == null)
+			throw new IllegalArgumentException("key is null...");
+		if (consumer == null)
+			throw new IllegalArgumentException("consumer is null...");
+		publish(Get, key, null, null, consumer);
+	}
+
+	/**
+	 * 不经过命令队列直接读取, 保证包含sequence不大于此前读取到的{@link #appliedSequence()}的命令的修改,
+	 * 也可能包含尚未发布批次中的修改
+	 *
+	 * @param key
+	 * @return
+	 */
+	@CheckForNull
+	public V getNow(@Nonnull K key) {
+		if (!snapshotRead)
+			throw new IllegalStateException("AsyncCacheMap :: [" + cacheName + "] snapshotRead is not enabled");
+		return savedMap.get(key);
+	}
 
-		public QueryResult(V value, long nanoTime) {
-			this.value = value;
-			this.nanoTime = nanoTime;
+	/**
+	 *
+	 * @return 已执行的最后一个命令的sequence, 按批次发布
+	 */
+	public long appliedSequence() {
+		return appliedSequence;
+	}
+
+	private long publish(int type, K key, V value, CompletableFuture<V> future, Consumer<V> consumer) {
+		long position = positions.get(EnqueueIndex);
+		for (int idles = 0;;) {
+			if ((position & ClosedBit) != 0)
+				throw new IllegalStateException("AsyncCacheMap :: [" + cacheName + "] is closed");
+			int index = (int) position & mask;
+			long diff = sequences.get(index) - position;
+			if (diff == 0) {
+				if (positions.compareAndSet(EnqueueIndex, position, position + 1)) {
+					Command command = commands[index];
+					command.type = type;
+					command.key = key;
+					command.value = value;
+					command.future = future;
+					command.consumer = consumer;
+					// volatile写入, 与写线程设置sleeping后的检查配合, 避免错过唤醒
+					sequences.set(index, position + 1);
+					if (sleeping)
+						LockSupport.unpark(writer);
+					return position + 1;
+				}
+				position = positions.get(EnqueueIndex);
+			} else if (diff < 0) {
+				// 队列已满, 等待写线程执行
+				idle(idles++);
+				position = positions.get(EnqueueIndex);
+			} else
+				position = positions.get(EnqueueIndex);
 		}
+	}
 
+	private void processing() {
+		long position = 0L;
+		for (int idles = 0;;) {
+			int count = 0;
+			for (; count < batchSize; count++, position++) {
+				int index = (int) position & mask;
+				if (sequences.get(index) != position + 1)
+					break;
+				Command command = commands[index];
+				apply(command);
+				command.clear();
+				sequences.lazySet(index, position + capacity);
+			}
+			if (count > 0) {
+				this.appliedSequence = position;
+				idles = 0;
+				continue;
+			}
+			if (!running) {
+				// 关闭前已占用的槽位可能尚未写入完成, 等待直到closedPosition
+				if (position >= closedPosition)
+					break;
+				idle(idles++);
+			} else if (idles < 200)
+				idle(idles++);
+			else {
+				this.sleeping = true;
+				if (running && sequences.get((int) position & mask) != position + 1)
+					// 超时作为保护, 正常情况下由生产者唤醒
+					LockSupport.parkNanos(this, 1_000_000L);
+				this.sleeping = false;
+			}
+		}
+		log.info("AsyncCacheMap :: [{}] writer exit, appliedSequence -> {}", cacheName, appliedSequence);
 	}
 
-	public AsyncCacheMap(String cacheName) {
-		this.cacheName = StringUtil.isNullOrEmpty(cacheName) ? "AsyncCacheMap-" + hashCode() : cacheName;
-		this.execQueue = MpscArrayBlockingQueue.autoStartQueue(this.cacheName + "-execQueue", 64,
-				event -> asyncExec(event));
-		this.queryQueue = MpscArrayBlockingQueue.autoStartQueue(this.cacheName + "-execQueue", 64,
-				result -> consumerMap.remove(result.nanoTime).accept(result.value));
-	}
-
-	private void asyncExec(ExecEvent event) {
-		if (event.nanoTime == 0L) {
-			if (event.value != null)
-				mutableMap.put(event.key, event.value);
-		} else {
-			V v = mutableMap.get(event.key);
-			queryQueue.enqueue(new QueryResult(v, event.nanoTime));
+	private void apply(Command command) {
+		try {
+			switch (command.type) {
+			case Put:
+				savedMap.put(command.key, command.value);
+				break;
+			case Remove:
+				savedMap.remove(command.key);
+				break;
+			case Get:
+				V value = savedMap.get(command.key);
+				if (command.future != null)
+					command.future.complete(value);
+				else
+					command.consumer.accept(value);
+				break;
+			default:
+				break;
+			}
+		} catch (Throwable t) {
+			log.error("AsyncCacheMap :: [{}] apply command failure -> {}", cacheName, t.getMessage(), t);
+			if (command.future != null)
+				command.future.completeExceptionally(t);
 		}
 	}
 
-	public void asyncPut(K key, V value) {
-		execQueue.enqueue(new ExecEvent(key, value));
+	/**
+	 * 前100次自旋, 之后100次yield, 再之后park, 时长从1us倍增到1ms
+	 *
+	 * @param idles
+	 */
+	private static void idle(int idles) {
+		if (idles < 100)
+			ThreadTool.onSpinWait();
+		else if (idles < 200)
+			Thread.yield();
+		else
+			LockSupport.parkNanos(1000L << Math.min(idles - 200, 10));
+	}
+
+	/**
+	 * 已提交的命令执行完成后写线程退出, 之后提交命令抛出{@link IllegalStateException}.<br>
+	 * 在写线程中调用时(如回调中)不等待写线程退出.
+	 */
+	@Override
+	public synchronized void close() {
+		if (!running)
+			return;
+		long position;
+		do {
+			position = positions.get(EnqueueIndex);
+		} while (!positions.compareAndSet(EnqueueIndex, position, position | ClosedBit));
+		this.closedPosition = position;
+		this.running = false;
+		LockSupport.unpark(writer);
+		if (Thread.currentThread() == writer)
+			return;
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.error("AsyncCacheMap :: [{}] close interrupted", cacheName);
+		}
 	}
 
-	public void asyncGet(K key, Consumer<V> consumer) {
-		long nanoTime = System.nanoTime();
-		consumerMap.put(nanoTime, consumer);
-		execQueue.enqueue(new ExecEvent(key, nanoTime));
+	public String cacheName() {
+		return cacheName;
 	}
 
-	public static void main(String[] args) {
-		AsyncCacheMap<Integer, String> asyncCacheMap = new AsyncCacheMap<>("TEST");
-		for (int i = 0; i < 100; i++) {
-			asyncCacheMap.asyncPut(i, i + "%%^");
-			asyncCacheMap.asyncGet(i, v -> System.out.println(v));
+	public static void main(String[] args) throws Exception {
+		try (AsyncCacheMap<Integer, String> asyncCacheMap = new AsyncCacheMap<>("TEST", 64, true)) {
+			for (int i = 0; i < 100; i++) {
+				asyncCacheMap.asyncPut(i, i + "%%^");
+				asyncCacheMap.asyncGet(i, v -> System.out.println(v));
+			}
+			System.out.println(asyncCacheMap.get(99).get());
+			System.out.println(asyncCacheMap.getNow(99));
+			System.out.println(asyncCacheMap.appliedSequence());
 		}
-		System.out.println(1111);
 	}
 
 }
@@ -0,0 +1,132 @@
+package io.mercury.common.concurrent.map;
+
+import javax.annotation.concurrent.Immutable;
+
+import io.mercury.common.number.recorder.LatencyHistogram;
+
+/**
+ * 缓存统计快照, 加载返回null或抛出异常时计入loadFailureCount
+ *
+ * @author yellow013
+ *
+ */
+@Immutable
+public final class CacheStats {
+
+	private final long size;
+	private final long maximumSize;
+	private final long hitCount;
+	private final long missCount;
+	private final long loadSuccessCount;
+	private final long loadFailureCount;
+	private final long evictionCount;
+	private final long expirationCount;
+	private final long loadMean;
+	private final long loadP50;
+	private final long loadP99;
+	private final long loadMax;
+
+	CacheStats(long size, long maximumSize, long hitCount, long missCount, long loadSuccessCount,
+			long loadFailureCount, long evictionCount, long expirationCount, LatencyHistogram loadTime) {
+		this.size = size;
+		this.maximumSize = maximumSize;
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadSuccessCount = loadSuccessCount;
+		this.loadFailureCount = loadFailureCount;
+		this.evictionCount = evictionCount;
+		this.expirationCount = expirationCount;
+		this.loadMean = (long) loadTime.mean();
+		this.loadP50 = loadTime.percentile(50);
+		this.loadP99 = loadTime.percentile(99);
+		this.loadMax = loadTime.max();
+	}
+
+	public long size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @return 不限制时为0
+	 */
+	public long maximumSize() {
+		return maximumSize;
+	}
+
+	public long requestCount() {
+		return hitCount + missCount;
+	}
+
+	public long hitCount() {
+		return hitCount;
+	}
+
+	public long missCount() {
+		return missCount;
+	}
+
+	/**
+	 *
+	 * @return 没有请求时为1.0
+	 */
+	public double hitRate() {
+		long requestCount = requestCount();
+		return requestCount == 0L ? 1.0D : (double) hitCount / requestCount;
+	}
+
+	public double missRate() {
+		long requestCount = requestCount();
+		return requestCount == 0L ? 0.0D : (double) missCount / requestCount;
+	}
+
+	public long loadSuccessCount() {
+		return loadSuccessCount;
+	}
+
+	public long loadFailureCount() {
+		return loadFailureCount;
+	}
+
+	/**
+	 *
+	 * @return 因容量限制淘汰的数量
+	 */
+	public long evictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 *
+	 * @return 因过期移除的数量
+	 */
+	public long expirationCount() {
+		return expirationCount;
+	}
+
+	public long loadMeanNanos() {
+		return loadMean;
+	}
+
+	public long loadP50Nanos() {
+		return loadP50;
+	}
+
+	public long loadP99Nanos() {
+		return loadP99;
+	}
+
+	public long loadMaxNanos() {
+		return loadMax;
+	}
+
+	@Override
+	public String toString() {
+		return "{\"size\" : " + size + ", \"maximumSize\" : " + maximumSize + ", \"hitCount\" : " + hitCount
+				+ ", \"missCount\" : " + missCount + ", \"hitRate\" : " + hitRate() + ", \"loadSuccessCount\" : "
+				+ loadSuccessCount + ", \"loadFailureCount\" : " + loadFailureCount + ", \"evictionCount\" : "
+				+ evictionCount + ", \"expirationCount\" : " + expirationCount + ", \"loadMean\" : " + loadMean
+				+ ", \"loadP50\" : " + loadP50 + ", \"loadP99\" : " + loadP99 + ", \"loadMax\" : " + loadMax + "}";
+	}
+
+}
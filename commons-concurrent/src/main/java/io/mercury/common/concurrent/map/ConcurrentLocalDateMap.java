@@ -3,31 +3,24 @@ package io.mercury.common.concurrent.map;
 import static io.mercury.common.datetime.DateTimeUtil.date;
 
 import java.time.LocalDate;
-import java.util.function.BiPredicate;
-import java.util.function.Function;
 import java.util.function.ToLongFunction;
 
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.eclipse.collections.api.list.MutableList;
 
-@NotThreadSafe
+@ThreadSafe
 public final class ConcurrentLocalDateMap<V> extends ConcurrentTemporalMap<LocalDate, V, ConcurrentLocalDateMap<V>> {
 
-	private ConcurrentLocalDateMap(ToLongFunction<LocalDate> keyToLangFunc, Function<LocalDate, LocalDate> nextKeyFunc,
-			BiPredicate<LocalDate, LocalDate> hasNextKey) {
-		super(keyToLangFunc, nextKeyFunc, hasNextKey);
+	private ConcurrentLocalDateMap(ToLongFunction<LocalDate> keyToLangFunc) {
+		super(keyToLangFunc);
 	}
 
 	private static ToLongFunction<LocalDate> keyToLangFunc = key -> date(key);
-	private static Function<LocalDate, LocalDate> nextKeyFunc = key -> key.plusDays(1);
-
-	private static BiPredicate<LocalDate, LocalDate> hasNextKey = (nextKey, endPoint) -> nextKey.isBefore(endPoint)
-			|| nextKey.equals(endPoint);
 
 	public final static <V> ConcurrentLocalDateMap<V> newMap() {
-		return new ConcurrentLocalDateMap<>(keyToLangFunc, nextKeyFunc, hasNextKey);
+		return new ConcurrentLocalDateMap<>(keyToLangFunc);
 	}
 
 	@Override
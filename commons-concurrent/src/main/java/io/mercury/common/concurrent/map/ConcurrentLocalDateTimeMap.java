@@ -5,48 +5,39 @@ import static io.mercury.common.datetime.DateTimeUtil.datetimeOfMinute;
 import static io.mercury.common.datetime.DateTimeUtil.datetimeOfSecond;
 
 import java.time.LocalDateTime;
-import java.util.function.BiPredicate;
-import java.util.function.Function;
 import java.util.function.ToLongFunction;
 
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 
-@NotThreadSafe
+@ThreadSafe
 public final class ConcurrentLocalDateTimeMap<V> extends ConcurrentTemporalMap<LocalDateTime, V, ConcurrentLocalDateTimeMap<V>> {
 
 	/**
 	 * 
 	 * @param conversionFunc
 	 */
-	private ConcurrentLocalDateTimeMap(ToLongFunction<LocalDateTime> keyToLangFunc,
-			Function<LocalDateTime, LocalDateTime> nextKeyFunc, BiPredicate<LocalDateTime, LocalDateTime> hasNextKey) {
-		super(keyToLangFunc, nextKeyFunc, hasNextKey);
+	private ConcurrentLocalDateTimeMap(ToLongFunction<LocalDateTime> keyToLangFunc) {
+		super(keyToLangFunc);
 	}
 
 	private static ToLongFunction<LocalDateTime> keyToLangFuncWithHour = key -> datetimeOfHour(key);
-	private static Function<LocalDateTime, LocalDateTime> nextKeyFuncWithHour = key -> key.plusHours(1);
 
 	private static ToLongFunction<LocalDateTime> keyToLangFuncWithMinute = key -> datetimeOfMinute(key);
-	private static Function<LocalDateTime, LocalDateTime> nextKeyFuncWithMinute = key -> key.plusMinutes(1);
 
 	private static ToLongFunction<LocalDateTime> keyToLangFuncWithSecond = key -> datetimeOfSecond(key);
-	private static Function<LocalDateTime, LocalDateTime> nextKeyFuncWithSecond = key -> key.plusSeconds(1);
-
-	private static BiPredicate<LocalDateTime, LocalDateTime> hasNextKey = (nextKey,
-			endPoint) -> nextKey.isBefore(endPoint) || nextKey.equals(endPoint);
 
 	public final static <V> ConcurrentLocalDateTimeMap<V> newMapToHour() {
-		return new ConcurrentLocalDateTimeMap<>(keyToLangFuncWithHour, nextKeyFuncWithHour, hasNextKey);
+		return new ConcurrentLocalDateTimeMap<>(keyToLangFuncWithHour);
 
 	}
 
 	public final static <V> ConcurrentLocalDateTimeMap<V> newMapToMinute() {
-		return new ConcurrentLocalDateTimeMap<>(keyToLangFuncWithMinute, nextKeyFuncWithMinute, hasNextKey);
+		return new ConcurrentLocalDateTimeMap<>(keyToLangFuncWithMinute);
 	}
 
 	public final static <V> ConcurrentLocalDateTimeMap<V> newMapToSecond() {
-		return new ConcurrentLocalDateTimeMap<>(keyToLangFuncWithSecond, nextKeyFuncWithSecond, hasNextKey);
+		return new ConcurrentLocalDateTimeMap<>(keyToLangFuncWithSecond);
 	}
 
 	@Override
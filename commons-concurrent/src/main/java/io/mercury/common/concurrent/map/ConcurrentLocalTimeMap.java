@@ -5,45 +5,36 @@ import static io.mercury.common.datetime.DateTimeUtil.timeOfMinute;
 import static io.mercury.common.datetime.DateTimeUtil.timeOfSecond;
 
 import java.time.LocalTime;
-import java.util.function.BiPredicate;
-import java.util.function.Function;
 import java.util.function.ToLongFunction;
 
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 
 import io.mercury.common.datetime.DateTimeUtil;
 
-@NotThreadSafe
+@ThreadSafe
 public final class ConcurrentLocalTimeMap<V> extends ConcurrentTemporalMap<LocalTime, V, ConcurrentLocalTimeMap<V>> {
 
-	private ConcurrentLocalTimeMap(ToLongFunction<LocalTime> keyToLangFunc, Function<LocalTime, LocalTime> nextKeyFunc,
-			BiPredicate<LocalTime, LocalTime> hasNextKey) {
-		super(keyToLangFunc, nextKeyFunc, hasNextKey);
+	private ConcurrentLocalTimeMap(ToLongFunction<LocalTime> keyToLangFunc) {
+		super(keyToLangFunc);
 	}
 
 	private static ToLongFunction<LocalTime> keyToLangFuncWithHour = key -> timeOfHour(key);
-	private static Function<LocalTime, LocalTime> nextKeyFuncWithHour = key -> key.plusHours(1);
 
 	private static ToLongFunction<LocalTime> keyToLangFuncWithMinute = key -> timeOfMinute(key);
-	private static Function<LocalTime, LocalTime> nextKeyFuncWithMinute = key -> key.plusMinutes(1);
 
 	private static ToLongFunction<LocalTime> keyToLangFuncWithSecond = key -> timeOfSecond(key);
-	private static Function<LocalTime, LocalTime> nextKeyFuncWithSecond = key -> key.plusSeconds(1);
-
-	private static BiPredicate<LocalTime, LocalTime> hasNextKey = (nextKey, endPoint) -> nextKey.isBefore(endPoint)
-			|| nextKey.equals(endPoint);
 
 	public final static <V> ConcurrentLocalTimeMap<V> newMapToHour() {
-		return new ConcurrentLocalTimeMap<>(keyToLangFuncWithHour, nextKeyFuncWithHour, hasNextKey);
+		return new ConcurrentLocalTimeMap<>(keyToLangFuncWithHour);
 	}
 
 	public final static <V> ConcurrentLocalTimeMap<V> newMapToMinute() {
-		return new ConcurrentLocalTimeMap<>(keyToLangFuncWithMinute, nextKeyFuncWithMinute, hasNextKey);
+		return new ConcurrentLocalTimeMap<>(keyToLangFuncWithMinute);
 	}
 
 	public final static <V> ConcurrentLocalTimeMap<V> newMapToSecond() {
-		return new ConcurrentLocalTimeMap<>(keyToLangFuncWithSecond, nextKeyFuncWithSecond, hasNextKey);
+		return new ConcurrentLocalTimeMap<>(keyToLangFuncWithSecond);
 	}
 
 	@Override
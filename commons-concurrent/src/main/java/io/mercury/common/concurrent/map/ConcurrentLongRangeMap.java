@@ -4,17 +4,17 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
-import org.eclipse.collections.api.block.procedure.primitive.LongProcedure;
+import org.eclipse.collections.api.block.procedure.primitive.LongObjectProcedure;
 import org.eclipse.collections.api.list.MutableList;
-import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
 import org.eclipse.collections.api.set.primitive.MutableLongSet;
 
 import io.mercury.common.collections.Capacity;
 import io.mercury.common.collections.MutableLists;
-import io.mercury.common.collections.MutableMaps;
 import io.mercury.common.collections.MutableSets;
 
 /**
+ * 基于{@link ConcurrentSortedLongObjectMap}, 读写均为无锁操作, 范围查询为弱一致性且不阻塞并发写入.<br>
+ * 不能保存null值, null用于表示不存在.
  *
  * @author yellow013
  *
@@ -23,23 +23,34 @@ import io.mercury.common.collections.MutableSets;
 @ThreadSafe
 public final class ConcurrentLongRangeMap<V> {
 
-	private MutableLongObjectMap<V> savedMap;
-	private MutableLongSet savedKey;
+	private final ConcurrentSortedLongObjectMap<V> savedMap;
 
 	public ConcurrentLongRangeMap() {
-		this(Capacity.L06_SIZE_64);
+		this.savedMap = new ConcurrentSortedLongObjectMap<>();
 	}
 
+	/**
+	 * 跳表不需要预分配容量, 与{@link #ConcurrentLongRangeMap()}相同
+	 * 
+	 * @param capacity 未使用
+	 * @deprecated 使用{@link #ConcurrentLongRangeMap()}
+	 */
+	@Deprecated
 	public ConcurrentLongRangeMap(Capacity capacity) {
-		this.savedMap = MutableMaps.newLongObjectHashMap(capacity);
-		this.savedKey = MutableSets.newLongHashSet(capacity);
-
+		this();
 	}
 
+	/**
+	 * 不能写入null值, 删除元素使用{@link #remove(long)}
+	 * 
+	 * @param key
+	 * @param value 不能为null
+	 * @return
+	 * @throws IllegalArgumentException value为null
+	 */
 	@Nonnull
-	public synchronized ConcurrentLongRangeMap<V> put(long key, V value) {
+	public ConcurrentLongRangeMap<V> put(long key, @Nonnull V value) {
 		savedMap.put(key, value);
-		savedKey.add(key);
 		return this;
 	}
 
@@ -49,59 +60,108 @@ public final class ConcurrentLongRangeMap<V> {
 	}
 
 	@CheckForNull
-	public synchronized V remove(long key) {
-		savedKey.remove(key);
+	public V remove(long key) {
 		return savedMap.remove(key);
 	}
 
+	/**
+	 * 
+	 * @return 按键递增排序
+	 */
 	@Nonnull
 	public MutableList<V> getAll() {
-		return MutableLists.newFastList(savedMap.values());
+		MutableList<V> all = MutableLists.newFastList(savedMap.size());
+		savedMap.forEach((key, value) -> all.add(value));
+		return all;
 	}
 
-	public synchronized void clear() {
+	public void clear() {
 		savedMap.clear();
-		savedKey.clear();
 	}
 
+	/**
+	 * 
+	 * @param startPoint 包含
+	 * @param endPoint   包含
+	 * @return 按键递增排序
+	 */
 	@Nonnull
-	public synchronized MutableList<V> scan(long startPoint, long endPoint) {
-		MutableLongSet selectKey = selectKey(startPoint, endPoint);
-		MutableList<V> selected = MutableLists.newFastList(selectKey.size());
-		operatingSelect(selectKey, key -> selected.add(get(key)));
+	public MutableList<V> scan(long startPoint, long endPoint) {
+		MutableList<V> selected = MutableLists.newFastList();
+		savedMap.forEachInRange(startPoint, endPoint, (key, value) -> selected.add(value));
 		return selected;
 	}
 
+	/**
+	 * 
+	 * @param startPoint 包含
+	 * @param endPoint   包含
+	 * @return 按键递增排序
+	 */
 	@Nonnull
-	public synchronized MutableList<V> remove(long startPoint, long endPoint) {
-		MutableLongSet selectKey = selectKey(startPoint, endPoint);
-		MutableList<V> removed = MutableLists.newFastList(selectKey.size());
-		operatingSelect(selectKey, key -> removed.add(remove(key)));
+	public MutableList<V> remove(long startPoint, long endPoint) {
+		MutableList<V> removed = MutableLists.newFastList();
+		savedMap.removeRange(startPoint, endPoint, (key, value) -> removed.add(value));
 		return removed;
 	}
 
-	// TODO 性能优化
 	public MutableLongSet selectKey(long startPoint, long endPoint) {
-//		MutableLongIterator longIterator = savedKey.longIterator();
-//		MutableLongSet longHashSet = MutableSets.newLongHashSet(512);
-//		while (longIterator.hasNext()) {
-//			long next = longIterator.next();
-//			if (next >= startPoint && next <= endPoint)
-//				longHashSet.add(next);
-//		}
-//		return longHashSet;
-		return savedKey.select(key -> key >= startPoint && key <= endPoint, MutableSets.newLongHashSet(Capacity.L06_SIZE_64));
+		MutableLongSet selected = MutableSets.newLongHashSet(Capacity.L06_SIZE_64);
+		savedMap.forEachInRange(startPoint, endPoint, (key, value) -> selected.add(key));
+		return selected;
+	}
+
+	/**
+	 * 按键递增顺序遍历[startPoint, endPoint]范围内的元素, 不分配对象, 不阻塞并发写入
+	 * 
+	 * @param startPoint 包含
+	 * @param endPoint   包含
+	 * @param procedure
+	 */
+	public void forEachInRange(long startPoint, long endPoint, LongObjectProcedure<? super V> procedure) {
+		savedMap.forEachInRange(startPoint, endPoint, procedure);
+	}
+
+	public void forEach(LongObjectProcedure<? super V> procedure) {
+		savedMap.forEach(procedure);
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @return 不大于key的最大键, 不存在时返回Long.MIN_VALUE
+	 */
+	public long floorKey(long key) {
+		return savedMap.floorKey(key);
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @return 不小于key的最小键, 不存在时返回Long.MAX_VALUE
+	 */
+	public long ceilingKey(long key) {
+		return savedMap.ceilingKey(key);
+	}
+
+	@CheckForNull
+	public V floor(long key) {
+		return savedMap.floor(key);
+	}
+
+	@CheckForNull
+	public V ceiling(long key) {
+		return savedMap.ceiling(key);
 	}
 
-	private void operatingSelect(MutableLongSet selectKey, LongProcedure func) {
-		if (!selectKey.isEmpty())
-			selectKey.each(key -> func.accept(key));
+	public int size() {
+		return savedMap.size();
 	}
 
 	public static void main(String[] args) {
 
 		long startNano = System.nanoTime();
-		ConcurrentLongRangeMap<String> longRangeMap = new ConcurrentLongRangeMap<>(Capacity.L24_SIZE_16777216);
+		ConcurrentLongRangeMap<String> longRangeMap = new ConcurrentLongRangeMap<>();
 		for (long l = 0L; l < 10000L; l++) {
 			longRangeMap.put(l, "l == " + l);
 		}
@@ -111,9 +171,8 @@ public final class ConcurrentLongRangeMap<V> {
 		for (int i = 0; i < 200; i++) {
 			long startNano1 = System.nanoTime();
 			for (long l = 1000L; l < 1300L; l++) {
-				@SuppressWarnings("unused")
-				MutableLongSet selectKey = longRangeMap.selectKey(0, l);
-				// longRangeMap.get(1000, l);
+				longRangeMap.forEachInRange(0, l, (key, value) -> {
+				});
 			}
 			long endNano1 = System.nanoTime();
 			System.out.println((endNano1 - startNano1) / 1000000);
@@ -0,0 +1,742 @@
+package io.mercury.common.concurrent.map;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.eclipse.collections.api.block.procedure.primitive.LongObjectProcedure;
+
+/**
+ * 按long键排序的并发Map, 以基本类型long为键的无锁跳表, 算法与{@link java.util.concurrent.ConcurrentSkipListMap}相同.<br>
+ * 所有操作均为无锁(lock-free)实现: put和remove通过CAS完成, 删除时先将值置为null, 再追加标记节点后断开链接;
+ * get不加锁, 但查找路径上遇到已删除的节点时会通过CAS协助断开链接, 因此读操作也可能写入共享状态.<br>
+ * 范围遍历为弱一致性: 不阻塞并发写入, 不抛出并发修改异常, 遍历期间写入的键可能可见也可能不可见.
+ *
+ * @author yellow013
+ *
+ * @param <V>
+ */
+@ThreadSafe
+public final class ConcurrentSortedLongObjectMap<V> {
+
+	private static final Object BaseHeader = new Object();
+
+	// findNear的查找关系
+	private static final int EQ = 1;
+	private static final int LT = 2;
+	private static final int GT = 0;
+
+	private volatile HeadIndex<V> head;
+
+	private final LongAdder size = new LongAdder();
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<ConcurrentSortedLongObjectMap, HeadIndex> HeadUpdater = AtomicReferenceFieldUpdater
+			.newUpdater(ConcurrentSortedLongObjectMap.class, HeadIndex.class, "head");
+
+	public ConcurrentSortedLongObjectMap() {
+		this.head = new HeadIndex<>(new Node<>(0L, BaseHeader, null), null, null, 1);
+	}
+
+	/**
+	 * 数据节点, value为null表示已删除, value为自身表示标记节点
+	 */
+	private static final class Node<V> {
+
+		final long key;
+		volatile Object value;
+		volatile Node<V> next;
+
+		@SuppressWarnings("rawtypes")
+		private static final AtomicReferenceFieldUpdater<Node, Object> ValueUpdater = AtomicReferenceFieldUpdater
+				.newUpdater(Node.class, Object.class, "value");
+
+		@SuppressWarnings("rawtypes")
+		private static final AtomicReferenceFieldUpdater<Node, Node> NextUpdater = AtomicReferenceFieldUpdater
+				.newUpdater(Node.class, Node.class, "next");
+
+		Node(long key, Object value, Node<V> next) {
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+
+		// 标记节点
+		Node(Node<V> next) {
+			this.key = 0L;
+			this.value = this;
+			this.next = next;
+		}
+
+		boolean casValue(Object cmp, Object val) {
+			return ValueUpdater.compareAndSet(this, cmp, val);
+		}
+
+		boolean casNext(Node<V> cmp, Node<V> val) {
+			return NextUpdater.compareAndSet(this, cmp, val);
+		}
+
+		boolean isBaseHeader() {
+			return value == BaseHeader;
+		}
+
+		boolean appendMarker(Node<V> f) {
+			return casNext(f, new Node<>(f));
+		}
+
+		/**
+		 * 协助完成删除: 追加标记节点或将前驱节点链接到标记节点之后
+		 */
+		void helpDelete(Node<V> b, Node<V> f) {
+			if (f == next && this == b.next) {
+				if (f == null || f.value != f)
+					casNext(f, new Node<>(f));
+				else
+					b.casNext(this, f.next);
+			}
+		}
+
+		@CheckForNull
+		@SuppressWarnings("unchecked")
+		V validValue() {
+			Object v = value;
+			if (v == this || v == BaseHeader)
+				return null;
+			return (V) v;
+		}
+
+	}
+
+	private static class Index<V> {
+
+		final Node<V> node;
+		final Index<V> down;
+		volatile Index<V> right;
+
+		@SuppressWarnings("rawtypes")
+		private static final AtomicReferenceFieldUpdater<Index, Index> RightUpdater = AtomicReferenceFieldUpdater
+				.newUpdater(Index.class, Index.class, "right");
+
+		Index(Node<V> node, Index<V> down, Index<V> right) {
+			this.node = node;
+			this.down = down;
+			this.right = right;
+		}
+
+		final boolean casRight(Index<V> cmp, Index<V> val) {
+			return RightUpdater.compareAndSet(this, cmp, val);
+		}
+
+		final boolean link(Index<V> succ, Index<V> newSucc) {
+			newSucc.right = succ;
+			return node.value != null && casRight(succ, newSucc);
+		}
+
+		final boolean unlink(Index<V> succ) {
+			return node.value != null && casRight(succ, succ.right);
+		}
+
+	}
+
+	private static final class HeadIndex<V> extends Index<V> {
+
+		final int level;
+
+		HeadIndex(Node<V> node, Index<V> down, Index<V> right, int level) {
+			super(node, down, right);
+			this.level = level;
+		}
+
+	}
+
+	private boolean casHead(HeadIndex<V> cmp, HeadIndex<V> val) {
+		return HeadUpdater.compareAndSet(this, cmp, val);
+	}
+
+	/**
+	 * 沿索引层查找键小于key的最近节点, 顺便移除已删除节点的索引
+	 */
+	private Node<V> findPredecessor(long key) {
+		for (;;) {
+			for (Index<V> q = head, r = q.right, d;;) {
+				if (r != null) {
+					Node<V> n = r.node;
+					if (n.value == null) {
+						if (!q.unlink(r))
+							break;
+						r = q.right;
+						continue;
+					}
+					if (key > n.key) {
+						q = r;
+						r = r.right;
+						continue;
+					}
+				}
+				if ((d = q.down) == null)
+					return q.node;
+				q = d;
+				r = d.right;
+			}
+		}
+	}
+
+	@CheckForNull
+	private Node<V> findNode(long key) {
+		outer: for (;;) {
+			for (Node<V> b = findPredecessor(key), n = b.next;;) {
+				Object v;
+				if (n == null)
+					break outer;
+				Node<V> f = n.next;
+				// 读取不一致
+				if (n != b.next)
+					break;
+				if ((v = n.value) == null) {
+					n.helpDelete(b, f);
+					break;
+				}
+				// b已被删除
+				if (b.value == null || v == n)
+					break;
+				if (key == n.key)
+					return n;
+				if (key < n.key)
+					break outer;
+				b = n;
+				n = f;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param rel EQ, LT, GT或LT|EQ
+	 * @return
+	 */
+	@CheckForNull
+	private Node<V> findNear(long key, int rel) {
+		for (;;) {
+			for (Node<V> b = findPredecessor(key), n = b.next;;) {
+				Object v;
+				if (n == null)
+					return ((rel & LT) == 0 || b.isBaseHeader()) ? null : b;
+				Node<V> f = n.next;
+				if (n != b.next)
+					break;
+				if ((v = n.value) == null) {
+					n.helpDelete(b, f);
+					break;
+				}
+				if (b.value == null || v == n)
+					break;
+				if ((key == n.key && (rel & EQ) != 0) || (key < n.key && (rel & LT) == 0))
+					return n;
+				if (key <= n.key && (rel & LT) != 0)
+					return b.isBaseHeader() ? null : b;
+				b = n;
+				n = f;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return 查找期间目标节点被删除时重试, 不存在时返回null
+	 */
+	@CheckForNull
+	private Node<V> findNearValid(long key, int rel) {
+		for (;;) {
+			Node<V> n = findNear(key, rel);
+			if (n == null || n.value != null)
+				return n;
+		}
+	}
+
+	@CheckForNull
+	private Node<V> findFirst() {
+		for (Node<V> b, n;;) {
+			if ((n = (b = head.node).next) == null)
+				return null;
+			if (n.value != null)
+				return n;
+			n.helpDelete(b, n.next);
+		}
+	}
+
+	public int size() {
+		long sum = size.sum();
+		return sum < 0L ? 0 : sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+	}
+
+	public boolean isEmpty() {
+		return findFirst() == null;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 不存在时返回null
+	 */
+	@CheckForNull
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		outer: for (;;) {
+			for (Node<V> b = findPredecessor(key), n = b.next;;) {
+				Object v;
+				if (n == null)
+					break outer;
+				Node<V> f = n.next;
+				if (n != b.next)
+					break;
+				if ((v = n.value) == null) {
+					n.helpDelete(b, f);
+					break;
+				}
+				if (b.value == null || v == n)
+					break;
+				if (key == n.key)
+					return (V) v;
+				if (key < n.key)
+					break outer;
+				b = n;
+				n = f;
+			}
+		}
+		return null;
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param value
+	 * @return 之前的值, 不存在时返回null
+	 */
+	@CheckForNull
+	public V put(long key, @Nonnull V value) {
+		if (value == null)
+			throw new IllegalArgumentException("value is null...");
+		return doPut(key, value, false);
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param value
+	 * @return 已存在时返回当前值且不更新, 不存在时返回null
+	 */
+	@CheckForNull
+	public V putIfAbsent(long key, @Nonnull V value) {
+		if (value == null)
+			throw new IllegalArgumentException("value is null...");
+		return doPut(key, value, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	private V doPut(long key, V value, boolean onlyIfAbsent) {
+		Node<V> z;
+		outer: for (;;) {
+			for (Node<V> b = findPredecessor(key), n = b.next;;) {
+				if (n != null) {
+					Object v;
+					Node<V> f = n.next;
+					if (n != b.next)
+						break;
+					if ((v = n.value) == null) {
+						n.helpDelete(b, f);
+						break;
+					}
+					if (b.value == null || v == n)
+						break;
+					if (key > n.key) {
+						b = n;
+						n = f;
+						continue;
+					}
+					if (key == n.key) {
+						if (onlyIfAbsent || n.casValue(v, value))
+							return (V) v;
+						break;
+					}
+				}
+				z = new Node<>(key, value, n);
+				if (!b.casNext(n, z))
+					break;
+				break outer;
+			}
+		}
+		size.increment();
+		// 以1/4的概率建立索引, 每升高一层概率减半
+		int rnd = ThreadLocalRandom.current().nextInt();
+		if ((rnd & 0x80000001) == 0) {
+			int level = 1, max;
+			while (((rnd >>>= 1) & 1) != 0)
+				++level;
+			Index<V> idx = null;
+			HeadIndex<V> h = head;
+			if (level <= (max = h.level)) {
+				for (int i = 1; i <= level; ++i)
+					idx = new Index<>(z, idx, null);
+			} else {
+				// 增加一层
+				level = max + 1;
+				Index<V>[] idxs = (Index<V>[]) new Index<?>[level + 1];
+				for (int i = 1; i <= level; ++i)
+					idxs[i] = idx = new Index<>(z, idx, null);
+				for (;;) {
+					h = head;
+					int oldLevel = h.level;
+					if (level <= oldLevel)
+						break;
+					HeadIndex<V> newh = h;
+					Node<V> oldbase = h.node;
+					for (int j = oldLevel + 1; j <= level; ++j)
+						newh = new HeadIndex<>(oldbase, newh, idxs[j], j);
+					if (casHead(h, newh)) {
+						h = newh;
+						idx = idxs[level = oldLevel];
+						break;
+					}
+				}
+			}
+			// 自上而下逐层链接索引
+			splice: for (int insertionLevel = level;;) {
+				int j = h.level;
+				for (Index<V> q = h, r = q.right, t = idx;;) {
+					if (q == null || t == null)
+						break splice;
+					if (r != null) {
+						Node<V> n = r.node;
+						if (n.value == null) {
+							if (!q.unlink(r))
+								break;
+							r = q.right;
+							continue;
+						}
+						if (key > n.key) {
+							q = r;
+							r = r.right;
+							continue;
+						}
+					}
+					if (j == insertionLevel) {
+						if (!q.link(r, t))
+							break;
+						if (t.node.value == null) {
+							// 链接期间节点已被删除, 通过查找清理索引
+							findNode(key);
+							break splice;
+						}
+						if (--insertionLevel == 0)
+							break splice;
+					}
+					if (--j >= insertionLevel && j < level)
+						t = t.down;
+					q = q.down;
+					r = q.right;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 被删除的值, 不存在时返回null
+	 */
+	@CheckForNull
+	public V remove(long key) {
+		return doRemove(key, null);
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param value
+	 * @return 当前值与value相等时删除
+	 */
+	public boolean remove(long key, @Nonnull V value) {
+		if (value == null)
+			throw new IllegalArgumentException("value is null...");
+		return doRemove(key, value) != null;
+	}
+
+	@CheckForNull
+	@SuppressWarnings("unchecked")
+	private V doRemove(long key, @CheckForNull Object value) {
+		outer: for (;;) {
+			for (Node<V> b = findPredecessor(key), n = b.next;;) {
+				Object v;
+				if (n == null)
+					break outer;
+				Node<V> f = n.next;
+				if (n != b.next)
+					break;
+				if ((v = n.value) == null) {
+					n.helpDelete(b, f);
+					break;
+				}
+				if (b.value == null || v == n)
+					break;
+				if (key < n.key)
+					break outer;
+				if (key > n.key) {
+					b = n;
+					n = f;
+					continue;
+				}
+				if (value != null && !value.equals(v))
+					break outer;
+				if (!n.casValue(v, null))
+					break;
+				size.decrement();
+				if (!n.appendMarker(f) || !b.casNext(n, f))
+					findNode(key);
+				else {
+					findPredecessor(key);
+					if (head.right == null)
+						tryReduceLevel();
+				}
+				return (V) v;
+			}
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void tryReduceLevel() {
+		HeadIndex<V> h = head;
+		HeadIndex<V> d;
+		HeadIndex<V> e;
+		if (h.level > 3 && (d = (HeadIndex<V>) h.down) != null && (e = (HeadIndex<V>) d.down) != null
+				&& e.right == null && d.right == null && h.right == null && casHead(h, d) && h.right != null)
+			// 并发插入时恢复
+			casHead(d, h);
+	}
+
+	/**
+	 * 按键递增顺序遍历[startKey, endKey]范围内的元素, 弱一致性, 不阻塞并发写入
+	 *
+	 * @param startKey  包含
+	 * @param endKey    包含
+	 * @param procedure
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachInRange(long startKey, long endKey, LongObjectProcedure<? super V> procedure) {
+		if (startKey > endKey)
+			return;
+		for (Node<V> n = findNear(startKey, EQ); n != null; n = n.next) {
+			Object v = n.value;
+			// 已删除或标记节点
+			if (v == null || v == n)
+				continue;
+			if (n.key > endKey)
+				break;
+			procedure.value(n.key, (V) v);
+		}
+	}
+
+	/**
+	 * 按键递增顺序遍历[startKey, endKey]范围内的值, 弱一致性, 不分配对象
+	 *
+	 * @param startKey 包含
+	 * @param endKey   包含
+	 * @param consumer
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachValueInRange(long startKey, long endKey, Consumer<? super V> consumer) {
+		if (startKey > endKey)
+			return;
+		for (Node<V> n = findNear(startKey, EQ); n != null; n = n.next) {
+			Object v = n.value;
+			if (v == null || v == n)
+				continue;
+			if (n.key > endKey)
+				break;
+			consumer.accept((V) v);
+		}
+	}
+
+	/**
+	 * 按键递增顺序遍历全部元素, 弱一致性
+	 *
+	 * @param procedure
+	 */
+	public void forEach(LongObjectProcedure<? super V> procedure) {
+		forEachInRange(Long.MIN_VALUE, Long.MAX_VALUE, procedure);
+	}
+
+	public int countInRange(long startKey, long endKey) {
+		int count = 0;
+		if (startKey > endKey)
+			return count;
+		for (Node<V> n = findNear(startKey, EQ); n != null; n = n.next) {
+			Object v = n.value;
+			if (v == null || v == n)
+				continue;
+			if (n.key > endKey)
+				break;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * 逐个删除[startKey, endKey]范围内的元素, 每个键的删除是原子的, 整个范围的删除不是原子的
+	 *
+	 * @param startKey  包含
+	 * @param endKey    包含
+	 * @param procedure 接收被删除的键值, 可以为null
+	 * @return 删除的数量
+	 */
+	@SuppressWarnings("unchecked")
+	public int removeRange(long startKey, long endKey, @CheckForNull LongObjectProcedure<? super V> procedure) {
+		int count = 0;
+		if (startKey > endKey)
+			return count;
+		for (Node<V> n = findNear(startKey, EQ); n != null; n = n.next) {
+			Object v = n.value;
+			if (v == null || v == n)
+				continue;
+			if (n.key > endKey)
+				break;
+			// 与并发删除竞争时只有一方成功
+			if (n.casValue(v, null)) {
+				size.decrement();
+				V removed = (V) v;
+				// 断开链接并清理索引
+				findNode(n.key);
+				count++;
+				if (procedure != null)
+					procedure.value(n.key, removed);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 不大于key的最大键, 不存在时返回Long.MIN_VALUE
+	 */
+	public long floorKey(long key) {
+		Node<V> n = findNear(key, LT | EQ);
+		return n == null ? Long.MIN_VALUE : n.key;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 不小于key的最小键, 不存在时返回Long.MAX_VALUE
+	 */
+	public long ceilingKey(long key) {
+		Node<V> n = findNear(key, EQ);
+		return n == null ? Long.MAX_VALUE : n.key;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 不大于key的最大键对应的值
+	 */
+	@CheckForNull
+	public V floor(long key) {
+		return nearValue(key, LT | EQ);
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 不小于key的最小键对应的值
+	 */
+	@CheckForNull
+	public V ceiling(long key) {
+		return nearValue(key, EQ);
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 大于key的最小键对应的值
+	 */
+	@CheckForNull
+	public V higher(long key) {
+		return nearValue(key, GT);
+	}
+
+	@CheckForNull
+	private V nearValue(long key, int rel) {
+		for (;;) {
+			Node<V> n = findNearValid(key, rel);
+			if (n == null)
+				return null;
+			V v = n.validValue();
+			if (v != null)
+				return v;
+		}
+	}
+
+	/**
+	 *
+	 * @return 最小键, 为空时返回Long.MAX_VALUE
+	 */
+	public long firstKey() {
+		Node<V> n = findFirst();
+		return n == null ? Long.MAX_VALUE : n.key;
+	}
+
+	/**
+	 *
+	 * @return 最大键, 为空时返回Long.MIN_VALUE
+	 */
+	public long lastKey() {
+		Node<V> n = findNear(Long.MAX_VALUE, LT | EQ);
+		return n == null ? Long.MIN_VALUE : n.key;
+	}
+
+	/**
+	 * 逐个删除全部元素, 与并发写入同时执行时结束后可能不为空
+	 */
+	public void clear() {
+		for (Node<V> n; (n = findFirst()) != null;)
+			doRemove(n.key, null);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append("=")
+				.append(value));
+		return builder.append("}").toString();
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+
+		ConcurrentSortedLongObjectMap<String> map = new ConcurrentSortedLongObjectMap<>();
+		Thread writer = new Thread(() -> {
+			for (long l = 0L; l < 100000L; l++)
+				map.put(l, "l == " + l);
+		}, "writer");
+		writer.start();
+		int[] count = new int[1];
+		while (writer.isAlive())
+			map.forEachInRange(0, 1000, (key, value) -> count[0]++);
+		writer.join();
+		System.out.println("scan count -> " + count[0] + ", size -> " + map.size());
+		System.out.println(map.floorKey(50000) + " " + map.ceilingKey(-1) + " " + map.lastKey());
+
+	}
+
+}
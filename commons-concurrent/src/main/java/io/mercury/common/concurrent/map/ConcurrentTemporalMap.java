@@ -1,41 +1,36 @@
 package io.mercury.common.concurrent.map;
 
 import java.time.temporal.Temporal;
-import java.util.concurrent.ConcurrentMap;
-import java.util.function.BiPredicate;
-import java.util.function.Function;
+import java.util.function.Consumer;
 import java.util.function.ToLongFunction;
 
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.eclipse.collections.api.list.MutableList;
-import org.jctools.maps.NonBlockingHashMapLong;
 
 import io.mercury.common.collections.MutableLists;
 
-@NotThreadSafe
+/**
+ * 键转换为保持时间顺序的long存储在{@link ConcurrentSortedLongObjectMap}中, 范围查询只访问存在的键且不阻塞并发写入
+ * 
+ * @author yellow013
+ *
+ */
+@ThreadSafe
 public abstract class ConcurrentTemporalMap<K extends Temporal, V, T extends ConcurrentTemporalMap<K, V, T>> {
 
 	protected ToLongFunction<K> keyToLangFunc;
 
-	private Function<K, K> nextKeyFunc;
+	private ConcurrentSortedLongObjectMap<V> savedMap;
 
-	private BiPredicate<K, K> hasNextKey;
-
-	private ConcurrentMap<Long, V> savedMap;
-
-	public ConcurrentTemporalMap(ToLongFunction<K> keyToLangFunc, Function<K, K> nextKeyFunc,
-			BiPredicate<K, K> hasNextKey) {
-		this(keyToLangFunc, nextKeyFunc, hasNextKey, 128);
-	}
-
-	public ConcurrentTemporalMap(ToLongFunction<K> keyToLangFunc, Function<K, K> nextKeyFunc,
-			BiPredicate<K, K> hasNextKey, int initialCapacity) {
+	/**
+	 * 
+	 * @param keyToLangFunc 转换结果的大小顺序必须与时间顺序一致
+	 */
+	public ConcurrentTemporalMap(ToLongFunction<K> keyToLangFunc) {
 		this.keyToLangFunc = keyToLangFunc;
-		this.nextKeyFunc = nextKeyFunc;
-		this.hasNextKey = hasNextKey;
-		this.savedMap = new NonBlockingHashMapLong<>(initialCapacity);
+		this.savedMap = new ConcurrentSortedLongObjectMap<>();
 	}
 
 	/**
@@ -60,35 +55,44 @@ public abstract class ConcurrentTemporalMap<K extends Temporal, V, T extends Con
 	/**
 	 * general get method
 	 * 
-	 * @param startPoint
-	 * @param endPoint
-	 * @return
+	 * @param startPoint 包含
+	 * @param endPoint   包含, startPoint在endPoint之后时只返回endPoint对应的值
+	 * @return 按时间顺序排序
 	 */
 	public MutableList<V> scan(@Nonnull K startPoint, @Nonnull K endPoint) {
 		MutableList<V> rtnList = MutableLists.newFastList(32);
-		if (!hasNextKey.test(startPoint, endPoint))
-			return putResult(rtnList, get(endPoint));
-		putResult(rtnList, get(startPoint));
-		K nextKey = nextKeyFunc.apply(startPoint);
-		while (hasNextKey.test(nextKey, endPoint)) {
-			putResult(rtnList, get(nextKey));
-			nextKey = nextKeyFunc.apply(nextKey);
-		}
+		scan(startPoint, endPoint, rtnList::add);
 		return rtnList;
 	}
 
-	private MutableList<V> putResult(MutableList<V> rtnList, V value) {
-		if (value != null)
-			rtnList.add(value);
-		return rtnList;
+	/**
+	 * 按时间顺序将[startPoint, endPoint]范围内的值传递给consumer, 不分配对象, 弱一致性
+	 * 
+	 * @param startPoint 包含
+	 * @param endPoint   包含, startPoint在endPoint之后时只处理endPoint对应的值
+	 * @param consumer
+	 */
+	public void scan(@Nonnull K startPoint, @Nonnull K endPoint, @Nonnull Consumer<? super V> consumer) {
+		long startKey = keyToLangFunc.applyAsLong(startPoint);
+		long endKey = keyToLangFunc.applyAsLong(endPoint);
+		savedMap.forEachValueInRange(startKey > endKey ? endKey : startKey, endKey, consumer);
 	}
 
-	protected ConcurrentMap<Long, V> getSavedMap() {
+	protected ConcurrentSortedLongObjectMap<V> getSavedMap() {
 		return savedMap;
 	}
 
+	/**
+	 * value为null时删除该键, get返回null, 范围查询跳过该键
+	 * 
+	 * @param key
+	 * @param value
+	 */
 	protected void put(long key, V value) {
-		savedMap.put(key, value);
+		if (value == null)
+			savedMap.remove(key);
+		else
+			savedMap.put(key, value);
 	}
 
 }
@@ -0,0 +1,94 @@
+package io.mercury.common.concurrent.map;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * 4位计数器的Count-Min Sketch, 用于估计键的访问频率, 每个long包含16个计数器, 每个键对应4个计数器.<br>
+ * 增加次数达到样本数量时所有计数器减半, 使频率随时间衰减.
+ *
+ * @author yellow013
+ *
+ */
+@NotThreadSafe
+final class FrequencySketch {
+
+	private static final long[] Seeds = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+
+	private static final long ResetMask = 0x7777777777777777L;
+
+	private static final long OneMask = 0x1111111111111111L;
+
+	private final long[] table;
+
+	private final int tableMask;
+
+	private final int sampleSize;
+
+	private int size;
+
+	FrequencySketch(long maximumSize) {
+		int capacity = (int) Math.min(Math.max(maximumSize, 16L), 1 << 30);
+		int length = Integer.highestOneBit(capacity - 1) << 1;
+		this.table = new long[length];
+		this.tableMask = length - 1;
+		this.sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+	}
+
+	int frequency(Object key) {
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xFL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	void increment(Object key) {
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++)
+			added |= incrementAt(indexOf(hash, i), start + i);
+		if (added && ++size == sampleSize)
+			reset();
+	}
+
+	private boolean incrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xFL << offset;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 所有计数器减半
+	 */
+	private void reset() {
+		int odd = 0;
+		for (int i = 0; i < table.length; i++) {
+			odd += Long.bitCount(table[i] & OneMask);
+			table[i] = (table[i] >>> 1) & ResetMask;
+		}
+		this.size = (size - (odd >>> 2)) >>> 1;
+	}
+
+	private int indexOf(int hash, int i) {
+		long h = (hash + Seeds[i]) * Seeds[i];
+		h += h >>> 32;
+		return ((int) h) & tableMask;
+	}
+
+	private static int spread(int hash) {
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		return (hash >>> 16) ^ hash;
+	}
+
+}
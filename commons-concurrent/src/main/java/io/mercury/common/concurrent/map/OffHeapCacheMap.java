@@ -0,0 +1,624 @@
+package io.mercury.common.concurrent.map;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.serialization.specific.BinaryDeserializer;
+import io.mercury.common.serialization.specific.BinarySerializer;
+
+/**
+ * 值序列化后存储在堆外内存中的缓存, 以long为键, 堆内只保留每个分段的基本类型数组索引, 堆大小和GC停顿不随条目数量增长.<br>
+ * 总容量按字节计算并平均分配到各分段, 每个分段为一块DirectByteBuffer或内存映射文件, 按环形日志追加写入.
+ * 空间不足时从最早写入的记录开始淘汰, 最近被读取过的记录复制到尾部获得第二次机会(FIFO-Reinsertion).<br>
+ * 读取时反序列化器直接读取堆外内存, 通过{@link io.mercury.common.serialization.Deserializer#deserialization(Object, Object)}
+ * 填充调用方提供的复用对象, 传入的ByteBuffer只在调用期间有效.
+ *
+ * @author yellow013
+ *
+ * @param <V>
+ */
+@ThreadSafe
+public final class OffHeapCacheMap<V> implements Closeable {
+
+	private static final Logger log = CommonLoggerFactory.getLogger(OffHeapCacheMap.class);
+
+	// 记录头: 记录总长度(int), 值长度(int), 键(long)
+	private static final int HeaderLength = 16;
+
+	// 记录总长度为此值时表示之后到分段末尾为填充
+	private static final int PaddingMarker = -1;
+
+	private static final int EmptyOffset = -1;
+
+	private static final int MaxSegmentCapacity = Integer.MAX_VALUE - 7;
+
+	private final Segment[] segments;
+
+	private final int segmentMask;
+
+	private final long capacity;
+
+	private final BinarySerializer<V> serializer;
+
+	private final BinaryDeserializer<V> deserializer;
+
+	// 每个线程对每个分段持有一个只读视图, 读取时不分配对象
+	private final ThreadLocal<ByteBuffer[]> readViews;
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private final LongAdder reinsertCount = new LongAdder();
+
+	private volatile boolean isClosed = false;
+
+	private OffHeapCacheMap(Builder builder, BinarySerializer<V> serializer, BinaryDeserializer<V> deserializer)
+			throws IOException {
+		int segmentCount = builder.segments;
+		while (builder.capacity / segmentCount > MaxSegmentCapacity)
+			segmentCount <<= 1;
+		int segmentCapacity = (int) (builder.capacity / segmentCount) & ~7;
+		if (segmentCapacity < HeaderLength)
+			throw new IllegalArgumentException("capacity is too small for " + segmentCount + " segments");
+		this.segments = new OffHeapCacheMap.Segment[segmentCount];
+		this.segmentMask = segmentCount - 1;
+		this.capacity = (long) segmentCapacity * segmentCount;
+		this.serializer = serializer;
+		this.deserializer = deserializer;
+		this.readViews = ThreadLocal.withInitial(() -> new ByteBuffer[segments.length]);
+		try {
+			for (int i = 0; i < segmentCount; i++)
+				segments[i] = new Segment(segmentCapacity, builder.directory, i);
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 *
+	 * @param capacity 堆外内存总字节数
+	 * @return
+	 */
+	public static Builder newBuilder(long capacity) {
+		return new Builder(capacity);
+	}
+
+	private static long hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return key;
+	}
+
+	private int segmentIndex(long hash) {
+		return (int) (hash >>> 32) & segmentMask;
+	}
+
+	private void ensureOpen() {
+		if (isClosed)
+			throw new IllegalStateException("OffHeapCacheMap is closed");
+	}
+
+	/**
+	 * 序列化器返回的ByteBuffer从position到limit的内容被复制到堆外, 复制后position等于limit, 可以复用
+	 *
+	 * @param key
+	 * @param value
+	 * @return 序列化结果大于单个分段容量时返回false, 同时删除该键原有的值
+	 */
+	public boolean put(long key, @Nonnull V value) {
+		if (value == null)
+			throw new IllegalArgumentException("value is null...");
+		ensureOpen();
+		ByteBuffer payload = serializer.serialization(value);
+		long hash = hash(key);
+		return segments[segmentIndex(hash)].put(key, hash, payload);
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 不存在时返回null
+	 */
+	@CheckForNull
+	public V get(long key) {
+		return get(key, null);
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param reuse 传递给反序列化器的复用对象
+	 * @return 不存在时返回null
+	 */
+	@CheckForNull
+	public V get(long key, @CheckForNull V reuse) {
+		ensureOpen();
+		long hash = hash(key);
+		int index = segmentIndex(hash);
+		ByteBuffer[] views = readViews.get();
+		ByteBuffer view = views[index];
+		if (view == null)
+			views[index] = view = segments[index].buffer.duplicate();
+		return segments[index].get(key, hash, view, reuse);
+	}
+
+	public boolean containsKey(long key) {
+		ensureOpen();
+		long hash = hash(key);
+		return segments[segmentIndex(hash)].containsKey(key, hash);
+	}
+
+	/**
+	 * 记录占用的空间在环形日志头部经过时回收
+	 *
+	 * @param key
+	 * @return
+	 */
+	public boolean remove(long key) {
+		ensureOpen();
+		long hash = hash(key);
+		return segments[segmentIndex(hash)].remove(key, hash);
+	}
+
+	public void clear() {
+		ensureOpen();
+		for (Segment segment : segments)
+			segment.clear();
+	}
+
+	public int size() {
+		long size = 0L;
+		for (Segment segment : segments)
+			size += segment.count;
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	/**
+	 *
+	 * @return 包括已删除但尚未回收的记录
+	 */
+	public long usedBytes() {
+		long used = 0L;
+		for (Segment segment : segments)
+			used += segment.used;
+		return used;
+	}
+
+	public long capacity() {
+		return capacity;
+	}
+
+	public long hitCount() {
+		return hitCount.sum();
+	}
+
+	public long missCount() {
+		return missCount.sum();
+	}
+
+	public long evictionCount() {
+		return evictionCount.sum();
+	}
+
+	/**
+	 *
+	 * @return 因最近被读取而复制到尾部的次数
+	 */
+	public long reinsertCount() {
+		return reinsertCount.sum();
+	}
+
+	/**
+	 * 释放映射文件, DirectByteBuffer由GC回收
+	 */
+	@Override
+	public void close() {
+		this.isClosed = true;
+		for (Segment segment : segments)
+			if (segment != null)
+				segment.close();
+	}
+
+	@Override
+	public String toString() {
+		return "{\"size\" : " + size() + ", \"capacity\" : " + capacity + ", \"usedBytes\" : " + usedBytes()
+				+ ", \"segments\" : " + segments.length + ", \"hitCount\" : " + hitCount() + ", \"missCount\" : "
+				+ missCount() + ", \"evictionCount\" : " + evictionCount() + ", \"reinsertCount\" : "
+				+ reinsertCount() + "}";
+	}
+
+	private final class Segment {
+
+		private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		private final ByteBuffer buffer;
+
+		// 写入使用, 由写锁保护
+		private final ByteBuffer writer;
+
+		private final int capacity;
+
+		private final File file;
+
+		private final RandomAccessFile randomAccessFile;
+
+		// 环形日志, 由写锁保护
+		private int head;
+		private int tail;
+		private volatile int used;
+
+		// 开放寻址索引, 线性探测, 删除时后移
+		private long[] keys;
+		private int[] offsets;
+		// 最近是否被读取, 读锁下写入
+		private byte[] referenced;
+		private int indexMask;
+		private volatile int count;
+
+		private byte[] scratch = new byte[256];
+
+		private Segment(int capacity, @CheckForNull File directory, int index) throws IOException {
+			this.capacity = capacity;
+			if (directory != null) {
+				this.file = new File(directory, String.format("offheap-%s-%03d.seg",
+						Integer.toHexString(System.identityHashCode(OffHeapCacheMap.this)), index));
+				this.randomAccessFile = new RandomAccessFile(file, "rw");
+				randomAccessFile.setLength(capacity);
+				this.buffer = randomAccessFile.getChannel().map(MapMode.READ_WRITE, 0, capacity);
+			} else {
+				this.file = null;
+				this.randomAccessFile = null;
+				this.buffer = ByteBuffer.allocateDirect(capacity);
+			}
+			this.writer = buffer.duplicate();
+			initIndex(16);
+		}
+
+		private void initIndex(int length) {
+			this.keys = new long[length];
+			this.offsets = new int[length];
+			this.referenced = new byte[length];
+			this.indexMask = length - 1;
+			Arrays.fill(offsets, EmptyOffset);
+		}
+
+		@CheckForNull
+		private V get(long key, long hash, ByteBuffer view, @CheckForNull V reuse) {
+			lock.readLock().lock();
+			try {
+				int slot = find(key, hash);
+				if (slot < 0) {
+					missCount.increment();
+					return null;
+				}
+				referenced[slot] = 1;
+				int offset = offsets[slot];
+				int valueLength = buffer.getInt(offset + 4);
+				view.clear();
+				view.position(offset + HeaderLength).limit(offset + HeaderLength + valueLength);
+				hitCount.increment();
+				return deserializer.deserialization(reuse, view);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		private boolean containsKey(long key, long hash) {
+			lock.readLock().lock();
+			try {
+				return find(key, hash) >= 0;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		private boolean put(long key, long hash, ByteBuffer payload) {
+			int valueLength = payload.remaining();
+			long recordLength = (HeaderLength + (long) valueLength + 7L) & ~7L;
+			lock.writeLock().lock();
+			try {
+				// 先删除旧记录, 避免分配空间时被淘汰或复制, 新值无法写入时也不保留旧值
+				int slot = find(key, hash);
+				if (slot >= 0)
+					removeSlot(slot);
+				if (recordLength > capacity) {
+					log.warn("OffHeapCacheMap :: Value of key [{}] is too large -> {} bytes", key, valueLength);
+					return false;
+				}
+				int size = (int) recordLength;
+				int offset = allocate(size);
+				buffer.putInt(offset, size);
+				buffer.putInt(offset + 4, valueLength);
+				buffer.putLong(offset + 8, key);
+				writer.clear();
+				writer.position(offset + HeaderLength);
+				writer.put(payload);
+				insert(key, hash, offset);
+				return true;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		private boolean remove(long key, long hash) {
+			lock.writeLock().lock();
+			try {
+				int slot = find(key, hash);
+				if (slot < 0)
+					return false;
+				removeSlot(slot);
+				return true;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		private void clear() {
+			lock.writeLock().lock();
+			try {
+				this.head = 0;
+				this.tail = 0;
+				this.used = 0;
+				this.count = 0;
+				initIndex(16);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		private int allocate(int size) {
+			for (;;) {
+				int offset = reserve(size);
+				if (offset >= 0)
+					return offset;
+				evictHead();
+			}
+		}
+
+		/**
+		 *
+		 * @param size
+		 * @return 尾部没有足够的连续空间时返回-1
+		 */
+		private int reserve(int size) {
+			if (used == 0) {
+				this.head = 0;
+				this.tail = 0;
+			}
+			// 尚未回绕
+			if (tail > head || (tail == head && used == 0)) {
+				if (capacity - tail >= size)
+					return take(size);
+				// 末尾空间不足, 填充后回绕
+				if (capacity - tail >= 4)
+					buffer.putInt(tail, PaddingMarker);
+				this.used += capacity - tail;
+				this.tail = 0;
+			}
+			if (head - tail >= size)
+				return take(size);
+			return -1;
+		}
+
+		private int take(int size) {
+			int offset = tail;
+			this.tail += size;
+			this.used += size;
+			if (tail == capacity)
+				this.tail = 0;
+			return offset;
+		}
+
+		private void evictHead() {
+			if (capacity - head < 4 || buffer.getInt(head) == PaddingMarker) {
+				this.used -= capacity - head;
+				this.head = 0;
+				return;
+			}
+			int offset = head;
+			int size = buffer.getInt(offset);
+			long key = buffer.getLong(offset + 8);
+			this.head += size;
+			this.used -= size;
+			if (head == capacity)
+				this.head = 0;
+			int slot = find(key, hash(key));
+			// 已被删除或覆盖
+			if (slot < 0 || offsets[slot] != offset)
+				return;
+			if (referenced[slot] != 0) {
+				referenced[slot] = 0;
+				if (scratch.length < size)
+					this.scratch = new byte[Math.max(size, scratch.length << 1)];
+				writer.clear();
+				writer.position(offset);
+				writer.get(scratch, 0, size);
+				int newOffset = reserve(size);
+				if (newOffset >= 0) {
+					writer.clear();
+					writer.position(newOffset);
+					writer.put(scratch, 0, size);
+					offsets[slot] = newOffset;
+					reinsertCount.increment();
+					return;
+				}
+			}
+			removeSlot(slot);
+			evictionCount.increment();
+		}
+
+		private int find(long key, long hash) {
+			long[] keys = this.keys;
+			int[] offsets = this.offsets;
+			int mask = indexMask;
+			for (int i = (int) hash & mask;; i = (i + 1) & mask) {
+				if (offsets[i] == EmptyOffset)
+					return -1;
+				if (keys[i] == key)
+					return i;
+			}
+		}
+
+		private void insert(long key, long hash, int offset) {
+			if (count + 1 > (indexMask + 1) * 3 / 4)
+				resize();
+			int i = (int) hash & indexMask;
+			while (offsets[i] != EmptyOffset)
+				i = (i + 1) & indexMask;
+			keys[i] = key;
+			offsets[i] = offset;
+			referenced[i] = 0;
+			this.count++;
+		}
+
+		private void resize() {
+			long[] oldKeys = keys;
+			int[] oldOffsets = offsets;
+			byte[] oldReferenced = referenced;
+			initIndex(oldKeys.length << 1);
+			for (int j = 0; j < oldKeys.length; j++) {
+				if (oldOffsets[j] != EmptyOffset) {
+					int i = (int) hash(oldKeys[j]) & indexMask;
+					while (offsets[i] != EmptyOffset)
+						i = (i + 1) & indexMask;
+					keys[i] = oldKeys[j];
+					offsets[i] = oldOffsets[j];
+					referenced[i] = oldReferenced[j];
+				}
+			}
+		}
+
+		/**
+		 * 删除后将同一探测序列中之后的元素前移, 不使用墓碑
+		 */
+		private void removeSlot(int slot) {
+			int mask = indexMask;
+			int i = slot;
+			for (;;) {
+				int j = i;
+				for (;;) {
+					j = (j + 1) & mask;
+					if (offsets[j] == EmptyOffset) {
+						offsets[i] = EmptyOffset;
+						referenced[i] = 0;
+						this.count--;
+						return;
+					}
+					int home = (int) hash(keys[j]) & mask;
+					// home在(i, j]之间时不能前移
+					if (i <= j ? (i < home && home <= j) : (i < home || home <= j))
+						continue;
+					keys[i] = keys[j];
+					offsets[i] = offsets[j];
+					referenced[i] = referenced[j];
+					i = j;
+					break;
+				}
+			}
+		}
+
+		private void close() {
+			lock.writeLock().lock();
+			try {
+				if (randomAccessFile != null) {
+					randomAccessFile.close();
+					if (!file.delete())
+						log.warn("OffHeapCacheMap :: Delete segment file [{}] failure", file);
+				}
+			} catch (IOException e) {
+				log.error("OffHeapCacheMap :: Close segment file [{}] failure -> {}", file, e.getMessage(), e);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+	}
+
+	/**
+	 * Builder for OffHeapCacheMap
+	 *
+	 * @author yellow013
+	 *
+	 */
+	public static final class Builder {
+
+		private final long capacity;
+		private int segments = 16;
+		private File directory;
+
+		private Builder(long capacity) {
+			if (capacity <= 0L)
+				throw new IllegalArgumentException("capacity must be greater than 0");
+			this.capacity = capacity;
+		}
+
+		/**
+		 *
+		 * @param segments 分段数量, 调整为2的幂, 单个分段超过2GB时自动增加
+		 * @return
+		 */
+		public Builder segments(int segments) {
+			if (segments <= 0)
+				throw new IllegalArgumentException("segments must be greater than 0");
+			this.segments = segments == 1 ? 1 : Integer.highestOneBit(segments - 1) << 1;
+			return this;
+		}
+
+		/**
+		 *
+		 * @param directory 不为null时使用该目录下的内存映射文件, 关闭时删除
+		 * @return
+		 */
+		public Builder directory(@CheckForNull File directory) {
+			this.directory = directory;
+			return this;
+		}
+
+		public <V> OffHeapCacheMap<V> build(@Nonnull BinarySerializer<V> serializer,
+				@Nonnull BinaryDeserializer<V> deserializer) throws IOException {
+			if (serializer == null || deserializer == null)
+				throw new IllegalArgumentException("serializer or deserializer is null...");
+			if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+				throw new IOException("Cannot create directory -> " + directory);
+			return new OffHeapCacheMap<>(this, serializer, deserializer);
+		}
+
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		try (OffHeapCacheMap<String> cacheMap = OffHeapCacheMap.newBuilder(64 * 1024 * 1024).build(
+				value -> ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)),
+				(reuse, source) -> StandardCharsets.UTF_8.decode(source).toString())) {
+			for (long l = 0L; l < 2_000_000L; l++)
+				cacheMap.put(l, "value-" + l);
+			System.out.println(cacheMap.get(1_999_999L));
+			System.out.println(cacheMap.get(1L));
+			System.out.println(cacheMap);
+		}
+
+	}
+
+}
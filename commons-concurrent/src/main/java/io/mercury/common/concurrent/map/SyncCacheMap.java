@@ -1,16 +1,36 @@
 package io.mercury.common.concurrent.map;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.jctools.maps.NonBlockingHashMap;
+import org.slf4j.Logger;
+
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.number.recorder.LatencyHistogram;
 
 /**
- * 
+ * 未命中时调用refresher加载, 同一个键同时只有一个线程加载, 其他线程等待该次加载的结果.<br>
+ * 通过{@link #newBuilder()}设置maximumSize后使用W-TinyLFU淘汰: 新写入的键先进入窗口LRU(容量的1%),
+ * 离开窗口时与主区域(分段LRU, 保护区占80%)中最久未访问的键比较访问频率, 频率低者被淘汰.<br>
+ * 过期的键在读取时视为未命中, 有界时写入操作也会移除各队列头部已过期的键. 读取在淘汰锁被占用时放弃记录访问顺序.<br>
+ * 设置refreshExecutor或refreshAfterWrite后, 不可用或超过刷新间隔的键在读取时返回旧值, 同时在后台重新加载,
+ * 加载失败或返回null时保留旧值并报告给refreshFailureHandler, 经过refreshRetryInterval后才会再次刷新.
+ * 刷新期间值被put替换或键被删除时丢弃刷新结果.
+ *
  * @author yellow013
  *
  * @param <K>
@@ -19,41 +39,372 @@ import org.jctools.maps.NonBlockingHashMap;
 @ThreadSafe
 public final class SyncCacheMap<K, V> {
 
-	private ConcurrentMap<K, Saved> valueMap = new NonBlockingHashMap<>();
+	private static final Logger log = CommonLoggerFactory.getLogger(SyncCacheMap.class);
+
+	private final ConcurrentMap<K, Saved> valueMap = new NonBlockingHashMap<>();
+
+	// 正在加载的键
+	private final ConcurrentMap<K, CompletableFuture<V>> loadingMap = new NonBlockingHashMap<>();
+
+	private final Function<K, V> refresher;
+
+	private final long maximumSize;
+
+	private final long expireAfterWriteNanos;
+
+	private final long expireAfterAccessNanos;
+
+	private final boolean expiring;
+
+	private final long refreshAfterWriteNanos;
+
+	private final long refreshRetryNanos;
+
+	// 不为null时异步刷新
+	private final Executor refreshExecutor;
+
+	private final BiConsumer<Object, Throwable> refreshFailureHandler;
+
+	// 以下字段仅在有界时使用, 由evictionLock保护
+	private final ReentrantLock evictionLock;
+
+	private final FrequencySketch sketch;
+
+	private final AccessQueue window = new AccessQueue();
+
+	private final AccessQueue probation = new AccessQueue();
 
-	private Function<K, V> refresher;
+	private final AccessQueue protection = new AccessQueue();
 
-	private class Saved {
+	private final long windowMax;
 
+	private final long mainMax;
+
+	private final long protectionMax;
+
+	// 统计
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder loadSuccessCount = new LongAdder();
+
+	private final LongAdder loadFailureCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private final LongAdder expirationCount = new LongAdder();
+
+	private final LatencyHistogram loadTime = new LatencyHistogram();
+
+	private final class Saved {
+
+		private final K key;
 		private volatile boolean available;
 		private volatile V value;
+		private volatile long writeTime;
+		private volatile long accessTime;
+		private volatile long refreshTime;
+		// 上一次后台刷新失败, refreshTime为该次刷新开始的时间
+		private volatile boolean refreshFailed;
+
+		// 由evictionLock保护
+		private Saved prev;
+		private Saved next;
+		private AccessQueue queue;
+
+		private Saved(K key, V value, long now) {
+			this.key = key;
+			this.value = value;
+			this.writeTime = now;
+			this.accessTime = now;
+			this.refreshTime = now;
+			this.available = true;
+		}
 
-		private Saved(boolean available, V value) {
-			super();
-			this.available = available;
+		private synchronized void update(V value, long now) {
 			this.value = value;
+			this.writeTime = now;
+			this.accessTime = now;
+			this.refreshTime = now;
+			this.refreshFailed = false;
+			this.available = true;
+		}
+
+		/**
+		 * 
+		 * @param expected 刷新开始时的值
+		 * @param value
+		 * @param now
+		 * @return 值已被替换时返回false
+		 */
+		private synchronized boolean updateIfUnchanged(V expected, V value, long now) {
+			if (this.value != expected)
+				return false;
+			update(value, now);
+			return true;
 		}
+
+	}
+
+	/**
+	 * 按访问顺序排列的双向链表, 头部为最久未访问
+	 */
+	private final class AccessQueue {
+
+		private Saved head;
+		private Saved tail;
+		private long size;
+
+		private void linkLast(Saved saved) {
+			saved.queue = this;
+			saved.prev = tail;
+			saved.next = null;
+			if (tail == null)
+				head = saved;
+			else
+				tail.next = saved;
+			tail = saved;
+			size++;
+		}
+
+		private void unlink(Saved saved) {
+			Saved prev = saved.prev;
+			Saved next = saved.next;
+			if (prev == null)
+				head = next;
+			else
+				prev.next = next;
+			if (next == null)
+				tail = prev;
+			else
+				next.prev = prev;
+			saved.prev = null;
+			saved.next = null;
+			saved.queue = null;
+			size--;
+		}
+
+		private void moveToLast(Saved saved) {
+			if (saved != tail) {
+				unlink(saved);
+				linkLast(saved);
+			}
+		}
+
 	}
 
 	public SyncCacheMap(Function<K, V> refresher) {
+		this(new Builder(), refresher);
+	}
+
+	private SyncCacheMap(Builder builder, Function<K, V> refresher) {
 		if (refresher == null)
 			throw new IllegalArgumentException("refresher is can't null...");
 		this.refresher = refresher;
+		this.maximumSize = builder.maximumSize;
+		this.expireAfterWriteNanos = builder.expireAfterWrite.toNanos();
+		this.expireAfterAccessNanos = builder.expireAfterAccess.toNanos();
+		this.expiring = expireAfterWriteNanos > 0L || expireAfterAccessNanos > 0L;
+		this.refreshAfterWriteNanos = builder.refreshAfterWrite.toNanos();
+		this.refreshRetryNanos = builder.refreshRetryInterval != null ? builder.refreshRetryInterval.toNanos()
+				: refreshAfterWriteNanos > 0L ? refreshAfterWriteNanos : Builder.DefaultRefreshRetryNanos;
+		this.refreshExecutor = builder.refreshExecutor == null && refreshAfterWriteNanos > 0L
+				? ForkJoinPool.commonPool()
+				: builder.refreshExecutor;
+		this.refreshFailureHandler = builder.refreshFailureHandler;
+		if (maximumSize > 0L) {
+			this.evictionLock = new ReentrantLock();
+			this.sketch = new FrequencySketch(maximumSize);
+			this.windowMax = Math.max(1L, maximumSize / 100);
+			this.mainMax = maximumSize - windowMax;
+			this.protectionMax = mainMax * 4 / 5;
+		} else {
+			this.evictionLock = null;
+			this.sketch = null;
+			this.windowMax = 0L;
+			this.mainMax = 0L;
+			this.protectionMax = 0L;
+		}
+	}
+
+	public static Builder newBuilder() {
+		return new Builder();
 	}
 
 	public SyncCacheMap<K, V> put(@Nonnull K key, @Nonnull V value) {
-		valueMap.put(key, new Saved(true, value));
-		return this;
+		long now = now();
+		for (;;) {
+			Saved saved = valueMap.get(key);
+			if (saved == null) {
+				Saved created = new Saved(key, value, now);
+				if (valueMap.putIfAbsent(key, created) == null) {
+					afterAdd(created, now);
+					return this;
+				}
+			} else {
+				saved.update(value, now);
+				// 更新期间被淘汰时重新写入
+				if (valueMap.get(key) == saved) {
+					afterWrite(saved, now);
+					return this;
+				}
+			}
+		}
 	}
 
+	/**
+	 * 未命中, 不可用或已过期时加载, 加载期间其他线程对同一个键的get等待同一次加载, refresher中不应get同一个键.<br>
+	 * 异步刷新模式下, 不可用或需要刷新的键返回旧值并在后台加载, 只有未命中和已过期的键在调用线程中加载.
+	 *
+	 * @param key
+	 * @return refresher返回null时为空
+	 */
 	public Optional<V> get(@Nonnull K key) {
+		long now = now();
 		Saved saved = valueMap.get(key);
-		if (saved == null || !saved.available) {
+		if (saved != null) {
+			if (isExpired(saved, now)) {
+				if (valueMap.remove(key, saved)) {
+					expirationCount.increment();
+					afterRemove(saved);
+				}
+			} else if (saved.available && !isRefreshDue(saved, now)) {
+				return hit(saved, now);
+			} else if (refreshExecutor != null) {
+				if (!isRetryPending(saved, now))
+					refreshAsync(key, saved, now);
+				return hit(saved, now);
+			}
+		}
+		missCount.increment();
+		return load(key);
+	}
+
+	private Optional<V> hit(Saved saved, long now) {
+		V value = saved.value;
+		hitCount.increment();
+		if (expireAfterAccessNanos > 0L)
+			saved.accessTime = now;
+		afterRead(saved);
+		return Optional.of(value);
+	}
+
+	private boolean isRefreshDue(Saved saved, long now) {
+		return refreshAfterWriteNanos > 0L && now - saved.refreshTime >= refreshAfterWriteNanos;
+	}
+
+	private boolean isRetryPending(Saved saved, long now) {
+		return saved.refreshFailed && now - saved.refreshTime < refreshRetryNanos;
+	}
+
+	/**
+	 * 与同步加载共用loadingMap, 同一个键同时只有一个加载
+	 */
+	private void refreshAsync(K key, Saved saved, long now) {
+		CompletableFuture<V> refreshing = new CompletableFuture<>();
+		if (loadingMap.putIfAbsent(key, refreshing) != null)
+			return;
+		saved.refreshTime = now;
+		V expected = saved.value;
+		try {
+			refreshExecutor.execute(() -> refresh(key, saved, expected, refreshing));
+		} catch (RejectedExecutionException e) {
+			loadingMap.remove(key, refreshing);
+			refreshing.complete(saved.value);
+			log.error("SyncCacheMap refresh task rejected, key -> {}", key, e);
+		}
+	}
+
+	private void refresh(K key, Saved saved, V expected, CompletableFuture<V> refreshing) {
+		long startNanos = System.nanoTime();
+		try {
 			V refreshed = refresher.apply(key);
-			return refreshed == null ? Optional.empty() : put(key, refreshed).get(key);
-		} else
-			// return saved.isAvailable ? Optional.of(saved.value) : get(key);
-			return Optional.of(saved.value);
+			loadTime.record(System.nanoTime() - startNanos);
+			if (refreshed == null) {
+				log.warn("SyncCacheMap refresher return null, keep the stale value, key -> {}", key);
+				refreshFailure(key, saved, new IllegalStateException("refresher return null, key -> " + key));
+				refreshing.complete(saved.value);
+				return;
+			}
+			loadSuccessCount.increment();
+			// 刷新期间被删除, 淘汰或被put替换时丢弃结果
+			long now = now();
+			if (valueMap.get(key) == saved && saved.updateIfUnchanged(expected, refreshed, now))
+				afterWrite(saved, now);
+			refreshing.complete(refreshed);
+		} catch (Throwable t) {
+			loadTime.record(System.nanoTime() - startNanos);
+			log.error("SyncCacheMap refresh failure, keep the stale value, key -> {}", key, t);
+			refreshFailure(key, saved, t);
+			refreshing.completeExceptionally(t);
+		} finally {
+			loadingMap.remove(key, refreshing);
+		}
+	}
+
+	private void refreshFailure(K key, Saved saved, Throwable t) {
+		loadFailureCount.increment();
+		saved.refreshFailed = true;
+		if (refreshFailureHandler != null) {
+			try {
+				refreshFailureHandler.accept(key, t);
+			} catch (Throwable e) {
+				log.error("SyncCacheMap refreshFailureHandler throw exception, key -> {}", key, e);
+			}
+		}
+	}
+
+	private Optional<V> load(K key) {
+		CompletableFuture<V> loading = new CompletableFuture<>();
+		CompletableFuture<V> inFlight = loadingMap.putIfAbsent(key, loading);
+		if (inFlight != null)
+			return Optional.ofNullable(await(inFlight));
+		try {
+			// 获得加载权之前其他线程可能已完成加载
+			Saved saved = valueMap.get(key);
+			if (saved != null && saved.available && !isExpired(saved, now())) {
+				V value = saved.value;
+				loading.complete(value);
+				return Optional.of(value);
+			}
+			long startNanos = System.nanoTime();
+			V refreshed;
+			try {
+				refreshed = refresher.apply(key);
+			} catch (Throwable t) {
+				loadTime.record(System.nanoTime() - startNanos);
+				loadFailureCount.increment();
+				loading.completeExceptionally(t);
+				throw t;
+			}
+			loadTime.record(System.nanoTime() - startNanos);
+			if (refreshed == null)
+				loadFailureCount.increment();
+			else {
+				loadSuccessCount.increment();
+				put(key, refreshed);
+			}
+			loading.complete(refreshed);
+			return Optional.ofNullable(refreshed);
+		} finally {
+			loadingMap.remove(key, loading);
+			if (!loading.isDone())
+				loading.complete(null);
+		}
+	}
+
+	private V await(CompletableFuture<V> inFlight) {
+		try {
+			return inFlight.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw e;
+		}
 	}
 
 	public SyncCacheMap<K, V> setUnavailable(@Nonnull K key) {
@@ -64,8 +415,255 @@ public final class SyncCacheMap<K, V> {
 	}
 
 	public SyncCacheMap<K, V> delete(@Nonnull K key) {
-		valueMap.remove(key);
+		Saved removed = valueMap.remove(key);
+		if (removed != null)
+			afterRemove(removed);
 		return this;
 	}
 
+	public int size() {
+		return valueMap.size();
+	}
+
+	public CacheStats stats() {
+		return new CacheStats(valueMap.size(), maximumSize, hitCount.sum(), missCount.sum(), loadSuccessCount.sum(),
+				loadFailureCount.sum(), evictionCount.sum(), expirationCount.sum(), loadTime);
+	}
+
+	private long now() {
+		return expiring || refreshExecutor != null ? System.nanoTime() : 0L;
+	}
+
+	private boolean isExpired(Saved saved, long now) {
+		return (expireAfterWriteNanos > 0L && now - saved.writeTime >= expireAfterWriteNanos)
+				|| (expireAfterAccessNanos > 0L && now - saved.accessTime >= expireAfterAccessNanos);
+	}
+
+	private void afterAdd(Saved saved, long now) {
+		if (evictionLock == null)
+			return;
+		evictionLock.lock();
+		try {
+			// 与delete竞争时, 已删除的键不再进入队列
+			if (saved.queue == null && valueMap.get(saved.key) == saved) {
+				sketch.increment(saved.key);
+				window.linkLast(saved);
+			}
+			maintenance(now);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private void afterWrite(Saved saved, long now) {
+		if (evictionLock == null)
+			return;
+		evictionLock.lock();
+		try {
+			onAccess(saved);
+			maintenance(now);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private void afterRead(Saved saved) {
+		if (evictionLock != null && evictionLock.tryLock()) {
+			try {
+				onAccess(saved);
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	private void afterRemove(Saved saved) {
+		if (evictionLock == null)
+			return;
+		evictionLock.lock();
+		try {
+			if (saved.queue != null)
+				saved.queue.unlink(saved);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private void onAccess(Saved saved) {
+		sketch.increment(saved.key);
+		AccessQueue queue = saved.queue;
+		if (queue == null)
+			return;
+		if (queue == probation) {
+			// 再次访问时晋升到保护区, 保护区超出容量时最久未访问的键降回观察区
+			probation.unlink(saved);
+			protection.linkLast(saved);
+			if (protection.size > protectionMax) {
+				Saved demoted = protection.head;
+				protection.unlink(demoted);
+				probation.linkLast(demoted);
+			}
+		} else
+			queue.moveToLast(saved);
+	}
+
+	private void maintenance(long now) {
+		if (expiring) {
+			expireHead(window, now);
+			expireHead(probation, now);
+			expireHead(protection, now);
+		}
+		while (window.size > windowMax) {
+			Saved candidate = window.head;
+			window.unlink(candidate);
+			if (probation.size + protection.size < mainMax) {
+				probation.linkLast(candidate);
+				continue;
+			}
+			Saved victim = probation.head != null ? probation.head : protection.head;
+			if (victim != null && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+				evict(victim);
+				probation.linkLast(candidate);
+			} else
+				evict(candidate);
+		}
+	}
+
+	private void expireHead(AccessQueue queue, long now) {
+		Saved saved;
+		while ((saved = queue.head) != null && isExpired(saved, now)) {
+			queue.unlink(saved);
+			if (valueMap.remove(saved.key, saved))
+				expirationCount.increment();
+		}
+	}
+
+	private void evict(Saved saved) {
+		if (saved.queue != null)
+			saved.queue.unlink(saved);
+		if (valueMap.remove(saved.key, saved))
+			evictionCount.increment();
+	}
+
+	/**
+	 * Builder for SyncCacheMap
+	 *
+	 * @author yellow013
+	 *
+	 */
+	public static final class Builder {
+
+		private static final long DefaultRefreshRetryNanos = Duration.ofSeconds(1).toNanos();
+
+		private long maximumSize = 0L;
+		private Duration expireAfterWrite = Duration.ZERO;
+		private Duration expireAfterAccess = Duration.ZERO;
+		private Duration refreshAfterWrite = Duration.ZERO;
+		private Duration refreshRetryInterval;
+		private Executor refreshExecutor;
+		private BiConsumer<Object, Throwable> refreshFailureHandler;
+
+		private Builder() {
+		}
+
+		/**
+		 *
+		 * @param maximumSize 大于0时启用淘汰, 默认不限制
+		 * @return
+		 */
+		public Builder maximumSize(long maximumSize) {
+			if (maximumSize < 0L)
+				throw new IllegalArgumentException("maximumSize must be greater than or equal to 0");
+			this.maximumSize = maximumSize;
+			return this;
+		}
+
+		/**
+		 *
+		 * @param duration 写入后经过duration过期, 为0时不过期
+		 * @return
+		 */
+		public Builder expireAfterWrite(@Nonnull Duration duration) {
+			if (duration == null)
+				throw new IllegalArgumentException("duration is null...");
+			this.expireAfterWrite = duration;
+			return this;
+		}
+
+		/**
+		 *
+		 * @param duration 最后一次读取或写入后经过duration过期, 为0时不过期
+		 * @return
+		 */
+		public Builder expireAfterAccess(@Nonnull Duration duration) {
+			if (duration == null)
+				throw new IllegalArgumentException("duration is null...");
+			this.expireAfterAccess = duration;
+			return this;
+		}
+
+		/**
+		 *
+		 * @param duration 写入或上一次刷新后经过duration时, 读取返回旧值并在后台刷新, 应小于expireAfterWrite
+		 * @return
+		 */
+		public Builder refreshAfterWrite(@Nonnull Duration duration) {
+			if (duration == null)
+				throw new IllegalArgumentException("duration is null...");
+			this.refreshAfterWrite = duration;
+			return this;
+		}
+
+		/**
+		 *
+		 * @param duration 后台刷新失败后, 经过duration才会再次刷新, 默认与refreshAfterWrite相同, 未设置refreshAfterWrite时为1秒
+		 * @return
+		 */
+		public Builder refreshRetryInterval(@Nonnull Duration duration) {
+			if (duration == null)
+				throw new IllegalArgumentException("duration is null...");
+			this.refreshRetryInterval = duration;
+			return this;
+		}
+
+		/**
+		 *
+		 * @param executor 执行后台刷新, 设置refreshAfterWrite但未设置时使用ForkJoinPool.commonPool()
+		 * @return
+		 */
+		public Builder refreshExecutor(@Nonnull Executor executor) {
+			if (executor == null)
+				throw new IllegalArgumentException("executor is null...");
+			this.refreshExecutor = executor;
+			return this;
+		}
+
+		/**
+		 *
+		 * @param handler 接收后台刷新失败的键和异常, refresher返回null时异常为IllegalStateException
+		 * @return
+		 */
+		public Builder refreshFailureHandler(@Nonnull BiConsumer<Object, Throwable> handler) {
+			if (handler == null)
+				throw new IllegalArgumentException("handler is null...");
+			this.refreshFailureHandler = handler;
+			return this;
+		}
+
+		public <K, V> SyncCacheMap<K, V> build(@Nonnull Function<K, V> refresher) {
+			return new SyncCacheMap<>(this, refresher);
+		}
+
+	}
+
+	public static void main(String[] args) {
+
+		SyncCacheMap<Integer, String> cacheMap = SyncCacheMap.newBuilder().maximumSize(1000)
+				.expireAfterWrite(Duration.ofMinutes(10)).build(key -> "value-" + key);
+		for (int i = 0; i < 100000; i++)
+			cacheMap.get(i % 100 == 0 ? i % 500 : i);
+		System.out.println(cacheMap.stats());
+
+	}
+
 }
@@ -0,0 +1,147 @@
+package io.mercury.common.concurrent.queue;
+
+import java.util.concurrent.TimeUnit;
+
+import io.mercury.common.annotation.thread.SpinWaiting;
+import io.mercury.common.collections.queue.RunMode;
+import io.mercury.common.collections.queue.api.Queue.WaitingStrategy;
+import io.mercury.common.functional.IntProcessor;
+import io.mercury.common.thread.ThreadTool;
+
+/**
+ * 基于int[]的单生产者单消费者队列, 写入和处理均不装箱.<br>
+ * 可以由消费线程调用processor, 也可以以Manual模式创建且不启动, 由使用者调用{@link #drainTo(int[])}读取.
+ *
+ * @author yellow013
+ *
+ */
+public final class IntSpscQueue extends PrimitiveSpscQueue {
+
+	private final int[] buffer;
+
+	private final IntProcessor processor;
+
+	private IntSpscQueue(String queueName, int capacity, RunMode mode, long delayMillis,
+			WaitingStrategy waitingStrategy, IntProcessor processor) {
+		super(queueName, capacity, waitingStrategy);
+		if (processor == null)
+			throw new IllegalArgumentException("processor is null...");
+		this.buffer = new int[this.capacity];
+		this.processor = processor;
+		runWith(mode, delayMillis);
+	}
+
+	public static IntSpscQueue autoStartQueue(WaitingStrategy waitingStrategy, IntProcessor processor) {
+		return new IntSpscQueue(null, 64, RunMode.Auto, 0L, waitingStrategy, processor);
+	}
+
+	public static IntSpscQueue autoStartQueue(int capacity, WaitingStrategy waitingStrategy,
+			IntProcessor processor) {
+		return new IntSpscQueue(null, capacity, RunMode.Auto, 0L, waitingStrategy, processor);
+	}
+
+	public static IntSpscQueue autoStartQueue(String queueName, int capacity, WaitingStrategy waitingStrategy,
+			IntProcessor processor) {
+		return new IntSpscQueue(queueName, capacity, RunMode.Auto, 0L, waitingStrategy, processor);
+	}
+
+	public static IntSpscQueue manualStartQueue(WaitingStrategy waitingStrategy, IntProcessor processor) {
+		return new IntSpscQueue(null, 64, RunMode.Manual, 0L, waitingStrategy, processor);
+	}
+
+	public static IntSpscQueue manualStartQueue(int capacity, WaitingStrategy waitingStrategy,
+			IntProcessor processor) {
+		return new IntSpscQueue(null, capacity, RunMode.Manual, 0L, waitingStrategy, processor);
+	}
+
+	public static IntSpscQueue manualStartQueue(String queueName, int capacity, WaitingStrategy waitingStrategy,
+			IntProcessor processor) {
+		return new IntSpscQueue(queueName, capacity, RunMode.Manual, 0L, waitingStrategy, processor);
+	}
+
+	public static IntSpscQueue delayStartQueue(long delay, TimeUnit timeUnit, WaitingStrategy waitingStrategy,
+			IntProcessor processor) {
+		return new IntSpscQueue(null, 64, RunMode.Delay, timeUnit.toMillis(delay), waitingStrategy, processor);
+	}
+
+	public static IntSpscQueue delayStartQueue(int capacity, long delay, TimeUnit timeUnit,
+			WaitingStrategy waitingStrategy, IntProcessor processor) {
+		return new IntSpscQueue(null, capacity, RunMode.Delay, timeUnit.toMillis(delay), waitingStrategy,
+				processor);
+	}
+
+	public static IntSpscQueue delayStartQueue(String queueName, int capacity, long delay, TimeUnit timeUnit,
+			WaitingStrategy waitingStrategy, IntProcessor processor) {
+		return new IntSpscQueue(queueName, capacity, RunMode.Delay, timeUnit.toMillis(delay), waitingStrategy,
+				processor);
+	}
+
+	/**
+	 * 队列已满时按WaitingStrategy等待
+	 *
+	 * @param value
+	 * @return 队列已关闭时返回false
+	 */
+	@SpinWaiting
+	public boolean enqueue(int value) {
+		long tail = claimOrWait();
+		if (tail < 0)
+			return false;
+		buffer[(int) tail & mask] = value;
+		publish(tail);
+		return true;
+	}
+
+	/**
+	 * 非阻塞写入
+	 *
+	 * @param value
+	 * @return 队列已满或已关闭时返回false
+	 */
+	public boolean offer(int value) {
+		long tail = claim();
+		if (tail < 0)
+			return false;
+		buffer[(int) tail & mask] = value;
+		publish(tail);
+		return true;
+	}
+
+	/**
+	 * 读取最多dst.length个元素, 不能与已启动的消费线程同时使用
+	 *
+	 * @param dst
+	 * @return 读取的数量
+	 */
+	public int drainTo(int[] dst) {
+		long head = head();
+		int count = available(head, dst.length);
+		for (int i = 0; i < count; i++)
+			dst[i] = buffer[(int) (head + i) & mask];
+		release(head, count);
+		return count;
+	}
+
+	@Override
+	protected void processRange(long head, int count) throws Exception {
+		for (int i = 0; i < count; i++)
+			processor.process(buffer[(int) (head + i) & mask]);
+	}
+
+	public static void main(String[] args) {
+
+		IntSpscQueue queue = IntSpscQueue.autoStartQueue(64, WaitingStrategy.SleepWaiting, value -> {
+			System.out.println(value);
+			ThreadTool.sleep(500);
+		});
+
+		System.out.println(queue.name());
+		for (int i = 0;;) {
+			queue.enqueue(++i);
+			System.out.println("enqueue ->" + i);
+			System.out.println("size -> " + queue.size());
+		}
+
+	}
+
+}
@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import io.mercury.common.annotation.thread.LockHeld;
 import io.mercury.common.collections.queue.api.MCQueue;
 import io.mercury.common.collections.queue.base.LoadContainer;
+import io.mercury.common.collections.queue.base.QueueMetrics;
 import io.mercury.common.log.CommonLoggerFactory;
 
 @ThreadSafe
@@ -29,6 +30,8 @@ public class MpmcPreArrayBlockingQueue<E> implements MCQueue<E> {
 	private Condition notEmpty;
 	private Condition notFull;
 
+	private volatile QueueMetrics metrics;
+
 	private Logger log = CommonLoggerFactory.getLogger(MpmcPreArrayBlockingQueue.class);
 
 	@SuppressWarnings("unchecked")
@@ -50,9 +53,17 @@ public class MpmcPreArrayBlockingQueue<E> implements MCQueue<E> {
 	public boolean enqueue(E e) {
 		try {
 			lock.lockInterruptibly();
-			while (count.get() == size)
+			QueueMetrics metrics = this.metrics;
+			if (metrics != null && count.get() == size)
+				metrics.markFull();
+			while (count.get() == size) {
+				if (metrics != null)
+					metrics.markWait();
 				notFull.await();
+			}
 			containers[writeOffset].loading(e);
+			if (metrics != null)
+				metrics.markEnqueue(writeOffset);
 			if (++writeOffset == size)
 				writeOffset = 0;
 			count.incrementAndGet();
@@ -74,6 +85,9 @@ public class MpmcPreArrayBlockingQueue<E> implements MCQueue<E> {
 			while (count.get() == 0)
 				notEmpty.await();
 			E e = containers[readOffset].unloading();
+			QueueMetrics metrics = this.metrics;
+			if (metrics != null)
+				metrics.markDequeue(readOffset);
 			if (++readOffset == size)
 				readOffset = 0;
 			count.decrementAndGet();
@@ -87,6 +101,31 @@ public class MpmcPreArrayBlockingQueue<E> implements MCQueue<E> {
 		}
 	}
 
+	@Override
+	public int size() {
+		return count.get();
+	}
+
+	@Override
+	public int capacity() {
+		return size;
+	}
+
+	/**
+	 * 时间戳按槽位索引记录
+	 */
+	@Override
+	public MpmcPreArrayBlockingQueue<E> enableMetrics() {
+		if (metrics == null)
+			this.metrics = new QueueMetrics(size);
+		return this;
+	}
+
+	@Override
+	public QueueMetrics metrics() {
+		return metrics;
+	}
+
 	public static void main(String[] args) {
 
 	}
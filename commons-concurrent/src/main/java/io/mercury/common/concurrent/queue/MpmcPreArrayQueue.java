@@ -0,0 +1,281 @@
+package io.mercury.common.concurrent.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.collections.queue.api.MCQueue;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.collections.queue.base.LoadContainer;
+import io.mercury.common.collections.queue.base.QueueMetrics;
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.thread.ThreadTool;
+import io.mercury.common.util.BitOperator;
+
+/**
+ * {@link MpmcPreArrayBlockingQueue}的无锁版本, 同样预先分配{@link LoadContainer}.<br>
+ * 每个槽位有独立的sequence(Vyukov有界MPMC队列): 槽位sequence等于写入位置时可写,
+ * 等于写入位置+1时可读, 读取后设为读取位置+capacity留给下一轮写入. 生产者和消费者各自只CAS自己的位置.<br>
+ * offer/poll不阻塞; enqueue/dequeue在队列满或空时按自旋, yield, park的顺序退避等待.
+ *
+ * @author yellow013
+ *
+ * @param <E>
+ */
+@ThreadSafe
+public final class MpmcPreArrayQueue<E> implements MCQueue<E> {
+
+	private static final Logger log = CommonLoggerFactory.getLogger(MpmcPreArrayQueue.class);
+
+	private static final int EnqueueIndex = 15;
+
+	private static final int DequeueIndex = 31;
+
+	// 生产者和消费者的位置相隔128字节, 避免伪共享
+	private final AtomicLongArray positions = new AtomicLongArray(48);
+
+	private final LoadContainer<E>[] containers;
+
+	private final AtomicLongArray sequences;
+
+	private final int capacity;
+
+	private final int mask;
+
+	private final String queueName;
+
+	private volatile QueueMetrics metrics;
+
+	@SuppressWarnings("unchecked")
+	public MpmcPreArrayQueue(String queueName, int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30)
+			throw new IllegalArgumentException("capacity is illegal -> " + capacity);
+		this.capacity = BitOperator.minPow2(Math.max(capacity, 2));
+		this.mask = this.capacity - 1;
+		this.containers = new LoadContainer[this.capacity];
+		this.sequences = new AtomicLongArray(this.capacity);
+		for (int i = 0; i < this.capacity; i++) {
+			containers[i] = new LoadContainer<>();
+			sequences.set(i, i);
+		}
+		this.queueName = queueName == null ? "MpmcPreArrayQueue-" + Thread.currentThread().getName() : queueName;
+	}
+
+	public MpmcPreArrayQueue(int capacity) {
+		this(null, capacity);
+	}
+
+	/**
+	 * 非阻塞写入
+	 *
+	 * @return 队列已满时返回{@link EnqueueStatus#Full}
+	 */
+	@Override
+	public EnqueueStatus offer(E e) {
+		if (e == null)
+			throw new IllegalArgumentException("e is null...");
+		long position = positions.get(EnqueueIndex);
+		for (;;) {
+			int index = (int) position & mask;
+			long diff = sequences.get(index) - position;
+			if (diff == 0) {
+				if (positions.compareAndSet(EnqueueIndex, position, position + 1)) {
+					containers[index].loading(e);
+					QueueMetrics metrics = this.metrics;
+					if (metrics != null)
+						metrics.markEnqueue(position);
+					sequences.lazySet(index, position + 1);
+					return EnqueueStatus.Success;
+				}
+				position = positions.get(EnqueueIndex);
+			} else if (diff < 0) {
+				// 槽位中上一轮的元素尚未被读取
+				return EnqueueStatus.Full;
+			} else
+				position = positions.get(EnqueueIndex);
+		}
+	}
+
+	/**
+	 * 非阻塞读取
+	 *
+	 * @return 队列为空时返回null
+	 */
+	@Override
+	@CheckForNull
+	public E poll() {
+		long position = positions.get(DequeueIndex);
+		for (;;) {
+			int index = (int) position & mask;
+			long diff = sequences.get(index) - (position + 1);
+			if (diff == 0) {
+				if (positions.compareAndSet(DequeueIndex, position, position + 1)) {
+					LoadContainer<E> container = containers[index];
+					E e = container.unloading();
+					container.loading(null);
+					QueueMetrics metrics = this.metrics;
+					if (metrics != null)
+						metrics.markDequeue(position);
+					sequences.lazySet(index, position + capacity);
+					return e;
+				}
+				position = positions.get(DequeueIndex);
+			} else if (diff < 0)
+				return null;
+			else
+				position = positions.get(DequeueIndex);
+		}
+	}
+
+	/**
+	 * 队列已满时等待, 线程被中断时返回false
+	 */
+	@Override
+	public boolean enqueue(E e) {
+		if (offer(e) == EnqueueStatus.Success)
+			return true;
+		QueueMetrics metrics = this.metrics;
+		if (metrics != null)
+			metrics.markFull();
+		for (int idles = 0;; idles++) {
+			if (metrics != null)
+				metrics.markWait();
+			if (!idle(idles)) {
+				log.error("MpmcPreArrayQueue :: [{}] enqueue(e) interrupted", queueName);
+				return false;
+			}
+			if (offer(e) == EnqueueStatus.Success)
+				return true;
+		}
+	}
+
+	/**
+	 * 队列为空时等待, 线程被中断时返回null
+	 */
+	@Override
+	@CheckForNull
+	public E dequeue() {
+		for (int idles = 0;; idles++) {
+			E e = poll();
+			if (e != null)
+				return e;
+			if (!idle(idles)) {
+				log.error("MpmcPreArrayQueue :: [{}] dequeue() interrupted", queueName);
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * 队列为空时最多等待timeout
+	 *
+	 * @param timeout
+	 * @param timeUnit
+	 * @return 超时或线程被中断时返回null
+	 */
+	@CheckForNull
+	public E dequeue(long timeout, TimeUnit timeUnit) {
+		long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+		for (int idles = 0;; idles++) {
+			E e = poll();
+			if (e != null || System.nanoTime() - deadline >= 0 || !idle(idles))
+				return e;
+		}
+	}
+
+	/**
+	 * 取出最多limit个元素交给consumer
+	 *
+	 * @param consumer
+	 * @param limit
+	 * @return 取出的数量
+	 */
+	public int drain(Consumer<E> consumer, int limit) {
+		int count = 0;
+		for (E e; count < limit && (e = poll()) != null; count++)
+			consumer.accept(e);
+		return count;
+	}
+
+	/**
+	 * 前100次自旋, 之后100次yield, 再之后park, 时长从1us倍增到1ms
+	 *
+	 * @param idles
+	 * @return 线程被中断时返回false
+	 */
+	private static boolean idle(int idles) {
+		if (idles < 100)
+			ThreadTool.onSpinWait();
+		else if (idles < 200)
+			Thread.yield();
+		else {
+			LockSupport.parkNanos(1000L << Math.min(idles - 200, 10));
+			if (Thread.interrupted())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 近似值, 并发写入和读取时可能短暂地不准确
+	 */
+	@Override
+	public int size() {
+		long size = positions.get(EnqueueIndex) - positions.get(DequeueIndex);
+		return (int) Math.max(0, Math.min(size, capacity));
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public String name() {
+		return queueName;
+	}
+
+	/**
+	 * 时间戳按写入位置记录
+	 */
+	@Override
+	public MpmcPreArrayQueue<E> enableMetrics() {
+		if (metrics == null)
+			this.metrics = new QueueMetrics(capacity);
+		return this;
+	}
+
+	@Override
+	public QueueMetrics metrics() {
+		return metrics;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+
+		MpmcPreArrayQueue<Integer> queue = new MpmcPreArrayQueue<Integer>(1024).enableMetrics();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final boolean producer = t % 2 == 0;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 100000; i++) {
+					if (producer)
+						queue.enqueue(i);
+					else
+						queue.dequeue();
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		System.out.println(queue.stats());
+
+	}
+
+}
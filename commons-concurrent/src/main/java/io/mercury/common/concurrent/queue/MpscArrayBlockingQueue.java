@@ -3,14 +3,20 @@ package io.mercury.common.concurrent.queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 import org.slf4j.Logger;
 
 import io.mercury.common.annotation.thread.SpinWaiting;
 import io.mercury.common.collections.queue.RunMode;
 import io.mercury.common.collections.queue.api.SCQueue;
+import io.mercury.common.collections.queue.base.BackpressureCounters;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.collections.queue.base.QueueMetrics;
 import io.mercury.common.functional.Processor;
 import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.thread.BackoffIdleStrategy;
 import io.mercury.common.thread.ThreadTool;
 import io.mercury.common.util.StringUtil;
 
@@ -24,9 +30,31 @@ public class MpscArrayBlockingQueue<E> extends SCQueue<E> {
 
 	private AtomicBoolean isClose = new AtomicBoolean(true);
 
+	private BackpressurePolicy backpressurePolicy;
+
+	private final BackpressureCounters backpressureCounters = new BackpressureCounters();
+
+	// 为null时消费者使用阻塞的poll(timeout)
+	private BackoffIdleStrategy consumerIdler;
+
+	private BooleanSupplier hasElement;
+
 	private MpscArrayBlockingQueue(String queueName, int capacity, RunMode mode, long delayMillis,
 			Processor<E> processor) {
+		this(queueName, capacity, mode, delayMillis, null, BackpressurePolicy.block(), processor);
+	}
+
+	private MpscArrayBlockingQueue(String queueName, int capacity, RunMode mode, long delayMillis,
+			BackoffIdleStrategy backoff, BackpressurePolicy backpressurePolicy, Processor<E> processor) {
 		super(processor);
+		this.backpressurePolicy = backpressurePolicy == null ? BackpressurePolicy.block() : backpressurePolicy;
+		// 生产者线程调用processor会与消费线程并发, 且先于队列中已有的元素处理
+		if (this.backpressurePolicy.strategy() == BackpressurePolicy.Strategy.CallerRuns)
+			throw new IllegalArgumentException("MpscArrayBlockingQueue not support BackpressurePolicy [CallerRuns]");
+		if (backoff != null) {
+			this.consumerIdler = backoff.copy();
+			this.hasElement = () -> !innerQueue.isEmpty();
+		}
 		this.innerQueue = new ArrayBlockingQueue<>(Math.max(capacity, 64));
 		this.queueName = StringUtil.isNullOrEmpty(queueName)
 				? MpscArrayBlockingQueue.class.getSimpleName() + "-" + Thread.currentThread().getName()
@@ -83,36 +111,190 @@ public class MpscArrayBlockingQueue<E> extends SCQueue<E> {
 		return new MpscArrayBlockingQueue<>(queueName, capacity, RunMode.Delay, timeUnit.toMillis(delay), processor);
 	}
 
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	public static final class Builder {
+
+		private String queueName;
+		private int capacity = 64;
+		private RunMode mode = RunMode.Auto;
+		private long delayMillis = 0L;
+		private BackoffIdleStrategy backoff;
+		private BackpressurePolicy backpressurePolicy = BackpressurePolicy.block();
+
+		private Builder() {
+		}
+
+		public Builder queueName(String queueName) {
+			this.queueName = queueName;
+			return this;
+		}
+
+		public Builder capacity(int capacity) {
+			this.capacity = capacity;
+			return this;
+		}
+
+		public Builder runMode(RunMode mode) {
+			this.mode = mode;
+			return this;
+		}
+
+		public Builder delay(long delay, TimeUnit timeUnit) {
+			this.mode = RunMode.Delay;
+			this.delayMillis = timeUnit.toMillis(delay);
+			return this;
+		}
+
+		/**
+		 * 消费者使用非阻塞poll配合BackoffIdleStrategy等待, 生产者写入后唤醒park中的消费者.<br>
+		 * 未设置时消费者使用ArrayBlockingQueue的阻塞poll.
+		 * 
+		 * @param backoff
+		 * @return
+		 */
+		public Builder backoffStrategy(BackoffIdleStrategy backoff) {
+			this.backoff = backoff;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param backpressurePolicy 不支持CallerRuns
+		 * @return
+		 */
+		public Builder backpressurePolicy(BackpressurePolicy backpressurePolicy) {
+			this.backpressurePolicy = backpressurePolicy;
+			return this;
+		}
+
+		public <E> MpscArrayBlockingQueue<E> build(Processor<E> processor) {
+			return new MpscArrayBlockingQueue<>(queueName, capacity, mode, delayMillis, backoff, backpressurePolicy,
+					processor);
+		}
+
+	}
+
 	@Override
 	@SpinWaiting
 	public boolean enqueue(E e) {
+		return offer(e).isAccepted();
+	}
+
+	@Override
+	@SpinWaiting
+	public EnqueueStatus offer(E e) {
 		if (!isClose.get()) {
 			log.error("enqueue(t) failure, This queue is closed...");
-			return false;
+			return EnqueueStatus.Closed;
 		}
+		QueueMetrics metrics = this.metrics;
 		try {
-			while (!innerQueue.offer(e, 100, TimeUnit.MILLISECONDS))
-				;
-			return true;
+			if (innerQueue.offer(e)) {
+				if (metrics != null)
+					metrics.markEnqueue();
+				if (consumerIdler != null)
+					consumerIdler.wakeup();
+				return EnqueueStatus.Success;
+			}
+			if (metrics != null)
+				metrics.markFull();
+			EnqueueStatus status = onFull(e, metrics);
+			if (status == EnqueueStatus.Success || status == EnqueueStatus.DroppedOldest) {
+				if (metrics != null)
+					metrics.markEnqueue();
+				if (consumerIdler != null)
+					consumerIdler.wakeup();
+			}
+			return status;
 		} catch (InterruptedException exception) {
-			log.error("innerQueue.offer(t, 500, TimeUnit.MILLISECONDS) throws InterruptedException!", exception);
-			return false;
+			log.error("innerQueue.offer(t, timeout, TimeUnit) throws InterruptedException!", exception);
+			return EnqueueStatus.Closed;
+		}
+	}
+
+	private EnqueueStatus onFull(E e, QueueMetrics metrics) throws InterruptedException {
+		switch (backpressurePolicy.strategy()) {
+		case Block:
+			backpressureCounters.markBlocked();
+			while (!innerQueue.offer(e, 100, TimeUnit.MILLISECONDS))
+				if (metrics != null)
+					metrics.markWait();
+			return EnqueueStatus.Success;
+		case BlockWithDeadline:
+			backpressureCounters.markBlocked();
+			if (metrics != null)
+				metrics.markWait();
+			return innerQueue.offer(e, backpressurePolicy.deadlineNanos(), TimeUnit.NANOSECONDS)
+					? EnqueueStatus.Success
+					: backpressureCounters.record(EnqueueStatus.Timeout);
+		case DropOldest:
+			do {
+				if (innerQueue.poll() != null && metrics != null)
+					metrics.markDequeue();
+			} while (!innerQueue.offer(e));
+			return backpressureCounters.record(EnqueueStatus.DroppedOldest);
+		case FailFast:
+			return backpressureCounters.record(EnqueueStatus.Full);
+		case DropNewest:
+		default:
+			return backpressureCounters.record(EnqueueStatus.DroppedNewest);
 		}
 	}
 
+	@Override
+	public BackpressurePolicy backpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	@Override
+	public BackpressureCounters backpressureCounters() {
+		return backpressureCounters;
+	}
+
+	@Override
+	public int size() {
+		return innerQueue.size();
+	}
+
+	@Override
+	public int capacity() {
+		return innerQueue.size() + innerQueue.remainingCapacity();
+	}
+
+	/**
+	 * 多生产者写入顺序无法与sequence对应, 不记录驻留时间
+	 */
+	@Override
+	public MpscArrayBlockingQueue<E> enableMetrics() {
+		if (metrics == null)
+			this.metrics = new QueueMetrics(0);
+		return this;
+	}
+
 	@Override
 	public void startProcessThread() {
 		if (!isRun.compareAndSet(false, true)) {
 			log.error("Error call ->  This queue is started.");
 			return;
 		}
+		if (consumerIdler != null) {
+			ThreadTool.startNewThread(this::runBackoffLoop, queueName);
+			return;
+		}
 		ThreadTool.startNewThread(() -> {
 			try {
 				while (isRun.get() || !innerQueue.isEmpty()) {
 					@SpinWaiting
 					E e = innerQueue.poll(500, TimeUnit.MILLISECONDS);
-					if (e != null)
+					if (e != null) {
+						QueueMetrics metrics = this.metrics;
+						if (metrics != null)
+							metrics.markDequeue();
 						processor.process(e);
+					}
 				}
 			} catch (InterruptedException e) {
 				log.error("innerQueue.poll(500, TimeUnit.MILLISECONDS) throws InterruptedException!", e);
@@ -122,6 +304,24 @@ public class MpscArrayBlockingQueue<E> extends SCQueue<E> {
 		}, queueName);
 	}
 
+	private void runBackoffLoop() {
+		try {
+			while (isRun.get() || !innerQueue.isEmpty()) {
+				E e = innerQueue.poll();
+				if (e != null) {
+					consumerIdler.reset();
+					QueueMetrics metrics = this.metrics;
+					if (metrics != null)
+						metrics.markDequeue();
+					processor.process(e);
+				} else
+					consumerIdler.idle(hasElement);
+			}
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	@Override
 	public void stop() {
 		this.isRun.set(false);
@@ -0,0 +1,233 @@
+package io.mercury.common.concurrent.queue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.annotation.thread.SpinWaiting;
+import io.mercury.common.collections.queue.RunMode;
+import io.mercury.common.collections.queue.api.Queue.WaitingStrategy;
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.thread.BackoffIdleStrategy;
+import io.mercury.common.thread.ThreadTool;
+import io.mercury.common.util.BitOperator;
+import io.mercury.common.util.StringUtil;
+
+/**
+ * 基于原始类型数组的单生产者单消费者队列的公共部分, 子类只负责数组的读写.<br>
+ * 生产者和消费者的位置保存在同一个{@link AtomicLongArray}中相隔128字节的两个位置, 避免伪共享;
+ * 双方各自缓存对方的位置, 只在缓存值不足时读取volatile值.
+ *
+ * @author yellow013
+ *
+ */
+abstract class PrimitiveSpscQueue {
+
+	protected final Logger log = CommonLoggerFactory.getLogger(getClass());
+
+	private static final int TailIndex = 15;
+
+	private static final int HeadIndex = 31;
+
+	private final AtomicLongArray indexes = new AtomicLongArray(48);
+
+	protected final int capacity;
+
+	protected final int mask;
+
+	// 生产者线程独占
+	private long cachedHead;
+
+	// 消费者线程独占
+	private long cachedTail;
+
+	protected final String queueName;
+
+	protected final AtomicBoolean isRun = new AtomicBoolean(false);
+
+	// stop后为true, 之后的写入返回失败
+	protected final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+	private final WaitingStrategy waitingStrategy;
+
+	private final BackoffIdleStrategy producerIdler;
+
+	private final BackoffIdleStrategy consumerIdler;
+
+	// 消费线程每次从队列中复制的最大数量
+	protected final int batchLimit;
+
+	protected PrimitiveSpscQueue(String queueName, int capacity, WaitingStrategy waitingStrategy) {
+		this.capacity = BitOperator.minPow2(Math.max(capacity, 64));
+		this.mask = this.capacity - 1;
+		this.batchLimit = Math.min(this.capacity, 256);
+		this.queueName = StringUtil.isNullOrEmpty(queueName)
+				? getClass().getSimpleName() + "-" + Thread.currentThread().getName()
+				: queueName;
+		this.waitingStrategy = waitingStrategy == null ? WaitingStrategy.SpinWaiting : waitingStrategy;
+		if (this.waitingStrategy == WaitingStrategy.BackoffWaiting) {
+			this.producerIdler = new BackoffIdleStrategy();
+			this.consumerIdler = new BackoffIdleStrategy();
+		} else {
+			this.producerIdler = null;
+			this.consumerIdler = null;
+		}
+	}
+
+	protected final void runWith(RunMode mode, long delayMillis) {
+		switch (mode) {
+		case Auto:
+			start();
+			break;
+		case Delay:
+			ThreadTool.sleep(delayMillis);
+			start();
+			break;
+		case Manual:
+			log.info("{} :: Run mode is [Manual], wating start...", getClass().getSimpleName());
+			break;
+		}
+	}
+
+	/**
+	 *
+	 * @return 可写入的位置, 队列已满或已关闭时返回-1
+	 */
+	protected final long claim() {
+		if (isClosed.get())
+			return -1L;
+		long tail = indexes.get(TailIndex);
+		if (tail - cachedHead >= capacity) {
+			this.cachedHead = indexes.get(HeadIndex);
+			if (tail - cachedHead >= capacity)
+				return -1L;
+		}
+		return tail;
+	}
+
+	/**
+	 *
+	 * @return 可写入的位置, 队列已满时等待, 队列已关闭时返回-1
+	 */
+	@SpinWaiting
+	protected final long claimOrWait() {
+		long tail;
+		while ((tail = claim()) < 0) {
+			// 消费线程已停止, 不会再释放空间
+			if (isClosed.get()) {
+				log.error("{} :: Call enqueue(value) failure, This queue is closed.", getClass().getSimpleName());
+				return -1L;
+			}
+			producerWaiting();
+		}
+		if (producerIdler != null)
+			producerIdler.reset();
+		return tail;
+	}
+
+	protected final void publish(long tail) {
+		indexes.lazySet(TailIndex, tail + 1);
+		if (consumerIdler != null)
+			consumerIdler.wakeup();
+	}
+
+	/**
+	 *
+	 * @param limit
+	 * @return 可从head开始读取的数量
+	 */
+	protected final int available(long head, int limit) {
+		long available = cachedTail - head;
+		if (available < limit) {
+			this.cachedTail = indexes.get(TailIndex);
+			available = cachedTail - head;
+		}
+		return (int) Math.min(available, limit);
+	}
+
+	protected final long head() {
+		return indexes.get(HeadIndex);
+	}
+
+	protected final void release(long head, int count) {
+		indexes.lazySet(HeadIndex, head + count);
+	}
+
+	private void producerWaiting() {
+		if (producerIdler != null)
+			producerIdler.idle();
+		else
+			waiting();
+	}
+
+	private void waiting() {
+		switch (waitingStrategy) {
+		case SleepWaiting:
+			ThreadTool.sleep(20);
+			break;
+		case SpinWaiting:
+		default:
+			ThreadTool.onSpinWait();
+			break;
+		}
+	}
+
+	/**
+	 * 消费线程处理从head开始的count个元素
+	 *
+	 * @param head
+	 * @param count
+	 * @throws Exception
+	 */
+	protected abstract void processRange(long head, int count) throws Exception;
+
+	public void start() {
+		if (!isRun.compareAndSet(false, true)) {
+			log.error("{} :: Error call, This queue is started.", getClass().getSimpleName());
+			return;
+		}
+		ThreadTool.startNewMaxPriorityThread(() -> {
+			try {
+				while (isRun.get() || size() > 0) {
+					long head = head();
+					int count = available(head, batchLimit);
+					if (count > 0) {
+						if (consumerIdler != null)
+							consumerIdler.reset();
+						processRange(head, count);
+						release(head, count);
+					} else if (consumerIdler != null)
+						consumerIdler.idle(() -> size() > 0);
+					else
+						waiting();
+				}
+			} catch (Exception e) {
+				log.error("{} :: processor.process(value) throw exception -> [{}]", queueName, e.getMessage(), e);
+				throw new RuntimeException(e);
+			}
+		}, queueName + "-RuningThread");
+	}
+
+	public void stop() {
+		this.isClosed.set(true);
+		this.isRun.set(false);
+	}
+
+	public String name() {
+		return queueName;
+	}
+
+	public int size() {
+		return (int) (indexes.get(TailIndex) - indexes.get(HeadIndex));
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+}
@@ -1,46 +1,197 @@
 package io.mercury.common.concurrent.queue;
 
+import java.util.function.BooleanSupplier;
+
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.SpmcArrayQueue;
 import org.jctools.queues.SpscArrayQueue;
 
 import io.mercury.common.annotation.thread.OnlySingleThreadCall;
 import io.mercury.common.annotation.thread.SpinWaiting;
 import io.mercury.common.collections.Capacity;
 import io.mercury.common.collections.queue.api.Queue;
+import io.mercury.common.collections.queue.base.BackpressureCounters;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.collections.queue.base.QueueMetrics;
+import io.mercury.common.thread.BackoffIdleStrategy;
 import io.mercury.common.thread.ThreadTool;
 import io.mercury.common.util.StringUtil;
 
 public class SpscQueueDefault<E> implements Queue<E> {
 
-	private SpscArrayQueue<E> queue;
+	private MessagePassingQueue<E> queue;
 
 	private WaitingStrategy waitingStrategy;
 
+	// 仅BackoffWaiting时使用, 生产者和消费者各自持有独立的实例
+	private BackoffIdleStrategy producerIdler;
+
+	private BackoffIdleStrategy consumerIdler;
+
+	private BooleanSupplier hasElement;
+
+	private BackpressurePolicy backpressurePolicy;
+
+	private final BackpressureCounters backpressureCounters = new BackpressureCounters();
+
 	private String queueName;
 
+	private volatile QueueMetrics metrics;
+
+	private long producerSequence = 0L;
+
+	private long consumerSequence = 0L;
+
 	public SpscQueueDefault(String queueName, Capacity capacity, WaitingStrategy waitingStrategy) {
-		this.queue = new SpscArrayQueue<>(Math.max(capacity.size(), 64));
+		this(queueName, capacity, waitingStrategy, BackpressurePolicy.block());
+	}
+
+	/**
+	 * 
+	 * @param queueName
+	 * @param capacity
+	 * @param waitingStrategy
+	 * @param backpressurePolicy 不支持CallerRuns, 此队列没有processor
+	 */
+	public SpscQueueDefault(String queueName, Capacity capacity, WaitingStrategy waitingStrategy,
+			BackpressurePolicy backpressurePolicy) {
+		this(queueName, capacity, waitingStrategy, null, backpressurePolicy);
+	}
+
+	/**
+	 * 使用BackoffWaiting, poll()在park阶段可被enqueue唤醒
+	 * 
+	 * @param queueName
+	 * @param capacity
+	 * @param backoff
+	 * @param backpressurePolicy
+	 */
+	public SpscQueueDefault(String queueName, Capacity capacity, BackoffIdleStrategy backoff,
+			BackpressurePolicy backpressurePolicy) {
+		this(queueName, capacity, WaitingStrategy.BackoffWaiting, backoff, backpressurePolicy);
+	}
+
+	private SpscQueueDefault(String queueName, Capacity capacity, WaitingStrategy waitingStrategy,
+			BackoffIdleStrategy backoff, BackpressurePolicy backpressurePolicy) {
+		this.backpressurePolicy = backpressurePolicy == null ? BackpressurePolicy.block() : backpressurePolicy;
+		switch (this.backpressurePolicy.strategy()) {
+		case CallerRuns:
+			throw new IllegalArgumentException("SpscQueueDefault not support BackpressurePolicy [CallerRuns]");
+		case DropOldest:
+			// 生产者线程需要从队列头部取出元素, 使用SPMC队列
+			this.queue = new SpmcArrayQueue<>(Math.max(capacity.size(), 64));
+			break;
+		default:
+			this.queue = new SpscArrayQueue<>(Math.max(capacity.size(), 64));
+			break;
+		}
 		this.queueName = StringUtil.isNullOrEmpty(queueName)
 				? SpscQueueDefault.class.getSimpleName() + "-" + Thread.currentThread().getName()
 				: queueName;
 		this.waitingStrategy = waitingStrategy == null ? WaitingStrategy.SleepWaiting : waitingStrategy;
+		if (this.waitingStrategy == WaitingStrategy.BackoffWaiting) {
+			if (backoff == null)
+				backoff = new BackoffIdleStrategy();
+			this.producerIdler = backoff.copy();
+			this.consumerIdler = backoff.copy();
+			this.hasElement = () -> !queue.isEmpty();
+		}
 	}
 
 	@Override
 	@SpinWaiting
 	@OnlySingleThreadCall
 	public boolean enqueue(E e) {
-		while (!queue.offer(e))
-			waiting();
-		return true;
+		return offer(e).isAccepted();
+	}
+
+	@Override
+	@SpinWaiting
+	@OnlySingleThreadCall
+	public EnqueueStatus offer(E e) {
+		QueueMetrics metrics = this.metrics;
+		if (metrics != null)
+			metrics.markEnqueue(producerSequence);
+		if (queue.offer(e)) {
+			producerSequence++;
+			if (consumerIdler != null)
+				consumerIdler.wakeup();
+			return EnqueueStatus.Success;
+		}
+		if (metrics != null)
+			metrics.markFull();
+		EnqueueStatus status = onFull(e, metrics);
+		if (producerIdler != null)
+			producerIdler.reset();
+		if (status.isAccepted()) {
+			producerSequence++;
+			if (consumerIdler != null)
+				consumerIdler.wakeup();
+		} else if (metrics != null)
+			metrics.revokeEnqueue();
+		return status;
+	}
+
+	private EnqueueStatus onFull(E e, QueueMetrics metrics) {
+		switch (backpressurePolicy.strategy()) {
+		case Block:
+			backpressureCounters.markBlocked();
+			do {
+				if (metrics != null)
+					metrics.markWait();
+				if (producerIdler != null)
+					producerIdler.idle();
+				else
+					waiting();
+			} while (!queue.offer(e));
+			return EnqueueStatus.Success;
+		case BlockWithDeadline:
+			backpressureCounters.markBlocked();
+			// 超时精度受waitingStrategy的等待间隔影响
+			long deadline = System.nanoTime() + backpressurePolicy.deadlineNanos();
+			do {
+				if (System.nanoTime() - deadline >= 0)
+					return backpressureCounters.record(EnqueueStatus.Timeout);
+				if (metrics != null)
+					metrics.markWait();
+				if (producerIdler != null)
+					producerIdler.idle();
+				else
+					waiting();
+			} while (!queue.offer(e));
+			return EnqueueStatus.Success;
+		case DropOldest:
+			do {
+				if (queue.poll() != null && metrics != null)
+					metrics.markDequeue();
+			} while (!queue.offer(e));
+			return backpressureCounters.record(EnqueueStatus.DroppedOldest);
+		case FailFast:
+			return backpressureCounters.record(EnqueueStatus.Full);
+		case DropNewest:
+		default:
+			return backpressureCounters.record(EnqueueStatus.DroppedNewest);
+		}
 	}
 
 	@OnlySingleThreadCall
 	public E poll() {
 		do {
 			E e = queue.poll();
-			if (e != null)
+			if (e != null) {
+				if (consumerIdler != null)
+					consumerIdler.reset();
+				QueueMetrics metrics = this.metrics;
+				if (metrics != null)
+					metrics.markDequeue(consumerSequence);
+				consumerSequence++;
 				return e;
-			waiting();
+			}
+			if (consumerIdler != null)
+				consumerIdler.idle(hasElement);
+			else
+				waiting();
 		} while (true);
 	}
 
@@ -49,6 +200,43 @@ public class SpscQueueDefault<E> implements Queue<E> {
 		return queueName;
 	}
 
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public int capacity() {
+		return queue.capacity();
+	}
+
+	/**
+	 * DropOldest策略下被丢弃的元素无法按sequence对应, 只记录计数
+	 */
+	@Override
+	public SpscQueueDefault<E> enableMetrics() {
+		if (metrics == null)
+			this.metrics = backpressurePolicy.strategy() == BackpressurePolicy.Strategy.DropOldest
+					? new QueueMetrics(0)
+					: new QueueMetrics(queue.capacity() * 2);
+		return this;
+	}
+
+	@Override
+	public BackpressurePolicy backpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	@Override
+	public BackpressureCounters backpressureCounters() {
+		return backpressureCounters;
+	}
+
+	@Override
+	public QueueMetrics metrics() {
+		return metrics;
+	}
+
 	private void waiting() {
 		switch (waitingStrategy) {
 		case SpinWaiting:
@@ -1,34 +1,89 @@
 package io.mercury.common.concurrent.queue;
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.SpmcArrayQueue;
 import org.jctools.queues.SpscArrayQueue;
 import org.slf4j.Logger;
 
 import io.mercury.common.annotation.thread.SpinWaiting;
 import io.mercury.common.collections.queue.RunMode;
 import io.mercury.common.collections.queue.api.SCQueue;
+import io.mercury.common.collections.queue.base.BackpressureCounters;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.BatchContainer;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.collections.queue.base.QueueMetrics;
+import io.mercury.common.functional.BatchProcessor;
 import io.mercury.common.functional.Processor;
 import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.thread.BackoffIdleStrategy;
 import io.mercury.common.thread.ThreadTool;
 import io.mercury.common.util.StringUtil;
 
 public class SpscQueueWithJCT<E> extends SCQueue<E> {
 
-	private SpscArrayQueue<E> queue;
+	private MessagePassingQueue<E> queue;
 
 	private Logger log = CommonLoggerFactory.getLogger(getClass());
 
 	private WaitingStrategy waitingStrategy;
 
+	// 仅BackoffWaiting时使用, 生产者和消费者各自持有独立的实例
+	private BackoffIdleStrategy producerIdler;
+
+	private BackoffIdleStrategy consumerIdler;
+
+	private BooleanSupplier hasElement;
+
+	private BackpressurePolicy backpressurePolicy;
+
+	private final BackpressureCounters backpressureCounters = new BackpressureCounters();
+
+	private BatchProcessor<E> batchProcessor;
+
+	private BatchContainer<E> batch;
+
+	// 生产者和消费者各自的计数, 用于定位指标的时间戳
+	private long producerSequence = 0L;
+
+	private long consumerSequence = 0L;
+
 	private SpscQueueWithJCT(String queueName, int capacity, RunMode mode, long delayMillis,
 			WaitingStrategy waitingStrategy, Processor<E> processor) {
+		this(queueName, capacity, mode, delayMillis, waitingStrategy, null, BackpressurePolicy.block(), processor, null,
+				0);
+	}
+
+	private SpscQueueWithJCT(String queueName, int capacity, RunMode mode, long delayMillis,
+			WaitingStrategy waitingStrategy, BackoffIdleStrategy backoff, BackpressurePolicy backpressurePolicy,
+			Processor<E> processor, BatchProcessor<E> batchProcessor, int batchSize) {
 		super(processor);
-		this.queue = new SpscArrayQueue<>(Math.max(capacity, 64));
+		this.backpressurePolicy = backpressurePolicy == null ? BackpressurePolicy.block() : backpressurePolicy;
+		// 单消费线程的processor不要求线程安全, 生产者线程调用会与消费线程并发
+		if (this.backpressurePolicy.strategy() == BackpressurePolicy.Strategy.CallerRuns)
+			throw new IllegalArgumentException("SpscQueueWithJCT not support BackpressurePolicy [CallerRuns]");
+		// DropOldest需要生产者线程从队列头部取出元素, 此时生产者相当于第二个消费者, 使用SPMC队列
+		this.queue = this.backpressurePolicy.strategy() == BackpressurePolicy.Strategy.DropOldest
+				? new SpmcArrayQueue<>(Math.max(capacity, 64))
+				: new SpscArrayQueue<>(Math.max(capacity, 64));
 		super.queueName = StringUtil.isNullOrEmpty(queueName)
 				? SpscQueueWithJCT.class.getSimpleName() + "-" + Thread.currentThread().getName()
 				: queueName;
-		this.waitingStrategy = waitingStrategy;
+		this.waitingStrategy = backoff != null ? WaitingStrategy.BackoffWaiting : waitingStrategy;
+		if (this.waitingStrategy == WaitingStrategy.BackoffWaiting) {
+			if (backoff == null)
+				backoff = new BackoffIdleStrategy();
+			this.producerIdler = backoff.copy();
+			this.consumerIdler = backoff.copy();
+			this.hasElement = () -> !queue.isEmpty();
+		}
+		if (batchProcessor != null) {
+			this.batchProcessor = batchProcessor;
+			this.batch = new BatchContainer<>(Math.min(batchSize, queue.capacity()));
+		}
 		switch (mode) {
 		case Auto:
 			start();
@@ -88,6 +143,108 @@ public class SpscQueueWithJCT<E> extends SCQueue<E> {
 				processor);
 	}
 
+	/**
+	 * 创建批量消费模式的队列, 消费线程使用drain一次取出最多batchSize个元素交给batchProcessor.
+	 * 
+	 * @param queueName
+	 * @param capacity
+	 * @param mode
+	 * @param batchSize
+	 * @param waitingStrategy
+	 * @param batchProcessor
+	 * @return
+	 */
+	public static <E> SpscQueueWithJCT<E> batchQueue(String queueName, int capacity, RunMode mode, int batchSize,
+			WaitingStrategy waitingStrategy, BatchProcessor<E> batchProcessor) {
+		if (batchProcessor == null)
+			throw new IllegalArgumentException("batchProcessor is null...");
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("batchSize must greater than 0");
+		return new SpscQueueWithJCT<>(queueName, capacity, mode, 0L, waitingStrategy, null,
+				BackpressurePolicy.block(), batchProcessor.toProcessor(), batchProcessor, batchSize);
+	}
+
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	public static final class Builder {
+
+		private String queueName;
+		private int capacity = 64;
+		private RunMode mode = RunMode.Auto;
+		private long delayMillis = 0L;
+		private WaitingStrategy waitingStrategy = WaitingStrategy.SpinWaiting;
+		private BackoffIdleStrategy backoff;
+		private BackpressurePolicy backpressurePolicy = BackpressurePolicy.block();
+
+		private Builder() {
+		}
+
+		public Builder queueName(String queueName) {
+			this.queueName = queueName;
+			return this;
+		}
+
+		public Builder capacity(int capacity) {
+			this.capacity = capacity;
+			return this;
+		}
+
+		public Builder runMode(RunMode mode) {
+			this.mode = mode;
+			return this;
+		}
+
+		public Builder delay(long delay, TimeUnit timeUnit) {
+			this.mode = RunMode.Delay;
+			this.delayMillis = timeUnit.toMillis(delay);
+			return this;
+		}
+
+		public Builder waitingStrategy(WaitingStrategy waitingStrategy) {
+			this.waitingStrategy = waitingStrategy;
+			return this;
+		}
+
+		/**
+		 * 使用指定参数的BackoffWaiting
+		 * 
+		 * @param backoff
+		 * @return
+		 */
+		public Builder backoffStrategy(BackoffIdleStrategy backoff) {
+			this.waitingStrategy = WaitingStrategy.BackoffWaiting;
+			this.backoff = backoff;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param backpressurePolicy 不支持CallerRuns
+		 * @return
+		 */
+		public Builder backpressurePolicy(BackpressurePolicy backpressurePolicy) {
+			this.backpressurePolicy = backpressurePolicy;
+			return this;
+		}
+
+		public <E> SpscQueueWithJCT<E> build(Processor<E> processor) {
+			return new SpscQueueWithJCT<>(queueName, capacity, mode, delayMillis, waitingStrategy, backoff,
+					backpressurePolicy, processor, null, 0);
+		}
+
+		public <E> SpscQueueWithJCT<E> build(int batchSize, BatchProcessor<E> batchProcessor) {
+			if (batchProcessor == null)
+				throw new IllegalArgumentException("batchProcessor is null...");
+			if (batchSize <= 0)
+				throw new IllegalArgumentException("batchSize must greater than 0");
+			return new SpscQueueWithJCT<>(queueName, capacity, mode, delayMillis, waitingStrategy, backoff,
+					backpressurePolicy, batchProcessor.toProcessor(), batchProcessor, batchSize);
+		}
+
+	}
+
 	private void waiting() {
 		switch (waitingStrategy) {
 		case SpinWaiting:
@@ -100,16 +257,135 @@ public class SpscQueueWithJCT<E> extends SCQueue<E> {
 		}
 	}
 
+	private void producerWaiting() {
+		if (producerIdler != null)
+			producerIdler.idle();
+		else
+			waiting();
+	}
+
+	private void consumerWaiting() {
+		if (consumerIdler != null)
+			consumerIdler.idle(hasElement);
+		else
+			waiting();
+	}
+
+	private void consumerWorking() {
+		if (consumerIdler != null)
+			consumerIdler.reset();
+	}
+
+	/**
+	 * 写入成功后唤醒park中的消费者
+	 */
+	private void signalConsumer() {
+		if (consumerIdler != null)
+			consumerIdler.wakeup();
+	}
+
 	@Override
 	@SpinWaiting
 	public boolean enqueue(E e) {
+		return offer(e).isAccepted();
+	}
+
+	@Override
+	@SpinWaiting
+	public EnqueueStatus offer(E e) {
 		if (!isClose.get()) {
 			log.error("SpscQueueWithJCT :: Call enqueue(e) failure, This queue is closed.");
-			return false;
+			return EnqueueStatus.Closed;
 		}
-		while (!queue.offer(e))
-			waiting();
-		return true;
+		QueueMetrics metrics = this.metrics;
+		// 驻留时间包含生产者等待队列空位的时间
+		if (metrics != null)
+			metrics.markEnqueue(producerSequence);
+		if (queue.offer(e)) {
+			producerSequence++;
+			signalConsumer();
+			return EnqueueStatus.Success;
+		}
+		if (metrics != null)
+			metrics.markFull();
+		EnqueueStatus status = onFull(e, metrics);
+		if (producerIdler != null)
+			producerIdler.reset();
+		if (status == EnqueueStatus.Success || status == EnqueueStatus.DroppedOldest) {
+			producerSequence++;
+			signalConsumer();
+		} else if (metrics != null)
+			metrics.revokeEnqueue();
+		return status;
+	}
+
+	private EnqueueStatus onFull(E e, QueueMetrics metrics) {
+		switch (backpressurePolicy.strategy()) {
+		case Block:
+			backpressureCounters.markBlocked();
+			do {
+				if (metrics != null)
+					metrics.markWait();
+				producerWaiting();
+			} while (!queue.offer(e));
+			return EnqueueStatus.Success;
+		case BlockWithDeadline:
+			backpressureCounters.markBlocked();
+			// 超时精度受waitingStrategy的等待间隔影响
+			long deadline = System.nanoTime() + backpressurePolicy.deadlineNanos();
+			do {
+				if (System.nanoTime() - deadline >= 0)
+					return backpressureCounters.record(EnqueueStatus.Timeout);
+				if (metrics != null)
+					metrics.markWait();
+				producerWaiting();
+			} while (!queue.offer(e));
+			return EnqueueStatus.Success;
+		case DropOldest:
+			do {
+				if (queue.poll() != null && metrics != null)
+					metrics.markDequeue();
+			} while (!queue.offer(e));
+			return backpressureCounters.record(EnqueueStatus.DroppedOldest);
+		case FailFast:
+			return backpressureCounters.record(EnqueueStatus.Full);
+		case DropNewest:
+		default:
+			return backpressureCounters.record(EnqueueStatus.DroppedNewest);
+		}
+	}
+
+	@Override
+	public BackpressurePolicy backpressurePolicy() {
+		return backpressurePolicy;
+	}
+
+	@Override
+	public BackpressureCounters backpressureCounters() {
+		return backpressureCounters;
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public int capacity() {
+		return queue.capacity();
+	}
+
+	/**
+	 * 时间戳在offer之前写入, 队列已满时等待中的元素也会占用一个时间戳位置, 因此使用两倍容量.<br>
+	 * DropOldest策略下被丢弃的元素不经过消费者, 无法按sequence对应, 只记录计数.
+	 */
+	@Override
+	public SpscQueueWithJCT<E> enableMetrics() {
+		if (metrics == null)
+			this.metrics = backpressurePolicy.strategy() == BackpressurePolicy.Strategy.DropOldest
+					? new QueueMetrics(0)
+					: new QueueMetrics(queue.capacity() * 2);
+		return this;
 	}
 
 	@Override
@@ -118,15 +394,21 @@ public class SpscQueueWithJCT<E> extends SCQueue<E> {
 			log.error("SpscQueueWithJCT :: Error call, This queue is started.");
 			return;
 		}
+		if (batchProcessor != null) {
+			ThreadTool.startNewMaxPriorityThread(this::runBatchLoop, queueName + "-RuningThread");
+			return;
+		}
 		ThreadTool.startNewMaxPriorityThread(() -> {
 			try {
 				while (isRun.get() || !queue.isEmpty()) {
 					@SpinWaiting
 					E e = queue.poll();
-					if (e != null)
+					if (e != null) {
+						consumerWorking();
+						markDequeue(consumerSequence++);
 						processor.process(e);
-					else
-						waiting();
+					} else
+						consumerWaiting();
 				}
 			} catch (Exception e) {
 				throw new RuntimeException(e);
@@ -134,6 +416,38 @@ public class SpscQueueWithJCT<E> extends SCQueue<E> {
 		}, queueName + "-RuningThread");
 	}
 
+	private void markDequeue(long sequence) {
+		QueueMetrics metrics = this.metrics;
+		if (metrics != null)
+			metrics.markDequeue(sequence);
+	}
+
+	private void runBatchLoop() {
+		final int limit = batch.capacity();
+		final MessagePassingQueue.Consumer<E> loader = e -> {
+			long sequence = consumerSequence++;
+			markDequeue(sequence);
+			batch.loading(e, sequence);
+		};
+		try {
+			while (isRun.get() || !queue.isEmpty()) {
+				int drained = queue.drain(loader, limit);
+				if (drained > 0) {
+					consumerWorking();
+					try {
+						// 与Disruptor一致, 取出后队列为空时才是批次的结尾
+						batchProcessor.process(batch, queue.isEmpty());
+					} finally {
+						batch.clear();
+					}
+				} else
+					consumerWaiting();
+			}
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public static void main(String[] args) {
 
 		SpscQueueWithJCT<Integer> queue = SpscQueueWithJCT.autoStartQueue(6, WaitingStrategy.SleepWaiting, (value) -> {
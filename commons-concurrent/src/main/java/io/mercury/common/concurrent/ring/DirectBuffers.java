@@ -0,0 +1,103 @@
+package io.mercury.common.concurrent.ring;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import org.jctools.util.UnsafeAccess;
+
+/**
+ * 直接内存ByteBuffer的地址访问.<br>
+ * 映射内存中的计数器和记录头需要跨进程的有序写入、volatile读和CAS, 源码级别为Java 8, 没有VarHandle可用,
+ * 因此只能使用Unsafe. 对Unsafe的访问全部限定在本类中, 通过JCTools的UnsafeAccess获取实例,
+ * 不直接引用sun.misc.Unsafe类型, 其他类只能使用按地址操作的静态方法.
+ *
+ * @author yellow013
+ *
+ */
+@SuppressWarnings("restriction")
+final class DirectBuffers {
+
+	private DirectBuffers() {
+	}
+
+	private static final long ByteArrayBaseOffset = UnsafeAccess.UNSAFE.arrayBaseOffset(byte[].class);
+
+	private static final long AddressOffset;
+
+	static {
+		try {
+			AddressOffset = UnsafeAccess.UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+		} catch (NoSuchFieldException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 *
+	 * @param buffer 必须为direct或mapped ByteBuffer
+	 * @return 起始地址
+	 */
+	static long address(ByteBuffer buffer) {
+		if (!buffer.isDirect())
+			throw new IllegalArgumentException("buffer must be direct or mapped ByteBuffer");
+		return UnsafeAccess.UNSAFE.getLong(buffer, AddressOffset);
+	}
+
+	/**
+	 * 将src中position到limit之间的内容复制到目标地址, 不改变src的position
+	 *
+	 * @param src
+	 * @param address
+	 */
+	static void copy(ByteBuffer src, long address) {
+		int length = src.remaining();
+		if (src.isDirect())
+			UnsafeAccess.UNSAFE.copyMemory(null, address(src) + src.position(), null, address, length);
+		else if (src.hasArray())
+			UnsafeAccess.UNSAFE.copyMemory(src.array(), ByteArrayBaseOffset + src.arrayOffset() + src.position(), null,
+					address, length);
+		else
+			for (int i = 0, position = src.position(); i < length; i++)
+				UnsafeAccess.UNSAFE.putByte(address + i, src.get(position + i));
+	}
+
+	static int getInt(long address) {
+		return UnsafeAccess.UNSAFE.getInt(address);
+	}
+
+	static void putInt(long address, int value) {
+		UnsafeAccess.UNSAFE.putInt(address, value);
+	}
+
+	static int getIntVolatile(long address) {
+		return UnsafeAccess.UNSAFE.getIntVolatile(null, address);
+	}
+
+	/**
+	 * 有序写入, 之前的写入对读取到此值的线程或进程可见
+	 */
+	static void putOrderedInt(long address, int value) {
+		UnsafeAccess.UNSAFE.putOrderedInt(null, address, value);
+	}
+
+	static long getLongVolatile(long address) {
+		return UnsafeAccess.UNSAFE.getLongVolatile(null, address);
+	}
+
+	static void putOrderedLong(long address, long value) {
+		UnsafeAccess.UNSAFE.putOrderedLong(null, address, value);
+	}
+
+	static boolean compareAndSetLong(long address, long expected, long value) {
+		return UnsafeAccess.UNSAFE.compareAndSwapLong(null, address, expected, value);
+	}
+
+	static void setMemory(long address, long bytes, byte value) {
+		UnsafeAccess.UNSAFE.setMemory(address, bytes, value);
+	}
+
+	static int align(int value, int alignment) {
+		return (value + (alignment - 1)) & ~(alignment - 1);
+	}
+
+}
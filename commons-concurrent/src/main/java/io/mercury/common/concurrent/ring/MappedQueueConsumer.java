@@ -0,0 +1,327 @@
+package io.mercury.common.concurrent.ring;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.codec.specific.BytesDecoder;
+import io.mercury.common.collections.queue.api.Queue.WaitingStrategy;
+import io.mercury.common.functional.Processor;
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.thread.BackoffIdleStrategy;
+import io.mercury.common.thread.ThreadTool;
+
+/**
+ * {@link MappedRingFile}的消费者端, 每个文件同时只能有一个消费者.<br>
+ * 生产者在其他进程中无法唤醒本进程的线程, 因此等待只能轮询映射内存: SpinWaiting始终忙等, 延迟最低;
+ * BackoffWaiting默认使用{@link #DefaultIdleStrategy}, 空闲后先忙等约数百微秒, 期间到达的记录延迟在1us以内,
+ * 之后退避为park, 延迟上升至park时长(最大50us); SleepWaiting每次休眠1ms.<br>
+ * 生产者在申请后提交前崩溃时, 消费者在所有注册的生产者都已退出后跳过该记录, 见{@link MappedRingFile#unblockIfProducersDead()}.<br>
+ * 写入端为{@link MappedQueueProducer}, 本类只负责在独立线程中读取, 不是{@link io.mercury.common.collections.queue.api.Queue}.
+ * 默认配置见{@link Builder}.
+ *
+ * @author yellow013
+ *
+ * @param <E>
+ */
+public final class MappedQueueConsumer<E> {
+
+	private final Logger log = CommonLoggerFactory.getLogger(getClass());
+
+	private final String queueName;
+
+	private final AtomicBoolean isRun = new AtomicBoolean(false);
+
+	private final MappedRingFile ringFile;
+
+	private final MpscByteRingBuffer ringBuffer;
+
+	private final MpscByteRingBuffer.MessageHandler handler;
+
+	private final WaitingStrategy waitingStrategy;
+
+	/**
+	 * 忙等20000次 (约数百微秒) 后直接park 1us ~ 50us, 不使用yield
+	 */
+	public static final BackoffIdleStrategy DefaultIdleStrategy = new BackoffIdleStrategy(20_000, 0, 1, 50,
+			TimeUnit.MICROSECONDS);
+
+	/**
+	 * 默认不强制跳过停滞的记录, 只在所有生产者都已退出后跳过
+	 */
+	public static final long DefaultUnblockTimeoutMillis = 0L;
+
+	// 停滞时检测生产者是否存活的间隔
+	private static final long DeadProducerCheckNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+	public static final int DefaultBatchLimit = 256;
+
+	private final BackoffIdleStrategy idler;
+
+	private final int batchLimit;
+
+	private final long unblockTimeoutNanos;
+
+	/**
+	 *
+	 * @param ringFile
+	 * @param decoder
+	 * @param processor
+	 * @param waitingStrategy
+	 * @param batchLimit          每次最多读取的记录数
+	 * @param unblockTimeout      有未读数据但停滞超过此时间时强制跳过该记录, 即使生产者仍然存活, 为0时不强制跳过
+	 * @param timeUnit
+	 * @param autoRun
+	 */
+	public MappedQueueConsumer(MappedRingFile ringFile, BytesDecoder<E> decoder, Processor<E> processor,
+			WaitingStrategy waitingStrategy, int batchLimit, long unblockTimeout, TimeUnit timeUnit, boolean autoRun) {
+		this(ringFile, decoder, processor, waitingStrategy, null, batchLimit, unblockTimeout, timeUnit, autoRun);
+	}
+
+	/**
+	 * 使用默认配置: BackoffWaiting + {@link #DefaultIdleStrategy}, batchLimit 256, 不强制跳过停滞的记录
+	 *
+	 * @param ringFile
+	 * @param decoder
+	 * @param processor
+	 * @param autoRun
+	 */
+	public MappedQueueConsumer(MappedRingFile ringFile, BytesDecoder<E> decoder, Processor<E> processor,
+			boolean autoRun) {
+		this(ringFile, decoder, processor, WaitingStrategy.BackoffWaiting, null, DefaultBatchLimit,
+				DefaultUnblockTimeoutMillis, TimeUnit.MILLISECONDS, autoRun);
+	}
+
+	private MappedQueueConsumer(MappedRingFile ringFile, BytesDecoder<E> decoder, Processor<E> processor,
+			WaitingStrategy waitingStrategy, BackoffIdleStrategy idler, int batchLimit, long unblockTimeout,
+			TimeUnit timeUnit, boolean autoRun) {
+		if (processor == null)
+			throw new IllegalArgumentException("processor is null...");
+		if (decoder == null)
+			throw new IllegalArgumentException("decoder is null...");
+		if (batchLimit <= 0)
+			throw new IllegalArgumentException("batchLimit must greater than 0");
+		this.ringFile = ringFile;
+		this.ringBuffer = ringFile.ringBuffer();
+		this.queueName = "MappedQueueConsumer-" + ringFile.file().getName();
+		if (unblockTimeout < 0)
+			throw new IllegalArgumentException("unblockTimeout must not less than 0");
+		this.waitingStrategy = waitingStrategy == null ? WaitingStrategy.BackoffWaiting : waitingStrategy;
+		this.idler = idler == null ? DefaultIdleStrategy.copy() : idler.copy();
+		this.batchLimit = batchLimit;
+		this.unblockTimeoutNanos = timeUnit.toNanos(unblockTimeout);
+		this.handler = (msgTypeId, buffer) -> {
+			try {
+				processor.process(decoder.decode(buffer));
+			} catch (Exception e) {
+				log.error("processor.process(e) throw exception -> [{}]", e.getMessage(), e);
+				throw new RuntimeException(e);
+			}
+		};
+		if (autoRun)
+			start();
+	}
+
+	public static Builder newBuilder(MappedRingFile ringFile) {
+		return new Builder(ringFile);
+	}
+
+	/**
+	 * 默认值:
+	 * <ul>
+	 * <li>waitingStrategy: BackoffWaiting, 使用{@link #DefaultIdleStrategy}, 持续有数据时延迟在1us以内</li>
+	 * <li>batchLimit: 256</li>
+	 * <li>unblockTimeout: 0, 不强制跳过. 停滞的记录只在所有注册的生产者进程都已退出后跳过,
+	 * 有其他生产者存活时, 崩溃的生产者留下的记录会使消费者停滞直到这些生产者退出</li>
+	 * <li>runMode: 自动启动</li>
+	 * </ul>
+	 */
+	public static final class Builder {
+
+		private final MappedRingFile ringFile;
+		private WaitingStrategy waitingStrategy = WaitingStrategy.BackoffWaiting;
+		private BackoffIdleStrategy backoff;
+		private int batchLimit = DefaultBatchLimit;
+		private long unblockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DefaultUnblockTimeoutMillis);
+		private boolean autoRun = true;
+
+		private Builder(MappedRingFile ringFile) {
+			if (ringFile == null)
+				throw new IllegalArgumentException("ringFile is null...");
+			this.ringFile = ringFile;
+		}
+
+		public Builder waitingStrategy(WaitingStrategy waitingStrategy) {
+			this.waitingStrategy = waitingStrategy;
+			return this;
+		}
+
+		/**
+		 * 使用指定参数的BackoffWaiting
+		 * 
+		 * @param backoff
+		 * @return
+		 */
+		public Builder backoffStrategy(BackoffIdleStrategy backoff) {
+			this.waitingStrategy = WaitingStrategy.BackoffWaiting;
+			this.backoff = backoff;
+			return this;
+		}
+
+		public Builder batchLimit(int batchLimit) {
+			this.batchLimit = batchLimit;
+			return this;
+		}
+
+		/**
+		 * 停滞超过unblockTimeout时强制跳过head处未提交的记录, 不检测生产者是否存活.<br>
+		 * 存活的生产者可能在申请和提交之间暂停超过此时间 (长时间GC, SIGSTOP等), 其记录被跳过后空间会被重用,
+		 * 之后的提交将破坏其他记录. 只有能够接受数据损坏时才设置.
+		 * 
+		 * @param unblockTimeout 为0时不强制跳过
+		 * @param timeUnit
+		 * @return
+		 */
+		public Builder unblockTimeout(long unblockTimeout, TimeUnit timeUnit) {
+			this.unblockTimeoutNanos = timeUnit.toNanos(unblockTimeout);
+			return this;
+		}
+
+		public Builder manualStart() {
+			this.autoRun = false;
+			return this;
+		}
+
+		public <E> MappedQueueConsumer<E> build(BytesDecoder<E> decoder, Processor<E> processor) {
+			return new MappedQueueConsumer<>(ringFile, decoder, processor, waitingStrategy, backoff, batchLimit,
+					unblockTimeoutNanos, TimeUnit.NANOSECONDS, autoRun);
+		}
+
+	}
+
+	public void start() {
+		if (!isRun.compareAndSet(false, true)) {
+			log.error("MappedQueueConsumer :: Error call, This queue is started.");
+			return;
+		}
+		ThreadTool.startNewMaxPriorityThread(this::runLoop, queueName + "-RuningThread");
+	}
+
+	public void stop() {
+		isRun.set(false);
+	}
+
+	public String name() {
+		return queueName;
+	}
+
+	private void runLoop() {
+		long stalledSince = 0L;
+		long lastCheck = 0L;
+		while (isRun.get()) {
+			long head = ringBuffer.head();
+			// read不计入padding和已放弃的记录, 以head是否前进判断是否停滞
+			if (ringBuffer.read(handler, batchLimit) > 0 || ringBuffer.head() != head) {
+				idler.reset();
+				stalledSince = 0L;
+				continue;
+			}
+			if (ringBuffer.size() == 0)
+				stalledSince = 0L;
+			else {
+				long now = System.nanoTime();
+				if (stalledSince == 0L)
+					stalledSince = lastCheck = now;
+				else if (unblockTimeoutNanos > 0 && now - stalledSince > unblockTimeoutNanos) {
+					if (ringBuffer.unblock())
+						log.warn("MappedQueueConsumer :: [{}] stalled over {}ns, force skip uncommitted record",
+								queueName, unblockTimeoutNanos);
+					stalledSince = 0L;
+				} else if (now - lastCheck >= DeadProducerCheckNanos) {
+					lastCheck = now;
+					if (unblockIfProducersDead())
+						log.warn("MappedQueueConsumer :: [{}] all producers exited, skip uncommitted record",
+								queueName);
+				}
+			}
+			waiting();
+		}
+		// 停止前读取已提交的记录, 同样以head前进判断, 避免停在缓冲区末尾的padding上
+		long head;
+		do {
+			head = ringBuffer.head();
+			ringBuffer.read(handler, batchLimit);
+		} while (ringBuffer.head() != head);
+	}
+
+	private boolean unblockIfProducersDead() {
+		try {
+			return ringFile.unblockIfProducersDead();
+		} catch (IOException e) {
+			log.error("MappedQueueConsumer :: [{}] check producers failure -> {}", queueName, e.getMessage(), e);
+			return false;
+		}
+	}
+
+	private void waiting() {
+		switch (waitingStrategy) {
+		case SpinWaiting:
+			ThreadTool.onSpinWait();
+			break;
+		case SleepWaiting:
+			ThreadTool.sleep(1);
+			break;
+		case BackoffWaiting:
+		default:
+			idler.idle();
+			break;
+		}
+	}
+
+	/**
+	 *
+	 * @return 已占用的字节数
+	 */
+	public int size() {
+		return ringBuffer.size();
+	}
+
+	/**
+	 *
+	 * @return 数据区字节数
+	 */
+	public int capacity() {
+		return ringBuffer.capacity();
+	}
+
+	public MappedRingFile ringFile() {
+		return ringFile;
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		File file = new File(System.getProperty("java.io.tmpdir"), "mapped-queue-test.ring");
+		try (MappedRingFile ringFile = MappedRingFile.open(file, 1 << 20)) {
+			ByteBuffer reuse = ByteBuffer.allocate(8);
+			MappedQueueProducer<Long> producer = new MappedQueueProducer<>(ringFile, 1, value -> {
+				reuse.clear();
+				reuse.putLong(System.nanoTime()).flip();
+				return reuse;
+			});
+			MappedQueueConsumer<Long> consumer = MappedQueueConsumer.newBuilder(ringFile).build(
+					buffer -> buffer.getLong(),
+					sendTime -> System.out.println("latency ns -> " + (System.nanoTime() - sendTime)));
+			for (long i = 0; i < 10; i++) {
+				producer.enqueue(i);
+				ThreadTool.sleep(100);
+			}
+			consumer.stop();
+		}
+
+	}
+
+}
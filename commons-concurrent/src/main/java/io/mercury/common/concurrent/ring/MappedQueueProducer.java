@@ -0,0 +1,89 @@
+package io.mercury.common.concurrent.ring;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import io.mercury.common.codec.specific.BytesEncoder;
+import io.mercury.common.collections.queue.api.Queue;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.thread.ThreadTool;
+
+/**
+ * {@link MappedRingFile}的生产者端, 可以有多个线程和多个进程同时写入.<br>
+ * 创建时调用{@link MappedRingFile#registerProducer()}, 关闭MappedRingFile之前消费者都认为本进程的生产者存活.
+ *
+ * @author yellow013
+ *
+ * @param <E>
+ */
+@ThreadSafe
+public final class MappedQueueProducer<E> implements Queue<E> {
+
+	private final MappedRingFile ringFile;
+
+	private final MpscByteRingBuffer ringBuffer;
+
+	private final BytesEncoder<E> encoder;
+
+	private final int msgTypeId;
+
+	/**
+	 *
+	 * @param ringFile
+	 * @param msgTypeId 写入记录的类型
+	 * @param encoder   可以返回复用的ByteBuffer, 此时单个producer只能由一个线程使用
+	 * @throws IOException 注册生产者失败
+	 */
+	public MappedQueueProducer(MappedRingFile ringFile, int msgTypeId, BytesEncoder<E> encoder) throws IOException {
+		if (encoder == null)
+			throw new IllegalArgumentException("encoder is null...");
+		ringFile.registerProducer();
+		this.ringFile = ringFile;
+		this.ringBuffer = ringFile.ringBuffer();
+		this.encoder = encoder;
+		this.msgTypeId = msgTypeId;
+	}
+
+	/**
+	 * 队列已满时自旋等待消费者
+	 */
+	@Override
+	public boolean enqueue(E e) {
+		ByteBuffer encoded = encoder.encode(e);
+		int spins = 0;
+		while (!ringBuffer.write(msgTypeId, encoded)) {
+			if (++spins < 100)
+				ThreadTool.onSpinWait();
+			else
+				Thread.yield();
+		}
+		return true;
+	}
+
+	/**
+	 * 非阻塞写入
+	 *
+	 * @return 队列已满时返回{@link EnqueueStatus#Full}
+	 */
+	@Override
+	public EnqueueStatus offer(E e) {
+		return ringBuffer.write(msgTypeId, e, encoder) ? EnqueueStatus.Success : EnqueueStatus.Full;
+	}
+
+	@Override
+	public String name() {
+		return ringFile.file().getName();
+	}
+
+	/**
+	 * 
+	 * @return 数据区字节数
+	 */
+	@Override
+	public int capacity() {
+		return ringBuffer.capacity();
+	}
+
+}
@@ -0,0 +1,198 @@
+package io.mercury.common.concurrent.ring;
+
+import static io.mercury.common.concurrent.ring.DirectBuffers.getLongVolatile;
+import static io.mercury.common.concurrent.ring.DirectBuffers.putOrderedLong;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.util.BitOperator;
+
+/**
+ * 内存映射文件上的{@link MpscByteRingBuffer}, 同一主机上的多个进程映射同一文件即可共享队列.<br>
+ * <br>
+ * 文件布局: [0, 4096) 头部, 其中0为magic, 8为version, 12为capacity, 128为head, 256为tail; 之后为capacity字节的数据区.<br>
+ * head和tail只存在于映射内存中, 进程崩溃后重新打开文件即可从上次的位置继续:
+ * 消费者崩溃时最后一批未推进head的记录会被再次读取; 生产者在申请后提交前崩溃时, 由消费者调用{@link #unblockIfProducersDead()}跳过.<br>
+ * <br>
+ * 生产者存活检测: 写入前调用{@link #registerProducer()}, 对头部[2048, 2112)中的一个字节持有共享文件锁直到close,
+ * 进程退出时由操作系统释放. 没有任何进程持有该范围的锁时, 说明所有生产者都已不存在.
+ *
+ * @author yellow013
+ *
+ */
+public final class MappedRingFile implements Closeable {
+
+	private static final Logger log = CommonLoggerFactory.getLogger(MappedRingFile.class);
+
+	// "MRINGBUF"
+	private static final long Magic = 0x4D52494E47425546L;
+
+	private static final int Version = 1;
+
+	public static final int FileHeaderLength = 4096;
+
+	private static final int MagicOffset = 0;
+	private static final int VersionOffset = 8;
+	private static final int CapacityOffset = 12;
+	private static final int HeadOffset = 128;
+	private static final int TailOffset = 256;
+
+	// 文件锁的位置, 只用于加锁, 不保存数据
+	private static final int InitLockOffset = 1024;
+	private static final int ProducerLockOffset = 2048;
+	// 同一个JVM中不能重复锁定同一范围, 每个MappedRingFile实例使用不同的字节
+	private static final int ProducerLockSlots = 64;
+
+	private final File file;
+
+	private final RandomAccessFile randomAccessFile;
+
+	private final FileChannel channel;
+
+	// 本实例注册生产者后持有的共享锁
+	private FileLock producerLock;
+
+	private final MappedByteBuffer header;
+
+	private final MpscByteRingBuffer ringBuffer;
+
+	private final boolean created;
+
+	private MappedRingFile(File file, int capacity) throws IOException {
+		this.file = file;
+		this.randomAccessFile = new RandomAccessFile(file, "rw");
+		this.channel = randomAccessFile.getChannel();
+		// 初始化和校验期间持有文件锁, 避免多个进程同时创建. 不锁定整个文件, 以免与生产者持有的锁冲突
+		try (FileLock lock = channel.lock(InitLockOffset, 1, false)) {
+			if (channel.size() < FileHeaderLength)
+				randomAccessFile.setLength(FileHeaderLength);
+			this.header = channel.map(MapMode.READ_WRITE, 0, FileHeaderLength);
+			long headerAddress = DirectBuffers.address(header);
+			if (getLongVolatile(headerAddress + MagicOffset) == Magic) {
+				int existing = header.getInt(CapacityOffset);
+				if (header.getInt(VersionOffset) != Version)
+					throw new IOException("Unsupported version " + header.getInt(VersionOffset) + " in " + file);
+				if (capacity != 0 && capacity != existing)
+					throw new IOException("Capacity mismatch, file -> " + existing + ", expected -> " + capacity);
+				capacity = existing;
+				this.created = false;
+				log.info("Attach MappedRingFile [{}], capacity -> {}", file, capacity);
+			} else {
+				if (capacity <= 0)
+					throw new IOException("File not initialized and capacity not specified -> " + file);
+				// 上次初始化未完成时magic为0, 重新初始化
+				randomAccessFile.setLength(FileHeaderLength);
+				randomAccessFile.setLength((long) FileHeaderLength + capacity);
+				header.putInt(VersionOffset, Version);
+				header.putInt(CapacityOffset, capacity);
+				header.putLong(HeadOffset, 0L);
+				header.putLong(TailOffset, 0L);
+				// magic最后写入, 其他进程看到magic时头部已完整
+				putOrderedLong(headerAddress + MagicOffset, Magic);
+				header.force();
+				this.created = true;
+				log.info("Create MappedRingFile [{}], capacity -> {}", file, capacity);
+			}
+			MappedByteBuffer data = channel.map(MapMode.READ_WRITE, FileHeaderLength, capacity);
+			this.ringBuffer = new MpscByteRingBuffer(data, header, HeadOffset, TailOffset);
+		} catch (IOException | RuntimeException e) {
+			randomAccessFile.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 打开或创建文件
+	 *
+	 * @param file
+	 * @param capacity 数据区字节数, 按2的幂向上取整; 打开已存在的文件时必须一致, 为0时使用文件中的值
+	 * @return
+	 * @throws IOException
+	 */
+	public static MappedRingFile open(File file, int capacity) throws IOException {
+		return new MappedRingFile(file, capacity > 0 ? BitOperator.minPow2(capacity) : 0);
+	}
+
+	public MpscByteRingBuffer ringBuffer() {
+		return ringBuffer;
+	}
+
+	public File file() {
+		return file;
+	}
+
+	/**
+	 *
+	 * @return 是否由本次open创建或重新初始化
+	 */
+	public boolean isCreated() {
+		return created;
+	}
+
+	/**
+	 * 将本进程注册为生产者, 直到close之前消费者都认为本进程的生产者存活.<br>
+	 * {@link MappedQueueProducer}创建时自动调用, 直接使用{@link #ringBuffer()}写入的进程必须在写入前调用.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void registerProducer() throws IOException {
+		if (producerLock != null)
+			return;
+		for (int slot = 0; slot < ProducerLockSlots; slot++) {
+			try {
+				this.producerLock = channel.lock(ProducerLockOffset + slot, 1, true);
+				return;
+			} catch (OverlappingFileLockException e) {
+				// 同一个JVM中的其他实例已使用此位置
+			}
+		}
+		throw new IOException("Too many MappedRingFile instances register producer in this JVM -> " + file);
+	}
+
+	/**
+	 * 由消费者在停滞时调用, 只有在确认所有已注册的生产者都已不存在时才调用{@link MpscByteRingBuffer#unblock()}.<br>
+	 * 检测期间持有排他锁, 新的生产者需要等待检测完成后才能注册. 同一个JVM中存在已注册的生产者时始终返回false.
+	 * 
+	 * @return 是否有记录被跳过
+	 * @throws IOException
+	 */
+	public boolean unblockIfProducersDead() throws IOException {
+		synchronized (this) {
+			if (producerLock != null)
+				return false;
+		}
+		FileLock lock;
+		try {
+			lock = channel.tryLock(ProducerLockOffset, ProducerLockSlots, false);
+		} catch (OverlappingFileLockException e) {
+			return false;
+		}
+		if (lock == null)
+			return false;
+		try {
+			return ringBuffer.unblock();
+		} finally {
+			lock.release();
+		}
+	}
+
+	/**
+	 * 关闭文件并释放生产者的锁, 映射在ByteBuffer被回收前仍然有效
+	 */
+	@Override
+	public void close() throws IOException {
+		randomAccessFile.close();
+	}
+
+}
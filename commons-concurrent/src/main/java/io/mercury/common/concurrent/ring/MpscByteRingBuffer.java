@@ -0,0 +1,369 @@
+package io.mercury.common.concurrent.ring;
+
+import static io.mercury.common.concurrent.ring.DirectBuffers.align;
+import static io.mercury.common.concurrent.ring.DirectBuffers.compareAndSetLong;
+import static io.mercury.common.concurrent.ring.DirectBuffers.getInt;
+import static io.mercury.common.concurrent.ring.DirectBuffers.getIntVolatile;
+import static io.mercury.common.concurrent.ring.DirectBuffers.getLongVolatile;
+import static io.mercury.common.concurrent.ring.DirectBuffers.putInt;
+import static io.mercury.common.concurrent.ring.DirectBuffers.putOrderedInt;
+import static io.mercury.common.concurrent.ring.DirectBuffers.putOrderedLong;
+import static io.mercury.common.concurrent.ring.DirectBuffers.setMemory;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import io.mercury.common.annotation.thread.OnlySingleThreadCall;
+import io.mercury.common.codec.specific.BytesDecoder;
+import io.mercury.common.codec.specific.BytesEncoder;
+import io.mercury.common.util.BitOperator;
+
+/**
+ * 多生产者单消费者的堆外字节环形缓冲区, 存储变长的二进制记录.<br>
+ * <br>
+ * 每条记录由8字节的头部[int length, int msgTypeId]和数据组成, 按8字节对齐.
+ * 生产者通过CAS竞争tail申请空间, 申请时length写为负数, commit时有序写入正数, 消费者读取到正数length才认为记录可读.
+ * 记录不能跨越缓冲区末尾, 剩余空间不足时写入一条padding记录.<br>
+ * 消费者读取后将已读区域清零再推进head, 因此生产者申请到的区域总是为0.<br>
+ * head和tail计数器保存在堆外内存中, 由{@link MappedRingFile}创建时位于映射文件的头部, 可跨进程共享.
+ *
+ * @author yellow013
+ *
+ */
+@ThreadSafe
+public final class MpscByteRingBuffer {
+
+	public static final int HeaderLength = 8;
+
+	public static final int RecordAlignment = 8;
+
+	public static final int PaddingMsgTypeId = -1;
+
+	static final int CountersLength = 256;
+
+	private final ByteBuffer buffer;
+
+	private final long address;
+
+	private final int capacity;
+
+	private final int mask;
+
+	private final int maxMessageLength;
+
+	// 保持计数器所在内存的引用
+	private final ByteBuffer counters;
+
+	private final long tailAddress;
+
+	// 只由消费者写入, 生产者读取计算剩余空间
+	private final long headAddress;
+
+	// 消费者复用的视图, position和limit指向当前记录的数据
+	private final ByteBuffer readView;
+
+	/**
+	 *
+	 * @param capacity 字节数, 按2的幂向上取整
+	 */
+	public MpscByteRingBuffer(int capacity) {
+		this(ByteBuffer.allocateDirect(BitOperator.minPow2(Math.max(capacity, 1024))));
+	}
+
+	/**
+	 *
+	 * @param buffer direct或mapped ByteBuffer, 容量必须为2的幂, 内容必须为0
+	 */
+	public MpscByteRingBuffer(ByteBuffer buffer) {
+		// head和tail相隔128字节, 避免伪共享
+		this(buffer, ByteBuffer.allocateDirect(CountersLength), 0, CountersLength / 2);
+	}
+
+	/**
+	 * 
+	 * @param buffer     数据区
+	 * @param counters   计数器所在的direct或mapped ByteBuffer
+	 * @param headOffset head在counters中的偏移
+	 * @param tailOffset tail在counters中的偏移
+	 */
+	MpscByteRingBuffer(ByteBuffer buffer, ByteBuffer counters, int headOffset, int tailOffset) {
+		int capacity = buffer.capacity();
+		if (capacity < RecordAlignment || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("buffer capacity must be a power of 2 -> " + capacity);
+		this.buffer = buffer;
+		this.address = DirectBuffers.address(buffer);
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.maxMessageLength = capacity >> 3;
+		this.readView = buffer.duplicate().order(buffer.order());
+		this.counters = counters;
+		this.headAddress = DirectBuffers.address(counters) + headOffset;
+		this.tailAddress = DirectBuffers.address(counters) + tailOffset;
+	}
+
+	/**
+	 * 
+	 * @return 消费者已读取到的位置, 跳过padding和已放弃的记录时也会前进
+	 */
+	long head() {
+		return getLongVolatile(headAddress);
+	}
+
+	private long tail() {
+		return getLongVolatile(tailAddress);
+	}
+
+	/**
+	 * 申请写入空间
+	 *
+	 * @param msgTypeId 必须大于等于0
+	 * @param length    数据长度
+	 * @return 数据在{@link #buffer()}中的起始索引, 空间不足时返回-1
+	 */
+	public int tryClaim(int msgTypeId, int length) {
+		if (msgTypeId < 0)
+			throw new IllegalArgumentException("msgTypeId must not less than 0");
+		if (length < 0 || length > maxMessageLength)
+			throw new IllegalArgumentException("length must between 0 and " + maxMessageLength + " -> " + length);
+		final int recordLength = length + HeaderLength;
+		final int alignedLength = align(recordLength, RecordAlignment);
+		long currentTail;
+		int padding;
+		do {
+			long currentHead = head();
+			currentTail = tail();
+			int available = capacity - (int) (currentTail - currentHead);
+			int tailIndex = (int) currentTail & mask;
+			int toBufferEnd = capacity - tailIndex;
+			padding = alignedLength > toBufferEnd ? toBufferEnd : 0;
+			if (alignedLength + padding > available)
+				return -1;
+		} while (!compareAndSetLong(tailAddress, currentTail, currentTail + alignedLength + padding));
+		int recordIndex = (int) currentTail & mask;
+		if (padding != 0) {
+			putInt(address + recordIndex + 4, PaddingMsgTypeId);
+			putOrderedInt(address + recordIndex, padding);
+			recordIndex = 0;
+		}
+		putInt(address + recordIndex + 4, msgTypeId);
+		putOrderedInt(address + recordIndex, -recordLength);
+		return recordIndex + HeaderLength;
+	}
+
+	/**
+	 * 提交已写入的记录, 提交后对消费者可见
+	 *
+	 * @param index tryClaim的返回值
+	 */
+	public void commit(int index) {
+		long lengthAddress = address + index - HeaderLength;
+		putOrderedInt(lengthAddress, -getInt(lengthAddress));
+	}
+
+	/**
+	 * 放弃已申请的记录, 消费者将跳过此记录
+	 *
+	 * @param index tryClaim的返回值
+	 */
+	public void abort(int index) {
+		long lengthAddress = address + index - HeaderLength;
+		putInt(lengthAddress + 4, PaddingMsgTypeId);
+		putOrderedInt(lengthAddress, -getInt(lengthAddress));
+	}
+
+	/**
+	 * 写入src中position到limit之间的内容, 不改变src的position
+	 *
+	 * @param msgTypeId
+	 * @param src
+	 * @return 空间不足时返回false
+	 */
+	public boolean write(int msgTypeId, ByteBuffer src) {
+		int index = tryClaim(msgTypeId, src.remaining());
+		if (index < 0)
+			return false;
+		DirectBuffers.copy(src, address + index);
+		commit(index);
+		return true;
+	}
+
+	/**
+	 * 使用encoder编码后写入, encoder可以返回复用的ByteBuffer以避免分配
+	 *
+	 * @param <T>
+	 * @param msgTypeId
+	 * @param t
+	 * @param encoder
+	 * @return 空间不足时返回false
+	 */
+	public <T> boolean write(int msgTypeId, T t, BytesEncoder<T> encoder) {
+		return write(msgTypeId, encoder.encode(t));
+	}
+
+	/**
+	 * 读取最多limit条记录
+	 *
+	 * @param handler
+	 * @param limit
+	 * @return 读取的记录数
+	 */
+	@OnlySingleThreadCall
+	public int read(MessageHandler handler, int limit) {
+		final long currentHead = head();
+		final int headIndex = (int) currentHead & mask;
+		final int contiguous = capacity - headIndex;
+		int bytesRead = 0;
+		int count = 0;
+		try {
+			while (bytesRead < contiguous && count < limit) {
+				final int recordIndex = headIndex + bytesRead;
+				final int recordLength = getIntVolatile(address + recordIndex);
+				if (recordLength <= 0)
+					break;
+				bytesRead += align(recordLength, RecordAlignment);
+				final int msgTypeId = getInt(address + recordIndex + 4);
+				if (msgTypeId == PaddingMsgTypeId)
+					continue;
+				count++;
+				readView.limit(recordIndex + recordLength).position(recordIndex + HeaderLength);
+				handler.onMessage(msgTypeId, readView);
+			}
+		} finally {
+			if (bytesRead > 0) {
+				setMemory(address + headIndex, bytesRead, (byte) 0);
+				putOrderedLong(headAddress, currentHead + bytesRead);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 使用decoder解码后交给consumer, 最多读取limit条记录
+	 *
+	 * @param <R>
+	 * @param decoder
+	 * @param consumer
+	 * @param limit
+	 * @return 读取的记录数
+	 */
+	@OnlySingleThreadCall
+	public <R> int read(BytesDecoder<R> decoder, Consumer<R> consumer, int limit) {
+		return read((msgTypeId, buffer) -> consumer.accept(decoder.decode(buffer)), limit);
+	}
+
+	/**
+	 *
+	 * @return 写入数据使用的ByteBuffer, 只能使用绝对索引写入tryClaim返回的区域
+	 */
+	public ByteBuffer buffer() {
+		return buffer;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public int maxMessageLength() {
+		return maxMessageLength;
+	}
+
+	/**
+	 *
+	 * @return 已占用的字节数, 包括头部和对齐
+	 */
+	public int size() {
+		return (int) (tail() - head());
+	}
+
+	/**
+	 * 生产者在申请空间后、提交前崩溃时, 消费者会停在该记录上. 由消费者调用, 将head处未提交的记录转为padding.<br>
+	 * 只能在确认对应的生产者已经不存在时调用, 否则该生产者之后的提交会破坏数据.
+	 * 使用{@link MappedRingFile}时应调用{@link MappedRingFile#unblockIfProducersDead()}.
+	 * 
+	 * @return 是否有记录被跳过
+	 */
+	@OnlySingleThreadCall
+	public boolean unblock() {
+		final long currentHead = head();
+		final long currentTail = tail();
+		if (currentHead == currentTail)
+			return false;
+		final int headIndex = (int) currentHead & mask;
+		final long lengthAddress = address + headIndex;
+		final int recordLength = getIntVolatile(lengthAddress);
+		if (recordLength < 0) {
+			// 已申请未提交
+			putInt(lengthAddress + 4, PaddingMsgTypeId);
+			putOrderedInt(lengthAddress, -recordLength);
+			return true;
+		}
+		if (recordLength == 0) {
+			// 已推进tail但尚未写入头部, 跳到下一个已写入的记录或tail
+			final int limit = (int) Math.min(capacity - headIndex, currentTail - currentHead);
+			int gap = RecordAlignment;
+			while (gap < limit && getIntVolatile(lengthAddress + gap) == 0)
+				gap += RecordAlignment;
+			putInt(lengthAddress + 4, PaddingMsgTypeId);
+			putOrderedInt(lengthAddress, gap);
+			return true;
+		}
+		return false;
+	}
+
+	@FunctionalInterface
+	public static interface MessageHandler {
+
+		/**
+		 * buffer为消费者复用的视图, position和limit指向记录数据, 只能在回调期间使用
+		 *
+		 * @param msgTypeId
+		 * @param buffer
+		 */
+		void onMessage(int msgTypeId, ByteBuffer buffer);
+
+	}
+
+	public static void main(String[] args) {
+
+		MpscByteRingBuffer ringBuffer = new MpscByteRingBuffer(1 << 16);
+		BytesEncoder<Long> encoder = new BytesEncoder<Long>() {
+			private final ByteBuffer reuse = ByteBuffer.allocate(8);
+
+			@Override
+			public ByteBuffer encode(Long value) {
+				reuse.clear();
+				reuse.putLong(value).flip();
+				return reuse;
+			}
+		};
+
+		for (int p = 0; p < 4; p++) {
+			final long base = p * 1_000_000L;
+			new Thread(() -> {
+				ByteBuffer buffer = ringBuffer.buffer();
+				for (long i = base; i < base + 1_000_000L; i++) {
+					if (i % 2 == 0) {
+						int index;
+						while ((index = ringBuffer.tryClaim(1, 8)) < 0)
+							Thread.yield();
+						buffer.putLong(index, i);
+						ringBuffer.commit(index);
+					}
+				}
+			}).start();
+		}
+
+		long[] sum = new long[1];
+		long[] count = new long[1];
+		while (count[0] < 2_000_000L)
+			count[0] += ringBuffer.read((msgTypeId, buffer) -> sum[0] += buffer.getLong(buffer.position()), 64);
+		System.out.println("count -> " + count[0] + ", sum -> " + sum[0]);
+
+		ringBuffer.write(2, 42L, encoder);
+		ringBuffer.read(ByteBuffer::getLong, value -> System.out.println("decoded -> " + value), 1);
+
+	}
+
+}
@@ -0,0 +1,50 @@
+package io.mercury.common.concurrent;
+
+import java.util.Collection;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 测试中等待异步消费线程的结果, 超时后返回false, 由调用方断言最终状态
+ *
+ * @author yellow013
+ *
+ */
+public final class Await {
+
+	private static final long DefaultTimeoutMillis = 5000;
+
+	private Await() {
+	}
+
+	/**
+	 *
+	 * @param condition
+	 * @return 条件在5秒内成立时返回true
+	 * @throws InterruptedException
+	 */
+	public static boolean until(BooleanSupplier condition) throws InterruptedException {
+		return until(condition, DefaultTimeoutMillis);
+	}
+
+	public static boolean until(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() >= deadline)
+				return false;
+			Thread.sleep(1);
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param collection 需要是线程安全的集合
+	 * @param size
+	 * @return 集合在5秒内达到size时返回true
+	 * @throws InterruptedException
+	 */
+	public static boolean size(Collection<?> collection, int size) throws InterruptedException {
+		return until(() -> collection.size() >= size);
+	}
+
+}
@@ -0,0 +1,97 @@
+package io.mercury.common.concurrent.disruptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.concurrent.Await;
+
+public class DisruptorBackpressureTest {
+
+	@Test
+	public void testSpscQueueFailFast() throws InterruptedException {
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		SpscQueue<Integer> queue = new SpscQueue<>("test", BufferSize.POW2_6, false, received::add,
+				WaitStrategyOption.Yielding, BackpressurePolicy.failFast());
+		for (int i = 0; i < queue.capacity(); i++)
+			assertEquals(EnqueueStatus.Success, queue.offer(i));
+		assertEquals(EnqueueStatus.Full, queue.offer(-1));
+		assertEquals(1, queue.backpressureCounters().failFastCount());
+		queue.start();
+		Await.size(received, 64);
+		queue.stop();
+		assertEquals(64, received.size());
+		for (int i = 0; i < 64; i++)
+			assertEquals(Integer.valueOf(i), received.get(i));
+	}
+
+	@Test
+	public void testMpscQueueDropNewest() throws InterruptedException {
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		MpscQueue<Integer> queue = new MpscQueue<>("test", BufferSize.POW2_6, false, received::add,
+				WaitStrategyOption.Yielding, BackpressurePolicy.dropNewest());
+		for (int i = 0; i < 64; i++)
+			assertTrue(queue.enqueue(i));
+		assertEquals(EnqueueStatus.DroppedNewest, queue.offer(-1));
+		assertEquals(false, queue.enqueue(-2));
+		assertEquals(2, queue.backpressureCounters().droppedNewestCount());
+		queue.start();
+		Await.size(received, 64);
+		queue.stop();
+		assertEquals(64, received.size());
+	}
+
+	@Test
+	public void testDistributorQueueBlockWithDeadline() throws InterruptedException {
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		DistributorQueue<Integer> queue = new DistributorQueue<>("test", BufferSize.POW2_6, false, received::add,
+				WaitStrategyOption.Yielding, 2, value -> value,
+				BackpressurePolicy.blockWithDeadline(20, TimeUnit.MILLISECONDS));
+		for (int i = 0; i < 64; i++)
+			assertEquals(EnqueueStatus.Success, queue.offer(i));
+		long start = System.nanoTime();
+		assertEquals(EnqueueStatus.Timeout, queue.offer(-1));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertEquals(1, queue.backpressureCounters().timeoutCount());
+		queue.start();
+		// 消费者开始处理后在截止时间内写入成功
+		assertEquals(EnqueueStatus.Success, queue.offer(64));
+		Await.size(received, 65);
+		queue.stop();
+		assertEquals(65, received.size());
+	}
+
+	@Test
+	public void testSupplierQueueBlock() throws InterruptedException {
+		List<Long> received = new CopyOnWriteArrayList<>();
+		SpscQueueWithSupplier<long[]> queue = new SpscQueueWithSupplier<>(BufferSize.POW2_6, true,
+				WaitStrategyOption.Yielding, () -> new long[1], (slot, source) -> slot[0] = source[0],
+				event -> received.add(event[0]), BackpressurePolicy.block());
+		for (long i = 0; i < 1000; i++)
+			assertEquals(EnqueueStatus.Success, queue.offer(new long[] { i }));
+		Await.size(received, 1000);
+		queue.stop();
+		for (int i = 0; i < 1000; i++)
+			assertEquals(Long.valueOf(i), received.get(i));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectDropOldest() {
+		new MpscQueue<Integer>("test", BufferSize.POW2_6, false, e -> {
+		}, WaitStrategyOption.Yielding, BackpressurePolicy.dropOldest());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectCallerRuns() {
+		new SpscQueue<Integer>("test", BufferSize.POW2_6, false, e -> {
+		}, WaitStrategyOption.Yielding, BackpressurePolicy.callerRuns());
+	}
+
+}
@@ -0,0 +1,75 @@
+package io.mercury.common.concurrent.disruptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.mercury.common.concurrent.Await;
+
+public class DistributorQueueTest {
+
+	@Test
+	public void testKeyAffinityKeepsPerKeyOrder() throws InterruptedException {
+		int keys = 8;
+		int count = 4000;
+		Map<Integer, List<Integer>> received = new ConcurrentHashMap<>();
+		Map<Integer, Set<String>> threads = new ConcurrentHashMap<>();
+		AtomicInteger processed = new AtomicInteger();
+		DistributorQueue<Integer> queue = new DistributorQueue<>("test", BufferSize.POW2_10, true, value -> {
+			int key = value % keys;
+			received.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(value);
+			threads.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread().getName());
+			processed.incrementAndGet();
+		}, WaitStrategyOption.Yielding, 4, value -> value % keys);
+		assertEquals(4, queue.workerCount());
+		for (int i = 0; i < count; i++)
+			queue.enqueue(i);
+		Await.until(() -> processed.get() >= count);
+		queue.stop();
+		assertEquals(count, processed.get());
+		for (int key = 0; key < keys; key++) {
+			// 同一个key只由一个worker处理, 并保持发布顺序
+			assertEquals(1, threads.get(key).size());
+			List<Integer> values = received.get(key);
+			assertEquals(count / keys, values.size());
+			for (int i = 0; i < values.size(); i++)
+				assertEquals(Integer.valueOf(i * keys + key), values.get(i));
+		}
+	}
+
+	@Test
+	public void testWorkSharingUsesAllWorkers() throws InterruptedException {
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+		Set<Integer> received = ConcurrentHashMap.newKeySet();
+		AtomicInteger processed = new AtomicInteger();
+		DistributorQueue<Integer> queue = new DistributorQueue<>("test", BufferSize.POW2_6, true, value -> {
+			threads.add(Thread.currentThread().getName());
+			received.add(value);
+			Thread.sleep(1);
+			processed.incrementAndGet();
+		}, WaitStrategyOption.Yielding, 4);
+		for (int i = 0; i < 200; i++)
+			queue.enqueue(i);
+		Await.until(() -> processed.get() >= 200);
+		queue.stop();
+		// 每个事件只被处理一次
+		assertEquals(200, processed.get());
+		assertEquals(200, received.size());
+		assertTrue(threads.size() > 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectZeroWorker() {
+		new DistributorQueue<Integer>("test", BufferSize.POW2_6, false, value -> {
+		}, WaitStrategyOption.Yielding, 0);
+	}
+
+}
@@ -0,0 +1,64 @@
+package io.mercury.common.concurrent.disruptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import io.mercury.common.concurrent.Await;
+
+public class MpscQueueTest {
+
+	@Test
+	public void testConcurrentProducersKeepPerProducerOrder() throws InterruptedException {
+		List<Long> received = new CopyOnWriteArrayList<>();
+		MpscQueue<Long> queue = new MpscQueue<>("test", BufferSize.POW2_10, true, received::add,
+				WaitStrategyOption.Yielding);
+		int producers = 4;
+		int count = 5000;
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			long base = (long) p << 32;
+			threads[p] = new Thread(() -> {
+				for (long i = 0; i < count; i++)
+					while (!queue.tryEnqueue(base + i))
+						Thread.yield();
+			});
+			threads[p].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		Await.size(received, producers * count);
+		queue.stop();
+		assertEquals(producers * count, received.size());
+		long[] next = new long[producers];
+		for (long value : received) {
+			int p = (int) (value >>> 32);
+			assertEquals(next[p]++, value & 0xFFFFFFFFL);
+		}
+	}
+
+	@Test
+	public void testTryEnqueueNotBlock() throws InterruptedException {
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		// 未启动时消费者不处理, 写满后立即返回false
+		MpscQueue<Integer> queue = new MpscQueue<>("test", BufferSize.POW2_6, false, received::add,
+				WaitStrategyOption.Yielding);
+		assertEquals(64, queue.capacity());
+		for (int i = 0; i < 64; i++)
+			assertTrue(queue.tryEnqueue(i));
+		assertFalse(queue.tryEnqueue(64));
+		assertEquals(64, queue.size());
+		queue.start();
+		Await.size(received, 64);
+		queue.stop();
+		assertFalse(queue.tryEnqueue(65));
+		assertFalse(queue.enqueue(66));
+		assertEquals(64, received.size());
+	}
+
+}
@@ -0,0 +1,123 @@
+package io.mercury.common.concurrent.disruptor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import io.mercury.common.collections.queue.base.QueueStats;
+import io.mercury.common.concurrent.Await;
+
+public class SpscQueueTest {
+
+	@Test
+	public void testMetricsDisabledByDefault() throws InterruptedException {
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		SpscQueue<Integer> queue = new SpscQueue<>("test", BufferSize.POW2_6, false, received::add,
+				WaitStrategyOption.Yielding);
+		assertNull(queue.metrics());
+		queue.enqueue(1);
+		QueueStats stats = queue.stats();
+		assertFalse(stats.isMetricsEnabled());
+		assertEquals(1, stats.size());
+		assertEquals(63, stats.remainingCapacity());
+		queue.start();
+		Await.size(received, 1);
+		queue.stop();
+	}
+
+	@Test
+	public void testMetricsRecordLagAndResidency() throws InterruptedException {
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		SpscQueue<Integer> queue = new SpscQueue<>("test", BufferSize.POW2_6, false, received::add,
+				WaitStrategyOption.Yielding);
+		queue.enableMetrics();
+		for (int i = 0; i < 10; i++)
+			assertTrue(queue.enqueue(i));
+		// 消费者未启动, 滞后等于写入数量
+		QueueStats stats = queue.stats();
+		assertTrue(stats.isMetricsEnabled());
+		assertEquals(10, stats.enqueueCount());
+		assertEquals(10, stats.consumerLag());
+		queue.start();
+		Await.size(received, 10);
+		queue.stop();
+		stats = queue.stats();
+		assertEquals(10, stats.dequeueCount());
+		assertEquals(0, stats.consumerLag());
+		assertEquals(10, stats.residencyCount());
+		assertTrue(stats.residencyMaxNanos() > 0);
+	}
+
+	@Test
+	public void testBatchSplitAtBatchSize() throws InterruptedException {
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		List<Long> sequences = new CopyOnWriteArrayList<>();
+		List<Integer> sizes = new CopyOnWriteArrayList<>();
+		List<Boolean> ends = new CopyOnWriteArrayList<>();
+		SpscQueue<Integer> queue = SpscQueue.newBatchQueue("test", BufferSize.POW2_6, false,
+				WaitStrategyOption.Yielding, 4, (batch, endOfBatch) -> {
+					for (int i = 0; i < batch.size(); i++) {
+						received.add(batch.get(i));
+						sequences.add(batch.sequence(i));
+					}
+					sizes.add(batch.size());
+					ends.add(endOfBatch);
+				});
+		// 启动前写入, 消费者第一次读取即可看到全部10个事件
+		for (int i = 0; i < 10; i++)
+			assertTrue(queue.enqueue(i));
+		queue.start();
+		assertTrue(Await.size(ends, 3));
+		queue.stop();
+		assertArrayEquals(new Object[] { 4, 4, 2 }, sizes.toArray());
+		// 只有一次读取的最后一批endOfBatch为true
+		assertArrayEquals(new Object[] { false, false, true }, ends.toArray());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Integer.valueOf(i), received.get(i));
+			assertEquals(Long.valueOf(i), sequences.get(i));
+		}
+	}
+
+	@Test
+	public void testBatchOrderAndEndOfBatch() throws InterruptedException {
+		int count = 10000;
+		int batchSize = 8;
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		List<Integer> sizes = new CopyOnWriteArrayList<>();
+		List<Boolean> ends = new CopyOnWriteArrayList<>();
+		SpscQueue<Integer> queue = SpscQueue.newBatchQueue("test", BufferSize.POW2_6, true,
+				WaitStrategyOption.Yielding, batchSize, (batch, endOfBatch) -> {
+					sizes.add(batch.size());
+					ends.add(endOfBatch);
+					batch.each(received::add);
+				});
+		for (int i = 0; i < count; i++)
+			assertTrue(queue.enqueue(i));
+		assertTrue(Await.size(received, count));
+		queue.stop();
+		for (int i = 0; i < count; i++)
+			assertEquals(Integer.valueOf(i), received.get(i));
+		// 未到endOfBatch的批次一定是满的, 处理完全部事件时最后一批为endOfBatch
+		for (int i = 0; i < sizes.size(); i++) {
+			assertTrue(sizes.get(i) > 0);
+			if (!ends.get(i))
+				assertEquals(batchSize, sizes.get(i).intValue());
+		}
+		assertTrue(ends.get(ends.size() - 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectZeroBatchSize() {
+		SpscQueue.newBatchQueue("test", BufferSize.POW2_6, false, WaitStrategyOption.Yielding, 0,
+				(batch, endOfBatch) -> {
+				});
+	}
+
+}
@@ -0,0 +1,83 @@
+package io.mercury.common.concurrent.disruptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import io.mercury.common.concurrent.Await;
+
+public class SpscQueueWithSupplierTest {
+
+	private static final class Event {
+		private long value;
+	}
+
+	@Test
+	public void testCopierWritesIntoPreallocatedSlots() throws InterruptedException {
+		List<Long> received = new CopyOnWriteArrayList<>();
+		List<Event> slots = new CopyOnWriteArrayList<>();
+		SpscQueueWithSupplier<Event> queue = new SpscQueueWithSupplier<>(BufferSize.POW2_6, true,
+				WaitStrategyOption.Yielding, Event::new, (slot, source) -> slot.value = source.value, event -> {
+					received.add(event.value);
+					slots.add(event);
+				});
+		Event source = new Event();
+		for (long i = 0; i < 1000; i++) {
+			source.value = i;
+			queue.enqueue(source);
+		}
+		Await.size(received, 1000);
+		queue.stop();
+		for (int i = 0; i < 1000; i++)
+			assertEquals(Long.valueOf(i), received.get(i));
+		for (Event slot : slots)
+			assertNotSame(source, slot);
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testLegacyConstructorPassesReference() throws InterruptedException {
+		List<Event> received = new CopyOnWriteArrayList<>();
+		SpscQueueWithSupplier<Event> queue = new SpscQueueWithSupplier<>(BufferSize.POW2_6, true,
+				WaitStrategyOption.Yielding, Event::new, received::add);
+		Event[] events = new Event[1000];
+		for (int i = 0; i < events.length; i++) {
+			events[i] = new Event();
+			events[i].value = i;
+			queue.enqueue(events[i]);
+		}
+		Await.size(received, events.length);
+		queue.stop();
+		for (int i = 0; i < events.length; i++)
+			assertSame(events[i], received.get(i));
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testLegacyConstructorMixedWithClaim() throws InterruptedException {
+		List<Long> received = new CopyOnWriteArrayList<>();
+		SpscQueueWithSupplier<Event> queue = new SpscQueueWithSupplier<>(BufferSize.POW2_6, true,
+				WaitStrategyOption.Yielding, Event::new, event -> received.add(event.value));
+		for (long i = 0; i < 1000; i++) {
+			if (i % 2 == 0) {
+				Event event = new Event();
+				event.value = i;
+				queue.enqueue(event);
+			} else {
+				long sequence = queue.claim();
+				queue.get(sequence).value = i;
+				queue.publish(sequence);
+			}
+		}
+		Await.size(received, 1000);
+		queue.stop();
+		for (int i = 0; i < 1000; i++)
+			assertEquals(Long.valueOf(i), received.get(i));
+	}
+
+}
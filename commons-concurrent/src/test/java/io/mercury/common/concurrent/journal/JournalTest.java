@@ -0,0 +1,215 @@
+package io.mercury.common.concurrent.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.mercury.common.collections.queue.RunMode;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.concurrent.Await;
+import io.mercury.common.concurrent.queue.MpscArrayBlockingQueue;
+import io.mercury.common.concurrent.queue.SpscQueueWithJCT;
+import io.mercury.common.serialization.specific.BinaryDeserializer;
+import io.mercury.common.serialization.specific.BinarySerializer;
+
+public class JournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final BinarySerializer<String> Serializer = s -> ByteBuffer
+			.wrap(s.getBytes(StandardCharsets.UTF_8));
+
+	private static final BinaryDeserializer<String> Deserializer = (reuse, buffer) -> {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	};
+
+	private Journal<String> open(File directory, int segmentSize) throws IOException {
+		return Journal.open(directory, segmentSize, 0, TimeUnit.MILLISECONDS, Serializer, Deserializer);
+	}
+
+	@Test
+	public void testRecoverAfterEmptyRecord() throws IOException {
+		File directory = folder.newFolder();
+		try (Journal<String> journal = open(directory, 4096)) {
+			journal.append("a");
+			journal.append("");
+			journal.append("b");
+			journal.append("c");
+		}
+		List<String> replayed = new ArrayList<>();
+		try (Journal<String> journal = open(directory, 4096)) {
+			assertEquals(4, journal.nextSequence());
+			assertEquals(4, journal.replay(replayed::add));
+			assertEquals(3, journal.ackedSequence());
+		}
+		assertEquals(Arrays.asList("a", "", "b", "c"), replayed);
+	}
+
+	@Test
+	public void testReplayOnlyUnacked() throws IOException {
+		File directory = folder.newFolder();
+		try (Journal<String> journal = open(directory, 4096)) {
+			for (int i = 0; i < 10; i++)
+				journal.append("v" + i);
+			journal.ack(5);
+		}
+		List<String> replayed = new ArrayList<>();
+		try (Journal<String> journal = open(directory, 4096)) {
+			journal.replay(replayed::add);
+		}
+		assertEquals(Arrays.asList("v6", "v7", "v8", "v9"), replayed);
+	}
+
+	@Test
+	public void testRollSegmentsInOrder() throws IOException {
+		File directory = folder.newFolder();
+		try (Journal<String> journal = open(directory, 256)) {
+			for (int i = 0; i < 100; i++)
+				journal.append("value-" + i);
+		}
+		assertTrue(directory.listFiles((dir, name) -> name.endsWith(".seg")).length > 1);
+		List<String> replayed = new ArrayList<>();
+		try (Journal<String> journal = open(directory, 256)) {
+			journal.replay(replayed::add);
+			assertEquals(100, journal.nextSequence());
+		}
+		assertEquals(100, replayed.size());
+		for (int i = 0; i < 100; i++)
+			assertEquals("value-" + i, replayed.get(i));
+	}
+
+	@Test
+	public void testTruncateCorruptedTail() throws IOException {
+		File directory = folder.newFolder();
+		try (Journal<String> journal = open(directory, 4096)) {
+			journal.append("a");
+			journal.append("b");
+			journal.append("c");
+		}
+		File segment = directory.listFiles((dir, name) -> name.endsWith(".seg"))[0];
+		// 破坏第三条记录的payload, crc不匹配
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.seek(2 * (Journal.RecordHeaderLength + 1) + Journal.RecordHeaderLength);
+			file.write('x');
+		}
+		List<String> replayed = new ArrayList<>();
+		try (Journal<String> journal = open(directory, 4096)) {
+			assertEquals(2, journal.nextSequence());
+			journal.replay(replayed::add);
+			assertEquals(2, journal.append("d"));
+		}
+		try (Journal<String> journal = open(directory, 4096)) {
+			assertEquals(3, journal.nextSequence());
+		}
+		assertEquals(Arrays.asList("a", "b"), replayed);
+	}
+
+	@Test
+	public void testDiscardLastRecord() throws IOException {
+		File directory = folder.newFolder();
+		try (Journal<String> journal = open(directory, 4096)) {
+			journal.append("a");
+			long sequence = journal.append("a long value to be discarded");
+			journal.discard(sequence);
+			try {
+				journal.discard(sequence - 1);
+				fail();
+			} catch (JournalException e) {
+				// 只能撤销最后一条记录
+			}
+			assertEquals(sequence, journal.append("b"));
+			journal.append("c");
+		}
+		List<String> replayed = new ArrayList<>();
+		try (Journal<String> journal = open(directory, 4096)) {
+			journal.replay(replayed::add);
+		}
+		assertEquals(Arrays.asList("a", "b", "c"), replayed);
+	}
+
+	@Test
+	public void testQueueRollbackRejectedElement() throws Exception {
+		File directory = folder.newFolder();
+		List<String> processed = new CopyOnWriteArrayList<>();
+		JournaledQueue<String> queue = JournaledQueue.newBuilder(directory).segmentSize(4096).build(Serializer,
+				Deserializer, processed::add,
+				processor -> SpscQueueWithJCT.newBuilder().capacity(64).runMode(RunMode.Manual)
+						.backpressurePolicy(BackpressurePolicy.failFast()).build(processor));
+		int accepted = 0;
+		for (int i = 0; i < 100; i++) {
+			EnqueueStatus status = queue.offer("e" + i);
+			if (status.isAccepted())
+				accepted++;
+			else
+				assertEquals(EnqueueStatus.Full, status);
+		}
+		assertTrue(accepted < 100);
+		assertEquals(accepted, queue.journal().nextSequence());
+		queue.start();
+		Await.size(processed, accepted);
+		assertEquals(accepted, processed.size());
+		assertEquals(accepted - 1, queue.journal().ackedSequence());
+		queue.stop();
+
+		// 全部已确认, 重启后没有需要重放的元素
+		List<String> replayed = new ArrayList<>();
+		JournaledQueue<String> reopened = JournaledQueue.newBuilder(directory).segmentSize(4096).build(Serializer,
+				Deserializer, replayed::add,
+				processor -> SpscQueueWithJCT.newBuilder().runMode(RunMode.Manual).build(processor));
+		assertTrue(replayed.isEmpty());
+		reopened.stop();
+	}
+
+	@Test
+	public void testQueueReplayUnprocessed() throws Exception {
+		File directory = folder.newFolder();
+		JournaledQueue<String> queue = JournaledQueue.newBuilder(directory).segmentSize(4096).build(Serializer,
+				Deserializer, e -> {
+				}, processor -> SpscQueueWithJCT.newBuilder().runMode(RunMode.Manual).build(processor));
+		queue.enqueue("a");
+		queue.enqueue("");
+		queue.enqueue("b");
+		// 未启动消费者, 全部未确认
+		queue.stop();
+		List<String> replayed = new ArrayList<>();
+		JournaledQueue<String> reopened = JournaledQueue.newBuilder(directory).segmentSize(4096).build(Serializer,
+				Deserializer, replayed::add,
+				processor -> SpscQueueWithJCT.newBuilder().runMode(RunMode.Manual).build(processor));
+		reopened.stop();
+		assertEquals(Arrays.asList("a", "", "b"), replayed);
+	}
+
+	@Test
+	public void testQueueRejectCallerRuns() throws IOException {
+		File directory = folder.newFolder();
+		try {
+			JournaledQueue.newBuilder(directory).segmentSize(4096).build(Serializer, Deserializer, e -> {
+			}, processor -> MpscArrayBlockingQueue.newBuilder().runMode(RunMode.Manual)
+					.backpressurePolicy(BackpressurePolicy.callerRuns()).build(processor));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertFalse(e.getMessage().isEmpty());
+		}
+	}
+
+}
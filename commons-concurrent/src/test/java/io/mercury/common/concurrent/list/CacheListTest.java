@@ -0,0 +1,75 @@
+package io.mercury.common.concurrent.list;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class CacheListTest {
+
+	/**
+	 * 在测试线程中手动执行后台刷新任务
+	 */
+	private static final class ManualExecutor {
+
+		private final List<Runnable> tasks = new ArrayList<>();
+
+		private int runAll() {
+			int count = tasks.size();
+			List<Runnable> current = new ArrayList<>(tasks);
+			tasks.clear();
+			current.forEach(Runnable::run);
+			return count;
+		}
+
+	}
+
+	@Test
+	public void testNullRefreshReported() {
+		ManualExecutor executor = new ManualExecutor();
+		AtomicInteger loads = new AtomicInteger();
+		List<Throwable> failures = new ArrayList<>();
+		CacheList<String> list = new CacheList<String>(
+				() -> loads.incrementAndGet() == 1 ? Collections.singletonList("first") : null, executor.tasks::add)
+						.refreshFailureHandler(failures::add);
+		list.get();
+		list.setUnavailable();
+		assertEquals("first", list.get().get().get(0));
+		assertEquals(1, executor.runAll());
+		assertEquals(1, failures.size());
+		assertTrue(failures.get(0) instanceof IllegalStateException);
+		assertEquals("first", list.get().get().get(0));
+	}
+
+	@Test
+	public void testRetryAfterRefreshRetryInterval() throws InterruptedException {
+		ManualExecutor executor = new ManualExecutor();
+		AtomicInteger loads = new AtomicInteger();
+		List<Throwable> failures = new ArrayList<>();
+		CacheList<String> list = new CacheList<String>(() -> {
+			if (loads.incrementAndGet() > 1)
+				throw new IllegalStateException("load failure");
+			return Collections.singletonList("first");
+		}, executor.tasks::add).refreshRetryInterval(200, TimeUnit.MILLISECONDS).refreshFailureHandler(failures::add);
+		list.get();
+		list.setUnavailable();
+		list.get();
+		assertEquals(1, executor.runAll());
+		assertEquals(1, failures.size());
+		// 重试间隔内不再提交刷新
+		for (int i = 0; i < 10; i++)
+			assertEquals("first", list.get().get().get(0));
+		assertEquals(0, executor.runAll());
+		Thread.sleep(250);
+		list.get();
+		assertEquals(1, executor.runAll());
+		assertEquals(2, failures.size());
+	}
+
+}
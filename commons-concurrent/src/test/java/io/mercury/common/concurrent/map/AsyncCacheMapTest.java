@@ -0,0 +1,120 @@
+package io.mercury.common.concurrent.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class AsyncCacheMapTest {
+
+	@Test
+	public void testCommandsAppliedInOrder() throws Exception {
+		try (AsyncCacheMap<Integer, String> map = new AsyncCacheMap<>("test", 16, false)) {
+			for (int i = 0; i < 1000; i++)
+				map.asyncPut(i % 10, "v" + i);
+			map.asyncRemove(3);
+			assertEquals("v999", map.get(9).get(5, TimeUnit.SECONDS));
+			assertEquals("v990", map.get(0).get(5, TimeUnit.SECONDS));
+			assertNull(map.get(3).get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void testUniqueSequence() throws Exception {
+		try (AsyncCacheMap<Integer, Integer> map = new AsyncCacheMap<>("test", 64, true)) {
+			long first = map.asyncPut(1, 1);
+			long second = map.asyncPut(1, 2);
+			assertEquals(first + 1, second);
+			while (map.appliedSequence() < second)
+				Thread.yield();
+			assertEquals(Integer.valueOf(2), map.getNow(1));
+		}
+	}
+
+	@Test
+	public void testCallbackForEveryGet() throws Exception {
+		int producers = 4;
+		int count = 20000;
+		AtomicInteger received = new AtomicInteger();
+		AtomicInteger mismatch = new AtomicInteger();
+		try (AsyncCacheMap<Integer, Integer> map = new AsyncCacheMap<>("test", 64, false)) {
+			Thread[] threads = new Thread[producers];
+			for (int t = 0; t < producers; t++) {
+				int base = t * count;
+				threads[t] = new Thread(() -> {
+					for (int i = base; i < base + count; i++) {
+						int key = i;
+						map.asyncPut(key, key * 2);
+						map.asyncGet(key, value -> {
+							received.incrementAndGet();
+							if (value == null || value != key * 2)
+								mismatch.incrementAndGet();
+						});
+					}
+				});
+				threads[t].start();
+			}
+			for (Thread thread : threads)
+				thread.join();
+			map.get(0).get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(producers * count, received.get());
+		assertEquals(0, mismatch.get());
+	}
+
+	@Test
+	public void testCloseCompletesClaimedCommands() throws Exception {
+		for (int round = 0; round < 20; round++) {
+			AsyncCacheMap<Integer, Integer> map = new AsyncCacheMap<>("test", 64, false);
+			List<CompletableFuture<Integer>> futures = new CopyOnWriteArrayList<>();
+			Thread[] threads = new Thread[4];
+			for (int t = 0; t < threads.length; t++) {
+				threads[t] = new Thread(() -> {
+					try {
+						for (int i = 0;; i++) {
+							map.asyncPut(i, i);
+							futures.add(map.get(i));
+						}
+					} catch (IllegalStateException e) {
+						// 已关闭
+					}
+				});
+				threads[t].start();
+			}
+			Thread.sleep(5);
+			map.close();
+			for (Thread thread : threads)
+				thread.join();
+			for (CompletableFuture<Integer> future : futures)
+				future.get(5, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void testRejectAfterClose() {
+		AsyncCacheMap<Integer, Integer> map = new AsyncCacheMap<>("test");
+		map.close();
+		try {
+			map.asyncPut(1, 1);
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("closed"));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetNowRequiresSnapshotRead() {
+		try (AsyncCacheMap<Integer, Integer> map = new AsyncCacheMap<>("test")) {
+			map.getNow(1);
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package io.mercury.common.concurrent.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.collections.api.list.MutableList;
+import org.junit.Test;
+
+public class ConcurrentLongRangeMapTest {
+
+	@Test
+	public void testRangeScanOrder() {
+		ConcurrentLongRangeMap<String> map = new ConcurrentLongRangeMap<>();
+		for (long key : new long[] { 50, -10, 30, 0, 20, 10, 40 })
+			map.put(key, "v" + key);
+		MutableList<String> scan = map.scan(0, 30);
+		assertEquals(4, scan.size());
+		assertEquals("v0", scan.get(0));
+		assertEquals("v30", scan.get(3));
+		assertEquals(7, map.getAll().size());
+		assertEquals(20L, map.floorKey(25));
+		assertEquals(30L, map.ceilingKey(25));
+		assertEquals(Long.MIN_VALUE, map.floorKey(-11));
+		assertEquals(Long.MAX_VALUE, map.ceilingKey(51));
+		MutableList<String> removed = map.remove(10, 40);
+		assertEquals(4, removed.size());
+		assertNull(map.get(20));
+		assertEquals(3, map.getAll().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectNullValue() {
+		new ConcurrentLongRangeMap<String>().put(1L, null);
+	}
+
+	@Test
+	public void testMatchesSkipListMap() {
+		ConcurrentSortedLongObjectMap<Long> map = new ConcurrentSortedLongObjectMap<>();
+		ConcurrentSkipListMap<Long, Long> expected = new ConcurrentSkipListMap<>();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < 20000; i++) {
+			long key = random.nextLong(-500, 500);
+			if (random.nextBoolean())
+				assertEquals(expected.put(key, key * 2), map.put(key, key * 2));
+			else
+				assertEquals(expected.remove(key), map.remove(key));
+		}
+		List<Long> keys = new ArrayList<>();
+		map.forEach((key, value) -> keys.add(key));
+		assertEquals(new ArrayList<>(expected.keySet()), keys);
+	}
+
+	@Test
+	public void testConcurrentWriters() throws InterruptedException {
+		ConcurrentSortedLongObjectMap<Long> map = new ConcurrentSortedLongObjectMap<>();
+		int writers = 4;
+		int count = 5000;
+		Thread[] threads = new Thread[writers];
+		for (int t = 0; t < writers; t++) {
+			long base = t;
+			threads[t] = new Thread(() -> {
+				for (long i = 0; i < count; i++) {
+					long key = i * writers + base;
+					map.put(key, key);
+					// 删除奇数键, 与其他线程的读写交错
+					if ((key & 1) == 1)
+						map.remove(key);
+					map.get(key - 1);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		List<Long> keys = new ArrayList<>();
+		map.forEach((key, value) -> keys.add(key));
+		assertEquals(writers * count / 2, keys.size());
+		for (int i = 0; i < keys.size(); i++)
+			assertEquals(Long.valueOf(i * 2L), keys.get(i));
+		assertNull(map.get(1));
+	}
+
+}
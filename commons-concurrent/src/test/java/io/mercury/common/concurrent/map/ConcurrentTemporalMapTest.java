@@ -0,0 +1,45 @@
+package io.mercury.common.concurrent.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.collections.api.list.MutableList;
+import org.junit.Test;
+
+public class ConcurrentTemporalMapTest {
+
+	@Test
+	public void testSparseScanInOrder() {
+		ConcurrentLocalDateMap<String> map = ConcurrentLocalDateMap.newMap();
+		LocalDate start = LocalDate.of(2020, 1, 1);
+		for (int days : new int[] { 300, 10, 200, 0, 365 })
+			map.put(start.plusDays(days), "d" + days);
+		MutableList<String> scan = map.scan(start, start.plusDays(300));
+		assertEquals(4, scan.size());
+		assertEquals("d0", scan.get(0));
+		assertEquals("d300", scan.get(3));
+		List<String> received = new ArrayList<>();
+		map.scan(start.plusDays(1), start.plusDays(365), received::add);
+		assertEquals(4, received.size());
+		assertEquals("d10", received.get(0));
+	}
+
+	@Test
+	public void testNullValueNotRejected() {
+		ConcurrentLocalDateMap<String> map = ConcurrentLocalDateMap.newMap();
+		LocalDate date = LocalDate.of(2020, 1, 1);
+		map.put(date, "a");
+		map.put(date.plusDays(1), null);
+		map.put(date.plusDays(2), "c").put(date.plusDays(2), null);
+		assertNull(map.get(date.plusDays(1)));
+		assertNull(map.get(date.plusDays(2)));
+		MutableList<String> scan = map.scan(date, date.plusDays(2));
+		assertEquals(1, scan.size());
+		assertEquals("a", scan.get(0));
+	}
+
+}
@@ -0,0 +1,35 @@
+package io.mercury.common.concurrent.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FrequencySketchTest {
+
+	@Test
+	public void testIncrementAndSaturate() {
+		FrequencySketch sketch = new FrequencySketch(64);
+		assertEquals(0, sketch.frequency("key"));
+		for (int i = 0; i < 5; i++)
+			sketch.increment("key");
+		assertEquals(5, sketch.frequency("key"));
+		// 4位计数器最大为15
+		for (int i = 0; i < 20; i++)
+			sketch.increment("key");
+		assertEquals(15, sketch.frequency("key"));
+	}
+
+	@Test
+	public void testResetHalvesCounts() {
+		FrequencySketch sketch = new FrequencySketch(16);
+		for (int i = 0; i < 8; i++)
+			sketch.increment("hot");
+		// 样本数量为10 * 16, 达到后所有计数器减半
+		for (int i = 0; i < 200; i++)
+			sketch.increment(i);
+		int frequency = sketch.frequency("hot");
+		assertTrue(frequency >= 4 && frequency < 8);
+	}
+
+}
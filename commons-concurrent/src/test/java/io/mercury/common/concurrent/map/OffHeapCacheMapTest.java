@@ -0,0 +1,133 @@
+package io.mercury.common.concurrent.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.mercury.common.serialization.specific.BinaryDeserializer;
+import io.mercury.common.serialization.specific.BinarySerializer;
+
+public class OffHeapCacheMapTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final BinarySerializer<String> serializer = value -> ByteBuffer
+			.wrap(value.getBytes(StandardCharsets.UTF_8));
+
+	private static final BinaryDeserializer<String> deserializer = (reuse, source) -> StandardCharsets.UTF_8
+			.decode(source).toString();
+
+	private static final class Value {
+		private long value;
+	}
+
+	@Test
+	public void testPutGetRemove() throws IOException {
+		try (OffHeapCacheMap<String> map = OffHeapCacheMap.newBuilder(1 << 16).build(serializer, deserializer)) {
+			for (long key = 0; key < 1000; key++)
+				assertTrue(map.put(key, "value-" + key));
+			assertEquals(1000, map.size());
+			assertEquals("value-999", map.get(999));
+			assertTrue(map.put(999, "updated"));
+			assertEquals("updated", map.get(999));
+			assertEquals(1000, map.size());
+			assertTrue(map.remove(999));
+			assertFalse(map.remove(999));
+			assertNull(map.get(999));
+			assertFalse(map.containsKey(999));
+			assertEquals(1, map.missCount());
+			map.clear();
+			assertEquals(0, map.size());
+			assertEquals(0, map.usedBytes());
+		}
+	}
+
+	@Test
+	public void testDeserializeIntoReuse() throws IOException {
+		try (OffHeapCacheMap<Value> map = OffHeapCacheMap.newBuilder(1 << 12).segments(1).build(value -> {
+			ByteBuffer buffer = ByteBuffer.allocate(8);
+			buffer.putLong(value.value).flip();
+			return buffer;
+		}, (reuse, source) -> {
+			Value target = reuse == null ? new Value() : reuse;
+			target.value = source.getLong();
+			return target;
+		})) {
+			Value value = new Value();
+			value.value = 42L;
+			map.put(1L, value);
+			Value reuse = new Value();
+			assertSame(reuse, map.get(1L, reuse));
+			assertEquals(42L, reuse.value);
+		}
+	}
+
+	@Test
+	public void testOversizeValueRemovesOldValue() throws IOException {
+		try (OffHeapCacheMap<String> map = OffHeapCacheMap.newBuilder(256).segments(1).build(serializer,
+				deserializer)) {
+			assertTrue(map.put(1L, "old"));
+			char[] chars = new char[512];
+			assertFalse(map.put(1L, new String(chars)));
+			// 不保留旧值
+			assertNull(map.get(1L));
+			assertEquals(0, map.size());
+		}
+	}
+
+	@Test
+	public void testEvictByByteBudget() throws IOException {
+		try (OffHeapCacheMap<String> map = OffHeapCacheMap.newBuilder(1024).segments(1).build(serializer,
+				deserializer)) {
+			// 每条记录 16 + 8 = 24字节
+			for (long key = 0; key < 1000; key++)
+				assertTrue(map.put(key, String.format("v-%06d", key).substring(0, 8)));
+			assertTrue(map.usedBytes() <= map.capacity());
+			assertTrue(map.evictionCount() > 0);
+			assertTrue(map.size() <= 1024 / 24);
+			assertNull(map.get(0));
+			assertEquals("v-000999", map.get(999));
+		}
+	}
+
+	@Test
+	public void testReferencedRecordReinserted() throws IOException {
+		try (OffHeapCacheMap<String> map = OffHeapCacheMap.newBuilder(1024).segments(1).build(serializer,
+				deserializer)) {
+			map.put(0L, "hot-0000");
+			for (long key = 1; key < 1000; key++) {
+				map.put(key, "cold-000");
+				// 持续读取的记录不被淘汰
+				assertEquals("hot-0000", map.get(0L));
+			}
+			assertTrue(map.reinsertCount() > 0);
+		}
+	}
+
+	@Test
+	public void testMappedFileSegments() throws IOException {
+		File directory = folder.newFolder("offheap");
+		try (OffHeapCacheMap<String> map = OffHeapCacheMap.newBuilder(1 << 16).segments(4).directory(directory)
+				.build(serializer, deserializer)) {
+			assertEquals(4, directory.listFiles().length);
+			for (long key = 0; key < 100; key++)
+				map.put(key, "value-" + key);
+			assertEquals("value-50", map.get(50));
+		}
+		// 关闭时删除映射文件
+		assertEquals(0, directory.listFiles().length);
+	}
+
+}
@@ -0,0 +1,247 @@
+package io.mercury.common.concurrent.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SyncCacheMapTest {
+
+	/**
+	 * 在测试线程中手动执行后台刷新任务
+	 */
+	private static final class ManualExecutor {
+
+		private final List<Runnable> tasks = new ArrayList<>();
+
+		private int runAll() {
+			int count = tasks.size();
+			List<Runnable> current = new ArrayList<>(tasks);
+			tasks.clear();
+			current.forEach(Runnable::run);
+			return count;
+		}
+
+	}
+
+	@Test
+	public void testServeStaleWhileRefreshing() {
+		ManualExecutor executor = new ManualExecutor();
+		AtomicInteger loads = new AtomicInteger();
+		SyncCacheMap<Integer, String> map = SyncCacheMap.newBuilder().refreshExecutor(executor.tasks::add)
+				.build(key -> "loaded-" + loads.incrementAndGet());
+		assertEquals("loaded-1", map.get(1).get());
+		map.setUnavailable(1);
+		assertEquals("loaded-1", map.get(1).get());
+		// 同一个键同时只有一个后台刷新
+		assertEquals("loaded-1", map.get(1).get());
+		assertEquals(1, executor.runAll());
+		assertEquals("loaded-2", map.get(1).get());
+	}
+
+	@Test
+	public void testPutDuringRefreshNotOverwritten() {
+		ManualExecutor executor = new ManualExecutor();
+		AtomicInteger loads = new AtomicInteger();
+		SyncCacheMap<Integer, String> map = SyncCacheMap.newBuilder().refreshExecutor(executor.tasks::add)
+				.build(key -> "loaded-" + loads.incrementAndGet());
+		map.get(1);
+		map.setUnavailable(1);
+		map.get(1);
+		map.put(1, "explicit");
+		assertEquals(1, executor.runAll());
+		assertEquals(2, loads.get());
+		assertEquals("explicit", map.get(1).get());
+	}
+
+	@Test
+	public void testDeleteDuringRefreshDiscardsResult() {
+		ManualExecutor executor = new ManualExecutor();
+		AtomicInteger loads = new AtomicInteger();
+		SyncCacheMap<Integer, String> map = SyncCacheMap.newBuilder().refreshExecutor(executor.tasks::add)
+				.build(key -> "loaded-" + loads.incrementAndGet());
+		map.get(1);
+		map.setUnavailable(1);
+		map.get(1);
+		map.delete(1);
+		executor.runAll();
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void testNullReloadReported() {
+		ManualExecutor executor = new ManualExecutor();
+		AtomicInteger loads = new AtomicInteger();
+		List<Throwable> failures = new ArrayList<>();
+		SyncCacheMap<Integer, String> map = SyncCacheMap.newBuilder().refreshExecutor(executor.tasks::add)
+				.refreshFailureHandler((key, t) -> failures.add(t))
+				.build(key -> loads.incrementAndGet() == 1 ? "first" : null);
+		map.get(1);
+		map.setUnavailable(1);
+		assertEquals("first", map.get(1).get());
+		executor.runAll();
+		assertEquals(1, failures.size());
+		assertTrue(failures.get(0) instanceof IllegalStateException);
+		assertEquals("first", map.get(1).get());
+		assertEquals(1, map.stats().loadFailureCount());
+	}
+
+	@Test
+	public void testRetryAfterRefreshRetryInterval() throws InterruptedException {
+		ManualExecutor executor = new ManualExecutor();
+		AtomicInteger loads = new AtomicInteger();
+		List<Throwable> failures = new ArrayList<>();
+		SyncCacheMap<Integer, String> map = SyncCacheMap.newBuilder().refreshExecutor(executor.tasks::add)
+				.refreshRetryInterval(Duration.ofMillis(200)).refreshFailureHandler((key, t) -> failures.add(t))
+				.build(key -> {
+					if (loads.incrementAndGet() > 1)
+						throw new IllegalStateException("load failure");
+					return "first";
+				});
+		map.get(1);
+		map.setUnavailable(1);
+		map.get(1);
+		assertEquals(1, executor.runAll());
+		assertEquals(1, failures.size());
+		// 重试间隔内不再提交刷新
+		for (int i = 0; i < 10; i++)
+			assertEquals("first", map.get(1).get());
+		assertEquals(0, executor.runAll());
+		Thread.sleep(250);
+		map.get(1);
+		assertEquals(1, executor.runAll());
+		assertEquals(2, failures.size());
+	}
+
+	@Test
+	public void testRefreshAfterWrite() throws InterruptedException {
+		ManualExecutor executor = new ManualExecutor();
+		AtomicInteger loads = new AtomicInteger();
+		SyncCacheMap<Integer, String> map = SyncCacheMap.newBuilder().refreshAfterWrite(Duration.ofMillis(300))
+				.refreshExecutor(executor.tasks::add).build(key -> "loaded-" + loads.incrementAndGet());
+		map.get(1);
+		map.get(1);
+		assertEquals(0, executor.runAll());
+		Thread.sleep(350);
+		assertEquals("loaded-1", map.get(1).get());
+		assertEquals(1, executor.runAll());
+		assertEquals("loaded-2", map.get(1).get());
+	}
+
+	@Test
+	public void testBoundedSizeAndEviction() {
+		SyncCacheMap<Integer, String> map = SyncCacheMap.newBuilder().maximumSize(100).build(key -> "v" + key);
+		for (int i = 0; i < 1000; i++)
+			map.put(i, "v" + i);
+		assertTrue(map.size() <= 100);
+		CacheStats stats = map.stats();
+		assertEquals(100, stats.maximumSize());
+		assertEquals(1000 - map.size(), stats.evictionCount());
+	}
+
+	@Test
+	public void testFrequentKeysSurviveScan() {
+		AtomicInteger loads = new AtomicInteger();
+		SyncCacheMap<Integer, String> map = SyncCacheMap.newBuilder().maximumSize(100).build(key -> {
+			loads.incrementAndGet();
+			return "v" + key;
+		});
+		for (int round = 0; round < 10; round++)
+			for (int key = 0; key < 10; key++)
+				map.get(key);
+		assertEquals(10, loads.get());
+		// 只访问一次的键不会挤出高频的键
+		for (int key = 1000; key < 3000; key++)
+			map.put(key, "cold");
+		for (int key = 0; key < 10; key++)
+			assertEquals("v" + key, map.get(key).get());
+		assertEquals(10, loads.get());
+	}
+
+	@Test
+	public void testExpireAfterWrite() throws InterruptedException {
+		AtomicInteger loads = new AtomicInteger();
+		SyncCacheMap<Integer, Integer> map = SyncCacheMap.newBuilder().expireAfterWrite(Duration.ofMillis(20))
+				.build(key -> loads.incrementAndGet());
+		assertEquals(Integer.valueOf(1), map.get(1).get());
+		assertEquals(Integer.valueOf(1), map.get(1).get());
+		Thread.sleep(40);
+		assertEquals(Integer.valueOf(2), map.get(1).get());
+		assertEquals(1, map.stats().expirationCount());
+	}
+
+	@Test
+	public void testExpireAfterAccess() throws InterruptedException {
+		AtomicInteger loads = new AtomicInteger();
+		SyncCacheMap<Integer, Integer> map = SyncCacheMap.newBuilder().expireAfterAccess(Duration.ofMillis(100))
+				.build(key -> loads.incrementAndGet());
+		map.get(1);
+		// 持续读取时不过期
+		for (int i = 0; i < 5; i++) {
+			Thread.sleep(30);
+			assertEquals(Integer.valueOf(1), map.get(1).get());
+		}
+		Thread.sleep(150);
+		assertEquals(Integer.valueOf(2), map.get(1).get());
+	}
+
+	@Test
+	public void testSingleFlightLoading() throws InterruptedException {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		SyncCacheMap<Integer, String> map = new SyncCacheMap<>(key -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "loaded";
+		});
+		int threadCount = 8;
+		CountDownLatch done = new CountDownLatch(threadCount);
+		List<Optional<String>> results = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++)
+			new Thread(() -> {
+				Optional<String> result = map.get(1);
+				synchronized (results) {
+					results.add(result);
+				}
+				done.countDown();
+			}).start();
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		// 同时未命中的线程共用一次加载
+		assertEquals(1, loads.get());
+		for (Optional<String> result : results)
+			assertEquals("loaded", result.get());
+	}
+
+	@Test
+	public void testStats() {
+		SyncCacheMap<Integer, String> map = new SyncCacheMap<>(key -> key < 0 ? null : "v" + key);
+		map.get(1);
+		map.get(1);
+		map.get(1);
+		assertFalse(map.get(-1).isPresent());
+		CacheStats stats = map.stats();
+		assertEquals(4, stats.requestCount());
+		assertEquals(2, stats.hitCount());
+		assertEquals(2, stats.missCount());
+		assertEquals(0.5D, stats.hitRate(), 0D);
+		assertEquals(1, stats.loadSuccessCount());
+		assertEquals(1, stats.loadFailureCount());
+		assertEquals(1, map.size());
+	}
+
+}
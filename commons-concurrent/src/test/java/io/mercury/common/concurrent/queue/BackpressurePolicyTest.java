@@ -0,0 +1,99 @@
+package io.mercury.common.concurrent.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.mercury.common.collections.Capacity;
+import io.mercury.common.collections.queue.RunMode;
+import io.mercury.common.collections.queue.api.Queue.WaitingStrategy;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+
+public class BackpressurePolicyTest {
+
+	private static SpscQueueDefault<Integer> fill(BackpressurePolicy policy) {
+		SpscQueueDefault<Integer> queue = new SpscQueueDefault<>("test", Capacity.L06_SIZE_64,
+				WaitingStrategy.SpinWaiting, policy);
+		for (int i = 0; i < queue.capacity(); i++)
+			assertEquals(EnqueueStatus.Success, queue.offer(i));
+		return queue;
+	}
+
+	@Test
+	public void testFailFast() {
+		SpscQueueDefault<Integer> queue = fill(BackpressurePolicy.failFast());
+		assertEquals(EnqueueStatus.Full, queue.offer(-1));
+		assertEquals(1, queue.backpressureCounters().failFastCount());
+		assertEquals(Integer.valueOf(0), queue.poll());
+	}
+
+	@Test
+	public void testDropNewest() {
+		SpscQueueDefault<Integer> queue = fill(BackpressurePolicy.dropNewest());
+		assertEquals(EnqueueStatus.DroppedNewest, queue.offer(-1));
+		assertEquals(EnqueueStatus.DroppedNewest, queue.offer(-2));
+		assertEquals(2, queue.backpressureCounters().droppedNewestCount());
+		for (int i = 0; i < queue.capacity(); i++)
+			assertEquals(Integer.valueOf(i), queue.poll());
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testDropOldest() {
+		SpscQueueDefault<Integer> queue = fill(BackpressurePolicy.dropOldest());
+		int capacity = queue.capacity();
+		assertEquals(EnqueueStatus.DroppedOldest, queue.offer(capacity));
+		assertTrue(queue.offer(capacity + 1).isAccepted());
+		assertEquals(2, queue.backpressureCounters().droppedOldestCount());
+		// 最旧的两个元素被丢弃
+		assertEquals(Integer.valueOf(2), queue.poll());
+	}
+
+	@Test
+	public void testBlockWithDeadline() {
+		SpscQueueDefault<Integer> queue = fill(BackpressurePolicy.blockWithDeadline(20, TimeUnit.MILLISECONDS));
+		long start = System.nanoTime();
+		assertEquals(EnqueueStatus.Timeout, queue.offer(-1));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertEquals(1, queue.backpressureCounters().timeoutCount());
+		assertEquals(1, queue.backpressureCounters().blockedCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSpscQueueDefaultRejectCallerRuns() {
+		new SpscQueueDefault<Integer>("test", Capacity.L06_SIZE_64, WaitingStrategy.SpinWaiting,
+				BackpressurePolicy.callerRuns());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSpscQueueWithJCTRejectCallerRuns() {
+		SpscQueueWithJCT.newBuilder().runMode(RunMode.Manual).backpressurePolicy(BackpressurePolicy.callerRuns())
+				.build(e -> {
+				});
+	}
+
+	@Test
+	public void testSpscQueueWithJCTFailFast() {
+		SpscQueueWithJCT<Integer> queue = SpscQueueWithJCT.newBuilder().runMode(RunMode.Manual)
+				.backpressurePolicy(BackpressurePolicy.failFast()).build(e -> {
+				});
+		for (int i = 0; i < queue.capacity(); i++)
+			assertEquals(EnqueueStatus.Success, queue.offer(i));
+		assertEquals(EnqueueStatus.Full, queue.offer(-1));
+		assertEquals(1, queue.backpressureCounters().failFastCount());
+		queue.start();
+		queue.stop();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMpscArrayBlockingQueueRejectCallerRuns() {
+		MpscArrayBlockingQueue.newBuilder().runMode(RunMode.Manual).backpressurePolicy(BackpressurePolicy.callerRuns())
+				.build(e -> {
+				});
+	}
+
+}
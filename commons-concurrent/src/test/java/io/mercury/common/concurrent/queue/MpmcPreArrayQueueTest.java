@@ -0,0 +1,78 @@
+package io.mercury.common.concurrent.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+
+public class MpmcPreArrayQueueTest {
+
+	@Test
+	public void testOfferPollAndDrain() {
+		MpmcPreArrayQueue<Integer> queue = new MpmcPreArrayQueue<>(10);
+		assertEquals(16, queue.capacity());
+		assertNull(queue.poll());
+		for (int i = 0; i < 16; i++)
+			assertEquals(EnqueueStatus.Success, queue.offer(i));
+		assertEquals(EnqueueStatus.Full, queue.offer(16));
+		assertEquals(16, queue.size());
+		assertEquals(Integer.valueOf(0), queue.poll());
+		assertEquals(EnqueueStatus.Success, queue.offer(16));
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(10, queue.drain(drained::add, 10));
+		assertEquals(Integer.valueOf(1), drained.get(0));
+		assertEquals(6, queue.drain(drained::add, 100));
+		assertEquals(Integer.valueOf(16), drained.get(15));
+		assertEquals(0, queue.size());
+		// 超时返回null
+		assertNull(queue.dequeue(5, TimeUnit.MILLISECONDS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectNull() {
+		new MpmcPreArrayQueue<Integer>(16).offer(null);
+	}
+
+	@Test
+	public void testMultiProducerMultiConsumer() throws InterruptedException {
+		MpmcPreArrayQueue<Long> queue = new MpmcPreArrayQueue<Long>(64).enableMetrics();
+		int producers = 4;
+		int consumers = 4;
+		int count = 20000;
+		AtomicLong sum = new AtomicLong();
+		AtomicLong received = new AtomicLong();
+		Thread[] threads = new Thread[producers + consumers];
+		for (int p = 0; p < producers; p++) {
+			threads[p] = new Thread(() -> {
+				for (long i = 1; i <= count; i++)
+					queue.enqueue(i);
+			});
+		}
+		for (int c = 0; c < consumers; c++) {
+			threads[producers + c] = new Thread(() -> {
+				for (int i = 0; i < count; i++) {
+					sum.addAndGet(queue.dequeue());
+					received.incrementAndGet();
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join(10000);
+		// 每个元素恰好被取出一次
+		assertEquals((long) producers * count, received.get());
+		assertEquals((long) producers * count * (count + 1) / 2, sum.get());
+		assertEquals(0, queue.size());
+		assertEquals((long) producers * count, queue.stats().enqueueCount());
+		assertEquals(0, queue.stats().consumerLag());
+	}
+
+}
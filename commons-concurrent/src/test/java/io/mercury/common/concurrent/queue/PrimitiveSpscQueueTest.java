@@ -0,0 +1,95 @@
+package io.mercury.common.concurrent.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import io.mercury.common.collections.queue.api.Queue.WaitingStrategy;
+import io.mercury.common.concurrent.Await;
+
+public class PrimitiveSpscQueueTest {
+
+	@Test
+	public void testLongOfferAndDrain() {
+		LongSpscQueue queue = LongSpscQueue.manualStartQueue("test", 64, WaitingStrategy.SpinWaiting, value -> {
+		});
+		assertEquals(64, queue.capacity());
+		for (long i = 0; i < 64; i++)
+			assertTrue(queue.offer(Long.MAX_VALUE - i));
+		// 队列已满时立即返回false
+		assertFalse(queue.offer(0L));
+		assertEquals(64, queue.size());
+		long[] dst = new long[40];
+		assertEquals(40, queue.drainTo(dst));
+		assertEquals(Long.MAX_VALUE, dst[0]);
+		assertEquals(Long.MAX_VALUE - 39, dst[39]);
+		assertEquals(24, queue.drainTo(dst));
+		assertEquals(Long.MAX_VALUE - 63, dst[23]);
+		assertEquals(0, queue.drainTo(dst));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testIntAndDoubleDrainWrap() {
+		IntSpscQueue intQueue = IntSpscQueue.manualStartQueue(64, WaitingStrategy.SpinWaiting, value -> {
+		});
+		DoubleSpscQueue doubleQueue = DoubleSpscQueue.manualStartQueue(64, WaitingStrategy.SpinWaiting, value -> {
+		});
+		int[] ints = new int[16];
+		double[] doubles = new double[16];
+		// 多次回绕
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 16; i++) {
+				assertTrue(intQueue.offer(round * 16 + i));
+				assertTrue(doubleQueue.offer((round * 16 + i) * 0.5D));
+			}
+			assertEquals(16, intQueue.drainTo(ints));
+			assertEquals(16, doubleQueue.drainTo(doubles));
+			for (int i = 0; i < 16; i++) {
+				assertEquals(round * 16 + i, ints[i]);
+				assertEquals((round * 16 + i) * 0.5D, doubles[i], 0D);
+			}
+		}
+	}
+
+	@Test
+	public void testConsumerThreadInOrder() throws InterruptedException {
+		int count = 100000;
+		AtomicLong expected = new AtomicLong();
+		AtomicInteger errors = new AtomicInteger();
+		LongSpscQueue queue = LongSpscQueue.autoStartQueue(128, WaitingStrategy.BackoffWaiting, value -> {
+			if (value != expected.getAndIncrement())
+				errors.incrementAndGet();
+		});
+		for (long i = 0; i < count; i++)
+			assertTrue(queue.enqueue(i));
+		Await.until(() -> expected.get() >= count);
+		queue.stop();
+		assertEquals(count, expected.get());
+		assertEquals(0, errors.get());
+	}
+
+	@Test
+	public void testEnqueueAfterStopNotWait() throws InterruptedException {
+		LongSpscQueue queue = LongSpscQueue.manualStartQueue("test", 64, WaitingStrategy.SpinWaiting, value -> {
+		});
+		for (long i = 0; i < 64; i++)
+			assertTrue(queue.offer(i));
+		AtomicInteger result = new AtomicInteger(-1);
+		Thread producer = new Thread(() -> result.set(queue.enqueue(64L) ? 1 : 0));
+		producer.start();
+		// 队列已满时enqueue等待, stop后返回false
+		Thread.sleep(50);
+		queue.stop();
+		producer.join(5000);
+		assertFalse(producer.isAlive());
+		assertEquals(0, result.get());
+		assertFalse(queue.offer(65L));
+	}
+
+}
@@ -0,0 +1,61 @@
+package io.mercury.common.concurrent.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import io.mercury.common.collections.queue.RunMode;
+import io.mercury.common.concurrent.Await;
+
+public class SpscQueueWithJCTTest {
+
+	@Test
+	public void testEndOfBatchWhenDrainedExactlyLimit() throws InterruptedException {
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		AtomicBoolean ended = new AtomicBoolean();
+		SpscQueueWithJCT<Integer> queue = SpscQueueWithJCT.newBuilder().capacity(64).runMode(RunMode.Manual)
+				.build(16, (batch, endOfBatch) -> {
+					batch.each(received::add);
+					if (endOfBatch && received.size() == 16)
+						ended.set(true);
+				});
+		for (int i = 0; i < 16; i++)
+			queue.enqueue(i);
+		queue.start();
+		Await.until(ended::get);
+		queue.stop();
+		assertTrue(ended.get());
+		assertEquals(16, received.size());
+	}
+
+	@Test
+	public void testBatchOrder() throws InterruptedException {
+		List<Long> sequences = new CopyOnWriteArrayList<>();
+		List<Integer> received = new CopyOnWriteArrayList<>();
+		AtomicBoolean ended = new AtomicBoolean();
+		SpscQueueWithJCT<Integer> queue = SpscQueueWithJCT.newBuilder().capacity(64).build(8,
+				(batch, endOfBatch) -> {
+					for (int i = 0; i < batch.size(); i++) {
+						received.add(batch.get(i));
+						sequences.add(batch.sequence(i));
+					}
+					if (endOfBatch && received.size() == 1000)
+						ended.set(true);
+				});
+		for (int i = 0; i < 1000; i++)
+			queue.enqueue(i);
+		Await.until(ended::get);
+		queue.stop();
+		assertTrue(ended.get());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(Integer.valueOf(i), received.get(i));
+			assertEquals(Long.valueOf(i), sequences.get(i));
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+package io.mercury.common.concurrent.ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.mercury.common.codec.specific.BytesDecoder;
+import io.mercury.common.codec.specific.BytesEncoder;
+import io.mercury.common.concurrent.Await;
+
+public class MappedQueueConsumerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final BytesEncoder<Long> Encoder = value -> {
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		buffer.putLong(value).flip();
+		return buffer;
+	};
+
+	private static final BytesDecoder<Long> Decoder = ByteBuffer::getLong;
+
+	@Test
+	public void testMultiProducerOrderPerProducer() throws Exception {
+		File file = folder.newFile("order.ring");
+		try (MappedRingFile ringFile = MappedRingFile.open(file, 1 << 12)) {
+			List<Long> received = new CopyOnWriteArrayList<>();
+			MappedQueueConsumer<Long> consumer = MappedQueueConsumer.newBuilder(ringFile).build(Decoder,
+					received::add);
+			int producers = 3;
+			int count = 5000;
+			Thread[] threads = new Thread[producers];
+			for (int p = 0; p < producers; p++) {
+				long base = (long) p << 32;
+				MappedQueueProducer<Long> producer = new MappedQueueProducer<>(ringFile, 1, Encoder);
+				threads[p] = new Thread(() -> {
+					for (int i = 0; i < count; i++)
+						producer.enqueue(base + i);
+				});
+				threads[p].start();
+			}
+			for (Thread thread : threads)
+				thread.join();
+			Await.size(received, producers * count);
+			consumer.stop();
+			assertEquals(producers * count, received.size());
+			long[] next = new long[producers];
+			for (long value : received) {
+				int p = (int) (value >>> 32);
+				assertEquals(next[p]++, value & 0xFFFFFFFFL);
+			}
+		}
+	}
+
+	@Test
+	public void testSkipRecordAfterProducersExit() throws Exception {
+		File file = folder.newFile("crash.ring");
+		// 申请后未提交即关闭文件, 模拟生产者进程崩溃后释放文件锁
+		try (MappedRingFile producerFile = MappedRingFile.open(file, 1 << 12)) {
+			MappedQueueProducer<Long> producer = new MappedQueueProducer<>(producerFile, 1, Encoder);
+			assertTrue(producerFile.ringBuffer().tryClaim(1, 8) >= 0);
+			producer.enqueue(7L);
+		}
+		try (MappedRingFile ringFile = MappedRingFile.open(file, 0)) {
+			List<Long> received = new CopyOnWriteArrayList<>();
+			MappedQueueConsumer<Long> consumer = new MappedQueueConsumer<>(ringFile, Decoder, received::add, true);
+			Await.size(received, 1);
+			consumer.stop();
+			assertEquals(1, received.size());
+			assertEquals(Long.valueOf(7L), received.get(0));
+		}
+	}
+
+	@Test
+	public void testLiveProducerNeverSkipped() throws Exception {
+		File file = folder.newFile("wait.ring");
+		try (MappedRingFile producerFile = MappedRingFile.open(file, 1 << 12);
+				MappedRingFile ringFile = MappedRingFile.open(file, 0)) {
+			MappedQueueProducer<Long> producer = new MappedQueueProducer<>(producerFile, 1, Encoder);
+			int index = producerFile.ringBuffer().tryClaim(1, 8);
+			producer.enqueue(7L);
+			List<Long> received = new CopyOnWriteArrayList<>();
+			MappedQueueConsumer<Long> consumer = MappedQueueConsumer.newBuilder(ringFile).build(Decoder,
+					received::add);
+			// 超过多次存活检测的间隔, 生产者仍然持有锁
+			Thread.sleep(500);
+			assertTrue(received.isEmpty());
+			// 生产者提交后继续读取
+			producerFile.ringBuffer().buffer().putLong(index, 6L);
+			producerFile.ringBuffer().commit(index);
+			Await.size(received, 2);
+			consumer.stop();
+			assertEquals(2, received.size());
+			assertEquals(Long.valueOf(6L), received.get(0));
+			assertEquals(Long.valueOf(7L), received.get(1));
+		}
+	}
+
+	@Test
+	public void testAbortedRecordResetsStallTimer() throws Exception {
+		File file = folder.newFile("abort.ring");
+		try (MappedRingFile ringFile = MappedRingFile.open(file, 1 << 12)) {
+			// 直接使用ringBuffer写入, 需要注册为生产者
+			ringFile.registerProducer();
+			MpscByteRingBuffer ringBuffer = ringFile.ringBuffer();
+			int aborted = ringBuffer.tryClaim(1, 8);
+			List<Long> received = new CopyOnWriteArrayList<>();
+			MappedQueueConsumer<Long> consumer = MappedQueueConsumer.newBuilder(ringFile)
+					.unblockTimeout(500, TimeUnit.MILLISECONDS).build(Decoder, received::add);
+			// 停滞300ms后放弃记录, 消费者只跳过padding, 没有读取到数据
+			Thread.sleep(300);
+			ringBuffer.abort(aborted);
+			// 存活但较慢的生产者在申请300ms后提交, 两段停滞之和超过unblockTimeout, 单独都不超过
+			int index = ringBuffer.tryClaim(1, 8);
+			Thread.sleep(300);
+			ringBuffer.buffer().putLong(index, 9L);
+			ringBuffer.commit(index);
+			Await.size(received, 1);
+			Thread.sleep(50);
+			consumer.stop();
+			assertEquals(1, received.size());
+			assertEquals(Long.valueOf(9L), received.get(0));
+			assertEquals(0, ringBuffer.size());
+		}
+	}
+
+	@Test
+	public void testReattachContinuesFromLastHead() throws Exception {
+		File file = folder.newFile("reattach.ring");
+		List<Long> received = new ArrayList<>();
+		try (MappedRingFile ringFile = MappedRingFile.open(file, 1 << 12)) {
+			MappedQueueProducer<Long> producer = new MappedQueueProducer<>(ringFile, 1, Encoder);
+			for (long i = 0; i < 10; i++)
+				producer.enqueue(i);
+			assertEquals(4, ringFile.ringBuffer().read(Decoder, received::add, 4));
+		}
+		try (MappedRingFile ringFile = MappedRingFile.open(file, 0)) {
+			assertFalse(ringFile.isCreated());
+			while (ringFile.ringBuffer().read(Decoder, received::add, 16) > 0)
+				;
+		}
+		assertEquals(10, received.size());
+		for (int i = 0; i < 10; i++)
+			assertEquals(Long.valueOf(i), received.get(i));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectNegativeUnblockTimeout() throws IOException {
+		File file = folder.newFile("negative.ring");
+		try (MappedRingFile ringFile = MappedRingFile.open(file, 1 << 12)) {
+			MappedQueueConsumer.newBuilder(ringFile).unblockTimeout(-1, TimeUnit.SECONDS).manualStart()
+					.build(Decoder, value -> {
+					});
+		}
+	}
+
+}
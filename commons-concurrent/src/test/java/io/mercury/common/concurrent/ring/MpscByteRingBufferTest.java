@@ -0,0 +1,155 @@
+package io.mercury.common.concurrent.ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MpscByteRingBufferTest {
+
+	private static ByteBuffer bytes(String value) {
+		return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String string(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testWriteAndReadInOrder() {
+		MpscByteRingBuffer ringBuffer = new MpscByteRingBuffer(1024);
+		List<String> received = new ArrayList<>();
+		List<Integer> types = new ArrayList<>();
+		// heap和direct两种来源
+		assertTrue(ringBuffer.write(1, bytes("heap")));
+		ByteBuffer direct = ByteBuffer.allocateDirect(16);
+		direct.put("direct".getBytes(StandardCharsets.UTF_8)).flip();
+		assertTrue(ringBuffer.write(2, direct));
+		assertEquals(0, direct.position());
+		assertTrue(ringBuffer.write(3, bytes("")));
+		assertEquals(2, ringBuffer.read((msgTypeId, buffer) -> {
+			types.add(msgTypeId);
+			received.add(string(buffer));
+		}, 2));
+		assertEquals(1, ringBuffer.read((msgTypeId, buffer) -> {
+			types.add(msgTypeId);
+			received.add(string(buffer));
+		}, 10));
+		assertEquals(0, ringBuffer.size());
+		assertEquals("heap", received.get(0));
+		assertEquals("direct", received.get(1));
+		assertEquals("", received.get(2));
+		assertEquals(Integer.valueOf(3), types.get(2));
+	}
+
+	@Test
+	public void testWrapWithPadding() {
+		MpscByteRingBuffer ringBuffer = new MpscByteRingBuffer(1024);
+		List<String> received = new ArrayList<>();
+		for (int round = 0; round < 200; round++) {
+			String value = "value-" + round + "-" + "x".substring(0, round % 2);
+			assertTrue(ringBuffer.write(1, bytes(value)));
+			assertTrue(ringBuffer.write(1, bytes(value)));
+			ringBuffer.read((msgTypeId, buffer) -> received.add(string(buffer)), 10);
+		}
+		assertEquals(400, received.size());
+		assertEquals("value-199-x", received.get(399));
+	}
+
+	@Test
+	public void testFullReturnsFalse() {
+		// 最小容量为1024
+		MpscByteRingBuffer ringBuffer = new MpscByteRingBuffer(256);
+		assertEquals(1024, ringBuffer.capacity());
+		ByteBuffer payload = ByteBuffer.allocate(24);
+		// 每条记录 8 + 24 = 32字节
+		for (int i = 0; i < 32; i++)
+			assertTrue(ringBuffer.write(1, payload));
+		assertFalse(ringBuffer.write(1, payload));
+		assertEquals(-1, ringBuffer.tryClaim(1, 0));
+		assertEquals(1024, ringBuffer.size());
+		assertEquals(1, ringBuffer.read((msgTypeId, buffer) -> {
+		}, 1));
+		assertTrue(ringBuffer.write(1, payload));
+	}
+
+	@Test
+	public void testClaimCommitAndAbort() {
+		MpscByteRingBuffer ringBuffer = new MpscByteRingBuffer(1024);
+		int first = ringBuffer.tryClaim(1, 8);
+		int second = ringBuffer.tryClaim(1, 8);
+		ringBuffer.buffer().putLong(second, 2L);
+		ringBuffer.commit(second);
+		List<Long> received = new ArrayList<>();
+		// 第一条未提交时消费者停在该记录上
+		assertEquals(0, ringBuffer.read((msgTypeId, buffer) -> received.add(buffer.getLong()), 10));
+		ringBuffer.abort(first);
+		assertEquals(1, ringBuffer.read((msgTypeId, buffer) -> received.add(buffer.getLong()), 10));
+		assertEquals(1, received.size());
+		assertEquals(Long.valueOf(2L), received.get(0));
+	}
+
+	@Test
+	public void testUnblockUncommittedRecord() {
+		MpscByteRingBuffer ringBuffer = new MpscByteRingBuffer(1024);
+		assertFalse(ringBuffer.unblock());
+		ringBuffer.tryClaim(1, 8);
+		assertTrue(ringBuffer.write(1, bytes("after")));
+		List<String> received = new ArrayList<>();
+		assertEquals(0, ringBuffer.read((msgTypeId, buffer) -> received.add(string(buffer)), 10));
+		assertTrue(ringBuffer.unblock());
+		assertEquals(1, ringBuffer.read((msgTypeId, buffer) -> received.add(string(buffer)), 10));
+		assertEquals("after", received.get(0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectOversizeMessage() {
+		MpscByteRingBuffer ringBuffer = new MpscByteRingBuffer(64);
+		ringBuffer.tryClaim(1, ringBuffer.maxMessageLength() + 1);
+	}
+
+	@Test
+	public void testConcurrentProducers() throws InterruptedException {
+		MpscByteRingBuffer ringBuffer = new MpscByteRingBuffer(1 << 12);
+		int producers = 3;
+		int count = 20000;
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			long base = (long) p << 32;
+			threads[p] = new Thread(() -> {
+				ByteBuffer buffer = ByteBuffer.allocate(8);
+				for (int i = 0; i < count; i++) {
+					buffer.clear();
+					buffer.putLong(base + i).flip();
+					while (!ringBuffer.write(1, buffer))
+						Thread.yield();
+				}
+			});
+			threads[p].start();
+		}
+		long[] next = new long[producers];
+		int[] total = new int[1];
+		while (total[0] < producers * count) {
+			int read = ringBuffer.read((msgTypeId, buffer) -> {
+				long value = buffer.getLong();
+				int p = (int) (value >>> 32);
+				assertEquals(next[p]++, value & 0xFFFFFFFFL);
+			}, 64);
+			total[0] += read;
+			if (read == 0)
+				Thread.yield();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(0, ringBuffer.size());
+	}
+
+}
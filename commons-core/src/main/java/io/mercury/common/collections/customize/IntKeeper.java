@@ -0,0 +1,163 @@
+package io.mercury.common.collections.customize;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+
+import io.mercury.common.annotation.lang.ProtectedAbstractMethod;
+import io.mercury.common.collections.MutableLists;
+
+/**
+ * 适用于非负且密集的int键(如instrumentId, ParamKey.id()), 按键直接索引, 不经过哈希.<br>
+ * 值保存在固定大小的块中, 块创建后不再移动, 目录扩容只复制块的引用. 读取不加锁,
+ * 新值通过CAS发布, 并发创建同一个键时只有一个值被保留, 其余被丢弃. 只有创建块和扩容目录时加锁.
+ *
+ * @author yellow013
+ *
+ * @param <V>
+ */
+@ThreadSafe
+public abstract class IntKeeper<V> implements Keeper<Integer, V> {
+
+	private static final int ChunkShift = 8;
+
+	private static final int ChunkSize = 1 << ChunkShift;
+
+	private static final int ChunkMask = ChunkSize - 1;
+
+	// 只在持有锁时修改
+	private volatile AtomicReferenceArray<AtomicReferenceArray<V>> directory;
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private volatile Snapshot<V> snapshot;
+
+	private static final class Snapshot<V> {
+
+		private final int size;
+		private final ImmutableList<V> values;
+
+		private Snapshot(int size, ImmutableList<V> values) {
+			this.size = size;
+			this.values = values;
+		}
+
+	}
+
+	protected IntKeeper() {
+		this(ChunkSize);
+	}
+
+	/**
+	 *
+	 * @param initialCapacity 预计的最大键
+	 */
+	protected IntKeeper(int initialCapacity) {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("initialCapacity is illegal -> " + initialCapacity);
+		this.directory = new AtomicReferenceArray<>(Math.max((initialCapacity + ChunkMask) >>> ChunkShift, 1));
+	}
+
+	@Nonnull
+	public V acquire(int k) {
+		V v = get(k);
+		if (v != null)
+			return v;
+		AtomicReferenceArray<V> chunk = acquireChunk(k);
+		V created = createWithKey(k);
+		if (created == null)
+			throw new IllegalStateException("createWithKey return null, k -> " + k);
+		if (chunk.compareAndSet(k & ChunkMask, null, created)) {
+			size.incrementAndGet();
+			return created;
+		}
+		return chunk.get(k & ChunkMask);
+	}
+
+	@CheckForNull
+	public V get(int k) {
+		if (k < 0)
+			throw new IllegalArgumentException("k must be non-negative -> " + k);
+		AtomicReferenceArray<AtomicReferenceArray<V>> directory = this.directory;
+		int index = k >>> ChunkShift;
+		if (index >= directory.length())
+			return null;
+		AtomicReferenceArray<V> chunk = directory.get(index);
+		return chunk == null ? null : chunk.get(k & ChunkMask);
+	}
+
+	@Nonnull
+	@Override
+	public V acquire(@Nonnull Integer k) {
+		return acquire(k.intValue());
+	}
+
+	@CheckForNull
+	@Override
+	public V get(@Nonnull Integer k) {
+		return get(k.intValue());
+	}
+
+	private synchronized AtomicReferenceArray<V> acquireChunk(int k) {
+		int index = k >>> ChunkShift;
+		AtomicReferenceArray<AtomicReferenceArray<V>> directory = this.directory;
+		if (index >= directory.length()) {
+			int length = directory.length();
+			while (length <= index)
+				length = length > (1 << 22) ? (1 << 23) : length << 1;
+			AtomicReferenceArray<AtomicReferenceArray<V>> newDirectory = new AtomicReferenceArray<>(length);
+			for (int i = 0; i < directory.length(); i++)
+				newDirectory.set(i, directory.get(i));
+			this.directory = directory = newDirectory;
+		}
+		AtomicReferenceArray<V> chunk = directory.get(index);
+		if (chunk == null) {
+			chunk = new AtomicReferenceArray<>(ChunkSize);
+			directory.set(index, chunk);
+		}
+		return chunk;
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * 按键的顺序排列, 缓存结果, 只在创建新值后重新生成
+	 *
+	 * @return
+	 */
+	@Nonnull
+	public ImmutableList<V> valueList() {
+		// 先读取size, 生成期间创建的值会使下一次调用重新生成
+		int size = this.size.get();
+		Snapshot<V> snapshot = this.snapshot;
+		if (snapshot != null && snapshot.size == size)
+			return snapshot.values;
+		MutableList<V> values = MutableLists.newFastList(size);
+		AtomicReferenceArray<AtomicReferenceArray<V>> directory = this.directory;
+		for (int i = 0; i < directory.length(); i++) {
+			AtomicReferenceArray<V> chunk = directory.get(i);
+			if (chunk != null) {
+				for (int j = 0; j < ChunkSize; j++) {
+					V v = chunk.get(j);
+					if (v != null)
+						values.add(v);
+				}
+			}
+		}
+		ImmutableList<V> list = values.toImmutable();
+		this.snapshot = new Snapshot<>(size, list);
+		return list;
+	}
+
+	@ProtectedAbstractMethod
+	protected abstract V createWithKey(int k);
+
+}
@@ -3,8 +3,6 @@ package io.mercury.common.collections.map;
 import static io.mercury.common.datetime.DateTimeUtil.date;
 
 import java.time.LocalDate;
-import java.util.function.BiPredicate;
-import java.util.function.Function;
 import java.util.function.ToLongFunction;
 
 import javax.annotation.Nonnull;
@@ -15,19 +13,14 @@ import org.eclipse.collections.api.list.MutableList;
 @NotThreadSafe
 public final class LocalDateMap<V> extends TemporalMap<LocalDate, V, LocalDateMap<V>> {
 
-	private LocalDateMap(ToLongFunction<LocalDate> keyToLangFunc, Function<LocalDate, LocalDate> nextKeyFunc,
-			BiPredicate<LocalDate, LocalDate> hasNextKey) {
-		super(keyToLangFunc, nextKeyFunc, hasNextKey);
+	private LocalDateMap(ToLongFunction<LocalDate> keyToLangFunc) {
+		super(keyToLangFunc);
 	}
 
 	private static ToLongFunction<LocalDate> keyToLangFunc = key -> date(key);
-	private static Function<LocalDate, LocalDate> nextKeyFunc = key -> key.plusDays(1);
-
-	private static BiPredicate<LocalDate, LocalDate> hasNextKey = (nextKey, endPoint) -> nextKey.isBefore(endPoint)
-			|| nextKey.equals(endPoint);
 
 	public final static <V> LocalDateMap<V> newMap() {
-		return new LocalDateMap<>(keyToLangFunc, nextKeyFunc, hasNextKey);
+		return new LocalDateMap<>(keyToLangFunc);
 	}
 
 	@Override
@@ -5,8 +5,6 @@ import static io.mercury.common.datetime.DateTimeUtil.datetimeOfMinute;
 import static io.mercury.common.datetime.DateTimeUtil.datetimeOfSecond;
 
 import java.time.LocalDateTime;
-import java.util.function.BiPredicate;
-import java.util.function.Function;
 import java.util.function.ToLongFunction;
 
 import javax.annotation.Nonnull;
@@ -19,34 +17,27 @@ public final class LocalDateTimeMap<V> extends TemporalMap<LocalDateTime, V, Loc
 	 * 
 	 * @param conversionFunc
 	 */
-	private LocalDateTimeMap(ToLongFunction<LocalDateTime> keyToLangFunc,
-			Function<LocalDateTime, LocalDateTime> nextKeyFunc, BiPredicate<LocalDateTime, LocalDateTime> hasNextKey) {
-		super(keyToLangFunc, nextKeyFunc, hasNextKey);
+	private LocalDateTimeMap(ToLongFunction<LocalDateTime> keyToLangFunc) {
+		super(keyToLangFunc);
 	}
 
 	private static ToLongFunction<LocalDateTime> keyToLangFuncWithHour = key -> datetimeOfHour(key);
-	private static Function<LocalDateTime, LocalDateTime> nextKeyFuncWithHour = key -> key.plusHours(1);
 
 	private static ToLongFunction<LocalDateTime> keyToLangFuncWithMinute = key -> datetimeOfMinute(key);
-	private static Function<LocalDateTime, LocalDateTime> nextKeyFuncWithMinute = key -> key.plusMinutes(1);
 
 	private static ToLongFunction<LocalDateTime> keyToLangFuncWithSecond = key -> datetimeOfSecond(key);
-	private static Function<LocalDateTime, LocalDateTime> nextKeyFuncWithSecond = key -> key.plusSeconds(1);
-
-	private static BiPredicate<LocalDateTime, LocalDateTime> hasNextKey = (nextKey,
-			endPoint) -> nextKey.isBefore(endPoint) || nextKey.equals(endPoint);
 
 	public final static <V> LocalDateTimeMap<V> newMapToHour() {
-		return new LocalDateTimeMap<>(keyToLangFuncWithHour, nextKeyFuncWithHour, hasNextKey);
+		return new LocalDateTimeMap<>(keyToLangFuncWithHour);
 
 	}
 
 	public final static <V> LocalDateTimeMap<V> newMapToMinute() {
-		return new LocalDateTimeMap<>(keyToLangFuncWithMinute, nextKeyFuncWithMinute, hasNextKey);
+		return new LocalDateTimeMap<>(keyToLangFuncWithMinute);
 	}
 
 	public final static <V> LocalDateTimeMap<V> newMapToSecond() {
-		return new LocalDateTimeMap<>(keyToLangFuncWithSecond, nextKeyFuncWithSecond, hasNextKey);
+		return new LocalDateTimeMap<>(keyToLangFuncWithSecond);
 	}
 
 	@Override
@@ -5,8 +5,6 @@ import static io.mercury.common.datetime.DateTimeUtil.timeOfMinute;
 import static io.mercury.common.datetime.DateTimeUtil.timeOfSecond;
 
 import java.time.LocalTime;
-import java.util.function.BiPredicate;
-import java.util.function.Function;
 import java.util.function.ToLongFunction;
 
 import javax.annotation.Nonnull;
@@ -17,33 +15,26 @@ import io.mercury.common.datetime.DateTimeUtil;
 @NotThreadSafe
 public final class LocalTimeMap<V> extends TemporalMap<LocalTime, V, LocalTimeMap<V>> {
 
-	private LocalTimeMap(ToLongFunction<LocalTime> keyToLangFunc, Function<LocalTime, LocalTime> nextKeyFunc,
-			BiPredicate<LocalTime, LocalTime> hasNextKey) {
-		super(keyToLangFunc, nextKeyFunc, hasNextKey);
+	private LocalTimeMap(ToLongFunction<LocalTime> keyToLangFunc) {
+		super(keyToLangFunc);
 	}
 
 	private static ToLongFunction<LocalTime> keyToLangFuncWithHour = key -> timeOfHour(key);
-	private static Function<LocalTime, LocalTime> nextKeyFuncWithHour = key -> key.plusHours(1);
 
 	private static ToLongFunction<LocalTime> keyToLangFuncWithMinute = key -> timeOfMinute(key);
-	private static Function<LocalTime, LocalTime> nextKeyFuncWithMinute = key -> key.plusMinutes(1);
 
 	private static ToLongFunction<LocalTime> keyToLangFuncWithSecond = key -> timeOfSecond(key);
-	private static Function<LocalTime, LocalTime> nextKeyFuncWithSecond = key -> key.plusSeconds(1);
-
-	private static BiPredicate<LocalTime, LocalTime> hasNextKey = (nextKey, endPoint) -> nextKey.isBefore(endPoint)
-			|| nextKey.equals(endPoint);
 
 	public final static <V> LocalTimeMap<V> newMapToHour() {
-		return new LocalTimeMap<>(keyToLangFuncWithHour, nextKeyFuncWithHour, hasNextKey);
+		return new LocalTimeMap<>(keyToLangFuncWithHour);
 	}
 
 	public final static <V> LocalTimeMap<V> newMapToMinute() {
-		return new LocalTimeMap<>(keyToLangFuncWithMinute, nextKeyFuncWithMinute, hasNextKey);
+		return new LocalTimeMap<>(keyToLangFuncWithMinute);
 	}
 
 	public final static <V> LocalTimeMap<V> newMapToSecond() {
-		return new LocalTimeMap<>(keyToLangFuncWithSecond, nextKeyFuncWithSecond, hasNextKey);
+		return new LocalTimeMap<>(keyToLangFuncWithSecond);
 	}
 
 	@Override
@@ -3,7 +3,7 @@ package io.mercury.common.collections.map;
 import javax.annotation.CheckForNull;
 import javax.annotation.concurrent.ThreadSafe;
 
-import org.eclipse.collections.api.block.procedure.primitive.LongProcedure;
+import org.eclipse.collections.api.block.procedure.primitive.LongObjectProcedure;
 import org.eclipse.collections.api.list.MutableList;
 import org.eclipse.collections.api.map.primitive.MutableLongObjectMap;
 import org.eclipse.collections.api.set.primitive.MutableLongSet;
@@ -23,7 +23,8 @@ import io.mercury.common.collections.MutableSets;
 public final class LongRangeMap<V> {
 
 	private MutableLongObjectMap<V> savedMap;
-	private MutableLongSet savedKey;
+	// 有序索引, 用于范围查询
+	private SortedLongObjectMap<V> savedIndex;
 
 	public LongRangeMap() {
 		this(Capacity.L06_SIZE_64);
@@ -31,13 +32,12 @@ public final class LongRangeMap<V> {
 
 	public LongRangeMap(Capacity capacity) {
 		this.savedMap = MutableMaps.newLongObjectHashMap(capacity);
-		this.savedKey = MutableSets.newLongHashSet(capacity);
-
+		this.savedIndex = new SortedLongObjectMap<>();
 	}
 
 	public synchronized LongRangeMap<V> put(long key, V value) {
 		savedMap.put(key, value);
-		savedKey.add(key);
+		savedIndex.put(key, value);
 		return this;
 	}
 
@@ -48,7 +48,7 @@ public final class LongRangeMap<V> {
 
 	@CheckForNull
 	public synchronized V remove(long key) {
-		savedKey.remove(key);
+		savedIndex.remove(key);
 		return savedMap.remove(key);
 	}
 
@@ -58,40 +58,101 @@ public final class LongRangeMap<V> {
 
 	public synchronized void clear() {
 		savedMap.clear();
-		savedKey.clear();
+		savedIndex.clear();
 	}
 
+	/**
+	 * 
+	 * @param startPoint 包含
+	 * @param endPoint   包含
+	 * @return 按键递增排序
+	 */
 	public synchronized MutableList<V> scan(long startPoint, long endPoint) {
-		MutableLongSet selectKey = selectKey(startPoint, endPoint);
-		MutableList<V> selected = MutableLists.newFastList(selectKey.size());
-		operatingSelect(selectKey, key -> selected.add(get(key)));
+		MutableList<V> selected = MutableLists.newFastList(savedIndex.countInRange(startPoint, endPoint));
+		savedIndex.forEachInRange(startPoint, endPoint, (key, value) -> selected.add(value));
 		return selected;
 	}
 
+	/**
+	 * 
+	 * @param startPoint 包含
+	 * @param endPoint   包含
+	 * @return 按键递增排序
+	 */
 	public synchronized MutableList<V> remove(long startPoint, long endPoint) {
-		MutableLongSet selectKey = selectKey(startPoint, endPoint);
-		MutableList<V> removed = MutableLists.newFastList(selectKey.size());
-		operatingSelect(selectKey, key -> removed.add(remove(key)));
+		MutableList<V> removed = MutableLists.newFastList(savedIndex.countInRange(startPoint, endPoint));
+		savedIndex.removeRange(startPoint, endPoint, (key, value) -> {
+			savedMap.remove(key);
+			removed.add(value);
+		});
 		return removed;
 	}
 
-	// TODO 性能优化
-	public MutableLongSet selectKey(long startPoint, long endPoint) {
-//		MutableLongIterator longIterator = savedKey.longIterator();
-//		MutableLongSet longHashSet = MutableSets.newLongHashSet(512);
-//		while (longIterator.hasNext()) {
-//			long next = longIterator.next();
-//			if (next >= startPoint && next <= endPoint)
-//				longHashSet.add(next);
-//		}
-//		return longHashSet;
-		return savedKey.select(key -> key >= startPoint && key <= endPoint,
-				MutableSets.newLongHashSet(Capacity.L06_SIZE_64));
+	public synchronized MutableLongSet selectKey(long startPoint, long endPoint) {
+		MutableLongSet selected = MutableSets.newLongHashSet();
+		savedIndex.forEachInRange(startPoint, endPoint, (key, value) -> selected.add(key));
+		return selected;
+	}
+
+	/**
+	 * 按键递增顺序遍历[startPoint, endPoint]范围内的元素, 遍历期间持有锁, procedure中不应执行耗时操作
+	 * 
+	 * @param startPoint 包含
+	 * @param endPoint   包含
+	 * @param procedure
+	 */
+	public synchronized void forEachInRange(long startPoint, long endPoint,
+			LongObjectProcedure<? super V> procedure) {
+		savedIndex.forEachInRange(startPoint, endPoint, procedure);
+	}
+
+	/**
+	 * 按键递增顺序遍历全部元素
+	 * 
+	 * @param procedure
+	 */
+	public synchronized void forEach(LongObjectProcedure<? super V> procedure) {
+		savedIndex.forEach(procedure);
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @return 不大于key的最大键, 不存在时返回Long.MIN_VALUE
+	 */
+	public synchronized long floorKey(long key) {
+		return savedIndex.floorKey(key);
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @return 不小于key的最小键, 不存在时返回Long.MAX_VALUE
+	 */
+	public synchronized long ceilingKey(long key) {
+		return savedIndex.ceilingKey(key);
+	}
+
+	@CheckForNull
+	public synchronized V floor(long key) {
+		return savedIndex.floor(key);
+	}
+
+	@CheckForNull
+	public synchronized V ceiling(long key) {
+		return savedIndex.ceiling(key);
+	}
+
+	public synchronized long firstKey() {
+		return savedIndex.firstKey();
+	}
+
+	public synchronized long lastKey() {
+		return savedIndex.lastKey();
 	}
 
-	private void operatingSelect(MutableLongSet selectKey, LongProcedure func) {
-		if (!selectKey.isEmpty())
-			selectKey.each(key -> func.accept(key));
+	public synchronized int size() {
+		return savedMap.size();
 	}
 
 	public static void main(String[] args) {
@@ -107,13 +168,14 @@ public final class LongRangeMap<V> {
 		for (int i = 0; i < 200; i++) {
 			long startNano1 = System.nanoTime();
 			for (long l = 1000L; l < 1300L; l++) {
-				@SuppressWarnings("unused")
-				MutableLongSet selectKey = longRangeMap.selectKey(0, l);
-				// longRangeMap.get(1000, l);
+				longRangeMap.forEachInRange(0, l, (key, value) -> {
+				});
 			}
 			long endNano1 = System.nanoTime();
 			System.out.println((endNano1 - startNano1) / 1000000);
 		}
+		System.out.println(longRangeMap.floor(12000L));
+		System.out.println(longRangeMap.ceilingKey(-1L));
 
 //		MutableMap<LocalDate, String> unifiedMap = MutableMaps.newUnifiedMap();
 //
@@ -0,0 +1,470 @@
+package io.mercury.common.collections.map;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.eclipse.collections.api.block.procedure.primitive.LongObjectProcedure;
+
+/**
+ * 按long键排序的Map, 两层结构的B+树: 每个叶子为最多128个有序键值的数组, 上层为各叶子第一个键的有序数组.<br>
+ * 查找先在上层二分定位叶子, 再在叶子内二分, 为O(log n); 插入和删除在叶子内移动最多128个元素, 叶子分裂或清空时移动上层数组.<br>
+ * 按键递增顺序写入时总是追加到最后一个叶子的末尾. 范围遍历为O(log n + k)且不分配对象.
+ *
+ * @author yellow013
+ *
+ * @param <V>
+ */
+@NotThreadSafe
+public final class SortedLongObjectMap<V> {
+
+	private static final int LeafCapacity = 128;
+
+	private long[][] leafKeys;
+
+	private Object[][] leafValues;
+
+	private int[] leafSizes;
+
+	// 各叶子的第一个键
+	private long[] firstKeys;
+
+	private int leafCount;
+
+	private int size;
+
+	public SortedLongObjectMap() {
+		this(16);
+	}
+
+	/**
+	 *
+	 * @param initialLeaves 上层数组的初始长度, 每个叶子最多容纳128个键
+	 */
+	public SortedLongObjectMap(int initialLeaves) {
+		int length = Math.max(initialLeaves, 4);
+		this.leafKeys = new long[length][];
+		this.leafValues = new Object[length][];
+		this.leafSizes = new int[length];
+		this.firstKeys = new long[length];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 最后一个第一个键不大于key的叶子, 全部叶子的第一个键都大于key时返回0
+	 */
+	private int leafFor(long key) {
+		int low = 0;
+		int high = leafCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (firstKeys[mid] <= key)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		return Math.max(high, 0);
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param value
+	 * @return 原有的值
+	 */
+	@CheckForNull
+	public V put(long key, V value) {
+		if (leafCount == 0) {
+			insertLeaf(0, new long[LeafCapacity], new Object[LeafCapacity], 0);
+		}
+		int leaf = leafFor(key);
+		int index = Arrays.binarySearch(leafKeys[leaf], 0, leafSizes[leaf], key);
+		if (index >= 0) {
+			@SuppressWarnings("unchecked")
+			V previous = (V) leafValues[leaf][index];
+			leafValues[leaf][index] = value;
+			return previous;
+		}
+		index = -index - 1;
+		if (leafSizes[leaf] == LeafCapacity) {
+			// 顺序写入时只把新键放入新叶子, 否则对半分裂
+			int splitAt = index == LeafCapacity ? LeafCapacity : LeafCapacity / 2;
+			long[] keys = new long[LeafCapacity];
+			Object[] values = new Object[LeafCapacity];
+			int moved = LeafCapacity - splitAt;
+			System.arraycopy(leafKeys[leaf], splitAt, keys, 0, moved);
+			System.arraycopy(leafValues[leaf], splitAt, values, 0, moved);
+			Arrays.fill(leafValues[leaf], splitAt, LeafCapacity, null);
+			leafSizes[leaf] = splitAt;
+			insertLeaf(leaf + 1, keys, values, moved);
+			if (index >= splitAt) {
+				leaf++;
+				index -= splitAt;
+			}
+		}
+		long[] keys = leafKeys[leaf];
+		Object[] values = leafValues[leaf];
+		int leafSize = leafSizes[leaf];
+		System.arraycopy(keys, index, keys, index + 1, leafSize - index);
+		System.arraycopy(values, index, values, index + 1, leafSize - index);
+		keys[index] = key;
+		values[index] = value;
+		leafSizes[leaf] = leafSize + 1;
+		firstKeys[leaf] = keys[0];
+		size++;
+		return null;
+	}
+
+	private void insertLeaf(int position, long[] keys, Object[] values, int leafSize) {
+		if (leafCount == firstKeys.length) {
+			int length = firstKeys.length << 1;
+			this.leafKeys = Arrays.copyOf(leafKeys, length);
+			this.leafValues = Arrays.copyOf(leafValues, length);
+			this.leafSizes = Arrays.copyOf(leafSizes, length);
+			this.firstKeys = Arrays.copyOf(firstKeys, length);
+		}
+		int moved = leafCount - position;
+		System.arraycopy(leafKeys, position, leafKeys, position + 1, moved);
+		System.arraycopy(leafValues, position, leafValues, position + 1, moved);
+		System.arraycopy(leafSizes, position, leafSizes, position + 1, moved);
+		System.arraycopy(firstKeys, position, firstKeys, position + 1, moved);
+		leafKeys[position] = keys;
+		leafValues[position] = values;
+		leafSizes[position] = leafSize;
+		firstKeys[position] = leafSize > 0 ? keys[0] : 0L;
+		leafCount++;
+	}
+
+	@CheckForNull
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		if (leafCount == 0)
+			return null;
+		int leaf = leafFor(key);
+		int index = Arrays.binarySearch(leafKeys[leaf], 0, leafSizes[leaf], key);
+		return index >= 0 ? (V) leafValues[leaf][index] : null;
+	}
+
+	public boolean containsKey(long key) {
+		if (leafCount == 0)
+			return false;
+		int leaf = leafFor(key);
+		return Arrays.binarySearch(leafKeys[leaf], 0, leafSizes[leaf], key) >= 0;
+	}
+
+	@CheckForNull
+	public V remove(long key) {
+		if (leafCount == 0)
+			return null;
+		int leaf = leafFor(key);
+		int index = Arrays.binarySearch(leafKeys[leaf], 0, leafSizes[leaf], key);
+		if (index < 0)
+			return null;
+		@SuppressWarnings("unchecked")
+		V removed = (V) leafValues[leaf][index];
+		removeInLeaf(leaf, index, index + 1);
+		if (leafSizes[leaf] == 0)
+			removeLeaves(leaf, leaf + 1);
+		return removed;
+	}
+
+	/**
+	 * 移除叶子中[from, to)的元素
+	 */
+	private void removeInLeaf(int leaf, int from, int to) {
+		long[] keys = leafKeys[leaf];
+		Object[] values = leafValues[leaf];
+		int leafSize = leafSizes[leaf];
+		System.arraycopy(keys, to, keys, from, leafSize - to);
+		System.arraycopy(values, to, values, from, leafSize - to);
+		int newSize = leafSize - (to - from);
+		Arrays.fill(values, newSize, leafSize, null);
+		leafSizes[leaf] = newSize;
+		if (newSize > 0)
+			firstKeys[leaf] = keys[0];
+		size -= to - from;
+	}
+
+	/**
+	 * 移除[from, to)的叶子
+	 */
+	private void removeLeaves(int from, int to) {
+		int moved = leafCount - to;
+		System.arraycopy(leafKeys, to, leafKeys, from, moved);
+		System.arraycopy(leafValues, to, leafValues, from, moved);
+		System.arraycopy(leafSizes, to, leafSizes, from, moved);
+		System.arraycopy(firstKeys, to, firstKeys, from, moved);
+		int newCount = leafCount - (to - from);
+		Arrays.fill(leafKeys, newCount, leafCount, null);
+		Arrays.fill(leafValues, newCount, leafCount, null);
+		this.leafCount = newCount;
+	}
+
+	/**
+	 * 移除[startKey, endKey]范围内的全部元素, 被移除的元素按顺序交给procedure
+	 *
+	 * @param startKey  包含
+	 * @param endKey    包含
+	 * @param procedure 可以为null
+	 * @return 移除的数量
+	 */
+	@SuppressWarnings("unchecked")
+	public int removeRange(long startKey, long endKey, @CheckForNull LongObjectProcedure<? super V> procedure) {
+		if (leafCount == 0 || startKey > endKey)
+			return 0;
+		int removed = 0;
+		int leaf = leafFor(startKey);
+		int emptyFrom = -1;
+		int emptyTo = -1;
+		for (; leaf < leafCount; leaf++) {
+			long[] keys = leafKeys[leaf];
+			int leafSize = leafSizes[leaf];
+			int from = lowerBound(keys, leafSize, startKey);
+			int to = upperBound(keys, leafSize, endKey);
+			if (from < to) {
+				if (procedure != null) {
+					Object[] values = leafValues[leaf];
+					for (int i = from; i < to; i++)
+						procedure.value(keys[i], (V) values[i]);
+				}
+				removeInLeaf(leaf, from, to);
+				removed += to - from;
+				if (leafSizes[leaf] == 0) {
+					if (emptyFrom < 0)
+						emptyFrom = leaf;
+					emptyTo = leaf + 1;
+				}
+			}
+			if (to < leafSize)
+				break;
+		}
+		// 范围内被清空的叶子是连续的
+		if (emptyFrom >= 0)
+			removeLeaves(emptyFrom, emptyTo);
+		return removed;
+	}
+
+	private static int lowerBound(long[] keys, int length, long key) {
+		int index = Arrays.binarySearch(keys, 0, length, key);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	private static int upperBound(long[] keys, int length, long key) {
+		int index = Arrays.binarySearch(keys, 0, length, key);
+		return index >= 0 ? index + 1 : -index - 1;
+	}
+
+	/**
+	 * 按键递增顺序遍历[startKey, endKey]范围内的元素, 不分配对象
+	 *
+	 * @param startKey  包含
+	 * @param endKey    包含
+	 * @param procedure
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachInRange(long startKey, long endKey, LongObjectProcedure<? super V> procedure) {
+		if (leafCount == 0 || startKey > endKey)
+			return;
+		int leaf = leafFor(startKey);
+		int index = lowerBound(leafKeys[leaf], leafSizes[leaf], startKey);
+		for (; leaf < leafCount; leaf++, index = 0) {
+			long[] keys = leafKeys[leaf];
+			Object[] values = leafValues[leaf];
+			int leafSize = leafSizes[leaf];
+			for (; index < leafSize; index++) {
+				if (keys[index] > endKey)
+					return;
+				procedure.value(keys[index], (V) values[index]);
+			}
+		}
+	}
+
+	/**
+	 * 按键递增顺序遍历[startKey, endKey]范围内的值, 不分配对象
+	 *
+	 * @param startKey 包含
+	 * @param endKey   包含
+	 * @param consumer
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachValueInRange(long startKey, long endKey, Consumer<? super V> consumer) {
+		if (leafCount == 0 || startKey > endKey)
+			return;
+		int leaf = leafFor(startKey);
+		int index = lowerBound(leafKeys[leaf], leafSizes[leaf], startKey);
+		for (; leaf < leafCount; leaf++, index = 0) {
+			long[] keys = leafKeys[leaf];
+			Object[] values = leafValues[leaf];
+			int leafSize = leafSizes[leaf];
+			for (; index < leafSize; index++) {
+				if (keys[index] > endKey)
+					return;
+				consumer.accept((V) values[index]);
+			}
+		}
+	}
+
+	/**
+	 * 按键递增顺序遍历全部元素
+	 *
+	 * @param procedure
+	 */
+	public void forEach(LongObjectProcedure<? super V> procedure) {
+		forEachInRange(Long.MIN_VALUE, Long.MAX_VALUE, procedure);
+	}
+
+	/**
+	 *
+	 * @param startKey 包含
+	 * @param endKey   包含
+	 * @return 范围内的元素数量
+	 */
+	public int countInRange(long startKey, long endKey) {
+		if (leafCount == 0 || startKey > endKey)
+			return 0;
+		int count = 0;
+		for (int leaf = leafFor(startKey); leaf < leafCount; leaf++) {
+			int leafSize = leafSizes[leaf];
+			int from = lowerBound(leafKeys[leaf], leafSize, startKey);
+			int to = upperBound(leafKeys[leaf], leafSize, endKey);
+			count += Math.max(to - from, 0);
+			if (to < leafSize)
+				break;
+		}
+		return count;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 不大于key的最大键, 不存在时返回Long.MIN_VALUE
+	 */
+	public long floorKey(long key) {
+		long position = floorPosition(key);
+		return position < 0 ? Long.MIN_VALUE : leafKeys[leafOf(position)][indexOf(position)];
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 不小于key的最小键, 不存在时返回Long.MAX_VALUE
+	 */
+	public long ceilingKey(long key) {
+		long position = ceilingPosition(key);
+		return position < 0 ? Long.MAX_VALUE : leafKeys[leafOf(position)][indexOf(position)];
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 不大于key的最大键对应的值
+	 */
+	@CheckForNull
+	@SuppressWarnings("unchecked")
+	public V floor(long key) {
+		long position = floorPosition(key);
+		return position < 0 ? null : (V) leafValues[leafOf(position)][indexOf(position)];
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return 不小于key的最小键对应的值
+	 */
+	@CheckForNull
+	@SuppressWarnings("unchecked")
+	public V ceiling(long key) {
+		long position = ceilingPosition(key);
+		return position < 0 ? null : (V) leafValues[leafOf(position)][indexOf(position)];
+	}
+
+	/**
+	 * 位置编码为 leaf << 32 | index, 不存在时为-1
+	 */
+	private long floorPosition(long key) {
+		if (leafCount == 0)
+			return -1L;
+		int leaf = leafFor(key);
+		int index = upperBound(leafKeys[leaf], leafSizes[leaf], key) - 1;
+		// 只有第一个叶子的全部键都大于key时才会小于0
+		return index < 0 ? -1L : (long) leaf << 32 | index;
+	}
+
+	private long ceilingPosition(long key) {
+		if (leafCount == 0)
+			return -1L;
+		int leaf = leafFor(key);
+		int index = lowerBound(leafKeys[leaf], leafSizes[leaf], key);
+		if (index == leafSizes[leaf]) {
+			if (++leaf == leafCount)
+				return -1L;
+			index = 0;
+		}
+		return (long) leaf << 32 | index;
+	}
+
+	private static int leafOf(long position) {
+		return (int) (position >>> 32);
+	}
+
+	private static int indexOf(long position) {
+		return (int) position;
+	}
+
+	/**
+	 *
+	 * @return 最小键, 为空时返回Long.MAX_VALUE
+	 */
+	public long firstKey() {
+		return leafCount == 0 ? Long.MAX_VALUE : firstKeys[0];
+	}
+
+	/**
+	 *
+	 * @return 最大键, 为空时返回Long.MIN_VALUE
+	 */
+	public long lastKey() {
+		return leafCount == 0 ? Long.MIN_VALUE : leafKeys[leafCount - 1][leafSizes[leafCount - 1] - 1];
+	}
+
+	public void clear() {
+		Arrays.fill(leafKeys, 0, leafCount, null);
+		Arrays.fill(leafValues, 0, leafCount, null);
+		this.leafCount = 0;
+		this.size = 0;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append("=")
+				.append(value));
+		return builder.append("}").toString();
+	}
+
+	public static void main(String[] args) {
+
+		SortedLongObjectMap<String> map = new SortedLongObjectMap<>();
+		for (long l = 0L; l < 10000L; l++)
+			map.put(l, "l == " + l);
+		long startNano = System.nanoTime();
+		int[] count = new int[1];
+		for (long l = 1000L; l < 1300L; l++)
+			map.forEachInRange(0, l, (key, value) -> count[0]++);
+		System.out.println("scan count -> " + count[0] + ", micros -> " + (System.nanoTime() - startNano) / 1000);
+		System.out.println(map.floorKey(5000) + " " + map.ceilingKey(-1) + " " + map.lastKey());
+
+	}
+
+}
@@ -1,8 +1,7 @@
 package io.mercury.common.collections.map;
 
 import java.time.temporal.Temporal;
-import java.util.function.BiPredicate;
-import java.util.function.Function;
+import java.util.function.Consumer;
 import java.util.function.ToLongFunction;
 
 import javax.annotation.Nonnull;
@@ -15,27 +14,34 @@ import io.mercury.common.collections.Capacity;
 import io.mercury.common.collections.MutableLists;
 import io.mercury.common.collections.MutableMaps;
 
+/**
+ * 键转换为保持时间顺序的long存储, 范围查询通过有序索引只访问存在的键, 不再逐个时间单位遍历
+ * 
+ * @author yellow013
+ *
+ */
 @NotThreadSafe
 public abstract class TemporalMap<K extends Temporal, V, T extends TemporalMap<K, V, T>> {
 
 	protected ToLongFunction<K> keyToLangFunc;
 
-	private Function<K, K> nextKeyFunc;
-
-	private BiPredicate<K, K> hasNextKey;
-
 	private MutableLongObjectMap<V> savedMap;
 
-	public TemporalMap(ToLongFunction<K> keyToLangFunc, Function<K, K> nextKeyFunc, BiPredicate<K, K> hasNextKey) {
-		this(keyToLangFunc, nextKeyFunc, hasNextKey, Capacity.L07_SIZE_128);
+	// 有序索引, 用于范围查询
+	private SortedLongObjectMap<V> savedIndex;
+
+	/**
+	 * 
+	 * @param keyToLangFunc 转换结果的大小顺序必须与时间顺序一致
+	 */
+	public TemporalMap(ToLongFunction<K> keyToLangFunc) {
+		this(keyToLangFunc, Capacity.L07_SIZE_128);
 	}
 
-	public TemporalMap(ToLongFunction<K> keyToLangFunc, Function<K, K> nextKeyFunc, BiPredicate<K, K> hasNextKey,
-			Capacity capacity) {
+	public TemporalMap(ToLongFunction<K> keyToLangFunc, Capacity capacity) {
 		this.keyToLangFunc = keyToLangFunc;
-		this.nextKeyFunc = nextKeyFunc;
-		this.hasNextKey = hasNextKey;
 		this.savedMap = MutableMaps.newLongObjectHashMap(capacity);
+		this.savedIndex = new SortedLongObjectMap<>();
 	}
 
 	/**
@@ -60,35 +66,45 @@ public abstract class TemporalMap<K extends Temporal, V, T extends TemporalMap<K
 	/**
 	 * general get method
 	 * 
-	 * @param startPoint
-	 * @param endPoint
-	 * @return
+	 * @param startPoint 包含
+	 * @param endPoint   包含, startPoint在endPoint之后时只返回endPoint对应的值
+	 * @return 按时间顺序排序
 	 */
 	public MutableList<V> scan(@Nonnull K startPoint, @Nonnull K endPoint) {
 		MutableList<V> result = MutableLists.newFastList(32);
-		if (!hasNextKey.test(startPoint, endPoint))
-			return loadResult(result, get(endPoint));
-		loadResult(result, get(startPoint));
-		K nextKey = nextKeyFunc.apply(startPoint);
-		while (hasNextKey.test(nextKey, endPoint)) {
-			loadResult(result, get(nextKey));
-			nextKey = nextKeyFunc.apply(nextKey);
-		}
+		scan(startPoint, endPoint, result::add);
 		return result;
 	}
 
-	private MutableList<V> loadResult(MutableList<V> rtnList, V value) {
-		if (value != null)
-			rtnList.add(value);
-		return rtnList;
+	/**
+	 * 按时间顺序将[startPoint, endPoint]范围内的值传递给consumer, 不分配对象
+	 * 
+	 * @param startPoint 包含
+	 * @param endPoint   包含, startPoint在endPoint之后时只处理endPoint对应的值
+	 * @param consumer
+	 */
+	public void scan(@Nonnull K startPoint, @Nonnull K endPoint, @Nonnull Consumer<? super V> consumer) {
+		long startKey = keyToLangFunc.applyAsLong(startPoint);
+		long endKey = keyToLangFunc.applyAsLong(endPoint);
+		savedIndex.forEachValueInRange(startKey > endKey ? endKey : startKey, endKey, consumer);
 	}
 
 	protected MutableLongObjectMap<V> getSavedMap() {
 		return savedMap;
 	}
 
+	/**
+	 * value为null时只保存到savedMap, 范围查询跳过该键
+	 * 
+	 * @param key
+	 * @param value
+	 */
 	protected void put(long key, V value) {
 		savedMap.put(key, value);
+		if (value == null)
+			savedIndex.remove(key);
+		else
+			savedIndex.put(key, value);
 	}
 
 }
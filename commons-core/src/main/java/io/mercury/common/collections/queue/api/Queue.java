@@ -4,10 +4,27 @@ import java.util.function.Predicate;
 
 import javax.annotation.CheckForNull;
 
+import io.mercury.common.collections.queue.base.BackpressureCounters;
+import io.mercury.common.collections.queue.base.BackpressurePolicy;
+import io.mercury.common.collections.queue.base.EnqueueStatus;
+import io.mercury.common.collections.queue.base.QueueMetrics;
+import io.mercury.common.collections.queue.base.QueueStats;
+
 public interface Queue<E> {
 
 	boolean enqueue(E e);
 
+	/**
+	 * 按队列配置的BackpressurePolicy写入, 返回具体的写入结果.<br>
+	 * 默认实现只能区分成功和失败.
+	 * 
+	 * @param e
+	 * @return
+	 */
+	default EnqueueStatus offer(E e) {
+		return enqueue(e) ? EnqueueStatus.Success : EnqueueStatus.Closed;
+	}
+
 	@CheckForNull
 	default E poll() {
 		throw new UnsupportedOperationException("Interface [Queue] defined method [poll] is not implement");
@@ -19,8 +36,68 @@ public interface Queue<E> {
 
 	String name();
 
+	/**
+	 * 
+	 * @return 当前队列深度, 不支持时返回-1
+	 */
+	default int size() {
+		return -1;
+	}
+
+	/**
+	 * 
+	 * @return 队列容量, 不支持时返回-1
+	 */
+	default int capacity() {
+		return -1;
+	}
+
+	/**
+	 * 启用运行时指标, 应在开始写入前调用. 未启用时不产生任何记录开销.
+	 * 
+	 * @return
+	 */
+	default Queue<E> enableMetrics() {
+		throw new UnsupportedOperationException("Interface [Queue] defined method [enableMetrics] is not implement");
+	}
+
+	/**
+	 * 
+	 * @return 未启用指标时返回null
+	 */
+	@CheckForNull
+	default QueueMetrics metrics() {
+		return null;
+	}
+
+	/**
+	 * 
+	 * @return 不支持BackpressurePolicy时返回null
+	 */
+	@CheckForNull
+	default BackpressurePolicy backpressurePolicy() {
+		return null;
+	}
+
+	/**
+	 * 
+	 * @return 不支持BackpressurePolicy时返回null
+	 */
+	@CheckForNull
+	default BackpressureCounters backpressureCounters() {
+		return null;
+	}
+
+	default QueueStats stats() {
+		return new QueueStats(name(), size(), capacity(), metrics());
+	}
+
 	public static enum WaitingStrategy {
 		SpinWaiting, SleepWaiting,
+		/**
+		 * 使用BackoffIdleStrategy渐进退避, 生产者写入后唤醒park中的消费者
+		 */
+		BackoffWaiting,
 	}
 
 	@FunctionalInterface
@@ -3,6 +3,7 @@ package io.mercury.common.collections.queue.api;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.mercury.common.annotation.lang.ProtectedAbstractMethod;
+import io.mercury.common.collections.queue.base.QueueMetrics;
 import io.mercury.common.functional.Processor;
 import io.mercury.common.number.RandomNumber;
 
@@ -21,6 +22,11 @@ public abstract class SCQueue<E> implements Queue<E> {
 
 	protected String queueName = "SCQueue-" + Integer.toString(RandomNumber.randomUnsignedIntOfSafe());
 
+	/**
+	 * 为null时表示未启用指标
+	 */
+	protected volatile QueueMetrics metrics;
+
 	public SCQueue(Processor<E> processor) {
 		if (processor == null)
 			throw new IllegalArgumentException("processor is null...");
@@ -44,4 +50,16 @@ public abstract class SCQueue<E> implements Queue<E> {
 		return queueName;
 	}
 
+	@Override
+	public SCQueue<E> enableMetrics() {
+		if (metrics == null)
+			this.metrics = new QueueMetrics(Math.max(capacity(), 0));
+		return this;
+	}
+
+	@Override
+	public QueueMetrics metrics() {
+		return metrics;
+	}
+
 }
@@ -0,0 +1,95 @@
+package io.mercury.common.collections.queue.base;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 背压策略触发次数的计数器, 只在队列已满时更新, 因此始终启用
+ *
+ * @author yellow013
+ *
+ */
+@ThreadSafe
+public final class BackpressureCounters {
+
+	private final LongAdder blockedCount = new LongAdder();
+
+	private final LongAdder timeoutCount = new LongAdder();
+
+	private final LongAdder droppedNewestCount = new LongAdder();
+
+	private final LongAdder droppedOldestCount = new LongAdder();
+
+	private final LongAdder callerRunsCount = new LongAdder();
+
+	private final LongAdder failFastCount = new LongAdder();
+
+	/**
+	 * Block或BlockWithDeadline策略开始等待时调用
+	 */
+	public void markBlocked() {
+		blockedCount.increment();
+	}
+
+	/**
+	 * 记录队列已满时的处理结果
+	 *
+	 * @param status
+	 * @return status
+	 */
+	public EnqueueStatus record(EnqueueStatus status) {
+		switch (status) {
+		case Timeout:
+			timeoutCount.increment();
+			break;
+		case DroppedNewest:
+			droppedNewestCount.increment();
+			break;
+		case DroppedOldest:
+			droppedOldestCount.increment();
+			break;
+		case CallerRuns:
+			callerRunsCount.increment();
+			break;
+		case Full:
+			failFastCount.increment();
+			break;
+		default:
+			break;
+		}
+		return status;
+	}
+
+	public long blockedCount() {
+		return blockedCount.sum();
+	}
+
+	public long timeoutCount() {
+		return timeoutCount.sum();
+	}
+
+	public long droppedNewestCount() {
+		return droppedNewestCount.sum();
+	}
+
+	public long droppedOldestCount() {
+		return droppedOldestCount.sum();
+	}
+
+	public long callerRunsCount() {
+		return callerRunsCount.sum();
+	}
+
+	public long failFastCount() {
+		return failFastCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "{\"blocked\" : " + blockedCount() + ", \"timeout\" : " + timeoutCount() + ", \"droppedNewest\" : "
+				+ droppedNewestCount() + ", \"droppedOldest\" : " + droppedOldestCount() + ", \"callerRuns\" : "
+				+ callerRunsCount() + ", \"failFast\" : " + failFastCount() + "}";
+	}
+
+}
@@ -0,0 +1,118 @@
+package io.mercury.common.collections.queue.base;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * 队列已满时生产者的处理策略
+ *
+ * @author yellow013
+ *
+ */
+@Immutable
+public final class BackpressurePolicy {
+
+	public static enum Strategy {
+
+		/**
+		 * 一直等待直到有空位, 与原有行为一致
+		 */
+		Block,
+
+		/**
+		 * 等待到截止时间, 超时后放弃写入
+		 */
+		BlockWithDeadline,
+
+		/**
+		 * 放弃当前写入的元素
+		 */
+		DropNewest,
+
+		/**
+		 * 丢弃队列中最旧的元素后写入当前元素
+		 */
+		DropOldest,
+
+		/**
+		 * 由生产者线程直接调用processor处理当前元素
+		 */
+		CallerRuns,
+
+		/**
+		 * 立即返回{@link EnqueueStatus#Full}
+		 */
+		FailFast,
+
+	}
+
+	private static final BackpressurePolicy Block = new BackpressurePolicy(Strategy.Block, 0L);
+
+	private static final BackpressurePolicy DropNewest = new BackpressurePolicy(Strategy.DropNewest, 0L);
+
+	private static final BackpressurePolicy DropOldest = new BackpressurePolicy(Strategy.DropOldest, 0L);
+
+	private static final BackpressurePolicy CallerRuns = new BackpressurePolicy(Strategy.CallerRuns, 0L);
+
+	private static final BackpressurePolicy FailFast = new BackpressurePolicy(Strategy.FailFast, 0L);
+
+	private final Strategy strategy;
+
+	private final long deadlineNanos;
+
+	private BackpressurePolicy(Strategy strategy, long deadlineNanos) {
+		this.strategy = strategy;
+		this.deadlineNanos = deadlineNanos;
+	}
+
+	public static BackpressurePolicy block() {
+		return Block;
+	}
+
+	/**
+	 *
+	 * @param deadline 每次写入的最长等待时间
+	 * @param timeUnit
+	 * @return
+	 */
+	public static BackpressurePolicy blockWithDeadline(long deadline, TimeUnit timeUnit) {
+		if (deadline <= 0)
+			throw new IllegalArgumentException("deadline must greater than 0");
+		return new BackpressurePolicy(Strategy.BlockWithDeadline, timeUnit.toNanos(deadline));
+	}
+
+	public static BackpressurePolicy dropNewest() {
+		return DropNewest;
+	}
+
+	public static BackpressurePolicy dropOldest() {
+		return DropOldest;
+	}
+
+	public static BackpressurePolicy callerRuns() {
+		return CallerRuns;
+	}
+
+	public static BackpressurePolicy failFast() {
+		return FailFast;
+	}
+
+	public Strategy strategy() {
+		return strategy;
+	}
+
+	/**
+	 *
+	 * @return 仅BlockWithDeadline有效, 其余策略为0
+	 */
+	public long deadlineNanos() {
+		return deadlineNanos;
+	}
+
+	@Override
+	public String toString() {
+		return strategy == Strategy.BlockWithDeadline ? strategy + "(" + deadlineNanos + "ns)" : strategy.name();
+	}
+
+}
@@ -0,0 +1,99 @@
+package io.mercury.common.collections.queue.base;
+
+import java.util.function.Consumer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * 可重复使用的批量事件视图, 由队列的消费线程填充并交给
+ * {@link io.mercury.common.functional.BatchProcessor}处理.<br>
+ * 处理完成后由队列调用{@link #clear()}, 回调方不应持有该对象的引用.
+ *
+ * @author yellow013
+ *
+ * @param <E>
+ */
+@NotThreadSafe
+public final class BatchContainer<E> {
+
+	private final Object[] elements;
+
+	private final long[] sequences;
+
+	private int size;
+
+	public BatchContainer(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must greater than 0");
+		this.elements = new Object[capacity];
+		this.sequences = new long[capacity];
+	}
+
+	/**
+	 *
+	 * @param e
+	 * @param sequence
+	 * @return false if container is full
+	 */
+	public boolean loading(E e, long sequence) {
+		if (size == elements.length)
+			return false;
+		elements[size] = e;
+		sequences[size] = sequence;
+		size++;
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	public E get(int index) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException("index -> " + index + ", size -> " + size);
+		return (E) elements[index];
+	}
+
+	public long sequence(int index) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException("index -> " + index + ", size -> " + size);
+		return sequences[index];
+	}
+
+	public long firstSequence() {
+		return size == 0 ? -1L : sequences[0];
+	}
+
+	public long lastSequence() {
+		return size == 0 ? -1L : sequences[size - 1];
+	}
+
+	@SuppressWarnings("unchecked")
+	public void each(Consumer<? super E> consumer) {
+		for (int i = 0; i < size; i++)
+			consumer.accept((E) elements[i]);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return elements.length;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean isFull() {
+		return size == elements.length;
+	}
+
+	/**
+	 * 释放对已处理元素的引用
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			elements[i] = null;
+		size = 0;
+	}
+
+}
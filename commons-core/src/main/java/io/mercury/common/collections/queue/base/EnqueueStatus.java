@@ -0,0 +1,62 @@
+package io.mercury.common.collections.queue.base;
+
+/**
+ * 写入队列的结果
+ *
+ * @author yellow013
+ *
+ */
+public enum EnqueueStatus {
+
+	/**
+	 * 写入成功
+	 */
+	Success(true),
+
+	/**
+	 * 写入成功, 队列中最旧的元素被丢弃
+	 */
+	DroppedOldest(true),
+
+	/**
+	 * 队列已满, 元素已由生产者线程直接处理
+	 */
+	CallerRuns(true),
+
+	/**
+	 * 队列已满, 当前元素被丢弃
+	 */
+	DroppedNewest(false),
+
+	/**
+	 * 等待超过截止时间, 当前元素未写入
+	 */
+	Timeout(false),
+
+	/**
+	 * 队列已满, 未等待直接返回
+	 */
+	Full(false),
+
+	/**
+	 * 队列已关闭或写入线程被中断
+	 */
+	Closed(false),
+
+	;
+
+	private final boolean accepted;
+
+	private EnqueueStatus(boolean accepted) {
+		this.accepted = accepted;
+	}
+
+	/**
+	 *
+	 * @return 当前元素是否已被队列或生产者线程接收
+	 */
+	public boolean isAccepted() {
+		return accepted;
+	}
+
+}
@@ -0,0 +1,122 @@
+package io.mercury.common.collections.queue.base;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import io.mercury.common.number.recorder.LatencyHistogram;
+import io.mercury.common.util.BitOperator;
+
+/**
+ * 队列运行时指标的记录器, 由队列在启用指标后调用.<br>
+ * 驻留时间使用与队列容量相同的时间戳环记录, 入队和出队使用同一个sequence定位时间戳,
+ * 因此只适用于入队顺序和sequence顺序一致的队列.
+ *
+ * @author yellow013
+ *
+ */
+@ThreadSafe
+public final class QueueMetrics {
+
+	private final long[] enqueueNanos;
+
+	private final int mask;
+
+	private final LongAdder enqueueCount = new LongAdder();
+
+	private final LongAdder dequeueCount = new LongAdder();
+
+	private final LongAdder waitCount = new LongAdder();
+
+	private final LongAdder fullCount = new LongAdder();
+
+	private final LatencyHistogram residency = new LatencyHistogram();
+
+	/**
+	 *
+	 * @param capacity 队列容量, 为0时不记录驻留时间
+	 */
+	public QueueMetrics(int capacity) {
+		int length = capacity > 0 ? BitOperator.minPow2(capacity) : 0;
+		this.enqueueNanos = new long[length];
+		this.mask = length - 1;
+	}
+
+	/**
+	 * 生产者写入成功后调用
+	 *
+	 * @param sequence
+	 */
+	public void markEnqueue(long sequence) {
+		if (mask >= 0)
+			enqueueNanos[(int) sequence & mask] = System.nanoTime();
+		enqueueCount.increment();
+	}
+
+	/**
+	 * 已调用markEnqueue但元素最终未进入队列时调用, 例如被背压策略拒绝
+	 */
+	public void revokeEnqueue() {
+		enqueueCount.decrement();
+	}
+
+	/**
+	 * 不记录驻留时间的写入
+	 */
+	public void markEnqueue() {
+		enqueueCount.increment();
+	}
+
+	/**
+	 * 消费者取出元素后调用
+	 *
+	 * @param sequence
+	 */
+	public void markDequeue(long sequence) {
+		if (mask >= 0)
+			residency.record(System.nanoTime() - enqueueNanos[(int) sequence & mask]);
+		dequeueCount.increment();
+	}
+
+	/**
+	 * 不记录驻留时间的读取
+	 */
+	public void markDequeue() {
+		dequeueCount.increment();
+	}
+
+	/**
+	 * 生产者每次自旋或等待时调用
+	 */
+	public void markWait() {
+		waitCount.increment();
+	}
+
+	/**
+	 * 生产者发现队列已满时调用
+	 */
+	public void markFull() {
+		fullCount.increment();
+	}
+
+	public long enqueueCount() {
+		return enqueueCount.sum();
+	}
+
+	public long dequeueCount() {
+		return dequeueCount.sum();
+	}
+
+	public long waitCount() {
+		return waitCount.sum();
+	}
+
+	public long fullCount() {
+		return fullCount.sum();
+	}
+
+	public LatencyHistogram residency() {
+		return residency;
+	}
+
+}
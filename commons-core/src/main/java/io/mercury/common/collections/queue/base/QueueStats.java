@@ -0,0 +1,139 @@
+package io.mercury.common.collections.queue.base;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * 队列运行时指标快照, 未启用指标时计数类字段为0
+ *
+ * @author yellow013
+ *
+ */
+@Immutable
+public final class QueueStats {
+
+	private final String name;
+	private final int size;
+	private final int capacity;
+	private final boolean metricsEnabled;
+	private final long enqueueCount;
+	private final long dequeueCount;
+	private final long waitCount;
+	private final long fullCount;
+	private final long residencyCount;
+	private final long residencyP50;
+	private final long residencyP99;
+	private final long residencyP999;
+	private final long residencyMax;
+
+	public QueueStats(String name, int size, int capacity, @CheckForNull QueueMetrics metrics) {
+		this.name = name;
+		this.size = size;
+		this.capacity = capacity;
+		this.metricsEnabled = metrics != null;
+		if (metrics != null) {
+			this.enqueueCount = metrics.enqueueCount();
+			this.dequeueCount = metrics.dequeueCount();
+			this.waitCount = metrics.waitCount();
+			this.fullCount = metrics.fullCount();
+			this.residencyCount = metrics.residency().count();
+			this.residencyP50 = metrics.residency().percentile(50);
+			this.residencyP99 = metrics.residency().percentile(99);
+			this.residencyP999 = metrics.residency().percentile(99.9);
+			this.residencyMax = metrics.residency().max();
+		} else {
+			this.enqueueCount = 0L;
+			this.dequeueCount = 0L;
+			this.waitCount = 0L;
+			this.fullCount = 0L;
+			this.residencyCount = 0L;
+			this.residencyP50 = 0L;
+			this.residencyP99 = 0L;
+			this.residencyP999 = 0L;
+			this.residencyMax = 0L;
+		}
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/**
+	 *
+	 * @return 当前深度, 不支持时为-1
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @return 容量, 不支持时为-1
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	public int remainingCapacity() {
+		return size < 0 || capacity < 0 ? -1 : capacity - size;
+	}
+
+	/**
+	 * 已发布但消费者尚未取出的数量, 启用指标时按计数计算, 否则等于size
+	 *
+	 * @return
+	 */
+	public long consumerLag() {
+		return metricsEnabled ? enqueueCount - dequeueCount : size;
+	}
+
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+
+	public long enqueueCount() {
+		return enqueueCount;
+	}
+
+	public long dequeueCount() {
+		return dequeueCount;
+	}
+
+	public long waitCount() {
+		return waitCount;
+	}
+
+	public long fullCount() {
+		return fullCount;
+	}
+
+	public long residencyCount() {
+		return residencyCount;
+	}
+
+	public long residencyP50Nanos() {
+		return residencyP50;
+	}
+
+	public long residencyP99Nanos() {
+		return residencyP99;
+	}
+
+	public long residencyP999Nanos() {
+		return residencyP999;
+	}
+
+	public long residencyMaxNanos() {
+		return residencyMax;
+	}
+
+	@Override
+	public String toString() {
+		return "{\"name\" : \"" + name + "\", \"size\" : " + size + ", \"capacity\" : " + capacity
+				+ ", \"consumerLag\" : " + consumerLag() + ", \"enqueueCount\" : " + enqueueCount
+				+ ", \"dequeueCount\" : " + dequeueCount + ", \"waitCount\" : " + waitCount + ", \"fullCount\" : "
+				+ fullCount + ", \"residencyP50\" : " + residencyP50 + ", \"residencyP99\" : " + residencyP99
+				+ ", \"residencyP999\" : " + residencyP999 + ", \"residencyMax\" : " + residencyMax + "}";
+	}
+
+}
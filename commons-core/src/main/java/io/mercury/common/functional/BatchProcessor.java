@@ -0,0 +1,36 @@
+package io.mercury.common.functional;
+
+import io.mercury.common.collections.queue.base.BatchContainer;
+
+/**
+ * 批量处理器, 一次接收消费线程当前可读取的全部事件.<br>
+ * 当单个批次超过{@link BatchContainer#capacity()}时会被拆分为多次调用,
+ * 只有最后一次调用的endOfBatch为true, 适合在此时执行flush等操作.
+ *
+ * @author yellow013
+ *
+ * @param <T>
+ */
+@FunctionalInterface
+public interface BatchProcessor<T> {
+
+	void process(BatchContainer<T> batch, boolean endOfBatch) throws Exception;
+
+	/**
+	 * 将单个事件包装为只含一个元素的批次进行处理
+	 *
+	 * @return
+	 */
+	default Processor<T> toProcessor() {
+		BatchContainer<T> single = new BatchContainer<>(1);
+		return t -> {
+			single.loading(t, 0L);
+			try {
+				process(single, true);
+			} finally {
+				single.clear();
+			}
+		};
+	}
+
+}
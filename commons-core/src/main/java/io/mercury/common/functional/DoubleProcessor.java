@@ -0,0 +1,14 @@
+package io.mercury.common.functional;
+
+/**
+ * {@link Processor}的double版本, 避免装箱
+ *
+ * @author yellow013
+ *
+ */
+@FunctionalInterface
+public interface DoubleProcessor {
+
+	void process(double value) throws Exception;
+
+}
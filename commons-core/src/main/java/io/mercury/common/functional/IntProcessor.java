@@ -0,0 +1,14 @@
+package io.mercury.common.functional;
+
+/**
+ * {@link Processor}的int版本, 避免装箱
+ *
+ * @author yellow013
+ *
+ */
+@FunctionalInterface
+public interface IntProcessor {
+
+	void process(int value) throws Exception;
+
+}
@@ -0,0 +1,14 @@
+package io.mercury.common.functional;
+
+/**
+ * {@link Processor}的long版本, 避免装箱
+ *
+ * @author yellow013
+ *
+ */
+@FunctionalInterface
+public interface LongProcessor {
+
+	void process(long value) throws Exception;
+
+}
@@ -1,10 +1,14 @@
 package io.mercury.common.group;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.map.ConcurrentMutableMap;
+import org.eclipse.collections.api.map.MapIterable;
 
 import io.mercury.common.annotation.lang.ProtectedAbstractMethod;
 import io.mercury.common.collections.Capacity;
@@ -14,16 +18,73 @@ import io.mercury.common.collections.MutableMaps;
 @ThreadSafe
 public abstract class BaseGroup<K, V> implements Group<K, V> {
 
-	protected ConcurrentMutableMap<K, V> savedMap = MutableMaps.newConcurrentHashMap(Capacity.L04_SIZE_16);
+	// 只通过会增加version的方法修改
+	private final ConcurrentMutableMap<K, V> savedMap = MutableMaps.newConcurrentHashMap(Capacity.L04_SIZE_16);
+
+	private final MapIterable<K, V> readOnlyMap = savedMap.asUnmodifiable();
+
+	// 成员变化的次数, 用于判断memberList的缓存是否有效
+	private final AtomicInteger version = new AtomicInteger();
+
+	private volatile MemberSnapshot<V> snapshot;
+
+	private static final class MemberSnapshot<V> {
+
+		private final int version;
+		private final ImmutableList<V> members;
+
+		private MemberSnapshot(int version, ImmutableList<V> members) {
+			this.version = version;
+			this.members = members;
+		}
+
+	}
 
 	@Override
 	public V acquireMember(K k) {
-		return savedMap.getIfAbsentPutWithKey(k, this::createMember);
+		V v = savedMap.get(k);
+		if (v != null)
+			return v;
+		v = savedMap.getIfAbsentPutWithKey(k, this::createMember);
+		version.incrementAndGet();
+		return v;
+	}
+
+	/**
+	 * 
+	 * @param k
+	 * @return 被移除的成员, 不存在时返回null
+	 */
+	@CheckForNull
+	protected V removeMember(@Nonnull K k) {
+		V v = savedMap.remove(k);
+		if (v != null)
+			version.incrementAndGet();
+		return v;
+	}
+
+	/**
+	 * 替代原protected字段savedMap, 修改成员使用acquireMember/removeMember
+	 * 
+	 * @return 成员的只读视图
+	 */
+	protected MapIterable<K, V> savedMap() {
+		return readOnlyMap;
 	}
 
+	/**
+	 * 缓存结果, 只在创建或移除成员后重新生成
+	 */
 	@Override
 	public ImmutableList<V> memberList() {
-		return ImmutableLists.newList(savedMap.values());
+		// 先读取version, 生成期间加入的成员会使下一次调用重新生成
+		int version = this.version.get();
+		MemberSnapshot<V> snapshot = this.snapshot;
+		if (snapshot != null && snapshot.version == version)
+			return snapshot.members;
+		ImmutableList<V> members = ImmutableLists.newList(savedMap.values());
+		this.snapshot = new MemberSnapshot<>(version, members);
+		return members;
 	}
 
 	@Nonnull
@@ -0,0 +1,63 @@
+package io.mercury.common.group;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.eclipse.collections.api.list.ImmutableList;
+
+import io.mercury.common.annotation.lang.ProtectedAbstractMethod;
+import io.mercury.common.collections.customize.IntKeeper;
+
+/**
+ * 非负且密集的int键的Group, 使用{@link IntKeeper}保存成员, memberList按键的顺序排列
+ *
+ * @author yellow013
+ *
+ * @param <V>
+ */
+@ThreadSafe
+public abstract class IntGroup<V> implements Group<Integer, V> {
+
+	private final IntKeeper<V> keeper;
+
+	protected IntGroup() {
+		this(0);
+	}
+
+	/**
+	 *
+	 * @param initialCapacity 预计的最大键
+	 */
+	protected IntGroup(int initialCapacity) {
+		this.keeper = new IntKeeper<V>(initialCapacity) {
+			@Override
+			protected V createWithKey(int k) {
+				return createMember(k);
+			}
+		};
+	}
+
+	@Nonnull
+	public V acquireMember(int k) {
+		return keeper.acquire(k);
+	}
+
+	@Override
+	public V acquireMember(Integer k) {
+		return keeper.acquire(k.intValue());
+	}
+
+	@Override
+	public ImmutableList<V> memberList() {
+		return keeper.valueList();
+	}
+
+	public int size() {
+		return keeper.size();
+	}
+
+	@Nonnull
+	@ProtectedAbstractMethod
+	protected abstract V createMember(int k);
+
+}
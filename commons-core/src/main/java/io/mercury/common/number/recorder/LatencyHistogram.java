@@ -0,0 +1,120 @@
+package io.mercury.common.number.recorder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 低开销的延迟直方图, 记录时无分配.<br>
+ * 按2的幂分段, 每段再等分为8个子桶, 百分位结果的相对误差不超过12.5%.<br>
+ * 并发记录时读取到的结果是弱一致的.
+ *
+ * @author yellow013
+ *
+ */
+@ThreadSafe
+public final class LatencyHistogram {
+
+	private static final int SubBucketBits = 3;
+
+	private static final int SubBucketCount = 1 << SubBucketBits;
+
+	// 正数long的最高位索引最大为62
+	private static final int BucketCount = (63 - SubBucketBits + 1) * SubBucketCount;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BucketCount);
+
+	private final LongAdder total = new LongAdder();
+
+	private final AtomicLong max = new AtomicLong(0L);
+
+	/**
+	 *
+	 * @param value 负数按0记录
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts.incrementAndGet(indexOf(value));
+		total.add(value);
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value))
+			currentMax = max.get();
+	}
+
+	private static int indexOf(long value) {
+		if (value < SubBucketCount)
+			return (int) value;
+		int msb = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (msb - SubBucketBits)) & (SubBucketCount - 1);
+		return (msb - SubBucketBits + 1) * SubBucketCount + sub;
+	}
+
+	private static long upperBoundOf(int index) {
+		if (index < SubBucketCount)
+			return index;
+		int msb = index / SubBucketCount + SubBucketBits - 1;
+		int sub = index % SubBucketCount;
+		return ((long) (SubBucketCount + sub + 1) << (msb - SubBucketBits)) - 1;
+	}
+
+	public long count() {
+		long count = 0L;
+		for (int i = 0; i < BucketCount; i++)
+			count += counts.get(i);
+		return count;
+	}
+
+	public long max() {
+		return max.get();
+	}
+
+	public double mean() {
+		long count = count();
+		return count == 0 ? 0D : (double) total.sum() / count;
+	}
+
+	/**
+	 *
+	 * @param percentile 0.0 - 100.0
+	 * @return 所在子桶的上界
+	 */
+	public long percentile(double percentile) {
+		long count = count();
+		if (count == 0)
+			return 0L;
+		long target = Math.max(1L, (long) Math.ceil(count * Math.min(percentile, 100D) / 100D));
+		long cumulative = 0L;
+		for (int i = 0; i < BucketCount; i++) {
+			cumulative += counts.get(i);
+			if (cumulative >= target)
+				return Math.min(upperBoundOf(i), max.get());
+		}
+		return max.get();
+	}
+
+	public void reset() {
+		for (int i = 0; i < BucketCount; i++)
+			counts.set(i, 0L);
+		total.reset();
+		max.set(0L);
+	}
+
+	@Override
+	public String toString() {
+		return "{\"count\" : " + count() + ", \"mean\" : " + (long) mean() + ", \"p50\" : " + percentile(50)
+				+ ", \"p99\" : " + percentile(99) + ", \"p999\" : " + percentile(99.9) + ", \"max\" : " + max() + "}";
+	}
+
+	public static void main(String[] args) {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long l = 1; l <= 100000; l++)
+			histogram.record(l);
+		System.out.println(histogram);
+
+	}
+
+}
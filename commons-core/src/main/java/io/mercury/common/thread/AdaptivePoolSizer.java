@@ -0,0 +1,423 @@
+package io.mercury.common.thread;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.log.CommonLoggerFactory;
+import io.mercury.common.number.recorder.LatencyHistogram;
+
+/**
+ * 按观测到的吞吐量和排队时间周期性调整{@link CommonThreadPool}的corePoolSize, 爬山法(hill climbing).<br>
+ * <br>
+ * 每个周期根据{@link ThreadPoolMetrics}计算区间吞吐量, 平均排队时间和平均忙碌线程数(吞吐量 * 平均执行时间):
+ * <li>上一次增加线程后吞吐量下降超过阈值, 说明已过最优点, 退回(Reverse)</li>
+ * <li>有积压(排队时间超过目标或队列非空)时增加线程(Grow); 上一次增加后吞吐量没有提升则保持(Plateau)</li>
+ * <li>无积压且忙碌线程数明显少于当前大小时减少线程(Shrink)</li>
+ * 每次调整step个线程, 并限制在[minSize, maxSize]之内. 使用无界队列时线程数只由corePoolSize决定.<br>
+ * 采样任务运行在{@link ScheduleTaskExecutor}共享的时间轮上, 线程池关闭后自动停止.
+ *
+ * @author yellow013
+ *
+ */
+@ThreadSafe
+public final class AdaptivePoolSizer {
+
+	private static final Logger log = CommonLoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+	public static enum Action {
+		Hold, Grow, Shrink, Reverse, Plateau, Idle
+	}
+
+	private final CommonThreadPool threadPool;
+
+	private final ThreadPoolMetrics metrics;
+
+	private final int minSize;
+
+	private final int maxSize;
+
+	private final int step;
+
+	private final long queueWaitTargetNanos;
+
+	private final double threshold;
+
+	private final Consumer<SizingDecision> listener;
+
+	private final ArrayDeque<SizingDecision> history;
+
+	private final int historySize;
+
+	private final HashedTimingWheel.Timeout sizingTask;
+
+	// 以下字段只在定时任务中访问, 相邻两次执行不会并发
+	private long lastNanos;
+	private long lastCompleted;
+	private long lastWaitCount;
+	private double lastWaitTotal;
+	private long lastExecutionCount;
+	private double lastExecutionTotal;
+	private double lastThroughput;
+	private int lastMove;
+
+	private AdaptivePoolSizer(Builder builder) {
+		this.threadPool = builder.threadPool;
+		this.metrics = threadPool.enableMetrics().metrics();
+		this.minSize = builder.minSize;
+		this.maxSize = builder.maxSize;
+		this.step = builder.step;
+		this.queueWaitTargetNanos = builder.queueWaitTargetNanos;
+		this.threshold = builder.threshold;
+		this.listener = builder.listener;
+		this.historySize = builder.historySize;
+		this.history = new ArrayDeque<>(historySize);
+		if (threadPool.getMaximumPoolSize() < maxSize)
+			threadPool.setMaximumPoolSize(maxSize);
+		int initial = Math.max(minSize, Math.min(maxSize, threadPool.getCorePoolSize()));
+		if (initial != threadPool.getCorePoolSize())
+			threadPool.setCorePoolSize(initial);
+		this.lastNanos = System.nanoTime();
+		this.lastCompleted = metrics.completedCount();
+		this.lastWaitCount = metrics.queueWait().count();
+		this.lastWaitTotal = total(metrics.queueWait());
+		this.lastExecutionCount = metrics.execution().count();
+		this.lastExecutionTotal = total(metrics.execution());
+		this.sizingTask = ScheduleTaskExecutor.newCycleTask(builder.intervalMillis, builder.intervalMillis,
+				TimeUnit.MILLISECONDS, this::sample);
+		log.info("AdaptivePoolSizer :: Start sizing [{}], bounds -> [{}, {}], initial -> {}",
+				threadPool.threadPoolName(), minSize, maxSize, initial);
+	}
+
+	public static Builder newBuilder(CommonThreadPool threadPool) {
+		if (threadPool == null)
+			throw new IllegalArgumentException("threadPool is null...");
+		return new Builder(threadPool);
+	}
+
+	public static final class Builder {
+
+		private final CommonThreadPool threadPool;
+		private int minSize = 1;
+		private int maxSize;
+		private int step = 1;
+		private long intervalMillis = 1000L;
+		private long queueWaitTargetNanos = TimeUnit.MILLISECONDS.toNanos(1);
+		private double threshold = 0.05D;
+		private int historySize = 64;
+		private Consumer<SizingDecision> listener;
+
+		private Builder(CommonThreadPool threadPool) {
+			this.threadPool = threadPool;
+			this.maxSize = threadPool.getMaximumPoolSize();
+		}
+
+		public Builder bounds(int minSize, int maxSize) {
+			if (minSize <= 0 || maxSize < minSize)
+				throw new IllegalArgumentException("bounds must satisfy 0 < minSize <= maxSize");
+			this.minSize = minSize;
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		/**
+		 * 每次调整的线程数, 默认1
+		 *
+		 * @param step
+		 * @return
+		 */
+		public Builder step(int step) {
+			if (step <= 0)
+				throw new IllegalArgumentException("step must greater than 0");
+			this.step = step;
+			return this;
+		}
+
+		/**
+		 * 采样周期, 默认1秒, 周期内应完成足够多的任务
+		 *
+		 * @param interval
+		 * @param timeUnit
+		 * @return
+		 */
+		public Builder interval(long interval, TimeUnit timeUnit) {
+			this.intervalMillis = Math.max(timeUnit.toMillis(interval), 1L);
+			return this;
+		}
+
+		/**
+		 * 平均排队时间超过此值时视为积压, 默认1ms
+		 *
+		 * @param queueWaitTarget
+		 * @param timeUnit
+		 * @return
+		 */
+		public Builder queueWaitTarget(long queueWaitTarget, TimeUnit timeUnit) {
+			this.queueWaitTargetNanos = timeUnit.toNanos(queueWaitTarget);
+			return this;
+		}
+
+		/**
+		 * 吞吐量相对变化超过此比例时视为有效变化, 默认0.05
+		 *
+		 * @param threshold
+		 * @return
+		 */
+		public Builder threshold(double threshold) {
+			this.threshold = threshold;
+			return this;
+		}
+
+		/**
+		 * 保留最近的决策数量, 默认64
+		 *
+		 * @param historySize
+		 * @return
+		 */
+		public Builder historySize(int historySize) {
+			this.historySize = Math.max(historySize, 1);
+			return this;
+		}
+
+		/**
+		 * 每次采样后在定时线程中调用
+		 *
+		 * @param listener
+		 * @return
+		 */
+		public Builder listener(Consumer<SizingDecision> listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		/**
+		 * 启用线程池指标并开始定时采样
+		 *
+		 * @return
+		 */
+		public AdaptivePoolSizer build() {
+			return new AdaptivePoolSizer(this);
+		}
+
+	}
+
+	private static double total(LatencyHistogram histogram) {
+		return histogram.mean() * histogram.count();
+	}
+
+	private void sample() {
+		// 线程池关闭后停止采样, 避免定时任务一直存在
+		if (threadPool.isShutdown()) {
+			if (sizingTask != null && sizingTask.cancel())
+				log.info("AdaptivePoolSizer :: [{}] is shutdown, stop sizing", threadPool.threadPoolName());
+			return;
+		}
+		long now = System.nanoTime();
+		long completed = metrics.completedCount();
+		long waitCount = metrics.queueWait().count();
+		double waitTotal = total(metrics.queueWait());
+		long executionCount = metrics.execution().count();
+		double executionTotal = total(metrics.execution());
+
+		double seconds = (now - lastNanos) / 1_000_000_000D;
+		double throughput = seconds <= 0 ? 0D : (completed - lastCompleted) / seconds;
+		long waits = waitCount - lastWaitCount;
+		long meanWait = waits <= 0 ? 0L : (long) ((waitTotal - lastWaitTotal) / waits);
+		long executions = executionCount - lastExecutionCount;
+		double meanExecution = executions <= 0 ? 0D : (executionTotal - lastExecutionTotal) / executions;
+		// Little's law: 平均忙碌线程数 = 吞吐量 * 平均执行时间
+		double busyThreads = throughput * meanExecution / 1_000_000_000D;
+		int queueDepth = threadPool.getQueue().size();
+		int size = threadPool.getCorePoolSize();
+
+		double gain = lastThroughput > 0 ? (throughput - lastThroughput) / lastThroughput : 0D;
+		boolean backlog = meanWait > queueWaitTargetNanos || queueDepth > 0;
+		Action action;
+		int move;
+		if (completed == lastCompleted && queueDepth == 0) {
+			action = Action.Idle;
+			move = -step;
+		} else if (lastMove > 0 && gain < -threshold) {
+			action = Action.Reverse;
+			move = -step;
+		} else if (backlog) {
+			if (lastMove > 0 && gain < threshold) {
+				action = Action.Plateau;
+				move = 0;
+			} else {
+				action = Action.Grow;
+				move = step;
+			}
+		} else if (busyThreads < size - step) {
+			action = Action.Shrink;
+			move = -step;
+		} else {
+			action = Action.Hold;
+			move = 0;
+		}
+		int newSize = Math.max(minSize, Math.min(maxSize, size + move));
+		if (newSize != size) {
+			try {
+				threadPool.setCorePoolSize(newSize);
+			} catch (IllegalArgumentException e) {
+				log.error("AdaptivePoolSizer :: setCorePoolSize({}) failure -> {}", newSize, e.getMessage());
+				newSize = size;
+			}
+		}
+		SizingDecision decision = new SizingDecision(System.currentTimeMillis(), action, size, newSize, throughput,
+				meanWait, (long) meanExecution, busyThreads, queueDepth);
+		if (newSize != size)
+			log.info("AdaptivePoolSizer :: [{}] {}", threadPool.threadPoolName(), decision);
+		synchronized (history) {
+			if (history.size() == historySize)
+				history.pollFirst();
+			history.addLast(decision);
+		}
+		if (listener != null) {
+			try {
+				listener.accept(decision);
+			} catch (Exception e) {
+				log.error("AdaptivePoolSizer :: listener throw exception -> {}", e.getMessage(), e);
+			}
+		}
+
+		this.lastMove = newSize - size;
+		this.lastThroughput = throughput;
+		this.lastNanos = now;
+		this.lastCompleted = completed;
+		this.lastWaitCount = waitCount;
+		this.lastWaitTotal = waitTotal;
+		this.lastExecutionCount = executionCount;
+		this.lastExecutionTotal = executionTotal;
+	}
+
+	/**
+	 *
+	 * @return 最近的决策, 按时间顺序
+	 */
+	public List<SizingDecision> history() {
+		synchronized (history) {
+			return new ArrayList<>(history);
+		}
+	}
+
+	public int minSize() {
+		return minSize;
+	}
+
+	public int maxSize() {
+		return maxSize;
+	}
+
+	public int currentSize() {
+		return threadPool.getCorePoolSize();
+	}
+
+	/**
+	 * 停止采样, 线程池保持当前大小
+	 */
+	public void stop() {
+		sizingTask.cancel();
+	}
+
+	/**
+	 * 
+	 * @return 调用stop()或线程池关闭后为true
+	 */
+	public boolean isStopped() {
+		return sizingTask.isCancelled();
+	}
+
+	@Immutable
+	public static final class SizingDecision {
+
+		private final long epochMillis;
+		private final Action action;
+		private final int previousSize;
+		private final int newSize;
+		private final double throughput;
+		private final long meanQueueWaitNanos;
+		private final long meanExecutionNanos;
+		private final double busyThreads;
+		private final int queueDepth;
+
+		private SizingDecision(long epochMillis, Action action, int previousSize, int newSize, double throughput,
+				long meanQueueWaitNanos, long meanExecutionNanos, double busyThreads, int queueDepth) {
+			this.epochMillis = epochMillis;
+			this.action = action;
+			this.previousSize = previousSize;
+			this.newSize = newSize;
+			this.throughput = throughput;
+			this.meanQueueWaitNanos = meanQueueWaitNanos;
+			this.meanExecutionNanos = meanExecutionNanos;
+			this.busyThreads = busyThreads;
+			this.queueDepth = queueDepth;
+		}
+
+		public long epochMillis() {
+			return epochMillis;
+		}
+
+		public Action action() {
+			return action;
+		}
+
+		public int previousSize() {
+			return previousSize;
+		}
+
+		public int newSize() {
+			return newSize;
+		}
+
+		public double throughput() {
+			return throughput;
+		}
+
+		public long meanQueueWaitNanos() {
+			return meanQueueWaitNanos;
+		}
+
+		public long meanExecutionNanos() {
+			return meanExecutionNanos;
+		}
+
+		public double busyThreads() {
+			return busyThreads;
+		}
+
+		public int queueDepth() {
+			return queueDepth;
+		}
+
+		@Override
+		public String toString() {
+			return "{\"action\" : \"" + action + "\", \"previousSize\" : " + previousSize + ", \"newSize\" : "
+					+ newSize + ", \"throughput\" : " + (long) throughput + ", \"meanQueueWait\" : "
+					+ meanQueueWaitNanos + ", \"meanExecution\" : " + meanExecutionNanos + ", \"busyThreads\" : "
+					+ String.format("%.2f", busyThreads) + ", \"queueDepth\" : " + queueDepth + "}";
+		}
+
+	}
+
+	public static void main(String[] args) {
+
+		CommonThreadPool threadPool = CommonThreadPool.newBuilder().corePoolSize(2).build("IoPool");
+		AdaptivePoolSizer sizer = AdaptivePoolSizer.newBuilder(threadPool).bounds(2, 32)
+				.interval(500, TimeUnit.MILLISECONDS).listener(System.out::println).build();
+		for (int i = 0; i < 5000; i++)
+			threadPool.execute(() -> ThreadTool.sleep(10));
+		ThreadTool.sleep(5000);
+		sizer.stop();
+		threadPool.shutdown();
+
+	}
+
+}
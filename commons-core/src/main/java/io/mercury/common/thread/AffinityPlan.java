@@ -0,0 +1,172 @@
+package io.mercury.common.thread;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.log.CommonLoggerFactory;
+
+/**
+ * CPU亲和性计划, 声明线程可以绑定的核心.<br>
+ * 独占模式下每个启动的线程按顺序绑定一个核心, 核心用完后的线程不绑定.
+ * 共享模式下所有线程都绑定到全部核心上, 适用于线程池.
+ *
+ * @author yellow013
+ *
+ */
+@ThreadSafe
+public final class AffinityPlan {
+
+	private static final Logger log = CommonLoggerFactory.getLogger(AffinityPlan.class);
+
+	private static final Path IsolatedCpuPath = Paths.get("/sys/devices/system/cpu/isolated");
+
+	private final int[] cores;
+
+	private final boolean exclusive;
+
+	private final AtomicInteger nextIndex = new AtomicInteger(0);
+
+	private AffinityPlan(int[] cores, boolean exclusive) {
+		this.cores = cores;
+		this.exclusive = exclusive;
+	}
+
+	/**
+	 * 独占模式
+	 *
+	 * @param cores
+	 * @return
+	 */
+	public static AffinityPlan ofCores(int... cores) {
+		if (cores == null)
+			throw new IllegalArgumentException("cores is null...");
+		for (int core : cores)
+			if (core < 0)
+				throw new IllegalArgumentException("core id must not less than 0 -> " + core);
+		return new AffinityPlan(cores.clone(), true);
+	}
+
+	/**
+	 * 使用内核参数isolcpus隔离的核心, 独占模式. 没有隔离核心或无法读取时为空计划.
+	 *
+	 * @return
+	 */
+	public static AffinityPlan isolatedCores() {
+		try {
+			if (Files.isReadable(IsolatedCpuPath))
+				return new AffinityPlan(
+						parseCpuList(new String(Files.readAllBytes(IsolatedCpuPath), StandardCharsets.US_ASCII)),
+						true);
+		} catch (IOException e) {
+			log.warn("Read {} failure -> {}", IsolatedCpuPath, e.getMessage());
+		}
+		log.warn("No isolated cpu found, AffinityPlan is empty");
+		return new AffinityPlan(new int[0], true);
+	}
+
+	/**
+	 *
+	 * @return 核心相同的共享模式计划
+	 */
+	public AffinityPlan shared() {
+		return new AffinityPlan(cores, false);
+	}
+
+	/**
+	 * 解析Linux cpulist格式, 例如 "2-5,8,10-11"
+	 *
+	 * @param cpuList
+	 * @return
+	 */
+	public static int[] parseCpuList(String cpuList) {
+		String trimmed = cpuList == null ? "" : cpuList.trim();
+		if (trimmed.isEmpty())
+			return new int[0];
+		return Arrays.stream(trimmed.split(",")).map(String::trim).filter(range -> !range.isEmpty())
+				.flatMapToInt(range -> {
+					int dash = range.indexOf('-');
+					if (dash < 0)
+						return IntStream.of(Integer.parseInt(range));
+					return IntStream.rangeClosed(Integer.parseInt(range.substring(0, dash)),
+							Integer.parseInt(range.substring(dash + 1)));
+				}).toArray();
+	}
+
+	/**
+	 * 为下一个线程分配核心
+	 *
+	 * @return cpulist格式, 无可用核心时返回null
+	 */
+	@CheckForNull
+	String nextCpuList() {
+		if (cores.length == 0)
+			return null;
+		if (!exclusive)
+			return toCpuList(cores);
+		int index = nextIndex.getAndIncrement();
+		return index < cores.length ? Integer.toString(cores[index]) : null;
+	}
+
+	private static String toCpuList(int[] cores) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < cores.length; i++) {
+			if (i > 0)
+				builder.append(',');
+			builder.append(cores[i]);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 包装runnable, 在线程开始运行时绑定核心
+	 *
+	 * @param runnable
+	 * @return
+	 */
+	public Runnable wrap(Runnable runnable) {
+		return () -> {
+			ThreadAffinity.bindCurrentThread(this);
+			runnable.run();
+		};
+	}
+
+	/**
+	 * 包装threadFactory, 由其创建的线程在开始运行时绑定核心
+	 *
+	 * @param threadFactory
+	 * @return
+	 */
+	public ThreadFactory wrap(ThreadFactory threadFactory) {
+		return runnable -> threadFactory.newThread(wrap(runnable));
+	}
+
+	public int[] cores() {
+		return cores.clone();
+	}
+
+	public boolean isExclusive() {
+		return exclusive;
+	}
+
+	public boolean isEmpty() {
+		return cores.length == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "AffinityPlan(" + (exclusive ? "exclusive" : "shared") + " : [" + toCpuList(cores) + "])";
+	}
+
+}
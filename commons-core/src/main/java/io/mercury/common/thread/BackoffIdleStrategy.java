@@ -0,0 +1,153 @@
+package io.mercury.common.thread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * 渐进式退避的空闲等待策略: 先忙等maxSpins次, 再yield maxYields次, 之后park, park时长从minParkNanos开始按2倍增长至maxParkNanos.<br>
+ * 每个等待线程使用独立的实例, 可通过{@link #copy()}复制配置. idle()和reset()只能由等待线程调用,
+ * wakeup()可由任意线程调用以唤醒处于park阶段的等待线程.
+ *
+ * @author yellow013
+ *
+ */
+@NotThreadSafe
+public final class BackoffIdleStrategy {
+
+	private final int maxSpins;
+
+	private final int maxYields;
+
+	private final long minParkNanos;
+
+	private final long maxParkNanos;
+
+	private int spins;
+
+	private int yields;
+
+	private long parkNanos;
+
+	private volatile Thread parkedThread;
+
+	/**
+	 * 只用于wakeup()中的volatile写, 提供StoreLoad屏障
+	 */
+	@SuppressWarnings("unused")
+	private volatile int wakeupFence;
+
+	/**
+	 * spins 100, yields 10, park 1us ~ 1ms
+	 */
+	public BackoffIdleStrategy() {
+		this(100, 10, 1, 1000, TimeUnit.MICROSECONDS);
+	}
+
+	/**
+	 *
+	 * @param maxSpins
+	 * @param maxYields
+	 * @param minParkPeriod
+	 * @param maxParkPeriod
+	 * @param timeUnit
+	 */
+	public BackoffIdleStrategy(int maxSpins, int maxYields, long minParkPeriod, long maxParkPeriod,
+			TimeUnit timeUnit) {
+		if (maxSpins < 0 || maxYields < 0)
+			throw new IllegalArgumentException("maxSpins and maxYields must not less than 0");
+		if (minParkPeriod <= 0 || maxParkPeriod < minParkPeriod)
+			throw new IllegalArgumentException("park period must greater than 0 and min <= max");
+		this.maxSpins = maxSpins;
+		this.maxYields = maxYields;
+		this.minParkNanos = timeUnit.toNanos(minParkPeriod);
+		this.maxParkNanos = timeUnit.toNanos(maxParkPeriod);
+		this.parkNanos = minParkNanos;
+	}
+
+	/**
+	 *
+	 * @return 配置相同, 状态独立的新实例
+	 */
+	public BackoffIdleStrategy copy() {
+		return new BackoffIdleStrategy(maxSpins, maxYields, minParkNanos, maxParkNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 没有可处理的任务时调用
+	 */
+	public void idle() {
+		idle(null);
+	}
+
+	/**
+	 * 没有可处理的任务时调用.<br>
+	 * 进入park前会先发布当前线程再调用readyCondition复查, 避免在wakeup()之前检查、之后park导致的唤醒丢失.
+	 *
+	 * @param readyCondition 返回true表示已有任务, 不再park, 可为null
+	 */
+	public void idle(BooleanSupplier readyCondition) {
+		if (spins < maxSpins) {
+			spins++;
+			ThreadTool.onSpinWait();
+		} else if (yields < maxYields) {
+			yields++;
+			Thread.yield();
+		} else {
+			parkedThread = Thread.currentThread();
+			try {
+				if (readyCondition == null || !readyCondition.getAsBoolean())
+					LockSupport.parkNanos(this, parkNanos);
+			} finally {
+				parkedThread = null;
+			}
+			parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+		}
+	}
+
+	/**
+	 * 获得任务后调用, 下一次空闲重新从忙等开始
+	 */
+	public void reset() {
+		spins = 0;
+		yields = 0;
+		parkNanos = minParkNanos;
+	}
+
+	/**
+	 * 唤醒处于park阶段的等待线程.<br>
+	 * 调用方写入任务后调用, 先执行一次volatile写作为StoreLoad屏障, 保证写入任务先于读取parkedThread对等待线程可见.
+	 * 否则生产者可能读到parkedThread为null的同时, 等待线程在发布parkedThread后的复查中仍未看到任务, 导致park到超时.
+	 */
+	public void wakeup() {
+		wakeupFence = 1;
+		Thread thread = parkedThread;
+		if (thread != null)
+			LockSupport.unpark(thread);
+	}
+
+	public int maxSpins() {
+		return maxSpins;
+	}
+
+	public int maxYields() {
+		return maxYields;
+	}
+
+	public long minParkNanos() {
+		return minParkNanos;
+	}
+
+	public long maxParkNanos() {
+		return maxParkNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "BackoffIdleStrategy(spins=" + maxSpins + ", yields=" + maxYields + ", park=" + minParkNanos + "~"
+				+ maxParkNanos + "ns)";
+	}
+
+}
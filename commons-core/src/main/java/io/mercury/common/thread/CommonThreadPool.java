@@ -3,7 +3,10 @@ package io.mercury.common.thread;
 import static io.mercury.common.number.RandomNumber.randomInt;
 import static io.mercury.common.util.StringUtil.isNullOrEmpty;
 
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
@@ -11,6 +14,8 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
+import javax.annotation.CheckForNull;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,6 +33,11 @@ public final class CommonThreadPool extends ThreadPoolExecutor {
 
 	private final Logger log = LoggerFactory.getLogger(CommonThreadPool.class);
 
+	/**
+	 * 为null时表示未启用指标
+	 */
+	private volatile ThreadPoolMetrics metrics;
+
 	private CommonThreadPool(String threadPoolName, ThreadPoolBuilder builder,
 			BiConsumer<Thread, Runnable> beforeHandler, BiConsumer<Runnable, Throwable> afterHandler) {
 		super(builder.corePoolSize, builder.maximumPoolSize, builder.keepAliveTime, builder.timeUnit,
@@ -74,18 +84,180 @@ public final class CommonThreadPool extends ThreadPoolExecutor {
 		return new ThreadPoolBuilder();
 	}
 
+	/**
+	 * 启用指标时记录提交时间
+	 */
+	@Override
+	public void execute(Runnable command) {
+		ThreadPoolMetrics metrics = this.metrics;
+		if (metrics != null && command != null) {
+			metrics.markSubmit();
+			command = new TimedTask(command);
+		}
+		super.execute(command);
+	}
+
+	/**
+	 * beforeHandler抛出异常时任务不会执行, afterExecute也不会被调用, 因此在beforeHandler之后再记录开始
+	 */
 	@Override
 	protected void beforeExecute(Thread thread, Runnable runnable) {
-		log.debug("Thread name -> {}, Runnable -> {}, execute before", thread.getName(), runnable);
+		TimedTask timedTask = null;
+		if (runnable instanceof TimedTask) {
+			timedTask = (TimedTask) runnable;
+			runnable = timedTask.task;
+		}
+		if (log.isDebugEnabled())
+			log.debug("Thread name -> {}, Runnable -> {}, execute before", thread.getName(), runnable);
 		if (hasBeforeHandle)
 			beforeHandler.accept(thread, runnable);
+		if (timedTask != null) {
+			timedTask.startNanos = System.nanoTime();
+			metrics.markStart(timedTask.startNanos - timedTask.submitNanos);
+		}
 	}
 
 	@Override
 	protected void afterExecute(Runnable runnable, Throwable throwable) {
-		log.debug("Runnable -> {}, execute after", runnable);
-		if (hasAfterHandle)
-			afterHandler.accept(runnable, throwable);
+		TimedTask timedTask = null;
+		if (runnable instanceof TimedTask) {
+			timedTask = (TimedTask) runnable;
+			runnable = timedTask.task;
+		}
+		if (log.isDebugEnabled())
+			log.debug("Runnable -> {}, execute after", runnable);
+		try {
+			if (hasAfterHandle)
+				afterHandler.accept(runnable, throwable);
+		} finally {
+			if (timedTask != null)
+				metrics.markEnd(System.nanoTime() - timedTask.startNanos, throwable != null);
+		}
+	}
+
+	/**
+	 * 返回的任务为提交时的原始任务
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		List<Runnable> tasks = super.shutdownNow();
+		for (int i = 0; i < tasks.size(); i++)
+			tasks.set(i, unwrap(tasks.get(i)));
+		return tasks;
+	}
+
+	private static Runnable unwrap(Runnable runnable) {
+		return runnable instanceof TimedTask ? ((TimedTask) runnable).task : runnable;
+	}
+
+	/**
+	 * 启用指标后队列中保存的是包装对象, 按提交时的原始任务查找
+	 */
+	@Override
+	public boolean remove(Runnable task) {
+		if (metrics != null && task != null) {
+			for (Runnable queued : getQueue()) {
+				if (queued instanceof TimedTask && ((TimedTask) queued).task.equals(task))
+					return super.remove(queued);
+			}
+		}
+		return super.remove(task);
+	}
+
+	/**
+	 * 同时移除包装对象中已取消的Future
+	 */
+	@Override
+	public void purge() {
+		if (metrics != null)
+			getQueue().removeIf(queued -> {
+				Runnable task = unwrap(queued);
+				return task != queued && task instanceof Future && ((Future<?>) task).isCancelled();
+			});
+		super.purge();
+	}
+
+	/**
+	 * 启用指标后队列中的元素为包装对象, toString()返回原始任务. 移除任务应使用{@link #remove(Runnable)}
+	 */
+	@Override
+	public BlockingQueue<Runnable> getQueue() {
+		return super.getQueue();
+	}
+
+	/**
+	 * 启用排队时间, 执行时间, 活跃线程和拒绝数量等指标, 应在提交任务前调用. 未启用时不产生任何记录开销.<br>
+	 * 启用后每次提交会分配一个包装对象, {@link #getQueue()}中的元素为包装对象;
+	 * {@link #remove(Runnable)}和{@link #shutdownNow()}仍按原始任务处理.
+	 * 
+	 * @return
+	 */
+	public synchronized CommonThreadPool enableMetrics() {
+		if (metrics == null) {
+			this.metrics = new ThreadPoolMetrics();
+			setRejectedExecutionHandler(new CountingRejectedHandler(getRejectedExecutionHandler()));
+		}
+		return this;
+	}
+
+	/**
+	 * 
+	 * @return 未启用指标时返回null
+	 */
+	@CheckForNull
+	public ThreadPoolMetrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * 
+	 * @return 当前指标快照, 不修改指标状态, 可由多个调用方同时获取
+	 */
+	public ThreadPoolStats stats() {
+		return new ThreadPoolStats(this, metrics);
+	}
+
+	private static final class TimedTask implements Runnable {
+
+		private final Runnable task;
+		private final long submitNanos = System.nanoTime();
+		private long startNanos;
+
+		private TimedTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			task.run();
+		}
+
+		@Override
+		public String toString() {
+			return task.toString();
+		}
+
+	}
+
+	/**
+	 * 记录拒绝数量, 将原始任务交给原有的RejectedExecutionHandler
+	 */
+	private static final class CountingRejectedHandler implements RejectedExecutionHandler {
+
+		private final RejectedExecutionHandler delegate;
+
+		private CountingRejectedHandler(RejectedExecutionHandler delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+			ThreadPoolMetrics metrics = ((CommonThreadPool) executor).metrics;
+			if (metrics != null)
+				metrics.markRejected();
+			delegate.rejectedExecution(unwrap(runnable), executor);
+		}
+
 	}
 
 	@Override
@@ -106,6 +278,9 @@ public final class CommonThreadPool extends ThreadPoolExecutor {
 		private BlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<>();
 		private ThreadFactory threadFactory;
 		private RejectedExecutionHandler rejectedHandler;
+		private AffinityPlan affinityPlan;
+		private int maxConcurrency = 0;
+		private boolean metricsEnabled = false;
 
 		private BiConsumer<Thread, Runnable> beforeHandler;
 		private BiConsumer<Runnable, Throwable> afterHandler;
@@ -141,6 +316,40 @@ public final class CommonThreadPool extends ThreadPoolExecutor {
 			return this;
 		}
 
+		/**
+		 * 工作线程启动时按plan绑定核心, 通常使用共享模式
+		 * 
+		 * @param affinityPlan
+		 * @return
+		 */
+		public ThreadPoolBuilder affinityPlan(AffinityPlan affinityPlan) {
+			this.affinityPlan = affinityPlan;
+			return this;
+		}
+
+		/**
+		 * 仅对buildVirtual()生效, 同时执行的任务数量上限, 为0时不限制
+		 * 
+		 * @param maxConcurrency
+		 * @return
+		 */
+		public ThreadPoolBuilder maxConcurrency(int maxConcurrency) {
+			if (maxConcurrency < 0)
+				throw new IllegalArgumentException("maxConcurrency must not less than 0");
+			this.maxConcurrency = maxConcurrency;
+			return this;
+		}
+
+		/**
+		 * 创建后立即调用{@link CommonThreadPool#enableMetrics()}
+		 * 
+		 * @return
+		 */
+		public ThreadPoolBuilder enableMetrics() {
+			this.metricsEnabled = true;
+			return this;
+		}
+
 		public ThreadPoolBuilder beforeHandler(BiConsumer<Thread, Runnable> beforeHandler) {
 			this.beforeHandler = beforeHandler;
 			return this;
@@ -151,12 +360,19 @@ public final class CommonThreadPool extends ThreadPoolExecutor {
 			return this;
 		}
 
-		public ThreadPoolExecutor build() {
+		public CommonThreadPool build() {
 			return build(null);
 		}
 
-		public ThreadPoolExecutor build(String threadPoolName) {
+		public CommonThreadPool build(String threadPoolName) {
+			CommonThreadPool threadPool = newThreadPool(threadPoolName);
+			return metricsEnabled ? threadPool.enableMetrics() : threadPool;
+		}
+
+		private CommonThreadPool newThreadPool(String threadPoolName) {
 			threadPoolName = isNullOrEmpty(threadPoolName) ? "CommonThreadPool-" + randomInt() : threadPoolName;
+			ThreadFactory threadFactory = affinityPlan == null ? this.threadFactory
+					: affinityPlan.wrap(this.threadFactory != null ? this.threadFactory : Executors.defaultThreadFactory());
 			if (threadFactory != null && rejectedHandler != null)
 				return new CommonThreadPool(threadPoolName, this, threadFactory, rejectedHandler, beforeHandler,
 						afterHandler);
@@ -168,6 +384,22 @@ public final class CommonThreadPool extends ThreadPoolExecutor {
 				return new CommonThreadPool(threadPoolName, this, beforeHandler, afterHandler);
 		}
 
+		public VirtualThreadExecutor buildVirtual() {
+			return buildVirtual(null);
+		}
+
+		/**
+		 * 每个任务在独立的虚拟线程中执行, 适合阻塞IO类任务; 线程池大小, workQueue和threadFactory等参数不生效,
+		 * 使用beforeHandler, afterHandler和maxConcurrency
+		 * 
+		 * @param threadPoolName 线程名前缀
+		 * @return
+		 */
+		public VirtualThreadExecutor buildVirtual(String threadPoolName) {
+			threadPoolName = isNullOrEmpty(threadPoolName) ? "VirtualThreadExecutor-" + randomInt() : threadPoolName;
+			return new VirtualThreadExecutor(threadPoolName, maxConcurrency, beforeHandler, afterHandler);
+		}
+
 	}
 
 	public static void main(String[] args) {
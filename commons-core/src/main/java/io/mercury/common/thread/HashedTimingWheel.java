@@ -0,0 +1,417 @@
+package io.mercury.common.thread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.log.CommonLoggerFactory;
+
+/**
+ * 分层时间轮, 由单个驱动线程推进, 可以同时持有大量定时任务.<br>
+ * <br>
+ * 共4层, 第0层256个槽位, 每个槽位为一个tick; 第1至3层各64个槽位, 每个槽位分别覆盖2^8, 2^14, 2^20个tick.
+ * 第0层转完一圈时, 上一层的当前槽位被拆分到下一层(cascade). 超过2^26个tick的任务放在第3层, 到期前会被重复拆分.<br>
+ * 任意线程调用newTimeout和cancel只做一次CAS, 将节点放入无锁栈; 槽位链表只由驱动线程修改, 插入和删除都是O(1).<br>
+ * 同一次推进中到期的任务按batchSize分批提交到executor, 未指定executor时在驱动线程中直接执行.
+ *
+ * @author yellow013
+ *
+ */
+@ThreadSafe
+public final class HashedTimingWheel {
+
+	private static final Logger log = CommonLoggerFactory.getLogger(HashedTimingWheel.class);
+
+	private static final int Level0Bits = 8;
+	private static final int LevelBits = 6;
+	private static final int Level0Size = 1 << Level0Bits;
+	private static final int LevelSize = 1 << LevelBits;
+	private static final int Level0Mask = Level0Size - 1;
+	private static final int LevelMask = LevelSize - 1;
+	private static final int Levels = 4;
+	// 第3层可以表示的最大tick跨度
+	private static final long MaxSpan = 1L << (Level0Bits + LevelBits * (Levels - 1));
+
+	private static final int Waiting = 0;
+	private static final int Cancelled = 1;
+	private static final int Expired = 2;
+
+	// 各层槽位连续存放, 第n层第i个槽位的下标为offset(n) + i
+	private final WheelTimeout[] buckets = new WheelTimeout[Level0Size + LevelSize * (Levels - 1)];
+
+	private final AtomicReference<WheelTimeout> pendingStack = new AtomicReference<>();
+
+	private final AtomicReference<WheelTimeout> cancelledStack = new AtomicReference<>();
+
+	private final AtomicLong pendingCount = new AtomicLong();
+
+	private final long tickNanos;
+
+	private final long startNanos;
+
+	private final Executor executor;
+
+	private final int batchSize;
+
+	private final Thread driver;
+
+	private volatile boolean isRun = true;
+
+	// 驱动线程独占
+	private long currentTick;
+
+	private final List<WheelTimeout> expired = new ArrayList<>();
+
+	private HashedTimingWheel(Builder builder) {
+		this.tickNanos = builder.tickNanos;
+		this.executor = builder.executor;
+		this.batchSize = builder.batchSize;
+		this.startNanos = System.nanoTime();
+		this.driver = new Thread(this::runLoop, builder.threadName);
+		driver.setDaemon(true);
+		driver.start();
+	}
+
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	public static final class Builder {
+
+		private long tickNanos = TimeUnit.MILLISECONDS.toNanos(1);
+		private Executor executor;
+		private int batchSize = 256;
+		private String threadName = "HashedTimingWheel-Driver";
+
+		private Builder() {
+		}
+
+		/**
+		 * 每个tick的时长, 也是定时精度, 默认1ms
+		 *
+		 * @param tick
+		 * @param timeUnit
+		 * @return
+		 */
+		public Builder tickDuration(long tick, TimeUnit timeUnit) {
+			long nanos = timeUnit.toNanos(tick);
+			if (nanos <= 0)
+				throw new IllegalArgumentException("tick duration must greater than 0");
+			this.tickNanos = nanos;
+			return this;
+		}
+
+		/**
+		 * 执行到期任务的Executor, 默认在驱动线程中执行
+		 *
+		 * @param executor
+		 * @return
+		 */
+		public Builder executor(Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * 每次提交到executor的最大任务数, 默认256
+		 *
+		 * @param batchSize
+		 * @return
+		 */
+		public Builder batchSize(int batchSize) {
+			if (batchSize <= 0)
+				throw new IllegalArgumentException("batchSize must greater than 0");
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		public Builder threadName(String threadName) {
+			this.threadName = threadName;
+			return this;
+		}
+
+		public HashedTimingWheel build() {
+			return new HashedTimingWheel(this);
+		}
+
+	}
+
+	/**
+	 * 定时任务的句柄
+	 */
+	public interface Timeout {
+
+		/**
+		 *
+		 * @return 任务尚未执行且取消成功时返回true
+		 */
+		boolean cancel();
+
+		boolean isCancelled();
+
+		boolean isExpired();
+
+		Runnable task();
+
+	}
+
+	/**
+	 *
+	 * @param delay
+	 * @param timeUnit
+	 * @param task
+	 * @return
+	 */
+	public Timeout newTimeout(long delay, TimeUnit timeUnit, Runnable task) {
+		if (task == null)
+			throw new IllegalArgumentException("task is null...");
+		if (!isRun)
+			throw new IllegalStateException("HashedTimingWheel is stopped");
+		long elapsed = System.nanoTime() - startNanos + Math.max(timeUnit.toNanos(delay), 0L);
+		// 向上取整, 保证不会提前执行
+		WheelTimeout timeout = new WheelTimeout(task, (elapsed + tickNanos - 1) / tickNanos);
+		pendingCount.incrementAndGet();
+		WheelTimeout head;
+		do {
+			head = pendingStack.get();
+			timeout.stackNext = head;
+		} while (!pendingStack.compareAndSet(head, timeout));
+		return timeout;
+	}
+
+	/**
+	 *
+	 * @return 尚未到期且未取消的任务数量
+	 */
+	public long pendingTimeouts() {
+		return pendingCount.get();
+	}
+
+	/**
+	 * 停止驱动线程, 尚未到期的任务不再执行
+	 */
+	public void stop() {
+		this.isRun = false;
+		LockSupport.unpark(driver);
+	}
+
+	private void runLoop() {
+		while (isRun) {
+			long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+			if (currentTick > targetTick) {
+				LockSupport.parkNanos(startNanos + currentTick * tickNanos - System.nanoTime());
+				continue;
+			}
+			transferPending();
+			transferCancelled();
+			while (currentTick <= targetTick) {
+				if (currentTick != 0 && (currentTick & Level0Mask) == 0)
+					cascade(1);
+				int index = (int) currentTick & Level0Mask;
+				WheelTimeout timeout = buckets[index];
+				buckets[index] = null;
+				while (timeout != null) {
+					WheelTimeout next = timeout.next;
+					timeout.prev = timeout.next = null;
+					timeout.bucket = -1;
+					if (timeout.state.compareAndSet(Waiting, Expired)) {
+						pendingCount.decrementAndGet();
+						expired.add(timeout);
+					}
+					timeout = next;
+				}
+				currentTick++;
+			}
+			dispatch();
+		}
+	}
+
+	/**
+	 * 将上一层当前槽位中的任务重新插入, 上一层也转完一圈时先处理更上一层
+	 *
+	 * @param level
+	 */
+	private void cascade(int level) {
+		int shift = Level0Bits + LevelBits * (level - 1);
+		int index = (int) (currentTick >>> shift) & LevelMask;
+		if (index == 0 && level + 1 < Levels)
+			cascade(level + 1);
+		int bucket = offset(level) + index;
+		WheelTimeout timeout = buckets[bucket];
+		buckets[bucket] = null;
+		while (timeout != null) {
+			WheelTimeout next = timeout.next;
+			timeout.prev = timeout.next = null;
+			insert(timeout);
+			timeout = next;
+		}
+	}
+
+	private static int offset(int level) {
+		return level == 0 ? 0 : Level0Size + LevelSize * (level - 1);
+	}
+
+	private void insert(WheelTimeout timeout) {
+		long deadline = Math.max(timeout.deadlineTick, currentTick);
+		long delta = deadline - currentTick;
+		int bucket;
+		if (delta < Level0Size)
+			bucket = (int) deadline & Level0Mask;
+		else if (delta < 1L << (Level0Bits + LevelBits))
+			bucket = offset(1) + ((int) (deadline >>> Level0Bits) & LevelMask);
+		else if (delta < 1L << (Level0Bits + LevelBits * 2))
+			bucket = offset(2) + ((int) (deadline >>> (Level0Bits + LevelBits)) & LevelMask);
+		else {
+			// 超出范围时放在第3层最远的槽位, 拆分时重新计算
+			if (delta >= MaxSpan)
+				deadline = currentTick + MaxSpan - 1;
+			bucket = offset(3) + ((int) (deadline >>> (Level0Bits + LevelBits * 2)) & LevelMask);
+		}
+		WheelTimeout head = buckets[bucket];
+		timeout.next = head;
+		if (head != null)
+			head.prev = timeout;
+		buckets[bucket] = timeout;
+		timeout.bucket = bucket;
+	}
+
+	private void transferPending() {
+		WheelTimeout timeout = pendingStack.getAndSet(null);
+		while (timeout != null) {
+			WheelTimeout next = timeout.stackNext;
+			timeout.stackNext = null;
+			if (timeout.state.get() == Waiting)
+				insert(timeout);
+			timeout = next;
+		}
+	}
+
+	private void transferCancelled() {
+		WheelTimeout timeout = cancelledStack.getAndSet(null);
+		while (timeout != null) {
+			WheelTimeout next = timeout.cancelledNext;
+			timeout.cancelledNext = null;
+			unlink(timeout);
+			timeout = next;
+		}
+	}
+
+	private void unlink(WheelTimeout timeout) {
+		int bucket = timeout.bucket;
+		// 仍在pendingStack中或已被移出槽位
+		if (bucket < 0)
+			return;
+		if (timeout.prev != null)
+			timeout.prev.next = timeout.next;
+		else
+			buckets[bucket] = timeout.next;
+		if (timeout.next != null)
+			timeout.next.prev = timeout.prev;
+		timeout.prev = timeout.next = null;
+		timeout.bucket = -1;
+	}
+
+	private void dispatch() {
+		int size = expired.size();
+		if (size == 0)
+			return;
+		if (executor == null)
+			runBatch(expired.toArray(new WheelTimeout[size]));
+		else {
+			for (int from = 0; from < size; from += batchSize) {
+				WheelTimeout[] batch = expired.subList(from, Math.min(from + batchSize, size))
+						.toArray(new WheelTimeout[0]);
+				try {
+					executor.execute(() -> runBatch(batch));
+				} catch (Exception e) {
+					log.error("HashedTimingWheel :: executor.execute() throw exception -> {}", e.getMessage(), e);
+				}
+			}
+		}
+		expired.clear();
+	}
+
+	private static void runBatch(WheelTimeout[] batch) {
+		for (WheelTimeout timeout : batch) {
+			try {
+				timeout.task.run();
+			} catch (Exception e) {
+				log.error("HashedTimingWheel :: Timeout task throw exception -> {}", e.getMessage(), e);
+			}
+		}
+	}
+
+	private final class WheelTimeout implements Timeout {
+
+		private final Runnable task;
+		private final long deadlineTick;
+		private final AtomicInteger state = new AtomicInteger(Waiting);
+
+		// 以下字段由驱动线程修改
+		private WheelTimeout prev;
+		private WheelTimeout next;
+		private int bucket = -1;
+
+		private WheelTimeout stackNext;
+		private WheelTimeout cancelledNext;
+
+		private WheelTimeout(Runnable task, long deadlineTick) {
+			this.task = task;
+			this.deadlineTick = deadlineTick;
+		}
+
+		@Override
+		public boolean cancel() {
+			if (!state.compareAndSet(Waiting, Cancelled))
+				return false;
+			pendingCount.decrementAndGet();
+			WheelTimeout head;
+			do {
+				head = cancelledStack.get();
+				this.cancelledNext = head;
+			} while (!cancelledStack.compareAndSet(head, this));
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return state.get() == Cancelled;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return state.get() == Expired;
+		}
+
+		@Override
+		public Runnable task() {
+			return task;
+		}
+
+	}
+
+	public static void main(String[] args) {
+
+		HashedTimingWheel wheel = HashedTimingWheel.newBuilder().tickDuration(10, TimeUnit.MILLISECONDS).build();
+		long start = System.nanoTime();
+		for (int i = 1; i <= 5; i++) {
+			int delay = i * 300;
+			wheel.newTimeout(delay, TimeUnit.MILLISECONDS, () -> System.out
+					.println("delay " + delay + "ms, actual " + (System.nanoTime() - start) / 1000000 + "ms"));
+		}
+		wheel.newTimeout(200, TimeUnit.MILLISECONDS, () -> System.out.println("never")).cancel();
+		ThreadTool.sleep(2000);
+		wheel.stop();
+
+	}
+
+}
@@ -7,8 +7,11 @@ import java.time.LocalTime;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 
@@ -22,62 +25,294 @@ public final class ScheduleTaskExecutor {
 
 	private static Logger log = CommonLoggerFactory.getLogger(ScheduleTaskExecutor.class);
 
+	/**
+	 * 共享的时间轮, 首次调用时创建, tick为1ms.<br>
+	 * 同一tick到期的任务由时间轮按32个一批交给Runner线程执行, 任务阻塞不会影响时间轮的推进,
+	 * 但会推迟同一批中之后的任务. Runner线程数固定为CPU核心数(至少2个), 空闲60秒后回收.
+	 */
+	private static final class TimingWheelHolder {
+
+		private static final AtomicInteger RunnerIndex = new AtomicInteger();
+
+		private static final ThreadPoolExecutor TaskRunner = newTaskRunner(
+				Math.max(CurrentRuntime.availableProcessors(), 2));
+
+		private static final HashedTimingWheel TimingWheel = HashedTimingWheel.newBuilder()
+				.threadName("ScheduleTaskExecutor-TimingWheel").executor(TaskRunner).batchSize(32).build();
+
+		private static ThreadPoolExecutor newTaskRunner(int threads) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), runnable -> {
+						Thread thread = new Thread(runnable,
+								"ScheduleTaskExecutor-Runner-" + RunnerIndex.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+			executor.allowCoreThreadTimeOut(true);
+			return executor;
+		}
+
+	}
+
+	/**
+	 * 在共享的{@link HashedTimingWheel}中创建一次性定时任务, 不会为每个任务创建线程.<br>
+	 * 任务在共享的Runner线程中执行, 异常被记录后忽略.
+	 * 
+	 * @param firstTime
+	 * @param runnable
+	 * @return
+	 */
+	public static HashedTimingWheel.Timeout newTimeout(LocalDateTime firstTime, Runnable runnable) {
+		return newTimeout(Duration.between(LocalDateTime.now(), firstTime).toMillis(), TimeUnit.MILLISECONDS,
+				runnable);
+	}
+
+	/**
+	 * 在共享的{@link HashedTimingWheel}中创建一次性定时任务, 不会为每个任务创建线程.<br>
+	 * 任务在共享的Runner线程中执行, 异常被记录后忽略.
+	 * 
+	 * @param delay
+	 * @param unit
+	 * @param runnable
+	 * @return
+	 */
+	public static HashedTimingWheel.Timeout newTimeout(long delay, TimeUnit unit, Runnable runnable) {
+		return TimingWheelHolder.TimingWheel.newTimeout(delay, unit, runnable);
+	}
+
+	public static HashedTimingWheel.Timeout newDelayTask(LocalDateTime firstTime, Runnable runnable) {
+		return newDelayTask(Duration.between(LocalDateTime.now(), firstTime).toMillis(), TimeUnit.MILLISECONDS,
+				runnable);
+	}
+
+	/**
+	 * 使用共享的时间轮的一次性任务, 与newTimeout相同, runnable不能为null
+	 * 
+	 * @param delay
+	 * @param unit
+	 * @param runnable
+	 * @return
+	 */
+	public static HashedTimingWheel.Timeout newDelayTask(long delay, TimeUnit unit, Runnable runnable) {
+		if (runnable == null)
+			throw new IllegalArgumentException("runnable is null...");
+		return newTimeout(delay, unit, runnable);
+	}
+
+	public static HashedTimingWheel.Timeout newCycleTask(LocalDateTime firstTime, long period, TimeUnit unit,
+			Runnable runnable) {
+		return newCycleTask(Duration.between(LocalDateTime.now(), firstTime).toMillis(), unit.toMillis(period),
+				TimeUnit.MILLISECONDS, runnable);
+	}
+
+	/**
+	 * 使用共享的时间轮的周期任务, 上一次执行结束后经过period再次执行(fixed-delay), 与startCycleTask的语义一致.<br>
+	 * 执行中抛出的异常被记录后忽略, 不影响之后的执行; 通过返回值的cancel()停止.
+	 * 
+	 * @param delay
+	 * @param period
+	 * @param unit
+	 * @param runnable
+	 * @return
+	 */
+	public static HashedTimingWheel.Timeout newCycleTask(long delay, long period, TimeUnit unit, Runnable runnable) {
+		return CycleTask.start(delay, period, unit, false, runnable);
+	}
+
+	public static HashedTimingWheel.Timeout newFixedRateCycleTask(LocalDateTime firstTime, long period,
+			TimeUnit unit, Runnable runnable) {
+		return newFixedRateCycleTask(Duration.between(LocalDateTime.now(), firstTime).toMillis(),
+				unit.toMillis(period), TimeUnit.MILLISECONDS, runnable);
+	}
+
+	/**
+	 * 使用共享的时间轮的周期任务, 按delay + n * period的时间点执行(fixed-rate), 执行时间超过period时顺延, 不会同时执行
+	 * 
+	 * @param delay
+	 * @param period
+	 * @param unit
+	 * @param runnable
+	 * @return
+	 */
+	public static HashedTimingWheel.Timeout newFixedRateCycleTask(long delay, long period, TimeUnit unit,
+			Runnable runnable) {
+		return CycleTask.start(delay, period, unit, true, runnable);
+	}
+
+	private static void runSafely(Runnable runnable) {
+		try {
+			runnable.run();
+		} catch (Exception e) {
+			log.error("ScheduleTask runner throw Exception -> {}", e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 每次执行结束后在时间轮中登记下一次执行
+	 */
+	private static final class CycleTask implements HashedTimingWheel.Timeout, Runnable {
+
+		private final Runnable task;
+		private final long periodNanos;
+		private final boolean fixedRate;
+		private volatile boolean cancelled;
+		private volatile HashedTimingWheel.Timeout current;
+		// 只在执行任务的线程中修改, 相邻两次执行之间通过时间轮建立happens-before
+		private long nextNanos;
+
+		private CycleTask(Runnable task, long periodNanos, boolean fixedRate) {
+			this.task = task;
+			this.periodNanos = periodNanos;
+			this.fixedRate = fixedRate;
+		}
+
+		private static CycleTask start(long delay, long period, TimeUnit unit, boolean fixedRate, Runnable runnable) {
+			if (runnable == null)
+				throw new IllegalArgumentException("runnable is null...");
+			if (period <= 0)
+				throw new IllegalArgumentException("period must be greater than 0");
+			CycleTask task = new CycleTask(runnable, unit.toNanos(period), fixedRate);
+			long delayNanos = Math.max(unit.toNanos(delay), 0L);
+			task.nextNanos = System.nanoTime() + delayNanos;
+			task.schedule(delayNanos);
+			return task;
+		}
+
+		private void schedule(long delayNanos) {
+			this.current = newTimeout(delayNanos, TimeUnit.NANOSECONDS, this);
+			// 与cancel()竞争时, 保证新登记的任务也被取消
+			if (cancelled)
+				current.cancel();
+		}
+
+		@Override
+		public void run() {
+			if (cancelled)
+				return;
+			runSafely(task);
+			if (cancelled)
+				return;
+			if (fixedRate) {
+				nextNanos += periodNanos;
+				schedule(Math.max(nextNanos - System.nanoTime(), 0L));
+			} else
+				schedule(periodNanos);
+		}
+
+		@Override
+		public boolean cancel() {
+			if (cancelled)
+				return false;
+			this.cancelled = true;
+			HashedTimingWheel.Timeout current = this.current;
+			if (current != null)
+				current.cancel();
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * 周期任务不会到期
+		 */
+		@Override
+		public boolean isExpired() {
+			return false;
+		}
+
+		@Override
+		public Runnable task() {
+			return task;
+		}
+
+	}
+
+	/**
+	 * 每次调用创建一个{@link Timer}及其线程
+	 * 
+	 * @deprecated 使用{@link #newDelayTask(LocalDateTime, Runnable)}
+	 * @param firstTime
+	 * @param runnable
+	 * @return
+	 */
+	@Deprecated
 	public static Timer startDelayTask(LocalDateTime firstTime, Runnable runnable) {
 		return startDelayTask(Duration.between(LocalDateTime.now(), firstTime).toMillis(), TimeUnit.MILLISECONDS,
 				runnable);
 	}
 
+	/**
+	 * 每次调用创建一个{@link Timer}及其线程
+	 * 
+	 * @deprecated 使用{@link #newDelayTask(long, TimeUnit, Runnable)}
+	 */
+	@Deprecated
 	public static Timer startDelayTask(long delay, TimeUnit unit, Runnable runnable) {
 		Timer timer = new Timer();
 		timer.schedule(new TimerTask() {
 			@Override
 			public void run() {
-				try {
-					runnable.run();
-				} catch (Exception e) {
-					log.error("TimerTask runner throw Exception -> {}", e.getMessage(), e);
-				}
+				runSafely(runnable);
 			}
 		}, unit.toMillis(delay));
 		return timer;
 	}
 
+	/**
+	 * 每次调用创建一个{@link Timer}及其线程
+	 * 
+	 * @deprecated 使用{@link #newCycleTask(LocalDateTime, long, TimeUnit, Runnable)}
+	 */
+	@Deprecated
 	public static Timer startCycleTask(LocalDateTime firstTime, long period, TimeUnit unit, Runnable runnable) {
 		return startCycleTask(Duration.between(LocalDateTime.now(), firstTime).toMillis(), unit.toMillis(period),
 				TimeUnit.MILLISECONDS, runnable);
 	}
 
+	/**
+	 * 每次调用创建一个{@link Timer}及其线程
+	 * 
+	 * @deprecated 使用{@link #newCycleTask(long, long, TimeUnit, Runnable)}
+	 */
+	@Deprecated
 	public static Timer startCycleTask(long delay, long period, TimeUnit unit, Runnable runnable) {
 		Timer timer = new Timer();
 		timer.schedule(new TimerTask() {
 			@Override
 			public void run() {
-				try {
-					runnable.run();
-				} catch (Exception e) {
-					log.error("TimerTask runner throw Exception -> {}", e.getMessage(), e);
-				}
+				runSafely(runnable);
 			}
 		}, unit.toMillis(delay), unit.toMillis(period));
 		return timer;
 	}
 
+	/**
+	 * 每次调用创建一个{@link Timer}及其线程
+	 * 
+	 * @deprecated 使用{@link #newFixedRateCycleTask(LocalDateTime, long, TimeUnit, Runnable)}
+	 */
+	@Deprecated
 	public static Timer startFixedRateCycleTask(LocalDateTime firstTime, long period, TimeUnit unit,
 			Runnable runnable) {
 		return startFixedRateCycleTask(Duration.between(LocalDateTime.now(), firstTime).toMillis(),
 				unit.toMillis(period), TimeUnit.MILLISECONDS, runnable);
 	}
 
+	/**
+	 * 每次调用创建一个{@link Timer}及其线程
+	 * 
+	 * @deprecated 使用{@link #newFixedRateCycleTask(long, long, TimeUnit, Runnable)}
+	 */
+	@Deprecated
 	public static Timer startFixedRateCycleTask(long delay, long period, TimeUnit unit, Runnable runnable) {
 		Timer timer = new Timer();
 		timer.scheduleAtFixedRate((new TimerTask() {
 			@Override
 			public void run() {
-				try {
-					runnable.run();
-				} catch (Exception e) {
-					log.error("TimerTask runner throw Exception -> {}", e.getMessage(), e);
-				}
+				runSafely(runnable);
 			}
 		}), unit.toMillis(delay), unit.toMillis(period));
 		return timer;
@@ -0,0 +1,245 @@
+package io.mercury.common.thread;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.log.CommonLoggerFactory;
+
+/**
+ * 线程CPU亲和性工具, 仅支持Linux.<br>
+ * 通过/proc/thread-self获取当前线程的tid, 再调用taskset设置亲和性, 不依赖本地库.
+ * 绑定只在线程启动时执行一次, 之后运行期间没有任何开销.
+ *
+ * @author yellow013
+ *
+ */
+public final class ThreadAffinity {
+
+	private ThreadAffinity() {
+	}
+
+	private static final Logger log = CommonLoggerFactory.getLogger(ThreadAffinity.class);
+
+	private static final Path ThreadSelfPath = Paths.get("/proc/thread-self");
+
+	/**
+	 * 按Java线程id保存每个线程最近一次的绑定记录, 每次绑定时清除已结束线程的记录, 数量不超过存活的已绑定线程数
+	 */
+	private static final Map<Long, AffinityBinding> Bindings = new ConcurrentHashMap<>();
+
+	private static volatile AffinityPlan maxPriorityThreadPlan;
+
+	/**
+	 * 之后通过{@link ThreadTool#newMaxPriorityThread(Runnable, String)}创建的线程,
+	 * 包括Disruptor和JCTools队列的消费线程, 启动时按plan绑定核心
+	 *
+	 * @param plan 为null时取消
+	 */
+	public static void pinMaxPriorityThreads(@CheckForNull AffinityPlan plan) {
+		maxPriorityThreadPlan = plan;
+		log.info("Max priority threads affinity plan -> {}", plan);
+	}
+
+	@CheckForNull
+	static AffinityPlan maxPriorityThreadPlan() {
+		return maxPriorityThreadPlan;
+	}
+
+	/**
+	 * 按plan为当前线程分配核心并绑定
+	 *
+	 * @param plan
+	 * @return
+	 */
+	public static boolean bindCurrentThread(AffinityPlan plan) {
+		String cpuList = plan.nextCpuList();
+		if (cpuList == null) {
+			log.warn("Thread [{}] not bind, no core available in {}", Thread.currentThread().getName(), plan);
+			return false;
+		}
+		return bindCurrentThread(cpuList);
+	}
+
+	/**
+	 * 绑定当前线程
+	 *
+	 * @param cpuList cpulist格式, 例如 "3" 或 "2-5"
+	 * @return
+	 */
+	public static boolean bindCurrentThread(String cpuList) {
+		String threadName = Thread.currentThread().getName();
+		long tid = currentTid();
+		if (tid < 0) {
+			record(new AffinityBinding(threadName, tid, cpuList, false, "tid unavailable"));
+			log.warn("Thread [{}] bind to [{}] failure, tid unavailable", threadName, cpuList);
+			return false;
+		}
+		try {
+			Process process = new ProcessBuilder("taskset", "-p", "-c", cpuList, Long.toString(tid))
+					.redirectErrorStream(true).start();
+			String output = readAll(process);
+			boolean success = process.waitFor(5, TimeUnit.SECONDS) && process.exitValue() == 0;
+			record(new AffinityBinding(threadName, tid, cpuList, success, output));
+			if (success)
+				log.info("Thread [{}] tid [{}] bind to [{}]", threadName, tid, cpuList);
+			else
+				log.warn("Thread [{}] tid [{}] bind to [{}] failure -> {}", threadName, tid, cpuList, output);
+			return success;
+		} catch (IOException e) {
+			record(new AffinityBinding(threadName, tid, cpuList, false, e.getMessage()));
+			log.warn("Thread [{}] bind to [{}] failure, taskset unavailable -> {}", threadName, cpuList,
+					e.getMessage());
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			record(new AffinityBinding(threadName, tid, cpuList, false, "interrupted"));
+			return false;
+		}
+	}
+
+	private static void record(AffinityBinding binding) {
+		Bindings.values().removeIf(existing -> !existing.isThreadAlive());
+		Bindings.put(Thread.currentThread().getId(), binding);
+	}
+
+	private static String readAll(Process process) throws IOException {
+		byte[] bytes = new byte[1024];
+		StringBuilder builder = new StringBuilder();
+		int length;
+		while ((length = process.getInputStream().read(bytes)) > 0)
+			builder.append(new String(bytes, 0, length, StandardCharsets.UTF_8));
+		return builder.toString().trim();
+	}
+
+	/**
+	 *
+	 * @return 当前线程的Linux tid, 不支持时返回-1
+	 */
+	public static long currentTid() {
+		try {
+			// 链接目标为 <pid>/task/<tid>
+			Path target = Files.readSymbolicLink(ThreadSelfPath);
+			return Long.parseLong(target.getFileName().toString());
+		} catch (IOException | UnsupportedOperationException | NumberFormatException e) {
+			return -1L;
+		}
+	}
+
+	/**
+	 *
+	 * @param tid
+	 * @return 线程最近一次运行所在的核心, 无法读取时返回-1
+	 */
+	public static int lastRunningCpu(long tid) {
+		try {
+			String stat = new String(Files.readAllBytes(Paths.get("/proc/self/task/" + tid + "/stat")),
+					StandardCharsets.US_ASCII);
+			// comm字段可能包含空格, 从最后一个')'之后开始计数, 之后第37个字段为processor
+			String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+			return Integer.parseInt(fields[36]);
+		} catch (IOException | RuntimeException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 *
+	 * @return 存活线程的绑定记录的副本
+	 */
+	public static List<AffinityBinding> bindings() {
+		List<AffinityBinding> bindings = new ArrayList<>(Bindings.size());
+		for (AffinityBinding binding : Bindings.values())
+			if (binding.isThreadAlive())
+				bindings.add(binding);
+		return bindings;
+	}
+
+	/**
+	 *
+	 * @return 每个线程的目标核心, 绑定结果以及当前所在核心
+	 */
+	public static String report() {
+		StringBuilder builder = new StringBuilder("ThreadAffinity report :");
+		for (AffinityBinding binding : bindings())
+			builder.append("\n  ").append(binding.threadName()).append(" | tid ").append(binding.tid())
+					.append(" | cpuList ").append(binding.cpuList()).append(" | ")
+					.append(binding.isSuccess() ? "bound" : "failed").append(" | lastCpu ")
+					.append(binding.tid() < 0 ? -1 : lastRunningCpu(binding.tid()));
+		return builder.toString();
+	}
+
+	@Immutable
+	public static final class AffinityBinding {
+
+		private final String threadName;
+		private final long tid;
+		private final String cpuList;
+		private final boolean success;
+		private final String message;
+		// 不阻止已结束的线程被回收
+		private final WeakReference<Thread> thread;
+
+		private AffinityBinding(String threadName, long tid, String cpuList, boolean success, String message) {
+			this.thread = new WeakReference<>(Thread.currentThread());
+			this.threadName = threadName;
+			this.tid = tid;
+			this.cpuList = cpuList;
+			this.success = success;
+			this.message = message;
+		}
+
+		public String threadName() {
+			return threadName;
+		}
+
+		public long tid() {
+			return tid;
+		}
+
+		public String cpuList() {
+			return cpuList;
+		}
+
+		public boolean isSuccess() {
+			return success;
+		}
+
+		public String message() {
+			return message;
+		}
+
+		public boolean isThreadAlive() {
+			Thread thread = this.thread.get();
+			return thread != null && thread.isAlive();
+		}
+
+		@Override
+		public String toString() {
+			return "{\"threadName\" : \"" + threadName + "\", \"tid\" : " + tid + ", \"cpuList\" : \"" + cpuList
+					+ "\", \"success\" : " + success + "}";
+		}
+
+	}
+
+	public static void main(String[] args) {
+		pinMaxPriorityThreads(AffinityPlan.ofCores(0));
+		ThreadTool.startNewMaxPriorityThread(() -> ThreadTool.sleep(200), "Pinned-Test");
+		ThreadTool.sleep(100);
+		System.out.println(report());
+	}
+
+}
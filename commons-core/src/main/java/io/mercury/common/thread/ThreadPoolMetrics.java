@@ -0,0 +1,125 @@
+package io.mercury.common.thread;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import io.mercury.common.number.recorder.LatencyHistogram;
+
+/**
+ * {@link CommonThreadPool}的运行时指标, 由{@link CommonThreadPool#enableMetrics()}启用.<br>
+ * 排队时间为提交到beforeHandler返回的时间, 包含beforeHandler; 执行时间为beforeHandler返回到afterHandler返回的时间,
+ * 包含afterHandler.
+ *
+ * @author yellow013
+ *
+ */
+@ThreadSafe
+public final class ThreadPoolMetrics {
+
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+
+	private final LatencyHistogram execution = new LatencyHistogram();
+
+	private final LongAdder submittedCount = new LongAdder();
+
+	private final LongAdder completedCount = new LongAdder();
+
+	private final LongAdder failedCount = new LongAdder();
+
+	private final LongAdder rejectedCount = new LongAdder();
+
+	private final AtomicInteger activeThreads = new AtomicInteger();
+
+	private final AtomicInteger peakActiveThreads = new AtomicInteger();
+
+	private final long startNanos = System.nanoTime();
+
+	void markSubmit() {
+		submittedCount.increment();
+	}
+
+	/**
+	 * 提交时已计入submittedCount, 被拒绝时扣除
+	 */
+	void markRejected() {
+		rejectedCount.increment();
+		submittedCount.decrement();
+	}
+
+	void markStart(long waitNanos) {
+		queueWait.record(waitNanos);
+		int active = activeThreads.incrementAndGet();
+		int peak = peakActiveThreads.get();
+		while (active > peak && !peakActiveThreads.compareAndSet(peak, active))
+			peak = peakActiveThreads.get();
+	}
+
+	void markEnd(long executionNanos, boolean failed) {
+		execution.record(executionNanos);
+		activeThreads.decrementAndGet();
+		completedCount.increment();
+		if (failed)
+			failedCount.increment();
+	}
+
+	public LatencyHistogram queueWait() {
+		return queueWait;
+	}
+
+	public LatencyHistogram execution() {
+		return execution;
+	}
+
+	/**
+	 *
+	 * @return 被接受的任务数量, 不包括被拒绝的任务
+	 */
+	public long submittedCount() {
+		return submittedCount.sum();
+	}
+
+	public long completedCount() {
+		return completedCount.sum();
+	}
+
+	/**
+	 *
+	 * @return 抛出异常的任务数量, 通过submit()提交的任务异常由Future持有, 不计入
+	 */
+	public long failedCount() {
+		return failedCount.sum();
+	}
+
+	public long rejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	public int activeThreads() {
+		return activeThreads.get();
+	}
+
+	public int peakActiveThreads() {
+		return peakActiveThreads.get();
+	}
+
+	/**
+	 *
+	 * @return 启用指标以来的平均吞吐量, 每秒完成的任务数
+	 */
+	public double averageThroughput() {
+		long elapsed = System.nanoTime() - startNanos;
+		return elapsed <= 0 ? 0D : completedCount() * 1_000_000_000D / elapsed;
+	}
+
+	/**
+	 * 清空直方图和峰值, 计数不变
+	 */
+	public void reset() {
+		queueWait.reset();
+		execution.reset();
+		peakActiveThreads.set(activeThreads.get());
+	}
+
+}
@@ -0,0 +1,206 @@
+package io.mercury.common.thread;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * 线程池运行时指标快照, 未启用指标时任务计数和直方图字段为0.<br>
+ * 创建快照不修改线程池的状态, 区间吞吐量由调用方保存上一次的快照并使用{@link #throughputSince(ThreadPoolStats)}计算.
+ *
+ * @author yellow013
+ *
+ */
+@Immutable
+public final class ThreadPoolStats {
+
+	private final String name;
+	private final long snapshotNanos;
+	private final int corePoolSize;
+	private final int maximumPoolSize;
+	private final int poolSize;
+	private final int largestPoolSize;
+	private final int activeThreads;
+	private final int queueDepth;
+	private final int queueRemainingCapacity;
+	private final boolean metricsEnabled;
+	private final int peakActiveThreads;
+	private final long submittedCount;
+	private final long completedCount;
+	private final long failedCount;
+	private final long rejectedCount;
+	private final double throughput;
+	private final long queueWaitP50;
+	private final long queueWaitP99;
+	private final long queueWaitMax;
+	private final long executionP50;
+	private final long executionP99;
+	private final long executionMax;
+
+	ThreadPoolStats(CommonThreadPool pool, @CheckForNull ThreadPoolMetrics metrics) {
+		this.name = pool.threadPoolName();
+		this.snapshotNanos = System.nanoTime();
+		this.corePoolSize = pool.getCorePoolSize();
+		this.maximumPoolSize = pool.getMaximumPoolSize();
+		this.poolSize = pool.getPoolSize();
+		this.largestPoolSize = pool.getLargestPoolSize();
+		this.queueDepth = pool.getQueue().size();
+		this.queueRemainingCapacity = pool.getQueue().remainingCapacity();
+		this.metricsEnabled = metrics != null;
+		if (metrics != null) {
+			this.activeThreads = metrics.activeThreads();
+			this.peakActiveThreads = metrics.peakActiveThreads();
+			this.submittedCount = metrics.submittedCount();
+			this.completedCount = metrics.completedCount();
+			this.failedCount = metrics.failedCount();
+			this.rejectedCount = metrics.rejectedCount();
+			this.throughput = metrics.averageThroughput();
+			this.queueWaitP50 = metrics.queueWait().percentile(50);
+			this.queueWaitP99 = metrics.queueWait().percentile(99);
+			this.queueWaitMax = metrics.queueWait().max();
+			this.executionP50 = metrics.execution().percentile(50);
+			this.executionP99 = metrics.execution().percentile(99);
+			this.executionMax = metrics.execution().max();
+		} else {
+			this.activeThreads = pool.getActiveCount();
+			this.peakActiveThreads = 0;
+			this.submittedCount = 0L;
+			this.completedCount = 0L;
+			this.failedCount = 0L;
+			this.rejectedCount = 0L;
+			this.throughput = 0D;
+			this.queueWaitP50 = 0L;
+			this.queueWaitP99 = 0L;
+			this.queueWaitMax = 0L;
+			this.executionP50 = 0L;
+			this.executionP99 = 0L;
+			this.executionMax = 0L;
+		}
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public int corePoolSize() {
+		return corePoolSize;
+	}
+
+	public int maximumPoolSize() {
+		return maximumPoolSize;
+	}
+
+	public int poolSize() {
+		return poolSize;
+	}
+
+	public int largestPoolSize() {
+		return largestPoolSize;
+	}
+
+	public int activeThreads() {
+		return activeThreads;
+	}
+
+	public int peakActiveThreads() {
+		return peakActiveThreads;
+	}
+
+	public int queueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 *
+	 * @return 无界队列时为Integer.MAX_VALUE
+	 */
+	public int queueRemainingCapacity() {
+		return queueRemainingCapacity;
+	}
+
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+
+	public long submittedCount() {
+		return submittedCount;
+	}
+
+	public long completedCount() {
+		return completedCount;
+	}
+
+	public long failedCount() {
+		return failedCount;
+	}
+
+	public long rejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 *
+	 * @return 启用指标以来的平均吞吐量, 每秒完成的任务数
+	 */
+	public double throughput() {
+		return throughput;
+	}
+
+	/**
+	 * 
+	 * @param previous 同一线程池较早的快照
+	 * @return 两次快照之间的吞吐量, 每秒完成的任务数
+	 */
+	public double throughputSince(ThreadPoolStats previous) {
+		long elapsed = snapshotNanos - previous.snapshotNanos;
+		return elapsed <= 0 ? 0D : (completedCount - previous.completedCount) * 1_000_000_000D / elapsed;
+	}
+
+	public long queueWaitP50Nanos() {
+		return queueWaitP50;
+	}
+
+	public long queueWaitP99Nanos() {
+		return queueWaitP99;
+	}
+
+	public long queueWaitMaxNanos() {
+		return queueWaitMax;
+	}
+
+	public long executionP50Nanos() {
+		return executionP50;
+	}
+
+	public long executionP99Nanos() {
+		return executionP99;
+	}
+
+	public long executionMaxNanos() {
+		return executionMax;
+	}
+
+	/**
+	 * 活跃线程数与当前线程数之比, 当前线程数小于核心线程数时按核心线程数计算.<br>
+	 * 使用无界队列时线程数不会超过核心线程数, 因此不使用最大线程数.
+	 *
+	 * @return
+	 */
+	public double saturation() {
+		int threads = Math.max(corePoolSize, poolSize);
+		return threads <= 0 ? 0D : (double) activeThreads / threads;
+	}
+
+	@Override
+	public String toString() {
+		return "{\"name\" : \"" + name + "\", \"corePoolSize\" : " + corePoolSize + ", \"maximumPoolSize\" : "
+				+ maximumPoolSize + ", \"poolSize\" : " + poolSize + ", \"largestPoolSize\" : " + largestPoolSize
+				+ ", \"activeThreads\" : " + activeThreads + ", \"peakActiveThreads\" : " + peakActiveThreads
+				+ ", \"queueDepth\" : " + queueDepth + ", \"submittedCount\" : " + submittedCount
+				+ ", \"completedCount\" : " + completedCount + ", \"failedCount\" : " + failedCount
+				+ ", \"rejectedCount\" : " + rejectedCount + ", \"throughput\" : " + (long) throughput
+				+ ", \"queueWaitP50\" : " + queueWaitP50 + ", \"queueWaitP99\" : " + queueWaitP99
+				+ ", \"queueWaitMax\" : " + queueWaitMax + ", \"executionP50\" : " + executionP50
+				+ ", \"executionP99\" : " + executionP99 + ", \"executionMax\" : " + executionMax + "}";
+	}
+
+}
@@ -1,7 +1,11 @@
 package io.mercury.common.thread;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 
@@ -14,6 +18,48 @@ public final class ThreadTool {
 
 	private static final Logger log = CommonLoggerFactory.getLogger(ThreadTool.class);
 
+	// Java 9+ 的Thread.onSpinWait(), 在Java 8上为null
+	private static final MethodHandle OnSpinWait;
+
+	static {
+		MethodHandle handle = null;
+		try {
+			handle = MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			log.debug("Thread.onSpinWait() is not available, use empty spin");
+		}
+		OnSpinWait = handle;
+	}
+
+	// Java 21+ 的Thread.ofVirtual(), Thread.Builder.name(String)和Thread.Builder.unstarted(Runnable), 不可用时为null
+	private static final MethodHandle OfVirtual;
+	private static final MethodHandle BuilderName;
+	private static final MethodHandle BuilderUnstarted;
+
+	static {
+		MethodHandle ofVirtual = null;
+		MethodHandle builderName = null;
+		MethodHandle builderUnstarted = null;
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Class<?> ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass))
+					.asType(MethodType.methodType(Object.class));
+			builderName = lookup.findVirtual(builderClass, "name", MethodType.methodType(builderClass, String.class))
+					.asType(MethodType.methodType(Object.class, Object.class, String.class));
+			builderUnstarted = lookup
+					.findVirtual(builderClass, "unstarted", MethodType.methodType(Thread.class, Runnable.class))
+					.asType(MethodType.methodType(Thread.class, Object.class, Runnable.class));
+		} catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+			ofVirtual = builderName = builderUnstarted = null;
+			log.debug("Thread.ofVirtual() is not available, virtual thread fallback to platform thread");
+		}
+		OfVirtual = ofVirtual;
+		BuilderName = builderName;
+		BuilderUnstarted = builderUnstarted;
+	}
+
 	/**
 	 * 
 	 * @return
@@ -47,7 +93,7 @@ public final class ThreadTool {
 	 * @return
 	 */
 	public static Thread newMaxPriorityThread(Runnable runnable) {
-		return setThreadPriority(newThread(runnable), Thread.MAX_PRIORITY);
+		return setThreadPriority(newThread(withAffinity(runnable)), Thread.MAX_PRIORITY);
 	}
 
 	/**
@@ -57,7 +103,18 @@ public final class ThreadTool {
 	 * @return
 	 */
 	public static Thread newMaxPriorityThread(Runnable runnable, String threadName) {
-		return setThreadPriority(newThread(runnable, threadName), Thread.MAX_PRIORITY);
+		return setThreadPriority(newThread(withAffinity(runnable), threadName), Thread.MAX_PRIORITY);
+	}
+
+	/**
+	 * Linux上线程优先级不生效, 已通过ThreadAffinity声明计划时最高优先级线程在启动时绑定核心
+	 * 
+	 * @param runnable
+	 * @return
+	 */
+	private static Runnable withAffinity(Runnable runnable) {
+		AffinityPlan plan = ThreadAffinity.maxPriorityThreadPlan();
+		return plan == null ? runnable : plan.wrap(runnable);
 	}
 
 	/**
@@ -242,6 +299,69 @@ public final class ThreadTool {
 		}
 	}
 
+	/**
+	 * 
+	 * @return 运行时是否支持虚拟线程(Java 21+)
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return OfVirtual != null;
+	}
+
+	/**
+	 * 创建未启动的虚拟线程, 运行时不支持虚拟线程时创建普通的守护线程
+	 * 
+	 * @param runnable
+	 * @param threadName
+	 * @return
+	 */
+	public static Thread newVirtualThread(Runnable runnable, String threadName) {
+		if (OfVirtual != null) {
+			try {
+				return (Thread) BuilderUnstarted.invokeExact(BuilderName.invokeExact(OfVirtual.invokeExact(), threadName),
+						runnable);
+			} catch (Throwable e) {
+				log.error("Create virtual thread [{}] failure, fallback to platform thread -> {}", threadName,
+						e.getMessage());
+			}
+		}
+		Thread thread = newThread(runnable, threadName);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * 
+	 * @param runnable
+	 * @return
+	 */
+	public static Thread startNewVirtualThread(Runnable runnable) {
+		return startThread(newVirtualThread(runnable, "VirtualThread-" + VirtualThreadCounter.incrementAndGet()));
+	}
+
+	/**
+	 * 
+	 * @param runnable
+	 * @param threadName
+	 * @return
+	 */
+	public static Thread startNewVirtualThread(Runnable runnable, String threadName) {
+		return startThread(newVirtualThread(runnable, threadName));
+	}
+
+	private static final AtomicLong VirtualThreadCounter = new AtomicLong();
+
+	/**
+	 * 忙等待循环中调用, 运行在Java 9+时使用Thread.onSpinWait()提示CPU, 否则为空操作
+	 */
+	public static void onSpinWait() {
+		if (OnSpinWait != null) {
+			try {
+				OnSpinWait.invokeExact();
+			} catch (Throwable ignored) {
+			}
+		}
+	}
+
 	public static String currentThreadName() {
 		return Thread.currentThread().getName();
 	}
@@ -0,0 +1,207 @@
+package io.mercury.common.thread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import io.mercury.common.log.CommonLoggerFactory;
+
+/**
+ * 每个任务在独立的虚拟线程中执行的ExecutorService, 由{@link CommonThreadPool.ThreadPoolBuilder#buildVirtual(String)}创建.<br>
+ * 运行时不支持虚拟线程(Java 21以下)时使用普通的守护线程, 此时应通过maxConcurrency限制线程数量.<br>
+ * maxConcurrency大于0时, 正在执行的任务达到上限后execute()阻塞提交线程, 直到有任务完成, 用于保护下游资源.
+ *
+ * @author yellow013
+ *
+ */
+@ThreadSafe
+public final class VirtualThreadExecutor extends AbstractExecutorService {
+
+	private final Logger log = CommonLoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+	private final String executorName;
+
+	private final Semaphore limiter;
+
+	private final int maxConcurrency;
+
+	private final BiConsumer<Thread, Runnable> beforeHandler;
+
+	private final BiConsumer<Runnable, Throwable> afterHandler;
+
+	private final Set<Thread> runningThreads = ConcurrentHashMap.newKeySet();
+
+	private final AtomicLong threadCounter = new AtomicLong();
+
+	private final Object terminationLock = new Object();
+
+	private volatile boolean isShutdown = false;
+
+	VirtualThreadExecutor(String executorName, int maxConcurrency, BiConsumer<Thread, Runnable> beforeHandler,
+			BiConsumer<Runnable, Throwable> afterHandler) {
+		this.executorName = executorName;
+		this.maxConcurrency = maxConcurrency;
+		this.limiter = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+		this.beforeHandler = beforeHandler;
+		this.afterHandler = afterHandler;
+		if (!ThreadTool.isVirtualThreadSupported())
+			log.warn("VirtualThreadExecutor {} :: Virtual thread is not supported, use platform thread", executorName);
+	}
+
+	/**
+	 * 达到maxConcurrency时阻塞, 等待期间被中断或已关闭时抛出{@link RejectedExecutionException}
+	 */
+	@Override
+	public void execute(Runnable command) {
+		if (command == null)
+			throw new IllegalArgumentException("command is null...");
+		if (isShutdown)
+			throw new RejectedExecutionException("VirtualThreadExecutor " + executorName + " is shutdown");
+		if (limiter != null) {
+			try {
+				limiter.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for concurrency permit", e);
+			}
+		}
+		Thread thread = null;
+		try {
+			thread = ThreadTool.newVirtualThread(() -> runTask(command),
+					executorName + "-" + threadCounter.incrementAndGet());
+			runningThreads.add(thread);
+			// 与shutdown()竞争时拒绝, 保证shutdownNow()可以中断所有已启动的线程
+			if (isShutdown)
+				throw new RejectedExecutionException("VirtualThreadExecutor " + executorName + " is shutdown");
+			thread.start();
+		} catch (RuntimeException | Error e) {
+			// 线程未启动, runTask不会执行, 在此归还许可
+			if (thread != null)
+				runningThreads.remove(thread);
+			release();
+			throw e;
+		}
+	}
+
+	private void runTask(Runnable command) {
+		Thread thread = Thread.currentThread();
+		Throwable throwable = null;
+		try {
+			if (beforeHandler != null)
+				beforeHandler.accept(thread, command);
+			command.run();
+		} catch (Throwable t) {
+			throwable = t;
+			throw t;
+		} finally {
+			try {
+				if (afterHandler != null)
+					afterHandler.accept(command, throwable);
+			} finally {
+				runningThreads.remove(thread);
+				release();
+			}
+		}
+	}
+
+	private void release() {
+		if (limiter != null)
+			limiter.release();
+		if (isShutdown)
+			signalTermination();
+	}
+
+	private void signalTermination() {
+		if (runningThreads.isEmpty()) {
+			synchronized (terminationLock) {
+				terminationLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return 正在执行的任务数量
+	 */
+	public int activeCount() {
+		return runningThreads.size();
+	}
+
+	/**
+	 *
+	 * @return 为0时表示不限制
+	 */
+	public int maxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public String executorName() {
+		return executorName;
+	}
+
+	@Override
+	public void shutdown() {
+		this.isShutdown = true;
+		signalTermination();
+	}
+
+	/**
+	 * 中断正在执行的任务, 每个任务已有独立线程, 不存在等待中的任务, 返回空列表
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown();
+		for (Thread thread : runningThreads)
+			thread.interrupt();
+		return new ArrayList<>();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return isShutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return isShutdown && runningThreads.isEmpty();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (terminationLock) {
+			while (!isTerminated()) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+					return false;
+				TimeUnit.NANOSECONDS.timedWait(terminationLock, remaining);
+			}
+		}
+		log.info("VirtualThreadExecutor {} is terminated", executorName);
+		return true;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+
+		VirtualThreadExecutor executor = CommonThreadPool.newBuilder().maxConcurrency(1000)
+				.beforeHandler((thread, runnable) -> System.out.println("before -> " + thread.getName()))
+				.buildVirtual("FileLoader");
+		for (int i = 0; i < 10; i++)
+			executor.execute(() -> ThreadTool.sleep(100));
+		executor.shutdown();
+		System.out.println(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+	}
+
+}
@@ -0,0 +1,102 @@
+package io.mercury.common.collections.customize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.collections.api.list.ImmutableList;
+import org.junit.Test;
+
+public class IntKeeperTest {
+
+	private static final class TestKeeper extends IntKeeper<Object[]> {
+
+		private final AtomicInteger created = new AtomicInteger();
+
+		private TestKeeper() {
+			super(0);
+		}
+
+		@Override
+		protected Object[] createWithKey(int k) {
+			created.incrementAndGet();
+			return new Object[] { k };
+		}
+
+	}
+
+	@Test
+	public void testAcquireAndGrow() {
+		TestKeeper keeper = new TestKeeper();
+		assertNull(keeper.get(10));
+		// 超出目录长度时扩容
+		assertNull(keeper.get(1 << 20));
+		for (int k = 0; k < 5000; k += 7)
+			keeper.acquire(k);
+		Object[] large = keeper.acquire(1 << 20);
+		assertEquals(1 << 20, large[0]);
+		assertSame(large, keeper.get(1 << 20));
+		assertEquals(Integer.valueOf(4998), keeper.get(4998)[0]);
+		assertNull(keeper.get(4999));
+		assertEquals(715 + 1, keeper.size());
+		assertEquals(keeper.size(), keeper.created.get());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectNegativeKey() {
+		new TestKeeper().get(-1);
+	}
+
+	@Test
+	public void testValueListCachedInKeyOrder() {
+		TestKeeper keeper = new TestKeeper();
+		keeper.acquire(512);
+		keeper.acquire(3);
+		ImmutableList<Object[]> values = keeper.valueList();
+		assertEquals(2, values.size());
+		assertEquals(3, values.get(0)[0]);
+		assertSame(values, keeper.valueList());
+		keeper.acquire(3);
+		assertSame(values, keeper.valueList());
+		keeper.acquire(1);
+		ImmutableList<Object[]> rebuilt = keeper.valueList();
+		assertNotSame(values, rebuilt);
+		assertEquals(1, rebuilt.get(0)[0]);
+	}
+
+	@Test
+	public void testConcurrentAcquireKeepsOneValue() throws InterruptedException {
+		TestKeeper keeper = new TestKeeper();
+		int threadCount = 8;
+		int keys = 4096;
+		Object[][][] results = new Object[threadCount][keys][];
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			int index = t;
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int k = 0; k < keys; k++)
+					results[index][k] = keeper.acquire(k);
+			});
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(keys, keeper.size());
+		// 所有线程得到同一个值
+		for (int k = 0; k < keys; k++)
+			for (int t = 1; t < threadCount; t++)
+				assertSame(results[0][k], results[t][k]);
+	}
+
+}
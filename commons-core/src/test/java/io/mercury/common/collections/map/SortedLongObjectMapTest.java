@@ -0,0 +1,96 @@
+package io.mercury.common.collections.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class SortedLongObjectMapTest {
+
+	@Test
+	public void testEmpty() {
+		SortedLongObjectMap<String> map = new SortedLongObjectMap<>();
+		assertEquals(0, map.size());
+		assertEquals(Long.MAX_VALUE, map.firstKey());
+		assertEquals(Long.MIN_VALUE, map.lastKey());
+		assertEquals(Long.MIN_VALUE, map.floorKey(0));
+		assertEquals(Long.MAX_VALUE, map.ceilingKey(0));
+		assertNull(map.floor(0));
+		assertEquals(0, map.countInRange(Long.MIN_VALUE, Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testMatchesTreeMap() {
+		// 较小的叶子使插入和删除时频繁分裂与合并
+		SortedLongObjectMap<Long> map = new SortedLongObjectMap<>(4);
+		TreeMap<Long, Long> expected = new TreeMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 50000; i++) {
+			long key = random.nextInt(4000) - 2000;
+			int op = random.nextInt(10);
+			if (op < 6)
+				assertEquals(expected.put(key, key * 3), map.put(key, key * 3));
+			else if (op < 8)
+				assertEquals(expected.remove(key), map.remove(key));
+			else if (op < 9) {
+				long end = key + random.nextInt(50);
+				Map<Long, Long> range = expected.subMap(key, true, end, true);
+				List<Long> removed = new ArrayList<>();
+				assertEquals(range.size(), map.removeRange(key, end, (k, v) -> removed.add(k)));
+				assertEquals(new ArrayList<>(range.keySet()), removed);
+				range.clear();
+			} else {
+				Long floor = expected.floorKey(key);
+				Long ceiling = expected.ceilingKey(key);
+				assertEquals(floor == null ? Long.MIN_VALUE : floor, map.floorKey(key));
+				assertEquals(ceiling == null ? Long.MAX_VALUE : ceiling, map.ceilingKey(key));
+				assertEquals(expected.floorEntry(key) == null ? null : expected.floorEntry(key).getValue(),
+						map.floor(key));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		long start = -500;
+		long end = 700;
+		List<Long> values = new ArrayList<>();
+		map.forEachInRange(start, end, (key, value) -> values.add(value));
+		assertEquals(new ArrayList<>(expected.subMap(start, true, end, true).values()), values);
+		assertEquals(expected.subMap(start, true, end, true).size(), map.countInRange(start, end));
+		List<Long> keys = new ArrayList<>();
+		map.forEach((key, value) -> keys.add(key));
+		assertEquals(new ArrayList<>(expected.keySet()), keys);
+		assertEquals((long) expected.firstKey(), map.firstKey());
+		assertEquals((long) expected.lastKey(), map.lastKey());
+		map.clear();
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void testLongRangeMap() {
+		LongRangeMap<String> map = new LongRangeMap<>();
+		for (long key = 100; key > 0; key -= 10)
+			map.put(key, "v" + key);
+		assertEquals(10, map.size());
+		assertEquals(3, map.scan(15, 45).size());
+		assertEquals("v20", map.scan(15, 45).get(0));
+		assertEquals(3, map.selectKey(15, 45).size());
+		assertEquals(20L, map.floorKey(29));
+		assertEquals("v30", map.ceiling(21));
+		assertEquals(10L, map.firstKey());
+		assertEquals(100L, map.lastKey());
+		List<String> removed = map.remove(50, 80);
+		assertEquals(4, removed.size());
+		assertEquals("v80", removed.get(3));
+		assertNull(map.get(60));
+		assertEquals(6, map.size());
+		assertEquals(90L, map.ceilingKey(51));
+		assertEquals("v10", map.remove(10));
+		assertEquals(20L, map.firstKey());
+	}
+
+}
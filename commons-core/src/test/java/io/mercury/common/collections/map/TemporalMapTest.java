@@ -0,0 +1,50 @@
+package io.mercury.common.collections.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.collections.api.list.MutableList;
+import org.junit.Test;
+
+public class TemporalMapTest {
+
+	@Test
+	public void testSparseScanInOrder() {
+		LocalDateMap<String> map = LocalDateMap.newMap();
+		LocalDate start = LocalDate.of(2020, 1, 1);
+		// 乱序写入稀疏的键
+		for (int days : new int[] { 300, 10, 200, 0, 365 })
+			map.put(start.plusDays(days), "d" + days);
+		MutableList<String> scan = map.scan(start, start.plusDays(300));
+		assertEquals(4, scan.size());
+		assertEquals("d0", scan.get(0));
+		assertEquals("d10", scan.get(1));
+		assertEquals("d300", scan.get(3));
+		List<String> received = new ArrayList<>();
+		map.scan(start.plusDays(1), start.plusDays(365), received::add);
+		assertEquals(4, received.size());
+		assertEquals("d365", received.get(3));
+		// startPoint在endPoint之后时只返回endPoint对应的值
+		assertEquals(1, map.scan(start.plusDays(400), start.plusDays(200)).size());
+	}
+
+	@Test
+	public void testScanSkipsNullValue() {
+		LocalDateMap<String> map = LocalDateMap.newMap();
+		LocalDate date = LocalDate.of(2020, 1, 1);
+		map.put(date, "a");
+		map.put(date.plusDays(1), null);
+		map.put(date.plusDays(2), "c");
+		map.put(date.plusDays(2), null);
+		assertNull(map.get(date.plusDays(1)));
+		assertNull(map.get(date.plusDays(2)));
+		MutableList<String> scan = map.scan(date, date.plusDays(2));
+		assertEquals(1, scan.size());
+		assertEquals("a", scan.get(0));
+	}
+
+}
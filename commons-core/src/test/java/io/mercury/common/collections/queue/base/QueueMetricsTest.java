@@ -0,0 +1,57 @@
+package io.mercury.common.collections.queue.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class QueueMetricsTest {
+
+	@Test
+	public void testCountsAndResidency() {
+		QueueMetrics metrics = new QueueMetrics(8);
+		for (long sequence = 0; sequence < 5; sequence++)
+			metrics.markEnqueue(sequence);
+		metrics.markEnqueue(5);
+		metrics.revokeEnqueue();
+		metrics.markFull();
+		metrics.markWait();
+		metrics.markWait();
+		for (long sequence = 0; sequence < 3; sequence++)
+			metrics.markDequeue(sequence);
+		assertEquals(5, metrics.enqueueCount());
+		assertEquals(3, metrics.dequeueCount());
+		assertEquals(2, metrics.waitCount());
+		assertEquals(1, metrics.fullCount());
+		assertEquals(3, metrics.residency().count());
+
+		QueueStats stats = new QueueStats("test", 2, 8, metrics);
+		assertTrue(stats.isMetricsEnabled());
+		assertEquals(6, stats.remainingCapacity());
+		assertEquals(2, stats.consumerLag());
+		assertEquals(3, stats.residencyCount());
+	}
+
+	@Test
+	public void testWithoutResidency() {
+		// 容量为0时只计数
+		QueueMetrics metrics = new QueueMetrics(0);
+		metrics.markEnqueue(1);
+		metrics.markDequeue(1);
+		metrics.markEnqueue();
+		assertEquals(2, metrics.enqueueCount());
+		assertEquals(1, metrics.dequeueCount());
+		assertEquals(0, metrics.residency().count());
+	}
+
+	@Test
+	public void testStatsWithoutMetrics() {
+		QueueStats stats = new QueueStats("test", 3, -1, null);
+		assertFalse(stats.isMetricsEnabled());
+		assertEquals(-1, stats.remainingCapacity());
+		assertEquals(3, stats.consumerLag());
+		assertEquals(0, stats.enqueueCount());
+	}
+
+}
@@ -1,5 +1,14 @@
 package io.mercury.common.group;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.collections.api.list.ImmutableList;
 import org.junit.Test;
 
 public class BaseGroupTest {
@@ -10,4 +19,60 @@ public class BaseGroupTest {
 	
 	}
 
+	private static final class TestGroup extends BaseGroup<String, StringBuilder> {
+
+		private final AtomicInteger created = new AtomicInteger();
+
+		@Override
+		protected StringBuilder createMember(String k) {
+			created.incrementAndGet();
+			return new StringBuilder(k);
+		}
+
+	}
+
+	@Test
+	public void testMemberListCached() {
+		TestGroup group = new TestGroup();
+		StringBuilder a = group.acquireMember("a");
+		assertSame(a, group.acquireMember("a"));
+		group.acquireMember("b");
+		assertEquals(2, group.created.get());
+		ImmutableList<StringBuilder> members = group.memberList();
+		assertEquals(2, members.size());
+		// 成员未变化时返回同一个列表
+		assertSame(members, group.memberList());
+		group.acquireMember("a");
+		assertSame(members, group.memberList());
+		group.acquireMember("c");
+		ImmutableList<StringBuilder> rebuilt = group.memberList();
+		assertNotSame(members, rebuilt);
+		assertEquals(3, rebuilt.size());
+	}
+
+	@Test
+	public void testRemoveMemberRebuildsList() {
+		TestGroup group = new TestGroup();
+		StringBuilder a = group.acquireMember("a");
+		group.acquireMember("b");
+		ImmutableList<StringBuilder> members = group.memberList();
+		assertSame(a, group.removeMember("a"));
+		assertNull(group.removeMember("a"));
+		ImmutableList<StringBuilder> rebuilt = group.memberList();
+		assertNotSame(members, rebuilt);
+		assertEquals(1, rebuilt.size());
+		assertSame(rebuilt, group.memberList());
+		// 移除后再次获取会创建新成员
+		assertNotSame(a, group.acquireMember("a"));
+		assertEquals(3, group.created.get());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSavedMapReadOnly() {
+		TestGroup group = new TestGroup();
+		StringBuilder a = group.acquireMember("a");
+		assertSame(a, group.savedMap().get("a"));
+		((Map<String, StringBuilder>) group.savedMap()).remove("a");
+	}
+
 }
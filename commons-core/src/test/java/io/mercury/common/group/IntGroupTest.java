@@ -0,0 +1,31 @@
+package io.mercury.common.group;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.collections.api.list.ImmutableList;
+import org.junit.Test;
+
+public class IntGroupTest {
+
+	@Test
+	public void testAcquireAndMemberList() {
+		IntGroup<String> group = new IntGroup<String>() {
+			@Override
+			protected String createMember(int k) {
+				return "member-" + k;
+			}
+		};
+		for (int k : new int[] { 300, 5, 1000, 0 })
+			group.acquireMember(k);
+		assertEquals(4, group.size());
+		assertSame(group.acquireMember(300), group.acquireMember(Integer.valueOf(300)));
+		ImmutableList<String> members = group.memberList();
+		// 按键的顺序排列
+		assertEquals("member-0", members.get(0));
+		assertEquals("member-5", members.get(1));
+		assertEquals("member-1000", members.get(3));
+		assertSame(members, group.memberList());
+	}
+
+}
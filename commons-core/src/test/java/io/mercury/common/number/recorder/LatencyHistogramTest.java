@@ -0,0 +1,40 @@
+package io.mercury.common.number.recorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testPercentile() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0L, histogram.percentile(99));
+		for (long value = 1; value <= 1000; value++)
+			histogram.record(value);
+		assertEquals(1000, histogram.count());
+		assertEquals(1000, histogram.max());
+		assertEquals(500.5D, histogram.mean(), 0D);
+		// 子桶的相对误差不超过1/8
+		long p50 = histogram.percentile(50);
+		assertTrue(p50 >= 500 && p50 <= 500 * 9 / 8);
+		long p99 = histogram.percentile(99);
+		assertTrue(p99 >= 990 && p99 <= 1000);
+		assertEquals(1000, histogram.percentile(100));
+	}
+
+	@Test
+	public void testNegativeAndReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(2, histogram.count());
+		assertEquals(0, histogram.percentile(50));
+		assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+		histogram.reset();
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.max());
+	}
+
+}
@@ -0,0 +1,94 @@
+package io.mercury.common.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+import io.mercury.common.thread.AdaptivePoolSizer.Action;
+import io.mercury.common.thread.AdaptivePoolSizer.SizingDecision;
+
+public class AdaptivePoolSizerTest {
+
+	private static boolean await(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline)
+				return false;
+			ThreadTool.sleep(5);
+		}
+		return true;
+	}
+
+	@Test
+	public void testGrowOnBacklog() throws InterruptedException {
+		CommonThreadPool pool = CommonThreadPool.newBuilder().corePoolSize(1).maximumPoolSize(1)
+				.workQueue(new LinkedBlockingQueue<>()).build("test");
+		AdaptivePoolSizer sizer = AdaptivePoolSizer.newBuilder(pool).bounds(1, 4)
+				.interval(20, TimeUnit.MILLISECONDS).build();
+		assertEquals(4, pool.getMaximumPoolSize());
+		AtomicBoolean slow = new AtomicBoolean(true);
+		for (int i = 0; i < 500; i++)
+			pool.execute(() -> {
+				if (slow.get())
+					ThreadTool.sleep(2);
+			});
+		// 线程数在记录history之前修改, 等待记录完成
+		assertTrue(await(() -> {
+			for (SizingDecision decision : sizer.history())
+				if (decision.action() == Action.Grow)
+					return true;
+			return false;
+		}));
+		sizer.stop();
+		assertTrue(sizer.isStopped());
+		slow.set(false);
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testShrinkWhenIdle() throws InterruptedException {
+		CommonThreadPool pool = CommonThreadPool.newBuilder().corePoolSize(4).maximumPoolSize(4).build("test");
+		AdaptivePoolSizer sizer = AdaptivePoolSizer.newBuilder(pool).bounds(2, 4)
+				.interval(10, TimeUnit.MILLISECONDS).build();
+		// 空闲时减少到minSize
+		assertTrue(await(() -> sizer.currentSize() == 2));
+		ThreadTool.sleep(50);
+		assertEquals(2, sizer.currentSize());
+		sizer.stop();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testStopWhenPoolShutdown() throws InterruptedException {
+		CommonThreadPool pool = CommonThreadPool.newBuilder().corePoolSize(2).maximumPoolSize(2).build("test");
+		AdaptivePoolSizer sizer = AdaptivePoolSizer.newBuilder(pool).bounds(1, 2)
+				.interval(10, TimeUnit.MILLISECONDS).build();
+		assertFalse(sizer.isStopped());
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+		assertTrue(await(sizer::isStopped));
+		int size = sizer.history().size();
+		ThreadTool.sleep(50);
+		assertEquals(size, sizer.history().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectInvalidBounds() {
+		CommonThreadPool pool = CommonThreadPool.newBuilder().build("test");
+		try {
+			AdaptivePoolSizer.newBuilder(pool).bounds(4, 2);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package io.mercury.common.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class BackoffIdleStrategyTest {
+
+	@Test
+	public void testBackoffPhases() {
+		BackoffIdleStrategy idler = new BackoffIdleStrategy(3, 2, 1, 4, TimeUnit.MICROSECONDS);
+		for (int i = 0; i < 5; i++)
+			idler.idle();
+		long start = System.nanoTime();
+		idler.idle(() -> true);
+		// readyCondition为true时不park
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+		idler.reset();
+		BackoffIdleStrategy copy = idler.copy();
+		assertEquals(3, copy.maxSpins());
+		assertEquals(2, copy.maxYields());
+		assertEquals(1000L, copy.minParkNanos());
+		assertEquals(4000L, copy.maxParkNanos());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectIllegalPark() {
+		new BackoffIdleStrategy(0, 0, 10, 1, TimeUnit.MICROSECONDS);
+	}
+
+	@Test
+	public void testWakeupParkedWaiter() throws InterruptedException {
+		// park上限1秒, 丢失唤醒时每次交接都会等待到超时
+		BackoffIdleStrategy idler = new BackoffIdleStrategy(0, 0, 1, 1, TimeUnit.SECONDS);
+		AtomicLong published = new AtomicLong();
+		int rounds = 200;
+		Thread waiter = new Thread(() -> {
+			for (long i = 1; i <= rounds; i++) {
+				long expected = i;
+				while (published.get() < expected)
+					idler.idle(() -> published.get() >= expected);
+				idler.reset();
+			}
+		});
+		long start = System.nanoTime();
+		waiter.start();
+		for (int i = 0; i < rounds; i++) {
+			Thread.sleep(1);
+			published.incrementAndGet();
+			idler.wakeup();
+		}
+		waiter.join(TimeUnit.SECONDS.toMillis(30));
+		assertFalse(waiter.isAlive());
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+	}
+
+}
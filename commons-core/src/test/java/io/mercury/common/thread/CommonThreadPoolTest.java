@@ -0,0 +1,133 @@
+package io.mercury.common.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class CommonThreadPoolTest {
+
+	@Test
+	public void testMetricsCountTasks() throws InterruptedException {
+		CommonThreadPool pool = CommonThreadPool.newBuilder().corePoolSize(2).maximumPoolSize(2).enableMetrics()
+				.build("test");
+		CountDownLatch latch = new CountDownLatch(100);
+		for (int i = 0; i < 100; i++) {
+			int index = i;
+			pool.execute(() -> {
+				latch.countDown();
+				if (index % 10 == 0)
+					throw new IllegalStateException("test");
+			});
+		}
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+		ThreadPoolMetrics metrics = pool.metrics();
+		assertEquals(100, metrics.submittedCount());
+		assertEquals(100, metrics.completedCount());
+		assertEquals(10, metrics.failedCount());
+		assertEquals(0, metrics.activeThreads());
+	}
+
+	@Test
+	public void testBeforeHandlerFailureNotLeakActiveThreads() throws InterruptedException {
+		AtomicInteger calls = new AtomicInteger();
+		CommonThreadPool pool = CommonThreadPool.newBuilder().corePoolSize(1).maximumPoolSize(1).enableMetrics()
+				.beforeHandler((thread, runnable) -> {
+					if (calls.incrementAndGet() % 2 == 0)
+						throw new IllegalStateException("test");
+				}).build("test");
+		for (int i = 0; i < 10; i++)
+			pool.execute(() -> {
+			});
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(10, calls.get());
+		assertEquals(0, pool.metrics().activeThreads());
+		assertEquals(5, pool.metrics().completedCount());
+	}
+
+	@Test
+	public void testSaturationUsesPoolSize() throws InterruptedException {
+		// 无界队列时线程数不会超过核心线程数
+		CommonThreadPool pool = CommonThreadPool.newBuilder().corePoolSize(2).maximumPoolSize(16)
+				.workQueue(new LinkedBlockingQueue<>()).enableMetrics().build("test");
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 4; i++)
+			pool.execute(() -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		ThreadPoolStats stats = pool.stats();
+		release.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(2, stats.activeThreads());
+		assertEquals(2, stats.queueDepth());
+		assertEquals(1D, stats.saturation(), 0D);
+	}
+
+	@Test
+	public void testRemoveWrappedTask() throws InterruptedException {
+		CommonThreadPool pool = CommonThreadPool.newBuilder().corePoolSize(1).maximumPoolSize(1)
+				.workQueue(new LinkedBlockingQueue<>()).enableMetrics().build("test");
+		CountDownLatch release = new CountDownLatch(1);
+		pool.execute(() -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		AtomicInteger executed = new AtomicInteger();
+		Runnable task = executed::incrementAndGet;
+		pool.execute(task);
+		assertTrue(pool.remove(task));
+		assertFalse(pool.remove(task));
+		release.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(0, executed.get());
+	}
+
+	@Test
+	public void testRejectedNotCountedAsSubmitted() throws InterruptedException {
+		CommonThreadPool pool = CommonThreadPool.newBuilder().corePoolSize(1).maximumPoolSize(1)
+				.workQueue(new ArrayBlockingQueue<>(1)).rejectedHandler(new ThreadPoolExecutor.DiscardPolicy())
+				.build("test");
+		// 重复启用不会重复包装RejectedExecutionHandler
+		pool.enableMetrics().enableMetrics();
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 4; i++)
+			pool.execute(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		ThreadPoolMetrics metrics = pool.metrics();
+		assertEquals(2, metrics.submittedCount());
+		assertEquals(2, metrics.rejectedCount());
+		release.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(2, metrics.completedCount());
+	}
+
+}
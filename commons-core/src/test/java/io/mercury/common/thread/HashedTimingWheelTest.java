@@ -0,0 +1,81 @@
+package io.mercury.common.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HashedTimingWheelTest {
+
+	private final HashedTimingWheel wheel = HashedTimingWheel.newBuilder().threadName("HashedTimingWheelTest")
+			.build();
+
+	@After
+	public void stop() {
+		wheel.stop();
+	}
+
+	@Test
+	public void testExpireInDeadlineOrder() throws InterruptedException {
+		List<Integer> order = new ArrayList<>();
+		CountDownLatch latch = new CountDownLatch(5);
+		int[] delays = { 50, 10, 40, 20, 30 };
+		for (int delay : delays) {
+			wheel.newTimeout(delay, TimeUnit.MILLISECONDS, () -> {
+				order.add(delay);
+				latch.countDown();
+			});
+		}
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 10; i <= 50; i += 10)
+			expected.add(i);
+		assertEquals(expected, order);
+	}
+
+	@Test
+	public void testNotBeforeDeadlineAcrossLevels() throws InterruptedException {
+		// 300ms超过第0层的256个tick, 需要从第1层拆分
+		long start = System.nanoTime();
+		CountDownLatch latch = new CountDownLatch(1);
+		long[] firedAt = new long[1];
+		HashedTimingWheel.Timeout timeout = wheel.newTimeout(300, TimeUnit.MILLISECONDS, () -> {
+			firedAt[0] = System.nanoTime();
+			latch.countDown();
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(firedAt[0] - start >= TimeUnit.MILLISECONDS.toNanos(300));
+		assertTrue(timeout.isExpired());
+		assertFalse(timeout.cancel());
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		AtomicInteger count = new AtomicInteger();
+		List<HashedTimingWheel.Timeout> timeouts = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+			timeouts.add(wheel.newTimeout(50 + i % 50, TimeUnit.MILLISECONDS, count::incrementAndGet));
+		for (int i = 0; i < 1000; i += 2)
+			assertTrue(timeouts.get(i).cancel());
+		Thread.sleep(300);
+		assertEquals(500, count.get());
+		assertEquals(0, wheel.pendingTimeouts());
+		assertTrue(timeouts.get(0).isCancelled());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRejectAfterStop() {
+		wheel.stop();
+		wheel.newTimeout(1, TimeUnit.MILLISECONDS, () -> {
+		});
+	}
+
+}
@@ -0,0 +1,135 @@
+package io.mercury.common.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ScheduleTaskExecutorTest {
+
+	@Test
+	public void testDelayTaskRunsOnceOffWheelThread() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicReference<String> threadName = new AtomicReference<>();
+		long start = System.nanoTime();
+		ScheduleTaskExecutor.newDelayTask(50, TimeUnit.MILLISECONDS, () -> {
+			threadName.set(Thread.currentThread().getName());
+			latch.countDown();
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertTrue(threadName.get().startsWith("ScheduleTaskExecutor-Runner"));
+	}
+
+	@Test
+	public void testCancelDelayTask() throws InterruptedException {
+		AtomicInteger count = new AtomicInteger();
+		HashedTimingWheel.Timeout timeout = ScheduleTaskExecutor.newDelayTask(100, TimeUnit.MILLISECONDS,
+				count::incrementAndGet);
+		assertTrue(timeout.cancel());
+		Thread.sleep(200);
+		assertEquals(0, count.get());
+	}
+
+	@Test
+	public void testCycleTaskSurvivesExceptionAndStopsOnCancel() throws InterruptedException {
+		AtomicInteger count = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(5);
+		HashedTimingWheel.Timeout task = ScheduleTaskExecutor.newCycleTask(0, 10, TimeUnit.MILLISECONDS, () -> {
+			count.incrementAndGet();
+			latch.countDown();
+			throw new IllegalStateException("test");
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(task.cancel());
+		assertFalse(task.cancel());
+		assertTrue(task.isCancelled());
+		Thread.sleep(50);
+		int stopped = count.get();
+		Thread.sleep(100);
+		assertEquals(stopped, count.get());
+	}
+
+	@Test
+	public void testFixedRateCycleTask() throws InterruptedException {
+		List<Long> times = new ArrayList<>();
+		CountDownLatch latch = new CountDownLatch(10);
+		HashedTimingWheel.Timeout task = ScheduleTaskExecutor.newFixedRateCycleTask(0, 20, TimeUnit.MILLISECONDS,
+				() -> {
+					synchronized (times) {
+						times.add(System.nanoTime());
+					}
+					latch.countDown();
+				});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		task.cancel();
+		synchronized (times) {
+			long elapsed = times.get(9) - times.get(0);
+			// 9个周期, 按固定频率不会累积每次执行的延迟
+			assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(170));
+			assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(1000));
+		}
+	}
+
+	@Test
+	public void testManyCycleTasksShareThreads() throws InterruptedException {
+		int before = Thread.activeCount();
+		List<HashedTimingWheel.Timeout> tasks = new ArrayList<>();
+		AtomicInteger count = new AtomicInteger();
+		for (int i = 0; i < 500; i++)
+			tasks.add(ScheduleTaskExecutor.newCycleTask(10, 10, TimeUnit.MILLISECONDS, count::incrementAndGet));
+		Thread.sleep(200);
+		int during = Thread.activeCount();
+		tasks.forEach(HashedTimingWheel.Timeout::cancel);
+		assertTrue(count.get() >= 500);
+		assertTrue("threads before -> " + before + ", during -> " + during, during - before < 100);
+	}
+
+	@Test
+	public void testBlockingTaskDoesNotDelayWheel() throws InterruptedException {
+		CountDownLatch blocking = new CountDownLatch(1);
+		CountDownLatch fired = new CountDownLatch(1);
+		ScheduleTaskExecutor.newDelayTask(0, TimeUnit.MILLISECONDS, () -> {
+			try {
+				blocking.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		ScheduleTaskExecutor.newTimeout(20, TimeUnit.MILLISECONDS, fired::countDown);
+		assertTrue(fired.await(2, TimeUnit.SECONDS));
+		blocking.countDown();
+	}
+
+	@Test
+	public void testBlockingTasksUseBoundedRunners() throws InterruptedException {
+		int runners = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger started = new AtomicInteger();
+		// 每个任务单独提交, 避免同一批中的任务顺序执行
+		for (int i = 0; i < runners * 2; i++) {
+			ScheduleTaskExecutor.newDelayTask(i * 2, TimeUnit.MILLISECONDS, () -> {
+				started.incrementAndGet();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		Thread.sleep(300);
+		int running = started.get();
+		release.countDown();
+		assertTrue("running -> " + running + ", runners -> " + runners, running <= runners);
+		assertTrue(running > 0);
+	}
+
+}
@@ -0,0 +1,48 @@
+package io.mercury.common.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import io.mercury.common.thread.ThreadAffinity.AffinityBinding;
+
+public class ThreadAffinityTest {
+
+	private static int countCurrentThread(List<AffinityBinding> bindings) {
+		int count = 0;
+		for (AffinityBinding binding : bindings)
+			if (binding.threadName().equals(Thread.currentThread().getName()))
+				count++;
+		return count;
+	}
+
+	@Test
+	public void testRebindReplacesRecord() {
+		ThreadAffinity.bindCurrentThread("0");
+		ThreadAffinity.bindCurrentThread("0");
+		List<AffinityBinding> bindings = ThreadAffinity.bindings();
+		assertEquals(1, countCurrentThread(bindings));
+		assertTrue(ThreadAffinity.report().contains(Thread.currentThread().getName()));
+	}
+
+	@Test
+	public void testDeadThreadsPruned() throws InterruptedException {
+		for (int i = 0; i < 20; i++) {
+			Thread thread = new Thread(() -> ThreadAffinity.bindCurrentThread("0"), "AffinityTest-" + i);
+			thread.start();
+			thread.join();
+		}
+		for (AffinityBinding binding : ThreadAffinity.bindings())
+			assertFalse(binding.threadName().startsWith("AffinityTest-"));
+		// 下一次绑定时清除已结束线程的记录
+		ThreadAffinity.bindCurrentThread("0");
+		List<AffinityBinding> bindings = ThreadAffinity.bindings();
+		assertEquals(1, countCurrentThread(bindings));
+		assertTrue(bindings.size() <= 2);
+	}
+
+}
@@ -0,0 +1,89 @@
+package io.mercury.common.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class VirtualThreadExecutorTest {
+
+	@Test
+	public void testMaxConcurrency() throws InterruptedException {
+		VirtualThreadExecutor executor = CommonThreadPool.newBuilder().maxConcurrency(2).buildVirtual("test");
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger peak = new AtomicInteger();
+		for (int i = 0; i < 20; i++)
+			executor.execute(() -> {
+				int current = running.incrementAndGet();
+				peak.accumulateAndGet(current, Math::max);
+				ThreadTool.sleep(5);
+				running.decrementAndGet();
+			});
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertTrue(peak.get() <= 2);
+		assertEquals(0, executor.activeCount());
+	}
+
+	@Test
+	public void testPermitReturnedAfterFailure() throws InterruptedException {
+		AtomicInteger failures = new AtomicInteger();
+		VirtualThreadExecutor executor = CommonThreadPool.newBuilder().maxConcurrency(1)
+				.afterHandler((runnable, throwable) -> {
+					if (throwable != null)
+						failures.incrementAndGet();
+				}).buildVirtual("test");
+		for (int i = 0; i < 5; i++)
+			executor.execute(() -> {
+				throw new IllegalStateException("test");
+			});
+		// 许可全部归还时不会阻塞
+		CountDownLatch latch = new CountDownLatch(1);
+		executor.execute(latch::countDown);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(5, failures.get());
+	}
+
+	@Test
+	public void testRejectAfterShutdown() throws InterruptedException {
+		VirtualThreadExecutor executor = CommonThreadPool.newBuilder().maxConcurrency(1).buildVirtual("test");
+		executor.shutdown();
+		try {
+			executor.execute(() -> {
+			});
+			fail();
+		} catch (RejectedExecutionException e) {
+			assertTrue(e.getMessage().contains("shutdown"));
+		}
+		assertEquals(0, executor.activeCount());
+		assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testShutdownNowInterrupts() throws InterruptedException {
+		VirtualThreadExecutor executor = CommonThreadPool.newBuilder().buildVirtual("test");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		executor.execute(() -> {
+			started.countDown();
+			try {
+				Thread.sleep(10000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		executor.shutdownNow();
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+}
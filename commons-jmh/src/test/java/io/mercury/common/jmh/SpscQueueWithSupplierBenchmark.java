@@ -0,0 +1,82 @@
+package io.mercury.common.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.mercury.common.concurrent.disruptor.BufferSize;
+import io.mercury.common.concurrent.disruptor.SpscQueueWithSupplier;
+import io.mercury.common.concurrent.disruptor.WaitStrategyOption;
+
+/**
+ * SpscQueueWithSupplier生产者写入预分配对象的吞吐量与分配量.<br>
+ * 使用-prof gc运行(main方法已添加GCProfiler), 稳定运行时gc.alloc.rate.norm应接近0 B/op.
+ *
+ * @author yellow013
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpscQueueWithSupplierBenchmark {
+
+	public static final class LongEvent {
+		private long value;
+	}
+
+	private SpscQueueWithSupplier<LongEvent> queue;
+
+	private final LongEvent source = new LongEvent();
+
+	private long value;
+
+	// 只在消费线程中写入
+	private long sum;
+
+	@Setup
+	public void setup() {
+		this.queue = new SpscQueueWithSupplier<>(BufferSize.POW2_10, true, WaitStrategyOption.Yielding,
+				LongEvent::new, (slot, source) -> slot.value = source.value, event -> sum += event.value);
+	}
+
+	@TearDown
+	public void tearDown() {
+		queue.stop();
+	}
+
+	@Benchmark
+	public void claimAndPublish() {
+		long sequence = queue.claim();
+		queue.get(sequence).value = ++value;
+		queue.publish(sequence);
+	}
+
+	@Benchmark
+	public boolean enqueueWithCopier() {
+		source.value = ++value;
+		return queue.enqueue(source);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SpscQueueWithSupplierBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+
+}